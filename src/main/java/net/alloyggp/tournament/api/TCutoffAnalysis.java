@@ -0,0 +1,884 @@
+package net.alloyggp.tournament.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
+import com.google.common.math.LongMath;
+
+import net.alloyggp.tournament.internal.InternalMatchResult;
+import net.alloyggp.tournament.internal.MatchId;
+import net.alloyggp.tournament.internal.Rankings;
+import net.alloyggp.tournament.internal.StandardTournamentSnapshot;
+import net.alloyggp.tournament.internal.runner.EliminationRoundScore;
+import net.alloyggp.tournament.internal.runner.PointTotalScore;
+import net.alloyggp.tournament.internal.runner.StageRun;
+import net.alloyggp.tournament.internal.spec.MatchSpec;
+import net.alloyggp.tournament.internal.spec.StageFormat;
+import net.alloyggp.tournament.internal.spec.StageSpec;
+import net.alloyggp.tournament.internal.spec.TournamentSpec;
+
+/**
+ * For each player in the stage currently being played, whether the player is
+ * still able to make the cutoff into the next stage, and to finish the stage in
+ * first place.
+ *
+ * <p>This is found by a branch-and-bound search over the ways the rest of the stage
+ * can turn out. Each node of the search narrows down the results of the matches to
+ * run next: in the Swiss formats, to a range of goal values for each role, and in
+ * the elimination formats, to a winner for each pairing. Goal values stay within
+ * what the games allow: in a fixed-sum game they add up to 100, so one player's win
+ * is the other's loss. Each node is bounded by running the stage with its least and
+ * most favorable goal values for every player, but the bounds are only used to prune
+ * nodes that can't change any answer; the answers come from the finished stages that
+ * the search reaches, with ties broken as the stage's standings break them.
+ *
+ * <p>The search runs in parallel on a {@link ForkJoinPool}. It gives up after
+ * {@link #MAX_NODES} nodes, in which case an outcome is only reported as
+ * {@link Status#GUARANTEED} or {@link Status#IMPOSSIBLE} if the bounds on the whole
+ * stage show it, with ties in the bounds assumed to go either way.
+ */
+@Immutable
+public class TCutoffAnalysis {
+    /** The most nodes a single analysis will search. */
+    public static final int MAX_NODES = 2000;
+    private static final ImmutableSet<StageFormat> POINT_TOTAL_FORMATS =
+            ImmutableSet.of(StageFormat.SWISS1, StageFormat.SWISS2, StageFormat.SWISS3);
+    private static final Ordering<TMatchSetup> MATCH_ID_ORDERING =
+            Ordering.natural().onResultOf(new Function<TMatchSetup, String>() {
+                @Override
+                public String apply(TMatchSetup match) {
+                    return match.getMatchId();
+                }
+            });
+
+    public static enum Status {
+        /** The player gets this outcome however the remaining matches go. */
+        GUARANTEED,
+        /** The player may or may not get this outcome. */
+        POSSIBLE,
+        /** The player can no longer get this outcome. */
+        IMPOSSIBLE,
+    }
+
+    private final int stageNum;
+    private final boolean hasNextStage;
+    private final int playerCutoff;
+    private final ImmutableMap<TPlayer, Status> advancementStatuses;
+    private final ImmutableMap<TPlayer, Status> stageWinStatuses;
+
+    private TCutoffAnalysis(int stageNum, boolean hasNextStage, int playerCutoff,
+            ImmutableMap<TPlayer, Status> advancementStatuses, ImmutableMap<TPlayer, Status> stageWinStatuses) {
+        this.stageNum = stageNum;
+        this.hasNextStage = hasNextStage;
+        this.playerCutoff = playerCutoff;
+        this.advancementStatuses = advancementStatuses;
+        this.stageWinStatuses = stageWinStatuses;
+    }
+
+    /**
+     * Analyzes the latest stage of the tournament that has been reached, using a
+     * new {@link ForkJoinPool} with one thread per available processor.
+     */
+    public static TCutoffAnalysis analyze(TTournamentStatus status) {
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            return analyze(status, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Analyzes the latest stage of the tournament that has been reached, searching
+     * on the given pool.
+     */
+    public static TCutoffAnalysis analyze(TTournamentStatus status, ForkJoinPool pool) {
+        TournamentSpec spec = (TournamentSpec) status.getSpec();
+        TSeeding initialSeeding = status.getInitialSeeding();
+        Set<InternalMatchResult> results = Sets.newHashSet();
+        for (TMatchResult result : status.getResultsSoFar()) {
+            InternalMatchResult internalResult = spec.filterInputResult(result);
+            if (internalResult != null) {
+                results.add(internalResult);
+            }
+        }
+        StandardTournamentSnapshot snapshot = spec.evaluateForInternalResults(initialSeeding, results);
+        List<TSeeding> stageSeedings = snapshot.getStageSeedings();
+        int stageNum = stageSeedings.size() - 1;
+        List<InternalMatchResult> resultsInStage = Lists.newArrayList();
+        for (InternalMatchResult result : results) {
+            if (result.getMatchId().getStageNumber() == stageNum) {
+                resultsInStage.add(result);
+            }
+        }
+
+        List<Cutoff> cutoffs = Lists.newArrayList();
+        cutoffs.add(new Cutoff(1, ImmutableSet.<TPlayer>of()));
+        boolean hasNextStage = stageNum + 1 < spec.getStages().size();
+        int playerCutoff = 0;
+        if (hasNextStage) {
+            StageSpec nextStage = spec.getStages().get(stageNum + 1);
+            playerCutoff = nextStage.getPlayerLimit();
+            cutoffs.add(new Cutoff(playerCutoff, nextStage.getExcludedPlayers()));
+        }
+        Search search = new Search(spec, stageNum, stageSeedings.get(stageNum), cutoffs);
+        search.run(resultsInStage, pool);
+
+        List<TPlayer> allPlayers = initialSeeding.getPlayersBestFirst();
+        ImmutableMap<TPlayer, Status> stageWinStatuses = search.getStatuses(0, allPlayers);
+        if (!hasNextStage) {
+            return new TCutoffAnalysis(stageNum, false, 0, ImmutableMap.<TPlayer, Status>of(), stageWinStatuses);
+        }
+        ImmutableMap<TPlayer, Status> advancementStatuses = search.getStatuses(1, allPlayers);
+        return new TCutoffAnalysis(stageNum, true, playerCutoff, advancementStatuses, stageWinStatuses);
+    }
+
+    /**
+     * A number of places at the top of the stage, and the players who can't take them.
+     */
+    @Immutable
+    private static class Cutoff {
+        private final int numPlaces;
+        private final ImmutableSet<TPlayer> ineligiblePlayers;
+
+        public Cutoff(int numPlaces, ImmutableSet<TPlayer> ineligiblePlayers) {
+            this.numPlaces = numPlaces;
+            this.ineligiblePlayers = ineligiblePlayers;
+        }
+    }
+
+    /**
+     * The search for the outcomes of the cutoffs that each player can reach. For each
+     * cutoff and player, it records whether some finished stage has been found where the
+     * player makes the cutoff, and whether one has been found where they miss it.
+     */
+    @ThreadSafe
+    private static class Search {
+        private final TournamentSpec spec;
+        private final int stageNum;
+        private final TSeeding stageSeeding;
+        private final StageSpec stage;
+        private final List<TPlayer> stagePlayers;
+        private final ImmutableList<Cutoff> cutoffs;
+        //Indexed by cutoff, then by the player's position in the stage seeding
+        private final boolean[][] eligible;
+        private final AtomicIntegerArray madeCutoff;
+        private final AtomicIntegerArray missedCutoff;
+        //The statuses shown by the bounds on the whole stage; set before the search starts
+        private int[][] rootBoundStatuses;
+        private final AtomicInteger nodesLeft = new AtomicInteger(MAX_NODES);
+        private volatile boolean gaveUp = false;
+
+        public Search(TournamentSpec spec, int stageNum, TSeeding stageSeeding, List<Cutoff> cutoffs) {
+            this.spec = spec;
+            this.stageNum = stageNum;
+            this.stageSeeding = stageSeeding;
+            this.stage = spec.getStages().get(stageNum);
+            this.stagePlayers = stageSeeding.getPlayersBestFirst();
+            this.cutoffs = ImmutableList.copyOf(cutoffs);
+            this.eligible = new boolean[cutoffs.size()][stagePlayers.size()];
+            for (int c = 0; c < cutoffs.size(); c++) {
+                for (int i = 0; i < stagePlayers.size(); i++) {
+                    eligible[c][i] = !cutoffs.get(c).ineligiblePlayers.contains(stagePlayers.get(i));
+                }
+            }
+            this.madeCutoff = new AtomicIntegerArray(cutoffs.size() * stagePlayers.size());
+            this.missedCutoff = new AtomicIntegerArray(cutoffs.size() * stagePlayers.size());
+        }
+
+        public void run(List<InternalMatchResult> resultsInStage, ForkJoinPool pool) {
+            Node root = new Node(ImmutableList.copyOf(resultsInStage),
+                    ImmutableMap.<String, GoalRanges>of(), ImmutableMap.<String, TPlayer>of());
+            Bounds rootBounds = getBounds(root);
+            rootBoundStatuses = new int[cutoffs.size()][];
+            for (int c = 0; c < cutoffs.size(); c++) {
+                rootBoundStatuses[c] = getBoundStatuses(c, rootBounds.lowest, rootBounds.highest);
+            }
+            for (TPlayer player : stagePlayers) {
+                probe(root, player, true);
+                probe(root, player, false);
+            }
+            pool.invoke(new SearchTask(this, root));
+        }
+
+        /*
+         * Plays out the rest of the node with each match going as well as it can for
+         * the given player, or as badly, and records the outcomes of the finished stage.
+         * This finds most of the outcomes that can be reached far sooner than splitting
+         * the goal ranges would.
+         */
+        private void probe(Node node, TPlayer player, boolean favored) {
+            StageRun run = spec.startStageRun(stageNum, stageSeeding, node.results);
+            while (true) {
+                Set<TMatchSetup> matches = run.getEvaluation().getMatchesToRun().getMatchesToRun();
+                if (matches.isEmpty()) {
+                    break;
+                }
+                List<InternalMatchResult> played = Lists.newArrayList();
+                for (TMatchSetup match : matches) {
+                    played.add(InternalMatchResult.createUninterned(TMatchResult.getSuccessfulMatchResult(
+                            match.getMatchId(), getProbeGoals(node, match, player, favored))));
+                }
+                run.addResults(played);
+            }
+            TRanking standings = run.getEvaluation().getCurrentStandings(stageSeeding);
+            long[] scores = new long[stagePlayers.size()];
+            for (int i = 0; i < stagePlayers.size(); i++) {
+                scores[i] = -standings.getPosition(stagePlayers.get(i));
+            }
+            recordOutcomes(scores, scores);
+        }
+
+        private List<Integer> getProbeGoals(Node node, TMatchSetup match, TPlayer player, boolean favored) {
+            int role = match.getPlayers().indexOf(player);
+            if (POINT_TOTAL_FORMATS.contains(stage.getFormat())) {
+                return getGoalRanges(node.goalRanges, match).getGoals(role, favored);
+            }
+            TPlayer winner = node.pairingWinners.get(getPairing(match));
+            if (winner == null) {
+                if (role < 0) {
+                    //The player isn't in the pairing, so either winner will do
+                    winner = match.getPlayers().get(0);
+                } else if (favored) {
+                    winner = player;
+                } else {
+                    winner = match.getPlayers().get(1 - role);
+                }
+            }
+            List<Integer> goals = Lists.newArrayList();
+            for (TPlayer matchPlayer : match.getPlayers()) {
+                goals.add(matchPlayer.equals(winner) ? 100 : 0);
+            }
+            return goals;
+        }
+
+        /*
+         * Returns the children of the node to search, or nothing if the node can't
+         * show any outcome that hasn't been found yet.
+         */
+        private List<Node> expand(Node node) {
+            if (gaveUp || nodesLeft.decrementAndGet() < 0) {
+                gaveUp = true;
+                return ImmutableList.of();
+            }
+            Bounds bounds = getBounds(node);
+            if (!recordOutcomes(bounds.lowest, bounds.highest) || bounds.matches.isEmpty()) {
+                return ImmutableList.of();
+            }
+            if (POINT_TOTAL_FORMATS.contains(stage.getFormat())) {
+                return splitGoalRanges(bounds.node, bounds.matches);
+            } else {
+                return chooseWinner(bounds.node, bounds.matches);
+            }
+        }
+
+        /*
+         * Plays the matches to run for as long as the node leaves each of them with a
+         * single result, and then bounds each player's final score in the stage, on a
+         * scale where higher is better. Once the stage is finished, the bounds are
+         * exact and follow the stage's standings, tiebreakers included.
+         */
+        private Bounds getBounds(Node node) {
+            StageRun run = spec.startStageRun(stageNum, stageSeeding, node.results);
+            List<TMatchSetup> matches;
+            while (true) {
+                matches = MATCH_ID_ORDERING.sortedCopy(run.getEvaluation().getMatchesToRun().getMatchesToRun());
+                List<InternalMatchResult> played = playOnlyResults(node, matches);
+                if (matches.isEmpty() || played == null) {
+                    break;
+                }
+                run.addResults(played);
+                node = new Node(ImmutableList.<InternalMatchResult>builder().addAll(node.results).addAll(played).build(),
+                        ImmutableMap.<String, GoalRanges>of(), node.pairingWinners);
+            }
+            long[] lowest = new long[stagePlayers.size()];
+            long[] highest = new long[stagePlayers.size()];
+            if (matches.isEmpty()) {
+                //Only the order matters, so the positions stand in for the scores
+                TRanking standings = run.getEvaluation().getCurrentStandings(stageSeeding);
+                for (int i = 0; i < stagePlayers.size(); i++) {
+                    lowest[i] = -standings.getPosition(stagePlayers.get(i));
+                    highest[i] = lowest[i];
+                }
+            } else if (POINT_TOTAL_FORMATS.contains(stage.getFormat())) {
+                int roundNum = MatchId.create(matches.get(0).getMatchId()).getRoundNumber();
+                TRanking lowestStandings = completeRound(run, roundNum, node.goalRanges, false);
+                TRanking highestStandings = completeRound(
+                        spec.startStageRun(stageNum, stageSeeding, node.results),
+                        roundNum, node.goalRanges, true);
+                long laterRoundsT1K = getMaximumPointsT1K(stage, roundNum + 1);
+                for (int i = 0; i < stagePlayers.size(); i++) {
+                    TPlayer player = stagePlayers.get(i);
+                    lowest[i] = getPointsT1K(lowestStandings, player);
+                    //Scores are only rounded once, so allow for the rounding of the later points
+                    highest[i] = getPointsT1K(highestStandings, player) + laterRoundsT1K + 1;
+                }
+            } else {
+                //Rounds are numbered by how many are left, and a player still in contention
+                //can go out in this round or win the stage
+                int roundNum = MatchId.create(matches.get(0).getMatchId()).getRoundNumber();
+                TRanking standings = run.getEvaluation().getCurrentStandings(stageSeeding);
+                for (int i = 0; i < stagePlayers.size(); i++) {
+                    int roundEliminated = getRoundEliminated(standings, stagePlayers.get(i));
+                    if (roundEliminated > 0) {
+                        lowest[i] = -roundEliminated;
+                        highest[i] = -roundEliminated;
+                    } else {
+                        lowest[i] = -roundNum;
+                        highest[i] = 1;
+                    }
+                }
+            }
+            return new Bounds(node, matches, lowest, highest);
+        }
+
+        /*
+         * Returns the standings at the end of the given round if every remaining match
+         * in the round ends with each role's lowest or highest goal value in its range.
+         * Points only go up with goal values, byes included, so this gives every
+         * player's lowest or highest possible points at the end of the round.
+         */
+        private TRanking completeRound(StageRun run, int roundNum, Map<String, GoalRanges> goalRanges,
+                boolean highest) {
+            while (true) {
+                List<InternalMatchResult> roundResults = Lists.newArrayList();
+                for (TMatchSetup match : run.getEvaluation().getMatchesToRun().getMatchesToRun()) {
+                    if (MatchId.create(match.getMatchId()).getRoundNumber() == roundNum) {
+                        GoalRanges ranges = getGoalRanges(goalRanges, match);
+                        roundResults.add(InternalMatchResult.createUninterned(TMatchResult.getSuccessfulMatchResult(
+                                match.getMatchId(), highest ? ranges.getHighest() : ranges.getLowest())));
+                    }
+                }
+                if (roundResults.isEmpty()) {
+                    return run.getEvaluation().getCurrentStandings(stageSeeding);
+                }
+                run.addResults(roundResults);
+            }
+        }
+
+        /*
+         * Records the outcomes that the bounds show are reached everywhere in the
+         * node's subtree, and returns true iff the subtree may reach an outcome that
+         * hasn't been found yet.
+         */
+        private boolean recordOutcomes(long[] lowest, long[] highest) {
+            boolean mayFindMore = false;
+            for (int c = 0; c < cutoffs.size(); c++) {
+                int[] boundStatuses = getBoundStatuses(c, lowest, highest);
+                for (int i = 0; i < stagePlayers.size(); i++) {
+                    if (!eligible[c][i]) {
+                        continue;
+                    }
+                    int index = c * stagePlayers.size() + i;
+                    if (boundStatuses[i] > 0) {
+                        madeCutoff.set(index, 1);
+                    } else if (boundStatuses[i] < 0) {
+                        missedCutoff.set(index, 1);
+                    } else if (madeCutoff.get(index) == 0 || missedCutoff.get(index) == 0) {
+                        mayFindMore = true;
+                    }
+                }
+            }
+            return mayFindMore;
+        }
+
+        /*
+         * Returns 1 for each player the bounds show makes the cutoff, -1 for each
+         * player they show misses it, and 0 otherwise. A player surely finishes behind
+         * the players whose lowest scores beat their highest score, and can only finish
+         * behind the players whose highest scores reach their lowest score. Sorting the
+         * bounds lets both be counted for every player in O(n log n) time.
+         */
+        private int[] getBoundStatuses(int c, long[] lowest, long[] highest) {
+            List<Integer> contenders = Lists.newArrayList();
+            for (int i = 0; i < stagePlayers.size(); i++) {
+                if (eligible[c][i]) {
+                    contenders.add(i);
+                }
+            }
+            long[] sortedLowest = new long[contenders.size()];
+            long[] sortedHighest = new long[contenders.size()];
+            for (int k = 0; k < contenders.size(); k++) {
+                sortedLowest[k] = lowest[contenders.get(k)];
+                sortedHighest[k] = highest[contenders.get(k)];
+            }
+            Arrays.sort(sortedLowest);
+            Arrays.sort(sortedHighest);
+
+            int numPlaces = cutoffs.get(c).numPlaces;
+            int[] statuses = new int[stagePlayers.size()];
+            Arrays.fill(statuses, -1);
+            for (int i : contenders) {
+                //Neither count includes the player, since their own bounds overlap
+                int numSurelyAhead = countGreaterThan(sortedLowest, highest[i]);
+                int numPossiblyAhead = countAtLeast(sortedHighest, lowest[i]) - 1;
+                if (numSurelyAhead >= numPlaces) {
+                    statuses[i] = -1;
+                } else if (numPossiblyAhead < numPlaces) {
+                    statuses[i] = 1;
+                } else {
+                    statuses[i] = 0;
+                }
+            }
+            return statuses;
+        }
+
+        /*
+         * Splits the widest goal range among the matches to run. Once every match
+         * to run has a single result left, the matches are played instead.
+         */
+        private List<Node> splitGoalRanges(Node node, List<TMatchSetup> matches) {
+            TMatchSetup widestMatch = null;
+            GoalRanges widestRanges = null;
+            for (TMatchSetup match : matches) {
+                GoalRanges ranges = getGoalRanges(node.goalRanges, match);
+                if (widestRanges == null || ranges.getWidth() > widestRanges.getWidth()) {
+                    widestMatch = match;
+                    widestRanges = ranges;
+                }
+            }
+            List<Node> children = Lists.newArrayList();
+            for (GoalRanges half : widestRanges.split()) {
+                Map<String, GoalRanges> goalRanges = Maps.newHashMap(node.goalRanges);
+                goalRanges.put(widestMatch.getMatchId(), half);
+                children.add(new Node(node.results, ImmutableMap.copyOf(goalRanges), node.pairingWinners));
+            }
+            return children;
+        }
+
+        /*
+         * Chooses a winner for the first pairing being played that doesn't have one.
+         * The winner of a pairing wins each of its matches 100 to 0, which is the
+         * best the winner can do, so every way the pairings can be decided is searched.
+         */
+        private List<Node> chooseWinner(Node node, List<TMatchSetup> matches) {
+            for (TMatchSetup match : matches) {
+                String pairing = getPairing(match);
+                if (!node.pairingWinners.containsKey(pairing)) {
+                    List<Node> children = Lists.newArrayList();
+                    for (TPlayer player : match.getPlayers()) {
+                        Map<String, TPlayer> pairingWinners = Maps.newHashMap(node.pairingWinners);
+                        pairingWinners.put(pairing, player);
+                        children.add(new Node(node.results, node.goalRanges, ImmutableMap.copyOf(pairingWinners)));
+                    }
+                    return children;
+                }
+            }
+            //Every pairing already has a winner, so the matches were played in getBounds
+            throw new IllegalStateException("No outcomes to choose between for " + matches);
+        }
+
+        /*
+         * Returns the results of the matches to run if the node leaves each of them
+         * with a single result, or null otherwise. The winners of pairings are kept
+         * for their later matches.
+         */
+        private static @Nullable List<InternalMatchResult> playOnlyResults(Node node, List<TMatchSetup> matches) {
+            List<InternalMatchResult> played = Lists.newArrayList();
+            for (TMatchSetup match : matches) {
+                List<Integer> goals = getOnlyGoals(match, node.goalRanges, node.pairingWinners);
+                if (goals == null) {
+                    return null;
+                }
+                played.add(InternalMatchResult.createUninterned(
+                        TMatchResult.getSuccessfulMatchResult(match.getMatchId(), goals)));
+            }
+            return played;
+        }
+
+        private static @Nullable List<Integer> getOnlyGoals(TMatchSetup match,
+                Map<String, GoalRanges> goalRanges, Map<String, TPlayer> pairingWinners) {
+            TPlayer winner = pairingWinners.get(getPairing(match));
+            if (winner != null) {
+                List<Integer> goals = Lists.newArrayList();
+                for (TPlayer player : match.getPlayers()) {
+                    goals.add(player.equals(winner) ? 100 : 0);
+                }
+                return goals;
+            }
+            GoalRanges ranges = getGoalRanges(goalRanges, match);
+            if (ranges.getWidth() == 0) {
+                return ranges.getLowest();
+            }
+            return null;
+        }
+
+        private static GoalRanges getGoalRanges(Map<String, GoalRanges> goalRanges, TMatchSetup match) {
+            GoalRanges ranges = goalRanges.get(match.getMatchId());
+            if (ranges != null) {
+                return ranges;
+            }
+            return GoalRanges.create(match.getGame());
+        }
+
+        private static String getPairing(TMatchSetup match) {
+            MatchId matchId = MatchId.create(match.getMatchId());
+            return matchId.getRoundNumber() + "/" + matchId.getPlayerMatchingNumber();
+        }
+
+        public ImmutableMap<TPlayer, Status> getStatuses(int c, List<TPlayer> allPlayers) {
+            Map<TPlayer, Status> statuses = Maps.newHashMap();
+            for (TPlayer player : allPlayers) {
+                statuses.put(player, Status.IMPOSSIBLE);
+            }
+            for (int i = 0; i < stagePlayers.size(); i++) {
+                if (!eligible[c][i]) {
+                    continue;
+                }
+                int index = c * stagePlayers.size() + i;
+                boolean canMake = madeCutoff.get(index) != 0;
+                boolean canMiss = missedCutoff.get(index) != 0;
+                Status status;
+                if (canMake && canMiss) {
+                    status = Status.POSSIBLE;
+                } else if (gaveUp) {
+                    //Only the bounds on the whole stage cover the outcomes not searched
+                    int boundStatus = rootBoundStatuses[c][i];
+                    status = boundStatus > 0 ? Status.GUARANTEED
+                            : boundStatus < 0 ? Status.IMPOSSIBLE
+                            : Status.POSSIBLE;
+                } else {
+                    status = canMake ? Status.GUARANTEED : Status.IMPOSSIBLE;
+                }
+                statuses.put(stagePlayers.get(i), status);
+            }
+            return ImmutableMap.copyOf(statuses);
+        }
+    }
+
+    /**
+     * A set of ways the rest of the stage can go: the stage's results so far, real
+     * and hypothetical, and restrictions on the results of the matches to run next.
+     */
+    @Immutable
+    private static class Node {
+        private final ImmutableList<InternalMatchResult> results;
+        //For the Swiss formats, by match ID; matches without ranges can have any goals
+        private final ImmutableMap<String, GoalRanges> goalRanges;
+        //For the elimination formats, by round and pairing number
+        private final ImmutableMap<String, TPlayer> pairingWinners;
+
+        public Node(ImmutableList<InternalMatchResult> results, ImmutableMap<String, GoalRanges> goalRanges,
+                ImmutableMap<String, TPlayer> pairingWinners) {
+            this.results = results;
+            this.goalRanges = goalRanges;
+            this.pairingWinners = pairingWinners;
+        }
+    }
+
+    /**
+     * The bounds on each player's final score in a node, with the node after its
+     * matches with single results have been played, and its matches to run.
+     */
+    @Immutable
+    private static class Bounds {
+        private final Node node;
+        private final List<TMatchSetup> matches;
+        private final long[] lowest;
+        private final long[] highest;
+
+        public Bounds(Node node, List<TMatchSetup> matches, long[] lowest, long[] highest) {
+            this.node = node;
+            this.matches = matches;
+            this.lowest = lowest;
+            this.highest = highest;
+        }
+    }
+
+    /**
+     * The range of goal values each role in a match can still get. In a fixed-sum
+     * game, each role's range only has the values that can be made up to 100 from
+     * the other roles' ranges.
+     */
+    @Immutable
+    private static class GoalRanges {
+        private final boolean fixedSum;
+        private final int[] lowest;
+        private final int[] highest;
+
+        private GoalRanges(boolean fixedSum, int[] lowest, int[] highest) {
+            this.fixedSum = fixedSum;
+            this.lowest = lowest;
+            this.highest = highest;
+        }
+
+        public static GoalRanges create(TGame game) {
+            int[] lowest = new int[game.getNumRoles()];
+            int[] highest = new int[game.getNumRoles()];
+            Arrays.fill(highest, 100);
+            GoalRanges ranges = narrow(game.isFixedSum(), lowest, highest);
+            Preconditions.checkState(ranges != null, "No goal values are possible in %s", game);
+            return ranges;
+        }
+
+        /*
+         * Returns the ranges with the values that can't add up to 100 removed, or
+         * null if there are no values left. Given the other roles' ranges, the
+         * values a role can get form a range, so one pass is enough.
+         */
+        private static @Nullable GoalRanges narrow(boolean fixedSum, int[] lowest, int[] highest) {
+            if (fixedSum) {
+                int lowestSum = 0;
+                int highestSum = 0;
+                for (int role = 0; role < lowest.length; role++) {
+                    lowestSum += lowest[role];
+                    highestSum += highest[role];
+                }
+                if (lowestSum > 100 || highestSum < 100) {
+                    return null;
+                }
+                int[] narrowedLowest = new int[lowest.length];
+                int[] narrowedHighest = new int[lowest.length];
+                for (int role = 0; role < lowest.length; role++) {
+                    narrowedLowest[role] = Math.max(lowest[role], 100 - (highestSum - highest[role]));
+                    narrowedHighest[role] = Math.min(highest[role], 100 - (lowestSum - lowest[role]));
+                }
+                return new GoalRanges(fixedSum, narrowedLowest, narrowedHighest);
+            }
+            return new GoalRanges(fixedSum, lowest, highest);
+        }
+
+        public List<Integer> getLowest() {
+            return toList(lowest);
+        }
+
+        public List<Integer> getHighest() {
+            return toList(highest);
+        }
+
+        private static List<Integer> toList(int[] goals) {
+            List<Integer> list = Lists.newArrayListWithCapacity(goals.length);
+            for (int goal : goals) {
+                list.add(goal);
+            }
+            return Collections.unmodifiableList(list);
+        }
+
+        /*
+         * Returns goal values in the ranges that are as good as possible for the given
+         * role, or as bad as possible if it isn't favored, and the same for every other
+         * role. In a fixed-sum game, the other roles split what's left as evenly as
+         * they can. A role of -1 singles out no role.
+         */
+        public List<Integer> getGoals(int role, boolean favored) {
+            int[] goals = new int[lowest.length];
+            if (!fixedSum) {
+                for (int r = 0; r < lowest.length; r++) {
+                    goals[r] = (r == role) == favored ? highest[r] : lowest[r];
+                }
+                return toList(goals);
+            }
+            int left = 100;
+            if (role >= 0) {
+                goals[role] = favored ? highest[role] : lowest[role];
+                left -= goals[role];
+            }
+            for (int r = 0; r < lowest.length; r++) {
+                if (r != role) {
+                    goals[r] = lowest[r];
+                    left -= lowest[r];
+                }
+            }
+            while (left > 0) {
+                //The narrowed ranges always leave room for what's left
+                int lowestRole = -1;
+                for (int r = 0; r < lowest.length; r++) {
+                    if (r != role && goals[r] < highest[r] && (lowestRole < 0 || goals[r] < goals[lowestRole])) {
+                        lowestRole = r;
+                    }
+                }
+                goals[lowestRole]++;
+                left--;
+            }
+            return toList(goals);
+        }
+
+        public int getWidth() {
+            int width = 0;
+            for (int role = 0; role < lowest.length; role++) {
+                width = Math.max(width, highest[role] - lowest[role]);
+            }
+            return width;
+        }
+
+        /*
+         * Splits the widest role's range in half.
+         */
+        public List<GoalRanges> split() {
+            int widestRole = 0;
+            for (int role = 1; role < lowest.length; role++) {
+                if (highest[role] - lowest[role] > highest[widestRole] - lowest[widestRole]) {
+                    widestRole = role;
+                }
+            }
+            Preconditions.checkState(highest[widestRole] > lowest[widestRole]);
+            int middle = (lowest[widestRole] + highest[widestRole]) >>> 1;
+            int[] lowerHighest = highest.clone();
+            lowerHighest[widestRole] = middle;
+            int[] upperLowest = lowest.clone();
+            upperLowest[widestRole] = middle + 1;
+
+            List<GoalRanges> halves = Lists.newArrayList();
+            GoalRanges lowerHalf = narrow(fixedSum, lowest, lowerHighest);
+            if (lowerHalf != null) {
+                halves.add(lowerHalf);
+            }
+            GoalRanges upperHalf = narrow(fixedSum, upperLowest, highest);
+            if (upperHalf != null) {
+                halves.add(upperHalf);
+            }
+            return halves;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class SearchTask extends RecursiveAction {
+        private final Search search;
+        private final Node node;
+
+        public SearchTask(Search search, Node node) {
+            this.search = search;
+            this.node = node;
+        }
+
+        @Override
+        protected void compute() {
+            List<SearchTask> children = Lists.newArrayList();
+            for (Node child : search.expand(node)) {
+                children.add(new SearchTask(search, child));
+            }
+            invokeAll(children);
+        }
+    }
+
+    private static long getMaximumPointsT1K(StageSpec stage, int firstRoundNum) {
+        long maximumPointsT1K = 0L;
+        for (int roundNum = firstRoundNum; roundNum < stage.getRounds().size(); roundNum++) {
+            //Byes are also worth at most the total weight of the round
+            double weightSum = 0.0;
+            for (MatchSpec match : stage.getRounds().get(roundNum).getMatches()) {
+                weightSum += Math.max(0.0, match.getWeight());
+            }
+            maximumPointsT1K = LongMath.checkedAdd(maximumPointsT1K, (long) Math.ceil(100000.0 * weightSum));
+        }
+        return maximumPointsT1K;
+    }
+
+    private static long getPointsT1K(TRanking standings, TPlayer player) {
+        TScore score = Rankings.getScore(standings, player);
+        if (score instanceof PointTotalScore) {
+            return ((PointTotalScore) score).getPointsT1K();
+        }
+        //No rounds have been played in the stage
+        return 0L;
+    }
+
+    private static int getRoundEliminated(TRanking standings, TPlayer player) {
+        TScore score = Rankings.getScore(standings, player);
+        if (score instanceof EliminationRoundScore) {
+            return ((EliminationRoundScore) score).getRoundEliminated();
+        }
+        //No rounds have been played in the stage
+        return 0;
+    }
+
+    private static int countGreaterThan(long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return sorted.length - low;
+    }
+
+    private static int countAtLeast(long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return sorted.length - low;
+    }
+
+    /**
+     * Returns the 0-indexed number of the stage that was analyzed.
+     */
+    public int getStageNum() {
+        return stageNum;
+    }
+
+    /**
+     * Returns true iff another stage follows the analyzed stage, so that players
+     * can advance past a cutoff.
+     */
+    public boolean hasNextStage() {
+        return hasNextStage;
+    }
+
+    /**
+     * Returns the number of players that advance to the next stage.
+     *
+     * @throws IllegalStateException if the analyzed stage is the last stage
+     */
+    public int getPlayerCutoff() {
+        Preconditions.checkState(hasNextStage(), "The analyzed stage is the last stage");
+        return playerCutoff;
+    }
+
+    /**
+     * Returns whether the player advances to the next stage. Players eliminated
+     * in earlier stages or excluded from the next stage can't advance.
+     *
+     * @throws IllegalStateException if the analyzed stage is the last stage
+     * @throws IllegalArgumentException if the player is not in the tournament
+     */
+    public Status getAdvancementStatus(TPlayer player) {
+        Preconditions.checkState(hasNextStage(), "The analyzed stage is the last stage");
+        return getStatus(advancementStatuses, player);
+    }
+
+    /**
+     * Returns whether the player finishes the analyzed stage in first place.
+     *
+     * @throws IllegalArgumentException if the player is not in the tournament
+     */
+    public Status getStageWinStatus(TPlayer player) {
+        return getStatus(stageWinStatuses, player);
+    }
+
+    private static Status getStatus(Map<TPlayer, Status> statuses, TPlayer player) {
+        Status status = statuses.get(player);
+        Preconditions.checkArgument(status != null, "%s is not in the tournament", player);
+        return status;
+    }
+}
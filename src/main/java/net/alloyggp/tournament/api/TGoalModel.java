@@ -0,0 +1,20 @@
+package net.alloyggp.tournament.api;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A model of how players perform in matches, used by {@link TTournamentForecast}
+ * to simulate the remainder of a tournament.
+ *
+ * <p>Implementations are called from several threads at once and must be
+ * thread-safe; all randomness should come from the supplied {@link Random}.
+ */
+public interface TGoalModel {
+    /**
+     * Returns a random sample of the goal values the players of the given match
+     * would get, in the order of the match's players. If the game is fixed-sum,
+     * the goal values should reflect that.
+     */
+    List<Integer> sampleGoals(TMatchSetup match, Random random);
+}
@@ -3,9 +3,13 @@ package net.alloyggp.tournament.api;
 import javax.annotation.concurrent.Immutable;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 
 @Immutable
 public class TPlayer {
+    private static final Interner<TPlayer> INTERNER = Interners.newWeakInterner();
+
     private final String id;
 
     private TPlayer(String id) {
@@ -14,8 +18,13 @@ public class TPlayer {
         this.id = id;
     }
 
+    /**
+     * Returns the player with the given ID. Players with the same ID share
+     * a single instance, so comparing them for equality is usually just a
+     * reference comparison.
+     */
     public static TPlayer create(String id) {
-        return new TPlayer(id);
+        return INTERNER.intern(new TPlayer(id));
     }
 
     public String getId() {
@@ -5,6 +5,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 
 import com.google.common.base.Function;
@@ -12,13 +13,17 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
 
 import net.alloyggp.escaperope.Delimiter;
 import net.alloyggp.escaperope.Delimiters;
+import net.alloyggp.tournament.internal.Fingerprint;
 
 @Immutable
 public class TSeeding {
     private final ImmutableList<TPlayer> playersBestFirst;
+    //Computed lazily; races are benign since fingerprints are immutable
+    private @Nullable Fingerprint fingerprint = null;
 
     private TSeeding(ImmutableList<TPlayer> playersBestFirst) {
         Preconditions.checkArgument(!playersBestFirst.isEmpty(), "There must be at least one player in a seeding");
@@ -89,6 +94,27 @@ public class TSeeding {
         return create(players);
     }
 
+    /**
+     * Returns a fingerprint of the players in this seeding, in order,
+     * computed once per instance.
+     *
+     * <p>Note: This is internal code not covered by the API guarantees.
+     * Clients should not be using this directly.
+     */
+    public Fingerprint getFingerprint() {
+        Fingerprint fingerprint = this.fingerprint;
+        if (fingerprint == null) {
+            Hasher hasher = Fingerprint.newHasher();
+            hasher.putInt(playersBestFirst.size());
+            for (TPlayer player : playersBestFirst) {
+                Fingerprint.putString(hasher, player.getId());
+            }
+            fingerprint = Fingerprint.of(hasher.hash());
+            this.fingerprint = fingerprint;
+        }
+        return fingerprint;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -0,0 +1,274 @@
+package net.alloyggp.tournament.api;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+
+import net.alloyggp.tournament.internal.InternalMatchResult;
+import net.alloyggp.tournament.internal.PlayerIndex;
+import net.alloyggp.tournament.internal.SplitMix64Random;
+import net.alloyggp.tournament.internal.StandardTournamentSnapshot;
+import net.alloyggp.tournament.internal.spec.TournamentRun;
+import net.alloyggp.tournament.internal.spec.TournamentSpec;
+
+/**
+ * A forecast of the final standings of a tournament, estimated by simulating
+ * the remainder of the tournament many times with a {@link TGoalModel}.
+ *
+ * <p>The simulations are run in parallel. Each simulation draws from its own
+ * stream of random numbers, so a forecast with a given seed is the same however
+ * many threads computed it.
+ *
+ * <p>Each simulation keeps the state of its stages as it adds sampled results, so
+ * it doesn't use the shared cache of end-of-round states, and running a forecast
+ * doesn't displace the cached states of real tournaments or write to the persistent
+ * state file.
+ */
+@Immutable
+public class TTournamentForecast {
+    //Small enough to keep all threads busy until the end, large enough that the
+    //tallies aren't merged too often
+    private static final int SIMULATIONS_PER_TASK = 16;
+    private static final Ordering<TMatchSetup> MATCH_ID_ORDERING =
+            Ordering.natural().onResultOf(new Function<TMatchSetup, String>() {
+                @Override
+                public String apply(TMatchSetup match) {
+                    return match.getMatchId();
+                }
+            });
+
+    private final int numSimulations;
+    private final PlayerIndex players;
+    //Indexed by player, then by position (0-indexed)
+    private final int[][] positionCounts;
+    //Indexed by stage, then by player
+    private final int[][] stageCounts;
+
+    private TTournamentForecast(int numSimulations, PlayerIndex players, int[][] positionCounts,
+            int[][] stageCounts) {
+        this.numSimulations = numSimulations;
+        this.players = players;
+        this.positionCounts = positionCounts;
+        this.stageCounts = stageCounts;
+    }
+
+    /**
+     * Simulates the remainder of the tournament the given number of times, using
+     * a new {@link ForkJoinPool} with one thread per available processor.
+     */
+    public static TTournamentForecast simulate(TTournamentStatus status, TGoalModel model,
+            int numSimulations, long seed) {
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            return simulate(status, model, numSimulations, seed, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Simulates the remainder of the tournament the given number of times on the
+     * given pool.
+     *
+     * <p>Each simulation starts from the results in the status and adds sampled
+     * results until the tournament is complete. Stages after the first are seeded
+     * as in the real tournament, so players failing to make a stage's cutoff are
+     * reflected in the forecast.
+     */
+    public static TTournamentForecast simulate(TTournamentStatus status, TGoalModel model,
+            int numSimulations, long seed, ForkJoinPool pool) {
+        Preconditions.checkArgument(numSimulations > 0, "At least one simulation must be run");
+        TournamentSpec spec = (TournamentSpec) status.getSpec();
+        ImmutableSet.Builder<InternalMatchResult> startingResults = ImmutableSet.builder();
+        for (TMatchResult result : status.getResultsSoFar()) {
+            InternalMatchResult internalResult = spec.filterInputResult(result);
+            if (internalResult != null) {
+                startingResults.add(internalResult);
+            }
+        }
+        Simulator simulator = new Simulator(spec, status.getInitialSeeding(), startingResults.build(),
+                model, seed);
+        Tally tally = pool.invoke(new SimulationTask(simulator, 0, numSimulations));
+        return new TTournamentForecast(numSimulations, simulator.players,
+                tally.positionCounts, tally.stageCounts);
+    }
+
+    public int getNumSimulations() {
+        return numSimulations;
+    }
+
+    /**
+     * Returns the players in the tournament, in the order of the initial seeding.
+     */
+    public ImmutableList<TPlayer> getPlayers() {
+        return players.getPlayers();
+    }
+
+    /**
+     * Returns the fraction of simulations in which the player finished in the
+     * given 1-indexed position in the final standings.
+     *
+     * @throws IllegalArgumentException if the player is not in the tournament
+     */
+    public double getProbabilityOfPosition(TPlayer player, int position) {
+        Preconditions.checkArgument(position >= 1 && position <= players.size(),
+                "Position %s is out of range", position);
+        return positionCounts[players.getIndex(player)][position - 1] / (double) numSimulations;
+    }
+
+    /**
+     * Returns the fraction of simulations in which the player won the tournament.
+     */
+    public double getProbabilityOfWinning(TPlayer player) {
+        return getProbabilityOfPosition(player, 1);
+    }
+
+    /**
+     * Returns the distribution of the player's position in the final standings.
+     * The element at index i is the probability of finishing in position i + 1.
+     */
+    public ImmutableList<Double> getPositionDistribution(TPlayer player) {
+        int[] counts = positionCounts[players.getIndex(player)];
+        ImmutableList.Builder<Double> distribution = ImmutableList.builder();
+        for (int count : counts) {
+            distribution.add(count / (double) numSimulations);
+        }
+        return distribution.build();
+    }
+
+    /**
+     * Returns the fraction of simulations in which the player was seeded into
+     * the given 0-indexed stage, i.e. made the cutoffs of all earlier stages.
+     */
+    public double getProbabilityOfReachingStage(TPlayer player, int stageNum) {
+        Preconditions.checkElementIndex(stageNum, stageCounts.length, "stageNum");
+        return stageCounts[stageNum][players.getIndex(player)] / (double) numSimulations;
+    }
+
+    private static class Simulator {
+        private final TournamentSpec spec;
+        private final TSeeding initialSeeding;
+        private final ImmutableSet<InternalMatchResult> startingResults;
+        private final TGoalModel model;
+        private final long seed;
+        private final PlayerIndex players;
+        private final int numStages;
+
+        public Simulator(TournamentSpec spec, TSeeding initialSeeding,
+                ImmutableSet<InternalMatchResult> startingResults, TGoalModel model, long seed) {
+            this.spec = spec;
+            this.initialSeeding = initialSeeding;
+            this.startingResults = startingResults;
+            this.model = model;
+            this.seed = seed;
+            this.players = PlayerIndex.create(initialSeeding.getPlayersBestFirst());
+            this.numStages = spec.getStages().size();
+        }
+
+        /*
+         * This works on internal results directly, so sampled results are never
+         * converted back and forth or checked against the admin actions. Each
+         * round's sampled results are given to the run of the current stage,
+         * which only has to run that round.
+         */
+        public void simulate(int simulationNum, Tally tally) {
+            Random random = SplitMix64Random.forStream(seed, simulationNum);
+            TournamentRun run = spec.startRun(initialSeeding, startingResults);
+            while (true) {
+                Set<TMatchSetup> matches = run.getNextMatchesToRun().getMatchesToRun();
+                if (matches.isEmpty()) {
+                    tally.add(run.getSnapshot(), players);
+                    return;
+                }
+                //Sample in a fixed order so the random stream is used the same way every time
+                List<InternalMatchResult> roundResults = Lists.newArrayListWithCapacity(matches.size());
+                for (TMatchSetup match : MATCH_ID_ORDERING.sortedCopy(matches)) {
+                    List<Integer> goals = model.sampleGoals(match, random);
+                    Preconditions.checkState(goals.size() == match.getPlayers().size(),
+                            "The goal model returned %s goals for a match with %s players",
+                            goals.size(), match.getPlayers().size());
+                    roundResults.add(InternalMatchResult.createUninterned(
+                            TMatchResult.getSuccessfulMatchResult(match.getMatchId(), goals)));
+                }
+                run.addResults(roundResults);
+            }
+        }
+    }
+
+    private static class Tally {
+        private final int[][] positionCounts;
+        private final int[][] stageCounts;
+
+        public Tally(int numPlayers, int numStages) {
+            this.positionCounts = new int[numPlayers][numPlayers];
+            this.stageCounts = new int[numStages][numPlayers];
+        }
+
+        public void add(StandardTournamentSnapshot finalSnapshot, PlayerIndex players) {
+            TRanking standings = finalSnapshot.getCurrentStandings();
+            for (int p = 0; p < players.size(); p++) {
+                positionCounts[p][standings.getPosition(players.get(p)) - 1]++;
+            }
+            List<TSeeding> stageSeedings = finalSnapshot.getStageSeedings();
+            for (int stageNum = 0; stageNum < stageSeedings.size(); stageNum++) {
+                for (TPlayer player : stageSeedings.get(stageNum).getPlayersBestFirst()) {
+                    stageCounts[stageNum][players.getIndex(player)]++;
+                }
+            }
+        }
+
+        public void addAll(Tally other) {
+            addAll(positionCounts, other.positionCounts);
+            addAll(stageCounts, other.stageCounts);
+        }
+
+        private static void addAll(int[][] counts, int[][] otherCounts) {
+            for (int i = 0; i < counts.length; i++) {
+                for (int j = 0; j < counts[i].length; j++) {
+                    counts[i][j] += otherCounts[i][j];
+                }
+            }
+        }
+    }
+
+    private static class SimulationTask extends RecursiveTask<Tally> {
+        private static final long serialVersionUID = 1L;
+        private final Simulator simulator;
+        private final int start;
+        private final int end;
+
+        public SimulationTask(Simulator simulator, int start, int end) {
+            this.simulator = simulator;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (end - start <= SIMULATIONS_PER_TASK) {
+                Tally tally = new Tally(simulator.players.size(), simulator.numStages);
+                for (int i = start; i < end; i++) {
+                    simulator.simulate(i, tally);
+                }
+                return tally;
+            }
+            int middle = (start + end) >>> 1;
+            SimulationTask second = new SimulationTask(simulator, middle, end);
+            second.fork();
+            Tally tally = new SimulationTask(simulator, start, middle).compute();
+            tally.addAll(second.join());
+            return tally;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package net.alloyggp.tournament.api;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * A thread-safe container for many running tournaments, keyed by their internal
+ * names. This is meant for servers that run matches for many tournaments at once
+ * from a pool of worker threads.
+ *
+ * <p>Adding results never waits for an evaluation: new results are queued, and
+ * the queue is added to the tournament's {@link TTournamentSession} as a single
+ * batch the next time the tournament is read. However many results arrive between
+ * two reads, the tournament is only evaluated once for them. Reads of different
+ * tournaments usually proceed in parallel; each tournament is guarded by one of
+ * a fixed set of locks, so the host doesn't need a lock per tournament.
+ */
+@ThreadSafe
+public class TTournamentHost {
+    private final ConcurrentMap<String, HostedTournament> tournaments = Maps.newConcurrentMap();
+    private final Striped<Lock> locks;
+
+    private TTournamentHost(int numLocks) {
+        this.locks = Striped.lock(numLocks);
+    }
+
+    public static TTournamentHost create() {
+        return new TTournamentHost(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Starts hosting a tournament from the given status, under the internal name of
+     * its spec.
+     *
+     * @throws IllegalArgumentException if a tournament with that name is already hosted
+     */
+    public void addTournament(TTournamentStatus status) {
+        String name = status.getSpec().getInternalName();
+        HostedTournament tournament = new HostedTournament(status.createSession());
+        if (tournaments.putIfAbsent(name, tournament) != null) {
+            throw new IllegalArgumentException("A tournament named " + name + " is already hosted");
+        }
+    }
+
+    /**
+     * Stops hosting the given tournament. Results that were queued for it and not
+     * yet read are discarded.
+     */
+    public void removeTournament(String tournamentInternalName) {
+        tournaments.remove(tournamentInternalName);
+    }
+
+    public ImmutableSet<String> getTournamentNames() {
+        return ImmutableSet.copyOf(tournaments.keySet());
+    }
+
+    public void addResult(String tournamentInternalName, TMatchResult result) {
+        addResults(tournamentInternalName, ImmutableList.of(result));
+    }
+
+    /**
+     * Queues the given results for the tournament. They are reflected in all reads
+     * of the tournament that start after this returns.
+     */
+    public void addResults(String tournamentInternalName, Collection<TMatchResult> results) {
+        getTournament(tournamentInternalName).pendingResults.addAll(results);
+    }
+
+    /**
+     * Applies an administrative action to the tournament, as in
+     * {@link TTournamentSession#apply(TAdminAction)}.
+     */
+    public void apply(String tournamentInternalName, TAdminAction adminAction) {
+        HostedTournament tournament = getTournament(tournamentInternalName);
+        Lock lock = locks.get(tournamentInternalName);
+        lock.lock();
+        try {
+            tournament.getUpdatedSession().apply(adminAction);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the next matches to run, the current standings, and the standings
+     * history of the tournament, including all results queued so far.
+     */
+    public TTournamentSnapshot evaluate(String tournamentInternalName) {
+        HostedTournament tournament = getTournament(tournamentInternalName);
+        Lock lock = locks.get(tournamentInternalName);
+        lock.lock();
+        try {
+            return tournament.getUpdatedSession().evaluate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns an immutable snapshot of the tournament, including all results queued
+     * so far.
+     */
+    public TTournamentStatus getStatus(String tournamentInternalName) {
+        HostedTournament tournament = getTournament(tournamentInternalName);
+        Lock lock = locks.get(tournamentInternalName);
+        lock.lock();
+        try {
+            return tournament.getUpdatedSession().getStatus();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private HostedTournament getTournament(String tournamentInternalName) {
+        HostedTournament tournament = tournaments.get(tournamentInternalName);
+        Preconditions.checkArgument(tournament != null,
+                "No tournament named %s is hosted", tournamentInternalName);
+        return tournament;
+    }
+
+    @ThreadSafe
+    private static class HostedTournament {
+        private final TTournamentSession session;
+        private final Queue<TMatchResult> pendingResults = new ConcurrentLinkedQueue<TMatchResult>();
+
+        public HostedTournament(TTournamentSession session) {
+            this.session = session;
+        }
+
+        //Callers hold the tournament's lock, so one caller takes the whole batch
+        public TTournamentSession getUpdatedSession() {
+            List<TMatchResult> batch = Lists.newArrayList();
+            TMatchResult result;
+            while ((result = pendingResults.poll()) != null) {
+                batch.add(result);
+            }
+            if (!batch.isEmpty()) {
+                session.addResults(batch);
+            }
+            return session;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package net.alloyggp.tournament.api;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A mutable, thread-safe handle on a single running tournament. Sessions can be
+ * created from a {@link TTournamentStatus} via {@link TTournamentStatus#createSession()}.
+ *
+ * <p>A {@link TTournamentStatus} recomputes each answer from the full set of results
+ * on every call. A session instead converts each result once as it arrives and keeps
+ * its answers until the next change, so clients that poll a live tournament frequently
+ * only pay for one evaluation per change. That evaluation still covers the full set of
+ * results, though it reuses cached end-of-round states. The answers are always the same
+ * as those given by the equivalent {@link TTournamentStatus}.
+ */
+public interface TTournamentSession {
+
+    /**
+     * Adds the given result to the results already known.
+     */
+    void addResult(TMatchResult result);
+
+    /**
+     * Adds the given results to the results already known.
+     */
+    void addResults(Collection<TMatchResult> results);
+
+    /**
+     * Applies an administrative action to the tournament. Results invalidated by the
+     * action are kept, but ignored, as they are in {@link TTournamentStatus#apply(TAdminAction)}.
+     */
+    void apply(TAdminAction adminAction);
+
+    /**
+     * Returns true iff the tournament is over and there are no more matches to
+     * run.
+     */
+    boolean isComplete();
+
+    /**
+     * Returns the next set of matches to run.
+     */
+    TNextMatchesResult getNextMatchesToRun();
+
+    TRanking getCurrentStandings();
+
+    List<TRanking> getStandingsHistory();
+
+    /**
+     * Returns the next matches to run, the current standings, and the standings
+     * history together, as of the last change to the session.
+     */
+    TTournamentSnapshot evaluate();
+
+    /**
+     * Returns an immutable snapshot of the current state of the session.
+     */
+    TTournamentStatus getStatus();
+}
@@ -0,0 +1,43 @@
+package net.alloyggp.tournament.api;
+
+import java.util.List;
+
+/**
+ * The next matches, current standings, and standings history of a
+ * tournament in a given state, all computed together. This is more
+ * efficient than requesting each of them separately when more than
+ * one is needed, e.g. to refresh a scoreboard.
+ *
+ * <p>Snapshots are immutable.
+ */
+public interface TTournamentSnapshot {
+    /**
+     * Returns the set of matches that should be run in this tournament state.
+     */
+    TNextMatchesResult getNextMatchesToRun();
+
+    /**
+     * Returns the most recent standings in this tournament state.
+     */
+    TRanking getCurrentStandings();
+
+    /**
+     * Returns a history of the standings throughout the tournament, starting with the initial
+     * seeding and progressing through each round.
+     */
+    List<TRanking> getStandingsHistory();
+
+    /**
+     * Returns the player's score in each of the standings returned by
+     * {@link #getStandingsHistory()}, in the same order. This is cheaper
+     * than looking the player up in each of the standings.
+     *
+     * @throws IllegalArgumentException if the player is not in the tournament
+     */
+    List<TScore> getScoreHistory(TPlayer player);
+
+    /**
+     * Returns true iff no matches are left to run.
+     */
+    boolean isComplete();
+}
@@ -8,6 +8,7 @@ import javax.annotation.concurrent.Immutable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
+import net.alloyggp.tournament.internal.MemoizingTournamentSession;
 import net.alloyggp.tournament.internal.spec.TournamentSpec;
 
 /**
@@ -67,6 +68,10 @@ public class TTournamentStatus {
         return spec;
     }
 
+    public TSeeding getInitialSeeding() {
+        return initialSeeding;
+    }
+
     public ImmutableSet<TMatchResult> getResultsSoFar() {
         return resultsSoFar;
     }
@@ -94,7 +99,25 @@ public class TTournamentStatus {
         return spec.getStandingsHistory(initialSeeding, resultsSoFar, NO_ACTIONS);
     }
 
+    /**
+     * Returns the next matches to run, the current standings, and the standings
+     * history together. This is more efficient than calling each of their getters
+     * when more than one of them is needed.
+     */
+    public TTournamentSnapshot evaluate() {
+        return ((TournamentSpec) spec).evaluate(initialSeeding, resultsSoFar, NO_ACTIONS);
+    }
+
     public TTournamentStatus apply(TAdminAction adminAction) {
         return new TTournamentStatus(((TournamentSpec) spec).apply(adminAction), initialSeeding, resultsSoFar);
     }
+
+    /**
+     * Returns a new mutable session that starts from this status. This is useful for
+     * servers that follow a live tournament and ask for its next matches or standings
+     * after each new result; see {@link TTournamentSession}.
+     */
+    public TTournamentSession createSession() {
+        return MemoizingTournamentSession.create((TournamentSpec) spec, initialSeeding, resultsSoFar);
+    }
 }
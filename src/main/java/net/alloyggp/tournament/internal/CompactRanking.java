@@ -0,0 +1,250 @@
+package net.alloyggp.tournament.internal;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSortedSet;
+
+import net.alloyggp.tournament.api.TPlayer;
+import net.alloyggp.tournament.api.TPlayerScore;
+import net.alloyggp.tournament.api.TRanking;
+import net.alloyggp.tournament.api.TScore;
+
+/**
+ * A ranking stored as arrays indexed by seed position, for formats that keep
+ * their scores in such arrays anyway.
+ *
+ * <p>Unlike {@link StandardRanking}, this doesn't keep a {@link TPlayerScore}
+ * or {@link TScore} object for each player; those are created when requested.
+ * The players themselves are held in a {@link PlayerIndex} shared with the
+ * other rankings of the stage. Each player's seed from the round start is its
+ * seed position.
+ */
+@Immutable
+public class CompactRanking implements TRanking {
+    /**
+     * The scores of all the players in a ranking, indexed by seed position.
+     * Implementations must be immutable.
+     */
+    public interface PackedScores {
+        int size();
+
+        /**
+         * Returns a key for the player's score, with higher keys for better
+         * scores. Comparing the keys of two players must give the same result
+         * as comparing their scores.
+         */
+        long getSortKey(int seed);
+
+        TScore getScore(int seed);
+
+        /**
+         * Returns the hash code of the score returned by {@link #getScore(int)},
+         * without creating the score.
+         */
+        int getScoreHashCode(int seed);
+
+        /**
+         * Returns the approximate number of bytes used by the arrays holding
+         * the scores.
+         */
+        long getPackedBytes();
+    }
+
+    private final PlayerIndex players;
+    private final PackedScores scores;
+    private final int[] seedsBestFirst;
+    private final int[] positionsBySeed;
+
+    private CompactRanking(PlayerIndex players, PackedScores scores, int[] seedsBestFirst,
+            int[] positionsBySeed) {
+        this.players = players;
+        this.scores = scores;
+        this.seedsBestFirst = seedsBestFirst;
+        this.positionsBySeed = positionsBySeed;
+    }
+
+    public static CompactRanking create(PlayerIndex players, PackedScores scores) {
+        Preconditions.checkArgument(players.size() == scores.size());
+        int numPlayers = players.size();
+        long[] sortKeys = new long[numPlayers];
+        int[] seedsBestFirst = new int[numPlayers];
+        for (int seed = 0; seed < numPlayers; seed++) {
+            sortKeys[seed] = scores.getSortKey(seed);
+            seedsBestFirst[seed] = seed;
+        }
+        //The sort is stable, so ties stay in seed order, as with TPlayerScore
+        sortBestFirst(seedsBestFirst, sortKeys, new int[numPlayers], 0, numPlayers);
+        int[] positionsBySeed = new int[numPlayers];
+        for (int position = 0; position < numPlayers; position++) {
+            positionsBySeed[seedsBestFirst[position]] = position;
+        }
+        return new CompactRanking(players, scores, seedsBestFirst, positionsBySeed);
+    }
+
+    //Merge sort of seeds[from, to) by descending sort key
+    private static void sortBestFirst(int[] seeds, long[] sortKeys, int[] scratch, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sortBestFirst(seeds, sortKeys, scratch, from, mid);
+        sortBestFirst(seeds, sortKeys, scratch, mid, to);
+        if (sortKeys[seeds[mid - 1]] >= sortKeys[seeds[mid]]) {
+            //Already in order
+            return;
+        }
+        System.arraycopy(seeds, from, scratch, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && sortKeys[scratch[left]] >= sortKeys[scratch[right]])) {
+                seeds[i] = scratch[left++];
+            } else {
+                seeds[i] = scratch[right++];
+            }
+        }
+    }
+
+    public PlayerIndex getPlayerIndex() {
+        return players;
+    }
+
+    public PackedScores getPackedScores() {
+        return scores;
+    }
+
+    /**
+     * Returns the approximate number of bytes used by this ranking, not
+     * counting its shared {@link PlayerIndex}.
+     */
+    public long getPackedBytes() {
+        return 4L * seedsBestFirst.length + 4L * positionsBySeed.length + scores.getPackedBytes();
+    }
+
+    /**
+     * Note that this creates a new set of {@link TPlayerScore}s on each call.
+     */
+    @Override
+    public ImmutableSortedSet<TPlayerScore> getScores() {
+        ImmutableSortedSet.Builder<TPlayerScore> playerScores = ImmutableSortedSet.naturalOrder();
+        for (int seed : seedsBestFirst) {
+            playerScores.add(TPlayerScore.create(players.get(seed), scores.getScore(seed), seed));
+        }
+        return playerScores.build();
+    }
+
+    @Override
+    public List<TPlayer> getPlayersBestFirst() {
+        return new PlayersBestFirst(players, seedsBestFirst);
+    }
+
+    @Override
+    public int getPosition(TPlayer player) {
+        //Convert to 1-indexing
+        return positionsBySeed[players.getIndex(player)] + 1;
+    }
+
+    /**
+     * Returns the score of the player in the ranking.
+     *
+     * @throws IllegalArgumentException if the player is not in the ranking
+     */
+    public TScore getScore(TPlayer player) {
+        return scores.getScore(players.getIndex(player));
+    }
+
+    /*
+     * Matches StandardRanking, which hashes its set of player scores. The set's
+     * hash code is the sum of the TPlayerScore hash codes, which are computed
+     * here the same way without creating the scores.
+     */
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int scoresHashCode = 0;
+        for (int seed = 0; seed < seedsBestFirst.length; seed++) {
+            int playerScoreHashCode = 1;
+            playerScoreHashCode = prime * playerScoreHashCode + players.get(seed).hashCode();
+            playerScoreHashCode = prime * playerScoreHashCode + scores.getScoreHashCode(seed);
+            playerScoreHashCode = prime * playerScoreHashCode + seed;
+            scoresHashCode += playerScoreHashCode;
+        }
+        int result = 1;
+        result = prime * result + scoresHashCode;
+        return result;
+    }
+
+    /*
+     * A compact ranking is equal to a StandardRanking with the same player scores,
+     * so that rankings restored from their serialized form, which are always
+     * StandardRankings, are equal to the originals. As with StandardRanking, the
+     * players must be in the same order with equal scores.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof StandardRanking) {
+            return ((StandardRanking) obj).getScores().asList().equals(getScores().asList());
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        CompactRanking other = (CompactRanking) obj;
+        if (!players.equals(other.players)) {
+            return false;
+        }
+        if (!Arrays.equals(seedsBestFirst, other.seedsBestFirst)) {
+            return false;
+        }
+        for (int seed = 0; seed < seedsBestFirst.length; seed++) {
+            if (!scores.getScore(seed).equals(other.scores.getScore(seed))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        int position = 1;
+        for (int seed : seedsBestFirst) {
+            sb.append(position).append(") ").append(players.get(seed).getId())
+              .append(" (").append(scores.getScore(seed)).append(")").append("\n");
+            position++;
+        }
+        return sb.toString();
+    }
+
+    @Immutable
+    private static class PlayersBestFirst extends AbstractList<TPlayer> implements RandomAccess {
+        private final PlayerIndex players;
+        private final int[] seedsBestFirst;
+
+        public PlayersBestFirst(PlayerIndex players, int[] seedsBestFirst) {
+            this.players = players;
+            this.seedsBestFirst = seedsBestFirst;
+        }
+
+        @Override
+        public TPlayer get(int index) {
+            return players.get(seedsBestFirst[index]);
+        }
+
+        @Override
+        public int size() {
+            return seedsBestFirst.length;
+        }
+    }
+}
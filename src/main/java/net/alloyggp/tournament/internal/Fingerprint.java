@@ -0,0 +1,215 @@
+package net.alloyggp.tournament.internal;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.joda.time.DateTime;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import net.alloyggp.tournament.api.TGame;
+import net.alloyggp.tournament.internal.admin.InternalAdminAction;
+import net.alloyggp.tournament.internal.admin.InternalAdminActions;
+import net.alloyggp.tournament.internal.spec.MatchSpec;
+import net.alloyggp.tournament.internal.spec.RoundSpec;
+import net.alloyggp.tournament.internal.spec.StageFormat;
+
+/**
+ * A 128-bit hash used in place of the objects it was computed from when
+ * comparing them would be expensive, e.g. in cache keys.
+ *
+ * <p>Fingerprints of sets are the lane-wise sums of the fingerprints of
+ * their elements. This makes them independent of iteration order and lets
+ * them be updated incrementally as elements are added or removed.
+ */
+@Immutable
+public class Fingerprint {
+    public static final Fingerprint EMPTY = new Fingerprint(0L, 0L);
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    //Admin action lists are shared by all the computations for a tournament spec,
+    //so these are keyed on the identity of the list. Actions that can't be persisted
+    //are instead given a random fingerprint, unique to the list; this only means that
+    //equal lists of such actions won't share cache entries.
+    private static final LoadingCache<List<InternalAdminAction>, Fingerprint> ADMIN_ACTION_FINGERPRINTS =
+            CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<List<InternalAdminAction>, Fingerprint>() {
+                @Override
+                public Fingerprint load(List<InternalAdminAction> adminActions) {
+                    Hasher hasher = newHasher();
+                    hasher.putInt(adminActions.size());
+                    for (InternalAdminAction action : adminActions) {
+                        if (InternalAdminActions.canPersist(action)) {
+                            putString(hasher, InternalAdminActions.toPersistedString(action));
+                        } else {
+                            UUID uuid = UUID.randomUUID();
+                            hasher.putLong(uuid.getMostSignificantBits());
+                            hasher.putLong(uuid.getLeastSignificantBits());
+                        }
+                    }
+                    return of(hasher.hash());
+                }
+            });
+
+    //Likewise, round lists are shared by the specs that don't change them
+    private static final LoadingCache<List<RoundSpec>, Fingerprint> ROUNDS_FINGERPRINTS =
+            CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<List<RoundSpec>, Fingerprint>() {
+                @Override
+                public Fingerprint load(List<RoundSpec> rounds) {
+                    Hasher hasher = newHasher();
+                    hasher.putInt(rounds.size());
+                    for (RoundSpec round : rounds) {
+                        Optional<DateTime> startTime = round.getStartTime();
+                        hasher.putLong(startTime.isPresent() ? startTime.get().getMillis() : Long.MIN_VALUE);
+                        hasher.putInt(round.getMatches().size());
+                        for (MatchSpec match : round.getMatches()) {
+                            TGame game = match.getGame();
+                            putString(hasher, game.getId());
+                            putString(hasher, game.getUrl());
+                            hasher.putInt(game.getNumRoles());
+                            hasher.putBoolean(game.isFixedSum());
+                            hasher.putInt(match.getStartClock());
+                            hasher.putInt(match.getPlayClock());
+                            hasher.putInt(match.getPlayerSeedOrder().size());
+                            for (int seed : match.getPlayerSeedOrder()) {
+                                hasher.putInt(seed);
+                            }
+                            hasher.putDouble(match.getWeight());
+                        }
+                    }
+                    return of(hasher.hash());
+                }
+            });
+
+    private final long high;
+    private final long low;
+
+    private Fingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public static Hasher newHasher() {
+        return HASH_FUNCTION.newHasher();
+    }
+
+    /**
+     * Adds a length-prefixed string to the hasher, so that adjacent strings
+     * can't run together.
+     */
+    public static void putString(Hasher hasher, String string) {
+        hasher.putInt(string.length());
+        hasher.putString(string, Charsets.UTF_8);
+    }
+
+    public static Fingerprint create(long high, long low) {
+        return new Fingerprint(high, low);
+    }
+
+    public static Fingerprint of(HashCode hashCode) {
+        ByteBuffer bytes = ByteBuffer.wrap(hashCode.asBytes());
+        return new Fingerprint(bytes.getLong(), bytes.getLong());
+    }
+
+    /**
+     * Returns the fingerprint of the set of the given results, which must
+     * not contain duplicates.
+     */
+    public static Fingerprint ofResults(Iterable<InternalMatchResult> results) {
+        long high = 0L;
+        long low = 0L;
+        for (InternalMatchResult result : results) {
+            Fingerprint fingerprint = result.getFingerprint();
+            high += fingerprint.high;
+            low += fingerprint.low;
+        }
+        return new Fingerprint(high, low);
+    }
+
+    public static Fingerprint ofAdminActions(List<InternalAdminAction> adminActions) {
+        return ADMIN_ACTION_FINGERPRINTS.getUnchecked(adminActions);
+    }
+
+    /**
+     * Returns the fingerprint of everything in a stage's spec that its runner's
+     * states depend on: the format and the rounds, with their games, clocks,
+     * seed orders, and weights.
+     */
+    public static Fingerprint ofStage(StageFormat format, List<RoundSpec> rounds) {
+        Hasher hasher = newHasher();
+        putString(hasher, format.toString());
+        ROUNDS_FINGERPRINTS.getUnchecked(rounds).putInto(hasher);
+        return of(hasher.hash());
+    }
+
+    /**
+     * Returns the fingerprint of a set with the given element's fingerprint
+     * added to this one's set.
+     */
+    public Fingerprint plus(Fingerprint element) {
+        return new Fingerprint(high + element.high, low + element.low);
+    }
+
+    /**
+     * Returns the fingerprint of a set with the given element's fingerprint
+     * removed from this one's set.
+     */
+    public Fingerprint minus(Fingerprint element) {
+        return new Fingerprint(high - element.high, low - element.low);
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * Adds this fingerprint to the hasher, e.g. to compute the fingerprint
+     * of a sequence.
+     */
+    public void putInto(Hasher hasher) {
+        hasher.putLong(high);
+        hasher.putLong(low);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) low;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        Fingerprint other = (Fingerprint) obj;
+        return high == other.high && low == other.low;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
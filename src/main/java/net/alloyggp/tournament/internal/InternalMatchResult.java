@@ -4,8 +4,16 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
+import javax.annotation.Nullable;
+
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hasher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import net.alloyggp.tournament.api.TMatchResult;
 import net.alloyggp.tournament.api.TMatchResult.Outcome;
@@ -14,8 +22,23 @@ import net.alloyggp.tournament.api.TMatchResult.Outcome;
  * This is used internally to avoid repeated parsing of the match ID string.
  */
 public class InternalMatchResult {
+    //Clients pass in the full set of results with every call, so converted results are
+    //interned to avoid parsing each match ID again every time. The bound is generous
+    //enough to hold every result of several large tournaments.
+    private static final LoadingCache<TMatchResult, InternalMatchResult> INTERNED_RESULTS =
+            CacheBuilder.newBuilder()
+            .maximumSize(100000)
+            .build(new CacheLoader<TMatchResult, InternalMatchResult>() {
+                @Override
+                public InternalMatchResult load(TMatchResult result) {
+                    return new InternalMatchResult(result, MatchId.create(result.getMatchId()));
+                }
+            });
+
     private final TMatchResult result;
     private final MatchId matchId;
+    //Computed lazily; races are benign since fingerprints are immutable
+    private @Nullable Fingerprint fingerprint = null;
 
     private InternalMatchResult(TMatchResult result, MatchId matchId) {
         Preconditions.checkArgument(result.getMatchId().equals(matchId.toString()));
@@ -23,7 +46,26 @@ public class InternalMatchResult {
         this.matchId = matchId;
     }
 
+    /**
+     * Returns the internal form of the given result. Equal results give the same
+     * instance as long as it remains in the intern table.
+     */
     public static InternalMatchResult create(TMatchResult result) {
+        try {
+            return INTERNED_RESULTS.getUnchecked(result);
+        } catch (UncheckedExecutionException e) {
+            //Invalid match IDs should still fail with their original exceptions
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Returns the internal form of the given result without adding it to the
+     * intern table. This is meant for results that are only used briefly, such
+     * as the many results of simulated tournaments, and would otherwise push the
+     * results of real tournaments out of the table.
+     */
+    public static InternalMatchResult createUninterned(TMatchResult result) {
         return new InternalMatchResult(result, MatchId.create(result.getMatchId()));
     }
 
@@ -31,6 +73,28 @@ public class InternalMatchResult {
         return matchId;
     }
 
+    /**
+     * Returns a fingerprint of the match ID and outcome of this result,
+     * computed once per instance.
+     */
+    public Fingerprint getFingerprint() {
+        Fingerprint fingerprint = this.fingerprint;
+        if (fingerprint == null) {
+            Hasher hasher = Fingerprint.newHasher();
+            Fingerprint.putString(hasher, result.getMatchId());
+            hasher.putInt(result.getOutcome().ordinal());
+            if (result.getOutcome() == Outcome.COMPLETED) {
+                hasher.putInt(result.getGoals().size());
+                for (int goal : result.getGoals()) {
+                    hasher.putInt(goal);
+                }
+            }
+            fingerprint = Fingerprint.of(hasher.hash());
+            this.fingerprint = fingerprint;
+        }
+        return fingerprint;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -77,7 +141,6 @@ public class InternalMatchResult {
         return result.getGoals();
     }
 
-    //TODO: Consider caching created results?
     public static Set<InternalMatchResult> convertResults(
             Collection<TMatchResult> clientResults) {
         ImmutableSet.Builder<InternalMatchResult> builder = ImmutableSet.builder();
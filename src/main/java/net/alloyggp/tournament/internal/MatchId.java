@@ -1,7 +1,6 @@
 package net.alloyggp.tournament.internal;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 
 import com.google.common.base.Preconditions;
 
@@ -9,12 +8,17 @@ import com.google.common.base.Preconditions;
  * An internal identifier of a match within the tournament structure.
  */
 public class MatchId {
+    private static final String PREFIX = "ggpt-";
+    private static final String WITH_ACTIONS_PREFIX = "ggpta-";
+
     private final int numActionsApplied;
     private final int stage;
     private final int round;
     private final int playerMatching;
     private final int match;
     private final int attempt;
+    //Computed lazily; races are benign since strings are immutable
+    private @Nullable String string = null;
 
     private MatchId(int numActionsApplied, int stage, int round, int playerMatching, int match,
             int attempt) {
@@ -42,44 +46,70 @@ public class MatchId {
 //        return new MatchId(actionsApplied.size(), stage, round, playerMatching, match, attempt);
 //    }
 
-    private static final Pattern MATCH_ID_PATTERN = Pattern.compile("^ggpt-(\\d+)-(\\d+)-(\\d+)-(\\d+)-(\\d+)$");
+    /**
+     * Parses a match ID in either the ggpt- or the ggpta- style.
+     *
+     * @throws IllegalArgumentException if the string is not a valid match ID
+     */
     public static MatchId create(String matchIdString) {
-        if (matchIdString.startsWith("ggpta-")) {
+        if (matchIdString.startsWith(WITH_ACTIONS_PREFIX)) {
             return createWithActionsApplied(matchIdString);
         }
-        Matcher matcher = MATCH_ID_PATTERN.matcher(matchIdString);
-        boolean matches = matcher.matches();
-        if (!matches) {
+        if (!matchIdString.startsWith(PREFIX)) {
             throw new IllegalArgumentException("Could not parse " + matchIdString
                     + " as an intra-tournament match ID");
         }
-        int stage = parseNthGroupAsNumber(matcher, 1);
-        int round = parseNthGroupAsNumber(matcher, 2);
-        int playerMatching = parseNthGroupAsNumber(matcher, 3);
-        int match = parseNthGroupAsNumber(matcher, 4);
-        int attempt = parseNthGroupAsNumber(matcher, 5);
-        return new MatchId(0, stage, round, playerMatching, match, attempt);
+        return parseFields(matchIdString, PREFIX.length(), false);
     }
 
-    private static final Pattern MATCH_ID_WITH_ACTIONS_PATTERN = Pattern.compile("^ggpta-(\\d+)-(\\d+)-(\\d+)-(\\d+)-(\\d+)-(\\d+)$");
     public static MatchId createWithActionsApplied(String matchIdString) {
-        Matcher matcher = MATCH_ID_WITH_ACTIONS_PATTERN.matcher(matchIdString);
-        boolean matches = matcher.matches();
-        if (!matches) {
+        if (!matchIdString.startsWith(WITH_ACTIONS_PREFIX)) {
             throw new IllegalArgumentException("Could not parse " + matchIdString
                     + " as an intra-tournament match ID with the ggpta- style");
         }
-        int numActionsApplied = parseNthGroupAsNumber(matcher, 1);
-        int stage = parseNthGroupAsNumber(matcher, 2);
-        int round = parseNthGroupAsNumber(matcher, 3);
-        int playerMatching = parseNthGroupAsNumber(matcher, 4);
-        int match = parseNthGroupAsNumber(matcher, 5);
-        int attempt = parseNthGroupAsNumber(matcher, 6);
-        return new MatchId(numActionsApplied, stage, round, playerMatching, match, attempt);
+        return parseFields(matchIdString, WITH_ACTIONS_PREFIX.length(), true);
     }
 
-    private static int parseNthGroupAsNumber(Matcher matcher, int i) {
-        return Integer.parseInt(matcher.group(i));
+    //Parses the dash-separated numbers following the prefix, accepting the same
+    //strings as the patterns ^ggpt-(\d+)-...-(\d+)$ and ^ggpta-(\d+)-...-(\d+)$
+    private static MatchId parseFields(String matchIdString, int start, boolean withActions) {
+        int[] fields = new int[6];
+        int fieldNum = withActions ? 0 : 1;
+        long value = 0;
+        int numDigits = 0;
+        //Only strings in the form toString() produces are kept as the string form
+        boolean canonical = true;
+        int length = matchIdString.length();
+        for (int i = start; i <= length; i++) {
+            char c = (i < length) ? matchIdString.charAt(i) : '-';
+            if (c >= '0' && c <= '9') {
+                if (numDigits == 1 && value == 0) {
+                    canonical = false;
+                }
+                value = 10 * value + (c - '0');
+                numDigits++;
+                if (value > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Number too large in match ID " + matchIdString);
+                }
+            } else if (c == '-' && numDigits > 0 && fieldNum < fields.length) {
+                fields[fieldNum] = (int) value;
+                fieldNum++;
+                value = 0;
+                numDigits = 0;
+            } else {
+                throw new IllegalArgumentException("Could not parse " + matchIdString
+                        + " as an intra-tournament match ID");
+            }
+        }
+        if (fieldNum < fields.length) {
+            throw new IllegalArgumentException("Could not parse " + matchIdString
+                    + " as an intra-tournament match ID");
+        }
+        MatchId matchId = new MatchId(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5]);
+        if (canonical && (fields[0] > 0) == withActions) {
+            matchId.string = matchIdString;
+        }
+        return matchId;
     }
 
     public int getNumActionsApplied() {
@@ -143,14 +173,22 @@ public class MatchId {
         return true;
     }
 
-    //TODO: Memoize this?
     @Override
     public String toString() {
-        if (numActionsApplied == 0) {
-            return "ggpt-" + stage + "-" + round + "-" + playerMatching + "-" + match + "-" + attempt;
-        } else {
-            return "ggpta-" + numActionsApplied + "-" + stage + "-" + round + "-" + playerMatching + "-" + match + "-" + attempt;
+        String result = string;
+        if (result == null) {
+            StringBuilder sb = new StringBuilder(32);
+            if (numActionsApplied == 0) {
+                sb.append(PREFIX);
+            } else {
+                sb.append(WITH_ACTIONS_PREFIX).append(numActionsApplied).append('-');
+            }
+            sb.append(stage).append('-').append(round).append('-').append(playerMatching)
+              .append('-').append(match).append('-').append(attempt);
+            result = sb.toString();
+            string = result;
         }
+        return result;
     }
 
 }
@@ -0,0 +1,250 @@
+package net.alloyggp.tournament.internal;
+
+import java.util.Arrays;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Counts how many times each pair of players has been matched up, with
+ * players identified by dense indices (e.g. their positions in a seeding).
+ *
+ * <p>Only the pairs that have been matched up are stored, in an open-addressing
+ * hash table keyed by the pair's position in a triangular layout, so the size
+ * grows with the number of matches played rather than the square of the number
+ * of players. Copies share the table until one of them is changed.
+ */
+@NotThreadSafe
+public class MatchupCounts {
+    private static final long EMPTY = -1L;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int numPlayers;
+    //The key for players i < j is j * (j - 1) / 2 + i
+    private long[] keys;
+    private short[] counts;
+    private int numKeys;
+    //True if the arrays may be shared with a copy, so they must be cloned before a change
+    private boolean shared;
+
+    private MatchupCounts(int numPlayers, long[] keys, short[] counts, int numKeys, boolean shared) {
+        this.numPlayers = numPlayers;
+        this.keys = keys;
+        this.counts = counts;
+        this.numKeys = numKeys;
+        this.shared = shared;
+    }
+
+    public static MatchupCounts create(int numPlayers) {
+        Preconditions.checkArgument(numPlayers >= 0);
+        long[] keys = new long[INITIAL_CAPACITY];
+        Arrays.fill(keys, EMPTY);
+        return new MatchupCounts(numPlayers, keys, new short[INITIAL_CAPACITY], 0, false);
+    }
+
+    private long getKey(int player1, int player2) {
+        Preconditions.checkElementIndex(player1, numPlayers);
+        Preconditions.checkElementIndex(player2, numPlayers);
+        int lower = Math.min(player1, player2);
+        int higher = Math.max(player1, player2);
+        return (long) higher * (higher - 1) / 2 + lower;
+    }
+
+    /*
+     * Returns the slot holding the key, or the empty slot where it would be
+     * inserted. The table is never more than half full, so there always is one.
+     */
+    private static int findSlot(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    public int getNumPlayers() {
+        return numPlayers;
+    }
+
+    /**
+     * Returns the number of times the two players have been matched up. A
+     * player is never counted as having been matched up with themselves.
+     */
+    public int get(int player1, int player2) {
+        if (player1 == player2) {
+            return 0;
+        }
+        int slot = findSlot(keys, getKey(player1, player2));
+        return keys[slot] == EMPTY ? 0 : counts[slot];
+    }
+
+    public void increment(int player1, int player2) {
+        add(player1, player2, 1);
+    }
+
+    public void add(int player1, int player2, int count) {
+        Preconditions.checkArgument(player1 != player2, "Players can't be matched up with themselves");
+        long key = getKey(player1, player2);
+        int slot = findSlot(keys, key);
+        int newCount = (keys[slot] == EMPTY ? 0 : counts[slot]) + count;
+        Preconditions.checkState(newCount >= 0 && newCount <= Short.MAX_VALUE,
+                "Matchup count out of range: %s", newCount);
+        if (shared) {
+            keys = keys.clone();
+            counts = counts.clone();
+            shared = false;
+        }
+        if (keys[slot] == EMPTY) {
+            if (newCount == 0) {
+                return;
+            }
+            if (2 * (numKeys + 1) > keys.length) {
+                grow();
+                slot = findSlot(keys, key);
+            }
+            keys[slot] = key;
+            numKeys++;
+        }
+        counts[slot] = (short) newCount;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        short[] oldCounts = counts;
+        keys = new long[2 * oldKeys.length];
+        Arrays.fill(keys, EMPTY);
+        counts = new short[keys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = findSlot(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the number of distinct pairs of players that have been matched
+     * up at least once.
+     */
+    public int getNumPairsMatchedUp() {
+        int numPairs = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY && counts[i] > 0) {
+                numPairs++;
+            }
+        }
+        return numPairs;
+    }
+
+    /**
+     * Returns the pairs of players that have been matched up at least once, as
+     * consecutive (lower player, higher player, count) triples. The pairs are
+     * ordered by their higher player, then by their lower player.
+     */
+    public int[] getMatchedUpPairs() {
+        long[] matchedKeys = new long[getNumPairsMatchedUp()];
+        int numMatched = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY && counts[i] > 0) {
+                matchedKeys[numMatched++] = keys[i];
+            }
+        }
+        Arrays.sort(matchedKeys);
+
+        int[] pairs = new int[3 * matchedKeys.length];
+        int higher = 1;
+        for (int i = 0; i < matchedKeys.length; i++) {
+            long key = matchedKeys[i];
+            //Keys are sorted, so the higher player never goes down
+            while ((long) (higher + 1) * higher / 2 <= key) {
+                higher++;
+            }
+            int lower = (int) (key - (long) higher * (higher - 1) / 2);
+            pairs[3 * i] = lower;
+            pairs[3 * i + 1] = higher;
+            pairs[3 * i + 2] = get(lower, higher);
+        }
+        return pairs;
+    }
+
+    /**
+     * Returns an independent copy of these counts, e.g. to be kept as a
+     * snapshot while this one continues to be updated. The copy shares this
+     * one's table until either of them is changed.
+     */
+    public MatchupCounts copy() {
+        shared = true;
+        return new MatchupCounts(numPlayers, keys, counts, numKeys, true);
+    }
+
+    /**
+     * Returns the approximate number of bytes used by the table of counts.
+     */
+    public long getPackedBytes() {
+        return 10L * keys.length;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        //Summed, so the order of the table doesn't matter
+        int countsHashCode = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY && counts[i] > 0) {
+                countsHashCode += (int) (keys[i] ^ (keys[i] >>> 32)) * prime + counts[i];
+            }
+        }
+        int result = 1;
+        result = prime * result + countsHashCode;
+        result = prime * result + numPlayers;
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        MatchupCounts other = (MatchupCounts) obj;
+        if (numPlayers != other.numPlayers) {
+            return false;
+        }
+        if (keys == other.keys) {
+            return true;
+        }
+        if (getNumPairsMatchedUp() != other.getNumPairsMatchedUp()) {
+            return false;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY && counts[i] > 0) {
+                int otherSlot = findSlot(other.keys, keys[i]);
+                if (other.keys[otherSlot] == EMPTY || other.counts[otherSlot] != counts[i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("MatchupCounts [numPlayers=" + numPlayers + ", counts={");
+        int[] pairs = getMatchedUpPairs();
+        for (int i = 0; i < pairs.length; i += 3) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append("(").append(pairs[i]).append(", ").append(pairs[i + 1]).append(")=").append(pairs[i + 2]);
+        }
+        return sb.append("}]").toString();
+    }
+}
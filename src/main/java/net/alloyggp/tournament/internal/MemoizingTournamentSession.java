@@ -0,0 +1,129 @@
+package net.alloyggp.tournament.internal;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import net.alloyggp.tournament.api.TAdminAction;
+import net.alloyggp.tournament.api.TMatchResult;
+import net.alloyggp.tournament.api.TNextMatchesResult;
+import net.alloyggp.tournament.api.TRanking;
+import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.api.TTournamentSession;
+import net.alloyggp.tournament.api.TTournamentSnapshot;
+import net.alloyggp.tournament.api.TTournamentStatus;
+import net.alloyggp.tournament.internal.admin.InternalAdminAction;
+import net.alloyggp.tournament.internal.spec.TournamentRun;
+import net.alloyggp.tournament.internal.spec.TournamentSpec;
+
+/**
+ * An implementation of {@link TTournamentSession} that keeps the state of each
+ * stage's format between changes.
+ *
+ * <p>Each client result is converted and checked against the admin actions once, when
+ * it is added, and is then given to a {@link TournamentRun}, which keeps each stage's
+ * point totals, matchup counts, and current round and advances them with each batch of
+ * new results. A stage is only run again from all of its results when a result arrives
+ * for a round it has already completed, or when an admin action affects it; stages
+ * before the first one an admin action affects are kept as they are.
+ */
+@ThreadSafe
+public class MemoizingTournamentSession implements TTournamentSession {
+    private final TSeeding initialSeeding;
+    @GuardedBy("this")
+    private TournamentSpec spec;
+    @GuardedBy("this")
+    private final Set<TMatchResult> clientResults = Sets.newLinkedHashSet();
+    @GuardedBy("this")
+    private final Set<InternalMatchResult> resultsSoFar = Sets.newHashSet();
+    //Memoizes its own snapshot until results are added
+    @GuardedBy("this")
+    private TournamentRun run;
+
+    private MemoizingTournamentSession(TournamentSpec spec, TSeeding initialSeeding) {
+        this.spec = spec;
+        this.initialSeeding = initialSeeding;
+        this.run = spec.startRun(initialSeeding, ImmutableList.<InternalMatchResult>of());
+    }
+
+    public static MemoizingTournamentSession create(TournamentSpec spec, TSeeding initialSeeding,
+            Collection<TMatchResult> resultsSoFar) {
+        MemoizingTournamentSession session = new MemoizingTournamentSession(spec, initialSeeding);
+        session.addResults(resultsSoFar);
+        return session;
+    }
+
+    @Override
+    public void addResult(TMatchResult result) {
+        addResults(ImmutableList.of(result));
+    }
+
+    @Override
+    public synchronized void addResults(Collection<TMatchResult> results) {
+        List<InternalMatchResult> newResults = Lists.newArrayList();
+        for (TMatchResult result : results) {
+            if (clientResults.add(result)) {
+                InternalMatchResult internalResult = spec.filterInputResult(result);
+                if (internalResult != null && resultsSoFar.add(internalResult)) {
+                    newResults.add(internalResult);
+                }
+            }
+        }
+        if (!newResults.isEmpty()) {
+            run.addResults(newResults);
+        }
+    }
+
+    @Override
+    public synchronized void apply(TAdminAction adminAction) {
+        spec = (TournamentSpec) spec.apply(adminAction);
+        //The new action may invalidate results that were valid before
+        resultsSoFar.clear();
+        for (TMatchResult result : clientResults) {
+            InternalMatchResult internalResult = spec.filterInputResult(result);
+            if (internalResult != null) {
+                resultsSoFar.add(internalResult);
+            }
+        }
+        run = spec.continueRun(run, (InternalAdminAction) adminAction, initialSeeding, resultsSoFar);
+    }
+
+    @Override
+    public boolean isComplete() {
+        return getNextMatchesToRun().getMatchesToRun().isEmpty();
+    }
+
+    @Override
+    public synchronized TNextMatchesResult getNextMatchesToRun() {
+        return run.getNextMatchesToRun();
+    }
+
+    @Override
+    public TRanking getCurrentStandings() {
+        return evaluate().getCurrentStandings();
+    }
+
+    @Override
+    public List<TRanking> getStandingsHistory() {
+        return evaluate().getStandingsHistory();
+    }
+
+    @Override
+    public synchronized TTournamentSnapshot evaluate() {
+        return run.getSnapshot();
+    }
+
+    @Override
+    public synchronized TTournamentStatus getStatus() {
+        return TTournamentStatus.getInitialStatus(spec, initialSeeding)
+                .withNewResults(ImmutableSet.copyOf(clientResults));
+    }
+}
@@ -0,0 +1,101 @@
+package net.alloyggp.tournament.internal;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Maps;
+
+import net.alloyggp.tournament.api.TPlayer;
+
+/**
+ * The players of a seeding in seed order, with a lookup from each player
+ * to its seed position.
+ *
+ * <p>Instances are interned, so every ranking of a stage can share the same
+ * index instead of each keeping its own copy of the lookup table.
+ */
+@ThreadSafe
+public class PlayerIndex {
+    private static final Interner<PlayerIndex> INTERNER = Interners.newWeakInterner();
+
+    private final ImmutableList<TPlayer> players;
+    //Built on first use, so that duplicates discarded by the interner stay cheap
+    private volatile @Nullable ImmutableMap<TPlayer, Integer> indicesByPlayer = null;
+
+    private PlayerIndex(ImmutableList<TPlayer> players) {
+        this.players = players;
+    }
+
+    public static PlayerIndex create(List<TPlayer> players) {
+        return INTERNER.intern(new PlayerIndex(ImmutableList.copyOf(players)));
+    }
+
+    public int size() {
+        return players.size();
+    }
+
+    public TPlayer get(int index) {
+        return players.get(index);
+    }
+
+    public ImmutableList<TPlayer> getPlayers() {
+        return players;
+    }
+
+    /**
+     * Returns the seed position of the player.
+     *
+     * @throws IllegalArgumentException if the player is not in the index
+     */
+    public int getIndex(TPlayer player) {
+        Preconditions.checkNotNull(player);
+        ImmutableMap<TPlayer, Integer> indices = indicesByPlayer;
+        if (indices == null) {
+            //Racing threads build equal maps, so it doesn't matter which one is kept
+            Map<TPlayer, Integer> indicesBuilder = Maps.newHashMapWithExpectedSize(players.size());
+            for (int i = players.size() - 1; i >= 0; i--) {
+                indicesBuilder.put(players.get(i), i);
+            }
+            indices = ImmutableMap.copyOf(indicesBuilder);
+            indicesByPlayer = indices;
+        }
+        Integer index = indices.get(player);
+        if (index == null) {
+            throw new IllegalArgumentException("The player " + player + " is not in " + players);
+        }
+        return index;
+    }
+
+    @Override
+    public int hashCode() {
+        return players.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        PlayerIndex other = (PlayerIndex) obj;
+        return players.equals(other.players);
+    }
+
+    @Override
+    public String toString() {
+        return "PlayerIndex " + players;
+    }
+}
@@ -0,0 +1,35 @@
+package net.alloyggp.tournament.internal;
+
+import net.alloyggp.tournament.api.TPlayer;
+import net.alloyggp.tournament.api.TPlayerScore;
+import net.alloyggp.tournament.api.TRanking;
+import net.alloyggp.tournament.api.TScore;
+
+/**
+ * Contains utility methods for dealing with {@link TRanking}s.
+ */
+public class Rankings {
+    private Rankings() {
+        //Not instantiable
+    }
+
+    /**
+     * Returns the score of the player in the ranking. This is a direct lookup for
+     * the rankings created by this library and a scan of the scores for others.
+     *
+     * @throws IllegalArgumentException if the player is not in the ranking
+     */
+    public static TScore getScore(TRanking ranking, TPlayer player) {
+        if (ranking instanceof StandardRanking) {
+            return ((StandardRanking) ranking).getScore(player);
+        } else if (ranking instanceof CompactRanking) {
+            return ((CompactRanking) ranking).getScore(player);
+        }
+        for (TPlayerScore playerScore : ranking.getScores()) {
+            if (playerScore.getPlayer().equals(player)) {
+                return playerScore.getScore();
+            }
+        }
+        throw new IllegalArgumentException("Player " + player + " is not in the ranking");
+    }
+}
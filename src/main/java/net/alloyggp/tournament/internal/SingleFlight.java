@@ -0,0 +1,65 @@
+package net.alloyggp.tournament.internal;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Coalesces concurrent computations of the same value. While a computation for
+ * a key is running, other callers with an equal key wait for its result instead
+ * of starting their own. Results are not kept once the computation finishes;
+ * later callers compute the value again.
+ *
+ * <p>The computation must not call {@link #get} with the same key, or it will
+ * wait for itself.
+ */
+@ThreadSafe
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, FutureTask<V>> inFlight = Maps.newConcurrentMap();
+
+    private SingleFlight() {
+        //Use create() instead
+    }
+
+    public static <K, V> SingleFlight<K, V> create() {
+        return new SingleFlight<K, V>();
+    }
+
+    /**
+     * Returns the result of the computation, or of an equivalent computation
+     * already running for the same key. If the computation throws an unchecked
+     * exception, every caller waiting on it throws the same exception.
+     */
+    public V get(K key, Callable<V> computation) {
+        FutureTask<V> task = new FutureTask<V>(computation);
+        FutureTask<V> existingTask = inFlight.putIfAbsent(key, task);
+        if (existingTask == null) {
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+        } else {
+            task = existingTask;
+        }
+        try {
+            return Uninterruptibles.getUninterruptibly(task);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Returns the number of computations currently running.
+     */
+    public int getNumInFlight() {
+        return inFlight.size();
+    }
+}
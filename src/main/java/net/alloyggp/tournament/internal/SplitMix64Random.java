@@ -0,0 +1,59 @@
+package net.alloyggp.tournament.internal;
+
+import java.util.Random;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A fast, non-thread-safe source of randomness based on the SplitMix64
+ * generator. Unlike {@link Random}, streams created for different stream
+ * indices from the same seed are statistically independent, so parallel
+ * simulations can each use their own stream and still give the same results
+ * however the work is divided between threads.
+ */
+@NotThreadSafe
+public class SplitMix64Random extends Random {
+    private static final long serialVersionUID = 1L;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    private SplitMix64Random(long state) {
+        this.state = state;
+    }
+
+    public static SplitMix64Random create(long seed) {
+        return new SplitMix64Random(seed);
+    }
+
+    /**
+     * Returns the stream with the given index for the given seed.
+     */
+    public static SplitMix64Random forStream(long seed, long streamIndex) {
+        return new SplitMix64Random(mix64(seed + (streamIndex + 1) * GOLDEN_GAMMA));
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        //Also called by the superclass constructor; the constructor sets the state afterwards
+        super.setSeed(seed);
+        this.state = seed;
+    }
+
+    @Override
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix64(state);
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -2,13 +2,16 @@ package net.alloyggp.tournament.internal;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.concurrent.Immutable;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import net.alloyggp.escaperope.rope.ropify.CoreWeavers;
 import net.alloyggp.escaperope.rope.ropify.Weaver;
@@ -23,9 +26,25 @@ public class StandardRanking implements TRanking {
     //We may have multiple groups, which should be treated separately...
     //Let's ignore this case for now; we may not have to support group play
     private final ImmutableSortedSet<TPlayerScore> scores;
+    //Derived from scores, so per-player lookups don't have to scan the whole ranking
+    private final ImmutableList<TPlayer> playersBestFirst;
+    private final ImmutableMap<TPlayer, Integer> positionsByPlayer;
 
     private StandardRanking(ImmutableSortedSet<TPlayerScore> scores) {
         this.scores = scores;
+        ImmutableList.Builder<TPlayer> playersBuilder = ImmutableList.builder();
+        Map<TPlayer, Integer> positions = Maps.newHashMapWithExpectedSize(scores.size());
+        int index = 0;
+        for (TPlayerScore score : scores) {
+            TPlayer player = score.getPlayer();
+            playersBuilder.add(player);
+            if (!positions.containsKey(player)) {
+                positions.put(player, index);
+            }
+            index++;
+        }
+        this.playersBestFirst = playersBuilder.build();
+        this.positionsByPlayer = ImmutableMap.copyOf(positions);
     }
 
     public static StandardRanking create(Collection<TPlayerScore> scores) {
@@ -62,6 +81,10 @@ public class StandardRanking implements TRanking {
         if (this == obj) {
             return true;
         }
+        if (obj instanceof CompactRanking) {
+            //Compact rankings compare themselves to standard rankings
+            return obj.equals(this);
+        }
         if (obj == null) {
             return false;
         }
@@ -93,11 +116,7 @@ public class StandardRanking implements TRanking {
 
     @Override
     public ImmutableList<TPlayer> getPlayersBestFirst() {
-        ImmutableList.Builder<TPlayer> builder = ImmutableList.builder();
-        for (TPlayerScore score : scores) {
-            builder.add(score.getPlayer());
-        }
-        return builder.build();
+        return playersBestFirst;
     }
 
     public static StandardRanking createForSeeding(TSeeding initialSeeding) {
@@ -161,14 +180,25 @@ public class StandardRanking implements TRanking {
 
     @Override
     public int getPosition(TPlayer player) {
+        //Convert to 1-indexing
+        return getIndex(player) + 1;
+    }
+
+    /**
+     * Returns the score of the player in the ranking.
+     *
+     * @throws IllegalArgumentException if the player is not in the ranking
+     */
+    public TScore getScore(TPlayer player) {
+        return scores.asList().get(getIndex(player)).getScore();
+    }
+
+    private int getIndex(TPlayer player) {
         Preconditions.checkNotNull(player);
-        ImmutableList<TPlayerScore> list = scores.asList();
-        for (int i = 0; i < scores.size(); i++) {
-            if (list.get(i).getPlayer().equals(player)) {
-                //Convert to 1-indexing
-                return i + 1;
-            }
+        Integer index = positionsByPlayer.get(player);
+        if (index == null) {
+            throw new IllegalArgumentException("The player " + player + " is not in the ranking: " + toString());
         }
-        throw new IllegalArgumentException("The player " + player + " is not in the ranking: " + toString());
+        return index;
     }
 }
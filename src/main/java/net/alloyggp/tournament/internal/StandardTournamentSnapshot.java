@@ -0,0 +1,77 @@
+package net.alloyggp.tournament.internal;
+
+import java.util.List;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.collect.ImmutableList;
+
+import net.alloyggp.tournament.api.TNextMatchesResult;
+import net.alloyggp.tournament.api.TPlayer;
+import net.alloyggp.tournament.api.TRanking;
+import net.alloyggp.tournament.api.TScore;
+import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.api.TTournamentSnapshot;
+
+@Immutable
+public class StandardTournamentSnapshot implements TTournamentSnapshot {
+    private final TNextMatchesResult nextMatchesToRun;
+    private final TRanking currentStandings;
+    private final StandingsHistory standingsHistory;
+    private final ImmutableList<TSeeding> stageSeedings;
+
+    private StandardTournamentSnapshot(TNextMatchesResult nextMatchesToRun, TRanking currentStandings,
+            StandingsHistory standingsHistory, ImmutableList<TSeeding> stageSeedings) {
+        this.nextMatchesToRun = nextMatchesToRun;
+        this.currentStandings = currentStandings;
+        this.standingsHistory = standingsHistory;
+        this.stageSeedings = stageSeedings;
+    }
+
+    public static StandardTournamentSnapshot create(TNextMatchesResult nextMatchesToRun, TRanking currentStandings,
+            StandingsHistory standingsHistory, List<TSeeding> stageSeedings) {
+        return new StandardTournamentSnapshot(nextMatchesToRun, currentStandings, standingsHistory,
+                ImmutableList.copyOf(stageSeedings));
+    }
+
+    @Override
+    public TNextMatchesResult getNextMatchesToRun() {
+        return nextMatchesToRun;
+    }
+
+    @Override
+    public TRanking getCurrentStandings() {
+        return currentStandings;
+    }
+
+    @Override
+    public List<TRanking> getStandingsHistory() {
+        return standingsHistory;
+    }
+
+    @Override
+    public List<TScore> getScoreHistory(TPlayer player) {
+        return standingsHistory.getScoreHistory(player);
+    }
+
+    /**
+     * Returns the seeding of each stage that has been reached, in order. Players
+     * cut or excluded before a stage are missing from its seeding.
+     *
+     * <p>Note: This is internal code not covered by the API guarantees.
+     */
+    public ImmutableList<TSeeding> getStageSeedings() {
+        return stageSeedings;
+    }
+
+    @Override
+    public boolean isComplete() {
+        return nextMatchesToRun.getMatchesToRun().isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "StandardTournamentSnapshot [nextMatchesToRun=" + nextMatchesToRun + ", currentStandings="
+                + currentStandings + ", standingsHistory=" + standingsHistory + "]";
+    }
+}
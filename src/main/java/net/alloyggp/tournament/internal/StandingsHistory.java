@@ -0,0 +1,141 @@
+package net.alloyggp.tournament.internal;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import net.alloyggp.tournament.api.TPlayer;
+import net.alloyggp.tournament.api.TRanking;
+import net.alloyggp.tournament.api.TScore;
+
+/**
+ * A standings history that builds each ranking only when it is first accessed.
+ *
+ * <p>The history is split into pages, typically one per stage. Each page keeps
+ * the rankings produced by the stage's runner, which are shared with its cached
+ * end-of-round states, and knows how to turn them into tournament-wide rankings.
+ * The score of a single player can be looked up in each round without building
+ * any of the rankings.
+ */
+@ThreadSafe
+public class StandingsHistory extends AbstractList<TRanking> implements RandomAccess {
+    /**
+     * A run of consecutive rankings within the history. Implementations must
+     * be immutable.
+     */
+    public interface Page {
+        int size();
+
+        TRanking getRanking(int index);
+
+        /**
+         * Returns the score of the player in the ranking that {@link #getRanking(int)}
+         * would return, ideally without building that ranking.
+         */
+        TScore getScore(int index, TPlayer player);
+    }
+
+    private final ImmutableList<Page> pages;
+    //The index in the history of the first ranking of each page, plus the total size
+    private final int[] pageStarts;
+    private final AtomicReferenceArray<TRanking> rankingsBuilt;
+
+    private StandingsHistory(ImmutableList<Page> pages, int[] pageStarts) {
+        this.pages = pages;
+        this.pageStarts = pageStarts;
+        this.rankingsBuilt = new AtomicReferenceArray<TRanking>(pageStarts[pages.size()]);
+    }
+
+    public static StandingsHistory create(List<Page> pages) {
+        ImmutableList<Page> pagesCopy = ImmutableList.copyOf(pages);
+        int[] pageStarts = new int[pagesCopy.size() + 1];
+        for (int i = 0; i < pagesCopy.size(); i++) {
+            pageStarts[i + 1] = pageStarts[i] + pagesCopy.get(i).size();
+        }
+        return new StandingsHistory(pagesCopy, pageStarts);
+    }
+
+    /**
+     * Returns a page that presents the given rankings unchanged.
+     */
+    public static Page pageOf(List<TRanking> rankings) {
+        final ImmutableList<TRanking> rankingsCopy = ImmutableList.copyOf(rankings);
+        return new Page() {
+            @Override
+            public int size() {
+                return rankingsCopy.size();
+            }
+
+            @Override
+            public TRanking getRanking(int index) {
+                return rankingsCopy.get(index);
+            }
+
+            @Override
+            public TScore getScore(int index, TPlayer player) {
+                return Rankings.getScore(rankingsCopy.get(index), player);
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return pageStarts[pages.size()];
+    }
+
+    @Override
+    public TRanking get(int index) {
+        Preconditions.checkElementIndex(index, size());
+        TRanking ranking = rankingsBuilt.get(index);
+        if (ranking == null) {
+            //Racing threads build equal rankings, so it doesn't matter which one is kept
+            int pageNum = getPageNum(index);
+            ranking = pages.get(pageNum).getRanking(index - pageStarts[pageNum]);
+            rankingsBuilt.set(index, ranking);
+        }
+        return ranking;
+    }
+
+    /**
+     * Returns the player's score in each ranking of the history, in order.
+     * Rankings that haven't been built yet are not built by this call.
+     *
+     * @throws IllegalArgumentException if the player is not in the rankings
+     */
+    public List<TScore> getScoreHistory(TPlayer player) {
+        ImmutableList.Builder<TScore> scores = ImmutableList.builder();
+        for (int pageNum = 0; pageNum < pages.size(); pageNum++) {
+            Page page = pages.get(pageNum);
+            for (int i = pageStarts[pageNum]; i < pageStarts[pageNum + 1]; i++) {
+                TRanking ranking = rankingsBuilt.get(i);
+                if (ranking != null) {
+                    scores.add(Rankings.getScore(ranking, player));
+                } else {
+                    scores.add(page.getScore(i - pageStarts[pageNum], player));
+                }
+            }
+        }
+        return scores.build();
+    }
+
+    private int getPageNum(int index) {
+        //Find the last page starting at or before the index; empty pages are skipped
+        int low = 0;
+        int high = pages.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (pageStarts[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+}
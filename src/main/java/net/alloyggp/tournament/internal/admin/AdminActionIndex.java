@@ -0,0 +1,181 @@
+package net.alloyggp.tournament.internal.admin;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Lists;
+
+import net.alloyggp.tournament.internal.MatchId;
+
+/**
+ * Finds the last action in a list of admin actions that invalidates a given
+ * match, without checking every action in the list.
+ *
+ * <p>Each stage's actions are sorted by their first invalidated match, using
+ * the stage's round comparator, on the first lookup in that stage. Lookups
+ * are then a binary search within the stage.
+ */
+@ThreadSafe
+public class AdminActionIndex {
+    //Keyed by identity, so that everything holding a tournament's list of
+    //actions shares the same index
+    private static final LoadingCache<List<InternalAdminAction>, AdminActionIndex> INDICES =
+            CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<List<InternalAdminAction>, AdminActionIndex>() {
+                @Override
+                public AdminActionIndex load(List<InternalAdminAction> actions) {
+                    //Copied so that the index doesn't keep its key reachable
+                    return new AdminActionIndex(actions.toArray(new InternalAdminAction[actions.size()]));
+                }
+            });
+
+    private final InternalAdminAction[] actions;
+    //Element s is the number of actions up to and including the last action
+    //in a stage before s; the last element covers all stages after the last
+    //stage with an action
+    private final int[] numActionsBeforeStage;
+    private final AtomicReferenceArray<StageIndex> stageIndices;
+
+    private AdminActionIndex(InternalAdminAction[] actions) {
+        this.actions = actions;
+        int numStages = 0;
+        for (InternalAdminAction action : actions) {
+            numStages = Math.max(numStages, action.getFirstInvalidatedStage() + 1);
+        }
+        int[] lastActionInStage = new int[numStages];
+        for (int i = 0; i < actions.length; i++) {
+            lastActionInStage[actions[i].getFirstInvalidatedStage()] = i + 1;
+        }
+        this.numActionsBeforeStage = new int[numStages + 1];
+        for (int stage = 0; stage < numStages; stage++) {
+            numActionsBeforeStage[stage + 1] = Math.max(numActionsBeforeStage[stage], lastActionInStage[stage]);
+        }
+        this.stageIndices = new AtomicReferenceArray<StageIndex>(numStages);
+    }
+
+    public static AdminActionIndex create(List<InternalAdminAction> actions) {
+        return INDICES.getUnchecked(actions);
+    }
+
+    /**
+     * Returns the number of actions up to and including the last action that
+     * invalidates the given match, or 0 if no action invalidates it. This is
+     * the number of actions that an ID for the match records as applied.
+     */
+    public int getNumActionsApplied(int stage, int round, int match, Comparator<Integer> roundComparator) {
+        int numStages = stageIndices.length();
+        if (stage >= numStages) {
+            return numActionsBeforeStage[numStages];
+        }
+        return Math.max(numActionsBeforeStage[stage],
+                getStageIndex(stage, roundComparator).getNumActionsApplied(round, match));
+    }
+
+    /**
+     * Returns true iff an action after the ones applied to the given match ID
+     * invalidates the match.
+     */
+    public boolean isInvalidated(MatchId matchId, Comparator<Integer> roundComparator) {
+        return getNumActionsApplied(matchId.getStageNumber(), matchId.getRoundNumber(),
+                matchId.getMatchNumber(), roundComparator) > matchId.getNumActionsApplied();
+    }
+
+    private StageIndex getStageIndex(int stage, Comparator<Integer> roundComparator) {
+        StageIndex stageIndex = stageIndices.get(stage);
+        if (stageIndex != null && stageIndex.roundComparator == roundComparator) {
+            return stageIndex;
+        }
+        //Racing threads build equivalent indices, so it doesn't matter which one is kept
+        stageIndex = StageIndex.create(actions, stage, roundComparator);
+        stageIndices.set(stage, stageIndex);
+        return stageIndex;
+    }
+
+    @Immutable
+    private static class StageIndex {
+        private final Comparator<Integer> roundComparator;
+        //Sorted by first invalidated match
+        private final int[] firstInvalidatedRounds;
+        private final int[] firstInvalidatedMatches;
+        //Element i is the largest number of actions applied for the first i + 1 entries
+        private final int[] numActionsApplied;
+
+        private StageIndex(Comparator<Integer> roundComparator, int[] firstInvalidatedRounds,
+                int[] firstInvalidatedMatches, int[] numActionsApplied) {
+            this.roundComparator = roundComparator;
+            this.firstInvalidatedRounds = firstInvalidatedRounds;
+            this.firstInvalidatedMatches = firstInvalidatedMatches;
+            this.numActionsApplied = numActionsApplied;
+        }
+
+        public static StageIndex create(final InternalAdminAction[] actions, int stage,
+                final Comparator<Integer> roundComparator) {
+            List<Integer> actionsInStage = Lists.newArrayList();
+            for (int i = 0; i < actions.length; i++) {
+                if (actions[i].getFirstInvalidatedStage() == stage) {
+                    actionsInStage.add(i);
+                }
+            }
+            Collections.sort(actionsInStage, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer i1, Integer i2) {
+                    InternalAdminAction action1 = actions[i1];
+                    InternalAdminAction action2 = actions[i2];
+                    int roundComparison = roundComparator.compare(action1.getFirstInvalidatedRound(),
+                            action2.getFirstInvalidatedRound());
+                    if (roundComparison != 0) {
+                        return roundComparison;
+                    }
+                    return Integer.compare(action1.getFirstInvalidatedMatch(), action2.getFirstInvalidatedMatch());
+                }
+            });
+            int size = actionsInStage.size();
+            int[] firstInvalidatedRounds = new int[size];
+            int[] firstInvalidatedMatches = new int[size];
+            int[] numActionsApplied = new int[size];
+            int maxSoFar = 0;
+            for (int i = 0; i < size; i++) {
+                int actionNum = actionsInStage.get(i);
+                InternalAdminAction action = actions[actionNum];
+                firstInvalidatedRounds[i] = action.getFirstInvalidatedRound();
+                firstInvalidatedMatches[i] = action.getFirstInvalidatedMatch();
+                maxSoFar = Math.max(maxSoFar, actionNum + 1);
+                numActionsApplied[i] = maxSoFar;
+            }
+            return new StageIndex(roundComparator, firstInvalidatedRounds, firstInvalidatedMatches,
+                    numActionsApplied);
+        }
+
+        public int getNumActionsApplied(int round, int match) {
+            //Find the number of entries at or before the match
+            int low = 0;
+            int high = firstInvalidatedRounds.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (isAtOrBefore(mid, round, match)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return (low == 0) ? 0 : numActionsApplied[low - 1];
+        }
+
+        private boolean isAtOrBefore(int entry, int round, int match) {
+            int roundComparison = roundComparator.compare(firstInvalidatedRounds[entry], round);
+            if (roundComparison != 0) {
+                return roundComparison < 0;
+            }
+            return firstInvalidatedMatches[entry] <= match;
+        }
+    }
+}
@@ -68,7 +68,42 @@ public abstract class InternalAdminAction implements TAdminAction {
 
     /**
      * Returns true iff the match result should be ignored because this action invalidates it.
+     * An action invalidates its first invalidated match and every match after it: matches
+     * in later stages, in later rounds of the same stage, and later in the same round.
      */
-    //TODO: Put this in some superclass.
-    public abstract boolean invalidates(MatchId matchId, Comparator<Integer> roundComparator);
+    public boolean invalidates(MatchId matchId, Comparator<Integer> roundComparator) {
+        if (matchId.getStageNumber() != getFirstInvalidatedStage()) {
+            return matchId.getStageNumber() > getFirstInvalidatedStage();
+        }
+        int roundComparison = roundComparator.compare(matchId.getRoundNumber(), getFirstInvalidatedRound());
+        if (roundComparison != 0) {
+            return roundComparison > 0;
+        }
+        return matchId.getMatchNumber() >= getFirstInvalidatedMatch();
+    }
+
+    /**
+     * Returns true iff this action may change the given stage or invalidate any of
+     * its matches. Stages before the one with the first invalidated match are left
+     * as they were.
+     */
+    public boolean affectsStage(int stageNum) {
+        return stageNum >= getFirstInvalidatedStage();
+    }
+
+    /**
+     * Returns the stage number of the first match invalidated by this action.
+     * See {@link #invalidates(MatchId, Comparator)}.
+     */
+    protected abstract int getFirstInvalidatedStage();
+
+    /**
+     * Returns the round number of the first match invalidated by this action.
+     */
+    protected abstract int getFirstInvalidatedRound();
+
+    /**
+     * Returns the match number of the first match invalidated by this action.
+     */
+    protected abstract int getFirstInvalidatedMatch();
 }
@@ -1,5 +1,7 @@
 package net.alloyggp.tournament.internal.admin;
 
+import com.google.common.collect.ImmutableSet;
+
 import net.alloyggp.escaperope.Delimiters;
 import net.alloyggp.escaperope.RopeDelimiter;
 import net.alloyggp.escaperope.rope.Rope;
@@ -16,11 +18,23 @@ public class InternalAdminActions {
     public static final Weaver<TAdminAction> WEAVER = SubclassWeaver.builder(TAdminAction.class)
             .add(ReplaceGameAction.class, "ReplaceGame", ReplaceGameAction.WEAVER)
             .build();
+    //These must match the subclasses registered with the WEAVER.
+    @SuppressWarnings("deprecation")
+    private static final ImmutableSet<Class<? extends TAdminAction>> PERSISTABLE_CLASSES =
+            ImmutableSet.<Class<? extends TAdminAction>>of(ReplaceGameAction.class);
 
     public static RopeDelimiter getStandardDelimiter() {
         return Delimiters.getJsonArrayRopeDelimiter();
     }
 
+    /**
+     * Returns true if the action is of a type that can be persisted with
+     * {@link #toPersistedString(TAdminAction)}.
+     */
+    public static boolean canPersist(TAdminAction adminAction) {
+        return PERSISTABLE_CLASSES.contains(adminAction.getClass());
+    }
+
     public static TAdminAction fromPersistedString(String persistedString) {
         Rope rope = getStandardDelimiter().undelimit(persistedString);
         return WEAVER.fromRope(rope);
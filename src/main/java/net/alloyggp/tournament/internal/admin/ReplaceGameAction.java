@@ -1,13 +1,10 @@
 package net.alloyggp.tournament.internal.admin;
 
-import java.util.Comparator;
-
 import net.alloyggp.escaperope.rope.ropify.ListWeaver;
 import net.alloyggp.escaperope.rope.ropify.RopeBuilder;
 import net.alloyggp.escaperope.rope.ropify.RopeList;
 import net.alloyggp.escaperope.rope.ropify.Weaver;
 import net.alloyggp.tournament.api.TGame;
-import net.alloyggp.tournament.internal.MatchId;
 import net.alloyggp.tournament.internal.rope.Weavers;
 
 public class ReplaceGameAction extends InternalAdminAction {
@@ -75,23 +72,18 @@ public class ReplaceGameAction extends InternalAdminAction {
     }
 
     @Override
-    public boolean invalidates(MatchId matchId, Comparator<Integer> roundComparator) {
-        if (matchId.getStageNumber() < stageNum) {
-            return false;
-        }
-        if (matchId.getStageNumber() > stageNum) {
-            return true;
-        }
-        if (roundComparator.compare(matchId.getRoundNumber(), roundNum) < 0) {
-            return false;
-        }
-        if (roundComparator.compare(matchId.getRoundNumber(), roundNum) > 0) {
-            return true;
-        }
-        if (matchId.getMatchNumber() < matchNum) {
-            return false;
-        }
-        return true;
+    protected int getFirstInvalidatedStage() {
+        return stageNum;
+    }
+
+    @Override
+    protected int getFirstInvalidatedRound() {
+        return roundNum;
+    }
+
+    @Override
+    protected int getFirstInvalidatedMatch() {
+        return matchNum;
     }
 
     public static final Weaver<ReplaceGameAction> WEAVER = new ListWeaver<ReplaceGameAction>() {
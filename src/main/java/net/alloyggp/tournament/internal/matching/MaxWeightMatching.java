@@ -0,0 +1,878 @@
+package net.alloyggp.tournament.internal.matching;
+
+import java.util.Arrays;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Finds maximum-weight matchings in general graphs using Edmonds' blossom
+ * algorithm, in its primal-dual form with the O(n^3) bookkeeping described in
+ * Galil, "Efficient algorithms for finding maximum matching in graphs" (1986).
+ * This follows the structure of Joris van Rantwijk's public-domain Python
+ * implementation (mwmatching.py), including its variable names, but keeps all
+ * of its state in primitive arrays.
+ *
+ * <p>Vertices are numbered from 0. Edge weights are integers. As in the original,
+ * the vertex dual variables are stored doubled; the weights are also doubled
+ * internally, so that the vertex duals all start out even. That keeps the slack
+ * between any two S-vertices even, so all the arithmetic stays integral and exact.
+ *
+ * <p>The algorithm works on "endpoints": edge k has endpoints 2k and 2k+1, and
+ * endpoint[p] is the vertex at endpoint p. Labels are 0 (free), 1 (S-vertex or
+ * S-blossom) and 2 (T-vertex or T-blossom); blossoms are numbered from
+ * numVertices to 2 * numVertices - 1.
+ */
+@NotThreadSafe
+public class MaxWeightMatching {
+    private final int numVertices;
+    private final int numEdges;
+    private final boolean perVertexDuals;
+    private final int[] endpoint;
+    //Twice the edge weights given
+    private final long[] weights;
+    //The remote endpoints of the edges incident to vertex v are
+    //neighbend[neighbendStart[v]] through neighbend[neighbendStart[v + 1] - 1]
+    private final int[] neighbendStart;
+    private final int[] neighbend;
+
+    private final int[] mate;
+    private final int[] label;
+    private final int[] labelEnd;
+    private final int[] inBlossom;
+    private final int[] blossomParent;
+    private final int[][] blossomChildren;
+    private final int[] blossomBase;
+    private final int[][] blossomEndps;
+    private final int[] bestEdge;
+    private final int[][] blossomBestEdges;
+    private final IntStack unusedBlossoms = new IntStack();
+    private final long[] dualVar;
+    private final boolean[] allowEdge;
+    private final IntStack queue = new IntStack();
+
+    //Scratch space for addBlossom, kept at -1 between calls
+    private final int[] bestEdgeTo;
+
+    private MaxWeightMatching(int numVertices, int[] ends1, int[] ends2, long[] weights,
+            boolean perVertexDuals) {
+        this.numVertices = numVertices;
+        this.numEdges = weights.length;
+        this.perVertexDuals = perVertexDuals;
+        this.weights = new long[numEdges];
+        this.endpoint = new int[2 * numEdges];
+        this.dualVar = new long[2 * numVertices];
+        int[] degrees = new int[numVertices];
+        long maxWeight = 0;
+        for (int k = 0; k < numEdges; k++) {
+            int i = ends1[k];
+            int j = ends2[k];
+            Preconditions.checkElementIndex(i, numVertices);
+            Preconditions.checkElementIndex(j, numVertices);
+            Preconditions.checkArgument(i != j, "Edges can't connect a vertex to itself");
+            endpoint[2 * k] = i;
+            endpoint[2 * k + 1] = j;
+            degrees[i]++;
+            degrees[j]++;
+            this.weights[k] = 2 * weights[k];
+            maxWeight = Math.max(maxWeight, this.weights[k]);
+            if (perVertexDuals) {
+                //Each vertex starts with the largest weight among its edges
+                dualVar[i] = (degrees[i] == 1) ? this.weights[k] : Math.max(dualVar[i], this.weights[k]);
+                dualVar[j] = (degrees[j] == 1) ? this.weights[k] : Math.max(dualVar[j], this.weights[k]);
+            }
+        }
+        if (!perVertexDuals) {
+            Arrays.fill(dualVar, 0, numVertices, maxWeight);
+        }
+        this.neighbendStart = new int[numVertices + 1];
+        for (int v = 0; v < numVertices; v++) {
+            neighbendStart[v + 1] = neighbendStart[v] + degrees[v];
+        }
+        this.neighbend = new int[2 * numEdges];
+        int[] filled = new int[numVertices];
+        for (int k = 0; k < numEdges; k++) {
+            int i = ends1[k];
+            int j = ends2[k];
+            neighbend[neighbendStart[i] + filled[i]++] = 2 * k + 1;
+            neighbend[neighbendStart[j] + filled[j]++] = 2 * k;
+        }
+
+        this.mate = new int[numVertices];
+        Arrays.fill(mate, -1);
+        this.label = new int[2 * numVertices];
+        this.labelEnd = new int[2 * numVertices];
+        Arrays.fill(labelEnd, -1);
+        this.inBlossom = new int[numVertices];
+        for (int v = 0; v < numVertices; v++) {
+            inBlossom[v] = v;
+        }
+        this.blossomParent = new int[2 * numVertices];
+        Arrays.fill(blossomParent, -1);
+        this.blossomChildren = new int[2 * numVertices][];
+        this.blossomBase = new int[2 * numVertices];
+        for (int b = 0; b < 2 * numVertices; b++) {
+            blossomBase[b] = (b < numVertices) ? b : -1;
+        }
+        this.blossomEndps = new int[2 * numVertices][];
+        this.bestEdge = new int[2 * numVertices];
+        Arrays.fill(bestEdge, -1);
+        this.blossomBestEdges = new int[2 * numVertices][];
+        for (int b = 2 * numVertices - 1; b >= numVertices; b--) {
+            unusedBlossoms.push(b);
+        }
+        this.allowEdge = new boolean[numEdges];
+        this.bestEdgeTo = new int[2 * numVertices];
+        Arrays.fill(bestEdgeTo, -1);
+    }
+
+    /**
+     * Returns a maximum-weight matching of the given graph, as an array giving
+     * the mate of each vertex, or -1 for vertices left unmatched. Edge k connects
+     * vertices ends1[k] and ends2[k] and has weight weights[k]; there should be
+     * at most one edge between any pair of vertices.
+     *
+     * <p>If maxCardinality is true, only matchings with the largest possible
+     * number of edges are considered. In particular, if the graph has a perfect
+     * matching, giving each edge a weight of some constant minus its cost yields
+     * a perfect matching of minimum total cost.
+     */
+    public static int[] computeMates(int numVertices, int[] ends1, int[] ends2, long[] weights,
+            boolean maxCardinality) {
+        Preconditions.checkArgument(numVertices >= 0);
+        Preconditions.checkArgument(ends1.length == weights.length && ends2.length == weights.length,
+                "Edge arrays must all have the same length");
+        if (maxCardinality) {
+            //Starting each vertex's dual at its largest edge weight makes far more
+            //edges tight from the start, so far fewer stages are needed. Vertex duals
+            //are unconstrained when the matching is perfect, so the result is optimal
+            //if it is perfect; otherwise, we start over from the usual equal duals.
+            MaxWeightMatching matching = new MaxWeightMatching(numVertices, ends1, ends2, weights, true);
+            matching.run(true);
+            if (matching.isPerfect()) {
+                return matching.getMates();
+            }
+        }
+        MaxWeightMatching matching = new MaxWeightMatching(numVertices, ends1, ends2, weights, false);
+        matching.run(maxCardinality);
+        return matching.getMates();
+    }
+
+    private boolean isPerfect() {
+        for (int v = 0; v < numVertices; v++) {
+            if (mate[v] == -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int[] getMates() {
+        int[] mates = new int[numVertices];
+        for (int v = 0; v < numVertices; v++) {
+            mates[v] = (mate[v] >= 0) ? endpoint[mate[v]] : -1;
+        }
+        return mates;
+    }
+
+    private long slack(int k) {
+        return dualVar[endpoint[2 * k]] + dualVar[endpoint[2 * k + 1]] - 2 * weights[k];
+    }
+
+    private void addBlossomLeaves(int b, IntStack leaves) {
+        if (b < numVertices) {
+            leaves.push(b);
+        } else {
+            for (int t : blossomChildren[b]) {
+                addBlossomLeaves(t, leaves);
+            }
+        }
+    }
+
+    private int[] getBlossomLeaves(int b) {
+        IntStack leaves = new IntStack();
+        addBlossomLeaves(b, leaves);
+        return leaves.toArray();
+    }
+
+    /**
+     * Assigns label t to the top-level blossom containing vertex w, which was
+     * reached through the edge with remote endpoint p.
+     */
+    private void assignLabel(int w, int t, int p) {
+        int b = inBlossom[w];
+        label[w] = label[b] = t;
+        labelEnd[w] = labelEnd[b] = p;
+        bestEdge[w] = bestEdge[b] = -1;
+        if (t == 1) {
+            //b became an S-blossom; add its vertices to the queue
+            addBlossomLeaves(b, queue);
+        } else if (t == 2) {
+            //b became a T-blossom; its mate becomes an S-blossom
+            int base = blossomBase[b];
+            assignLabel(endpoint[mate[base]], 1, mate[base] ^ 1);
+        }
+    }
+
+    /**
+     * Traces back from vertices v and w to discover either a new blossom or an
+     * augmenting path. Returns the base vertex of the new blossom, or -1.
+     */
+    private int scanBlossom(int v, int w) {
+        IntStack path = new IntStack();
+        int base = -1;
+        while (v != -1 || w != -1) {
+            //Look for a breadcrumb in v's blossom, or put a new breadcrumb
+            int b = inBlossom[v];
+            if ((label[b] & 4) != 0) {
+                base = blossomBase[b];
+                break;
+            }
+            path.push(b);
+            label[b] = 5;
+            //Trace one step back
+            if (labelEnd[b] == -1) {
+                //The base of blossom b is single; stop tracing this path
+                v = -1;
+            } else {
+                v = endpoint[labelEnd[b]];
+                b = inBlossom[v];
+                //b is a T-blossom; trace one more step back
+                v = endpoint[labelEnd[b]];
+            }
+            //Swap v and w so that we alternate between both paths
+            if (w != -1) {
+                int temp = v;
+                v = w;
+                w = temp;
+            }
+        }
+        //Remove breadcrumbs
+        for (int i = 0; i < path.size; i++) {
+            label[path.data[i]] = 1;
+        }
+        return base;
+    }
+
+    /**
+     * Constructs a new blossom with the given base, containing edge k, which
+     * connects a pair of S-vertices. Labels the new blossom as S, sets its dual
+     * variable to zero, and relabels its T-vertices to S and adds them to the queue.
+     */
+    private void addBlossom(int base, int k) {
+        int v = endpoint[2 * k];
+        int w = endpoint[2 * k + 1];
+        int bb = inBlossom[base];
+        int bv = inBlossom[v];
+        int bw = inBlossom[w];
+        //Create a new top-level blossom
+        int b = unusedBlossoms.pop();
+        blossomBase[b] = base;
+        blossomParent[b] = -1;
+        blossomParent[bb] = b;
+        //Make a list of the sub-blossoms along the path, and their connecting endpoints
+        IntStack path = new IntStack();
+        IntStack endps = new IntStack();
+        //Trace back from v to base
+        while (bv != bb) {
+            blossomParent[bv] = b;
+            path.push(bv);
+            endps.push(labelEnd[bv]);
+            v = endpoint[labelEnd[bv]];
+            bv = inBlossom[v];
+        }
+        //Reverse the lists and add the endpoint that connects the pair of S-vertices
+        path.push(bb);
+        path.reverse();
+        endps.reverse();
+        endps.push(2 * k);
+        //Trace back from w to base
+        while (bw != bb) {
+            blossomParent[bw] = b;
+            path.push(bw);
+            endps.push(labelEnd[bw] ^ 1);
+            w = endpoint[labelEnd[bw]];
+            bw = inBlossom[w];
+        }
+        int[] children = path.toArray();
+        blossomChildren[b] = children;
+        blossomEndps[b] = endps.toArray();
+        //Set the label to S
+        label[b] = 1;
+        labelEnd[b] = labelEnd[bb];
+        dualVar[b] = 0;
+        //Relabel the vertices
+        for (int leaf : getBlossomLeaves(b)) {
+            if (label[inBlossom[leaf]] == 2) {
+                //This T-vertex now turns into an S-vertex because it becomes
+                //part of an S-blossom; add it to the queue
+                queue.push(leaf);
+            }
+            inBlossom[leaf] = b;
+        }
+        //Compute the least-slack edge from this blossom to each other S-blossom
+        IntStack neighborBlossoms = new IntStack();
+        for (int child : children) {
+            if (blossomBestEdges[child] == null) {
+                //This sub-blossom doesn't have a list of least-slack edges;
+                //get the information from the vertices
+                for (int leaf : getBlossomLeaves(child)) {
+                    for (int n = neighbendStart[leaf]; n < neighbendStart[leaf + 1]; n++) {
+                        considerBestEdgeTo(b, neighbend[n] >> 1, neighborBlossoms);
+                    }
+                }
+            } else {
+                //Walk this sub-blossom's least-slack edges
+                for (int edge : blossomBestEdges[child]) {
+                    considerBestEdgeTo(b, edge, neighborBlossoms);
+                }
+            }
+            //Forget about the least-slack edges of the sub-blossom
+            blossomBestEdges[child] = null;
+            bestEdge[child] = -1;
+        }
+        int[] bestEdges = new int[neighborBlossoms.size];
+        bestEdge[b] = -1;
+        for (int i = 0; i < bestEdges.length; i++) {
+            int neighborBlossom = neighborBlossoms.data[i];
+            int edge = bestEdgeTo[neighborBlossom];
+            bestEdges[i] = edge;
+            bestEdgeTo[neighborBlossom] = -1;
+            //Select the least-slack edge to an S-blossom as bestEdge[b]
+            if (bestEdge[b] == -1 || slack(edge) < slack(bestEdge[b])) {
+                bestEdge[b] = edge;
+            }
+        }
+        blossomBestEdges[b] = bestEdges;
+    }
+
+    private void considerBestEdgeTo(int b, int k, IntStack neighborBlossoms) {
+        int j = endpoint[2 * k + 1];
+        if (inBlossom[j] == b) {
+            j = endpoint[2 * k];
+        }
+        int bj = inBlossom[j];
+        if (bj != b && label[bj] == 1) {
+            if (bestEdgeTo[bj] == -1) {
+                neighborBlossoms.push(bj);
+                bestEdgeTo[bj] = k;
+            } else if (slack(k) < slack(bestEdgeTo[bj])) {
+                bestEdgeTo[bj] = k;
+            }
+        }
+    }
+
+    /**
+     * Expands the given top-level blossom. If this isn't at the end of a stage,
+     * the labels of the sub-blossoms are fixed up so the alternating tree stays
+     * consistent.
+     */
+    private void expandBlossom(int b, boolean endStage) {
+        int[] children = blossomChildren[b];
+        //Convert the sub-blossoms into top-level blossoms
+        for (int s : children) {
+            blossomParent[s] = -1;
+            if (s < numVertices) {
+                inBlossom[s] = s;
+            } else if (endStage && dualVar[s] == 0) {
+                //Recursively expand this sub-blossom
+                expandBlossom(s, endStage);
+            } else {
+                for (int leaf : getBlossomLeaves(s)) {
+                    inBlossom[leaf] = s;
+                }
+            }
+        }
+        //If we expand a T-blossom during a stage, its sub-blossoms must be relabeled
+        if (!endStage && label[b] == 2) {
+            int[] endps = blossomEndps[b];
+            //Start at the sub-blossom through which the expanding blossom
+            //obtained its label, and relabel sub-blossoms until we reach the base
+            int entryChild = inBlossom[endpoint[labelEnd[b] ^ 1]];
+            int j = indexOf(children, entryChild);
+            int jStep;
+            int endpTrick;
+            if ((j & 1) != 0) {
+                //Start index is odd; go forward and wrap
+                j -= children.length;
+                jStep = 1;
+                endpTrick = 0;
+            } else {
+                //Start index is even; go backward
+                jStep = -1;
+                endpTrick = 1;
+            }
+            //Move along the blossom until we get to the base
+            int p = labelEnd[b];
+            while (j != 0) {
+                //Relabel the T-sub-blossom
+                label[endpoint[p ^ 1]] = 0;
+                label[endpoint[at(endps, j - endpTrick) ^ endpTrick ^ 1]] = 0;
+                assignLabel(endpoint[p ^ 1], 2, p);
+                //Step to the next S-sub-blossom and note its forward endpoint
+                allowEdge[at(endps, j - endpTrick) >> 1] = true;
+                j += jStep;
+                p = at(endps, j - endpTrick) ^ endpTrick;
+                //Step to the next T-sub-blossom
+                allowEdge[p >> 1] = true;
+                j += jStep;
+            }
+            //Relabel the base T-sub-blossom without stepping through to its mate
+            //(so don't call assignLabel)
+            int bv = at(children, j);
+            label[endpoint[p ^ 1]] = label[bv] = 2;
+            labelEnd[endpoint[p ^ 1]] = labelEnd[bv] = p;
+            bestEdge[bv] = -1;
+            //Continue along the blossom until we get back to entryChild
+            j += jStep;
+            while (at(children, j) != entryChild) {
+                //Examine the vertices of the sub-blossom to see whether it is
+                //reachable from a neighboring S-vertex outside the expanding blossom
+                bv = at(children, j);
+                if (label[bv] == 1) {
+                    //This sub-blossom just got label S through one of its neighbors
+                    j += jStep;
+                    continue;
+                }
+                for (int leaf : getBlossomLeaves(bv)) {
+                    if (label[leaf] != 0) {
+                        //If the sub-blossom contains a reachable vertex, assign
+                        //label T to the sub-blossom
+                        label[leaf] = 0;
+                        label[endpoint[mate[blossomBase[bv]]]] = 0;
+                        assignLabel(leaf, 2, labelEnd[leaf]);
+                        break;
+                    }
+                }
+                j += jStep;
+            }
+        }
+        //Recycle the blossom number
+        label[b] = labelEnd[b] = -1;
+        blossomChildren[b] = null;
+        blossomEndps[b] = null;
+        blossomBase[b] = -1;
+        blossomBestEdges[b] = null;
+        bestEdge[b] = -1;
+        unusedBlossoms.push(b);
+    }
+
+    /**
+     * Swaps matched and unmatched edges over an alternating path through
+     * blossom b between vertex v and the base vertex, keeping the blossom's
+     * structure consistent.
+     */
+    private void augmentBlossom(int b, int v) {
+        //Bubble up through the blossom tree from vertex v to an immediate sub-blossom of b
+        int t = v;
+        while (blossomParent[t] != b) {
+            t = blossomParent[t];
+        }
+        //Recursively deal with the first sub-blossom
+        if (t >= numVertices) {
+            augmentBlossom(t, v);
+        }
+        int[] children = blossomChildren[b];
+        int[] endps = blossomEndps[b];
+        //Decide in which direction we will go around the blossom
+        int i = indexOf(children, t);
+        int j = i;
+        int jStep;
+        int endpTrick;
+        if ((i & 1) != 0) {
+            //Start index is odd; go forward and wrap
+            j -= children.length;
+            jStep = 1;
+            endpTrick = 0;
+        } else {
+            //Start index is even; go backward
+            jStep = -1;
+            endpTrick = 1;
+        }
+        //Move along the blossom until we get to the base
+        while (j != 0) {
+            //Step to the next sub-blossom and augment it recursively
+            j += jStep;
+            t = at(children, j);
+            int p = at(endps, j - endpTrick) ^ endpTrick;
+            if (t >= numVertices) {
+                augmentBlossom(t, endpoint[p]);
+            }
+            //Step to the next sub-blossom and augment it recursively
+            j += jStep;
+            t = at(children, j);
+            if (t >= numVertices) {
+                augmentBlossom(t, endpoint[p ^ 1]);
+            }
+            //Match the edge connecting those sub-blossoms
+            mate[endpoint[p]] = p ^ 1;
+            mate[endpoint[p ^ 1]] = p;
+        }
+        //Rotate the list of sub-blossoms to put the new base at the front
+        blossomChildren[b] = rotate(children, i);
+        blossomEndps[b] = rotate(endps, i);
+        blossomBase[b] = blossomBase[blossomChildren[b][0]];
+    }
+
+    /**
+     * Swaps matched and unmatched edges over an alternating path between two
+     * single vertices. The augmenting path runs through edge k, which connects
+     * a pair of S-vertices.
+     */
+    private void augmentMatching(int k) {
+        for (int side = 0; side < 2; side++) {
+            //Match vertex s to remote endpoint p, then trace back from s until
+            //we find a single vertex, swapping matched and unmatched edges as we go
+            int s = endpoint[2 * k + side];
+            int p = 2 * k + 1 - side;
+            while (true) {
+                int bs = inBlossom[s];
+                //Augment through the S-blossom from s to base
+                if (bs >= numVertices) {
+                    augmentBlossom(bs, s);
+                }
+                //Update mate[s]
+                mate[s] = p;
+                //Trace one step back
+                if (labelEnd[bs] == -1) {
+                    //Reached a single vertex; stop
+                    break;
+                }
+                int t = endpoint[labelEnd[bs]];
+                int bt = inBlossom[t];
+                //Trace one more step back
+                s = endpoint[labelEnd[bt]];
+                int j = endpoint[labelEnd[bt] ^ 1];
+                //Augment through the T-blossom from j to base
+                if (bt >= numVertices) {
+                    augmentBlossom(bt, j);
+                }
+                //Update mate[j]
+                mate[j] = labelEnd[bt];
+                //Keep the opposite endpoint; it will be assigned to mate[s] in the next step
+                p = labelEnd[bt] ^ 1;
+            }
+        }
+    }
+
+    private void run(boolean maxCardinality) {
+        matchTightEdgesGreedily();
+        if (perVertexDuals) {
+            lowerFreeVertexDuals();
+        }
+        //Each iteration of this loop is a "stage"; a stage finds an augmenting
+        //path and uses that to improve the matching
+        for (int stage = 0; stage < numVertices; stage++) {
+            //Remove labels from top-level blossoms and vertices, and forget
+            //least-slack edges and allowed edges
+            Arrays.fill(label, 0);
+            Arrays.fill(bestEdge, -1);
+            Arrays.fill(blossomBestEdges, numVertices, 2 * numVertices, null);
+            Arrays.fill(allowEdge, false);
+            queue.clear();
+
+            //Label single blossoms/vertices with S and put them in the queue
+            for (int v = 0; v < numVertices; v++) {
+                if (mate[v] == -1 && label[inBlossom[v]] == 0) {
+                    assignLabel(v, 1, -1);
+                }
+            }
+
+            //Loop until we succeed in augmenting the matching
+            boolean augmented = false;
+            while (true) {
+                //Continue labeling until all vertices which are reachable
+                //through an alternating path have got a label
+                while (!queue.isEmpty() && !augmented) {
+                    int v = queue.pop();
+                    for (int n = neighbendStart[v]; n < neighbendStart[v + 1]; n++) {
+                        int p = neighbend[n];
+                        int k = p >> 1;
+                        int w = endpoint[p];
+                        //w is a neighbor of v
+                        if (inBlossom[v] == inBlossom[w]) {
+                            //This edge is internal to a blossom; ignore it
+                            continue;
+                        }
+                        long kSlack = 0;
+                        if (!allowEdge[k]) {
+                            kSlack = slack(k);
+                            if (kSlack <= 0) {
+                                //The edge k has zero slack, so it's allowable
+                                allowEdge[k] = true;
+                            }
+                        }
+                        if (allowEdge[k]) {
+                            if (label[inBlossom[w]] == 0) {
+                                //(C1) w is a free vertex; label w with T and label its mate with S (R12)
+                                assignLabel(w, 2, p ^ 1);
+                            } else if (label[inBlossom[w]] == 1) {
+                                //(C2) w is an S-vertex (not in the same blossom);
+                                //follow back-links to discover either an augmenting path or a new blossom
+                                int base = scanBlossom(v, w);
+                                if (base >= 0) {
+                                    //Found a new blossom; add it to the blossom bookkeeping
+                                    //and turn it into an S-blossom
+                                    addBlossom(base, k);
+                                } else {
+                                    //Found an augmenting path; augment the matching and end this stage
+                                    augmentMatching(k);
+                                    augmented = true;
+                                    break;
+                                }
+                            } else if (label[w] == 0) {
+                                //w is inside a T-blossom, but w itself has not yet been reached
+                                //from outside the blossom; mark it as reached (for expandBlossom)
+                                label[w] = 2;
+                                labelEnd[w] = p ^ 1;
+                            }
+                        } else if (label[inBlossom[w]] == 1) {
+                            //Keep track of the least-slack non-allowable edge to a different S-blossom
+                            int b = inBlossom[v];
+                            if (bestEdge[b] == -1 || kSlack < slack(bestEdge[b])) {
+                                bestEdge[b] = k;
+                            }
+                        } else if (label[w] == 0) {
+                            //w is a free vertex (or an unreached vertex inside a T-blossom)
+                            //but we can't reach it yet; keep track of the least-slack edge that reaches w
+                            if (bestEdge[w] == -1 || kSlack < slack(bestEdge[w])) {
+                                bestEdge[w] = k;
+                            }
+                        }
+                    }
+                }
+
+                if (augmented) {
+                    break;
+                }
+
+                //There is no augmenting path under these constraints; compute
+                //delta and reduce slack in the optimization problem
+                int deltaType = -1;
+                long delta = 0;
+                int deltaEdge = -1;
+                int deltaBlossom = -1;
+
+                //Compute delta1: the minimum value of any vertex dual
+                if (!maxCardinality) {
+                    deltaType = 1;
+                    delta = getMinVertexDual();
+                }
+
+                //Compute delta2: the minimum slack on any edge between an
+                //S-vertex and a free vertex
+                for (int v = 0; v < numVertices; v++) {
+                    if (label[inBlossom[v]] == 0 && bestEdge[v] != -1) {
+                        long d = slack(bestEdge[v]);
+                        if (deltaType == -1 || d < delta) {
+                            delta = d;
+                            deltaType = 2;
+                            deltaEdge = bestEdge[v];
+                        }
+                    }
+                }
+
+                //Compute delta3: half the minimum slack on any edge between a
+                //pair of S-blossoms. With integer weights, this slack is always even.
+                for (int b = 0; b < 2 * numVertices; b++) {
+                    if (blossomParent[b] == -1 && label[b] == 1 && bestEdge[b] != -1) {
+                        long d = slack(bestEdge[b]) / 2;
+                        if (deltaType == -1 || d < delta) {
+                            delta = d;
+                            deltaType = 3;
+                            deltaEdge = bestEdge[b];
+                        }
+                    }
+                }
+
+                //Compute delta4: the minimum z variable of any T-blossom
+                for (int b = numVertices; b < 2 * numVertices; b++) {
+                    if (blossomBase[b] >= 0 && blossomParent[b] == -1 && label[b] == 2
+                            && (deltaType == -1 || dualVar[b] < delta)) {
+                        delta = dualVar[b];
+                        deltaType = 4;
+                        deltaBlossom = b;
+                    }
+                }
+
+                if (deltaType == -1) {
+                    //No further improvement possible; max-cardinality optimum
+                    //reached. Do a final delta update to make the optimum verifiable.
+                    deltaType = 1;
+                    delta = Math.max(0, getMinVertexDual());
+                }
+
+                //Update the dual variables according to delta
+                for (int v = 0; v < numVertices; v++) {
+                    if (label[inBlossom[v]] == 1) {
+                        //S-vertex: 2*u = 2*u - 2*delta
+                        dualVar[v] -= delta;
+                    } else if (label[inBlossom[v]] == 2) {
+                        //T-vertex: 2*u = 2*u + 2*delta
+                        dualVar[v] += delta;
+                    }
+                }
+                for (int b = numVertices; b < 2 * numVertices; b++) {
+                    if (blossomBase[b] >= 0 && blossomParent[b] == -1) {
+                        if (label[b] == 1) {
+                            //Top-level S-blossom: z = z + 2*delta
+                            dualVar[b] += delta;
+                        } else if (label[b] == 2) {
+                            //Top-level T-blossom: z = z - 2*delta
+                            dualVar[b] -= delta;
+                        }
+                    }
+                }
+
+                //Take action at the point where the minimum delta occurred
+                if (deltaType == 1) {
+                    //No further improvement possible; optimum reached
+                    break;
+                } else if (deltaType == 2) {
+                    //Use the least-slack edge to continue the search
+                    allowEdge[deltaEdge] = true;
+                    int i = endpoint[2 * deltaEdge];
+                    if (label[inBlossom[i]] == 0) {
+                        i = endpoint[2 * deltaEdge + 1];
+                    }
+                    queue.push(i);
+                } else if (deltaType == 3) {
+                    //Use the least-slack edge to continue the search
+                    allowEdge[deltaEdge] = true;
+                    queue.push(endpoint[2 * deltaEdge]);
+                } else if (deltaType == 4) {
+                    //Expand the least-z blossom
+                    expandBlossom(deltaBlossom, false);
+                }
+            }
+
+            //Stop when no more augmenting path can be found
+            if (!augmented) {
+                break;
+            }
+
+            //End of a stage; expand all S-blossoms which have dualVar = 0
+            for (int b = numVertices; b < 2 * numVertices; b++) {
+                if (blossomParent[b] == -1 && blossomBase[b] >= 0
+                        && label[b] == 1 && dualVar[b] == 0) {
+                    expandBlossom(b, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts from a greedy matching of the edges that have zero slack under the
+     * initial duals, e.g. the edges of maximum weight when all the vertex duals
+     * start out equal. That's all the stages require of the matching they start
+     * from. This saves most of the stages, each of which otherwise finds just
+     * one more matched edge.
+     */
+    private void matchTightEdgesGreedily() {
+        for (int k = 0; k < numEdges; k++) {
+            int i = endpoint[2 * k];
+            int j = endpoint[2 * k + 1];
+            if (mate[i] == -1 && mate[j] == -1 && slack(k) == 0) {
+                mate[i] = 2 * k + 1;
+                mate[j] = 2 * k;
+            }
+        }
+    }
+
+    /**
+     * Lowers the dual of each free vertex as far as it can go while keeping the
+     * slack of its edges non-negative, which makes at least one of its edges
+     * tight, and matches it along such an edge if the other end is also free.
+     * This only keeps the duals valid if the final matching is perfect, since
+     * the free vertices no longer share a dual; but as the duals are all still
+     * even, the slack between S-vertices stays even.
+     */
+    private void lowerFreeVertexDuals() {
+        for (int v = 0; v < numVertices; v++) {
+            if (mate[v] != -1 || neighbendStart[v] == neighbendStart[v + 1]) {
+                continue;
+            }
+            long lowestDual = Long.MIN_VALUE;
+            for (int n = neighbendStart[v]; n < neighbendStart[v + 1]; n++) {
+                int p = neighbend[n];
+                lowestDual = Math.max(lowestDual, 2 * weights[p >> 1] - dualVar[endpoint[p]]);
+            }
+            dualVar[v] = lowestDual;
+            for (int n = neighbendStart[v]; n < neighbendStart[v + 1]; n++) {
+                int p = neighbend[n];
+                int w = endpoint[p];
+                if (mate[w] == -1 && slack(p >> 1) == 0) {
+                    mate[v] = p;
+                    mate[w] = p ^ 1;
+                    break;
+                }
+            }
+        }
+    }
+
+    private long getMinVertexDual() {
+        long min = Long.MAX_VALUE;
+        for (int v = 0; v < numVertices; v++) {
+            min = Math.min(min, dualVar[v]);
+        }
+        return min;
+    }
+
+    private static int indexOf(int[] array, int value) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Value not found: " + value);
+    }
+
+    //Allows negative indices counting back from the end, as the walks around blossoms use
+    private static int at(int[] array, int index) {
+        return array[(index < 0) ? index + array.length : index];
+    }
+
+    private static int[] rotate(int[] array, int newStart) {
+        int[] rotated = new int[array.length];
+        System.arraycopy(array, newStart, rotated, 0, array.length - newStart);
+        System.arraycopy(array, 0, rotated, array.length - newStart, newStart);
+        return rotated;
+    }
+
+    private static class IntStack {
+        private int[] data = new int[8];
+        private int size = 0;
+
+        public void push(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, 2 * size);
+            }
+            data[size++] = value;
+        }
+
+        public int pop() {
+            return data[--size];
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public void clear() {
+            size = 0;
+        }
+
+        public void reverse() {
+            for (int i = 0, j = size - 1; i < j; i++, j--) {
+                int temp = data[i];
+                data[i] = data[j];
+                data[j] = temp;
+            }
+        }
+
+        public int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
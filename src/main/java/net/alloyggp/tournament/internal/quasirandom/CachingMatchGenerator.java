@@ -0,0 +1,104 @@
+package net.alloyggp.tournament.internal.quasirandom;
+
+import java.util.List;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+
+import net.alloyggp.tournament.api.TPlayer;
+
+/**
+ * Remembers the matchups generated by another generator, which must be
+ * deterministic. The Swiss runners ask for the same matchups every time a
+ * stage is evaluated, and generating them is a large part of the cost of an
+ * evaluation. The returned lists are immutable.
+ */
+@ThreadSafe
+public class CachingMatchGenerator implements QuasiRandomMatchGenerator {
+    //Each entry is a few lists per round for a single seeding, so this is small
+    private static final int MAXIMUM_SIZE = 1000;
+    private final LoadingCache<Request, List<List<List<TPlayer>>>> matchups;
+
+    private CachingMatchGenerator(final QuasiRandomMatchGenerator delegate) {
+        this.matchups = CacheBuilder.newBuilder()
+                .maximumSize(MAXIMUM_SIZE)
+                .build(new CacheLoader<Request, List<List<List<TPlayer>>>>() {
+                    @Override
+                    public List<List<List<TPlayer>>> load(Request request) {
+                        return toImmutable(delegate.generateMatchups(request.players,
+                                request.playersPerMatch, request.numMatches));
+                    }
+                });
+    }
+
+    public static CachingMatchGenerator create(QuasiRandomMatchGenerator delegate) {
+        return new CachingMatchGenerator(delegate);
+    }
+
+    @Override
+    public List<List<List<TPlayer>>> generateMatchups(List<TPlayer> players,
+            int playersPerMatch, int numMatches) {
+        return matchups.getUnchecked(new Request(ImmutableList.copyOf(players), playersPerMatch, numMatches));
+    }
+
+    private static List<List<List<TPlayer>>> toImmutable(List<List<List<TPlayer>>> rounds) {
+        ImmutableList.Builder<List<List<TPlayer>>> roundsBuilder = ImmutableList.builder();
+        for (List<List<TPlayer>> round : rounds) {
+            ImmutableList.Builder<List<TPlayer>> roundBuilder = ImmutableList.builder();
+            for (List<TPlayer> match : round) {
+                roundBuilder.add(ImmutableList.copyOf(match));
+            }
+            roundsBuilder.add(roundBuilder.build());
+        }
+        return roundsBuilder.build();
+    }
+
+    @Immutable
+    private static class Request {
+        private final ImmutableList<TPlayer> players;
+        private final int playersPerMatch;
+        private final int numMatches;
+
+        public Request(ImmutableList<TPlayer> players, int playersPerMatch, int numMatches) {
+            this.players = players;
+            this.playersPerMatch = playersPerMatch;
+            this.numMatches = numMatches;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + numMatches;
+            result = prime * result + ((players == null) ? 0 : players.hashCode());
+            result = prime * result + playersPerMatch;
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            Request other = (Request) obj;
+            if (numMatches != other.numMatches)
+                return false;
+            if (players == null) {
+                if (other.players != null)
+                    return false;
+            } else if (!players.equals(other.players))
+                return false;
+            if (playersPerMatch != other.playersPerMatch)
+                return false;
+            return true;
+        }
+    }
+}
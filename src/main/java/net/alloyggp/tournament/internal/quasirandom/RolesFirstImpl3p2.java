@@ -3,20 +3,18 @@ package net.alloyggp.tournament.internal.quasirandom;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import net.alloyggp.tournament.api.TPlayer;
+import net.alloyggp.tournament.internal.MatchupCounts;
+import net.alloyggp.tournament.internal.PlayerIndex;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multiset;
 
 public class RolesFirstImpl3p2 implements QuasiRandomMatchGenerator {
 
@@ -33,8 +31,9 @@ public class RolesFirstImpl3p2 implements QuasiRandomMatchGenerator {
         //Now turn this into assignments, somehow...
         //In each round, group the players into their assigned roles
         List<List<List<TPlayer>>> rounds = Lists.newArrayList();
-        Multiset<TPlayer> byeCounts = HashMultiset.create();
-        Multiset<Set<TPlayer>> matchupCounts = HashMultiset.create();
+        PlayerIndex playerIndices = PlayerIndex.create(players);
+        int[] byeCounts = new int[players.size()];
+        MatchupCounts matchupCounts = MatchupCounts.create(players.size());
         for (int roundNum = 0; roundNum < numMatches; roundNum++) {
             int roleAssnIndex = roundNum % playersPerMatch;
             ListMultimap<Integer, TPlayer> playersByRole = ArrayListMultimap.create();
@@ -52,8 +51,8 @@ public class RolesFirstImpl3p2 implements QuasiRandomMatchGenerator {
                 if (playersForRole.size() > matchesPerRound) {
                     Preconditions.checkState(playersForRole.size() == matchesPerRound + 1);
                     //Prefer lower seeds from our input for byes
-                    TPlayer chosenPlayer = getLastWithLowestByeCount(playersForRole, byeCounts);
-                    byeCounts.add(chosenPlayer);
+                    TPlayer chosenPlayer = getLastWithLowestByeCount(playersForRole, playerIndices, byeCounts);
+                    byeCounts[playerIndices.getIndex(chosenPlayer)]++;
                     playersForRole.remove(chosenPlayer);
                 }
             }
@@ -65,34 +64,35 @@ public class RolesFirstImpl3p2 implements QuasiRandomMatchGenerator {
                     //Rotate to not keep leaving last players "stranded"
                     List<TPlayer> rotatedPlayersForRole = Lists.newArrayList(playersForRole);
                     Collections.rotate(rotatedPlayersForRole, roundNum*rotationMultiplier);
-                    TPlayer player = choosePlayerWithFewestMatchesAgainst(match, rotatedPlayersForRole, matchupCounts);
+                    TPlayer player = choosePlayerWithFewestMatchesAgainst(match, rotatedPlayersForRole,
+                            playerIndices, matchupCounts);
                     match.add(player);
                     playersForRole.remove(player);
                 }
                 round.add(match);
-                updateMatchupCounts(matchupCounts, match);
+                updateMatchupCounts(matchupCounts, playerIndices, match);
             }
             rounds.add(round);
         }
         return rounds;
     }
 
-    private void updateMatchupCounts(Multiset<Set<TPlayer>> matchupCounts,
-            List<TPlayer> match) {
+    private void updateMatchupCounts(MatchupCounts matchupCounts,
+            PlayerIndex playerIndices, List<TPlayer> match) {
         for (int i = 0; i < match.size(); i++) {
             for (int j = i + 1; j < match.size(); j++) {
-                matchupCounts.add(ImmutableSet.of(match.get(i), match.get(j)));
+                matchupCounts.increment(playerIndices.getIndex(match.get(i)), playerIndices.getIndex(match.get(j)));
             }
         }
 
     }
 
     private TPlayer choosePlayerWithFewestMatchesAgainst(List<TPlayer> match,
-            List<TPlayer> players, Multiset<Set<TPlayer>> matchupCounts) {
+            List<TPlayer> players, PlayerIndex playerIndices, MatchupCounts matchupCounts) {
         TPlayer chosenPlayer = null;
         int lowestMatchupCount = Integer.MAX_VALUE;
         for (TPlayer player : players) {
-            int matchupCount = getMatchupCount(match, player, matchupCounts);
+            int matchupCount = getMatchupCount(match, player, playerIndices, matchupCounts);
             if (matchupCount < lowestMatchupCount) {
                 lowestMatchupCount = matchupCount;
                 chosenPlayer = player;
@@ -103,26 +103,27 @@ public class RolesFirstImpl3p2 implements QuasiRandomMatchGenerator {
     }
 
     private int getMatchupCount(List<TPlayer> match, TPlayer player,
-            Multiset<Set<TPlayer>> matchupCounts) {
+            PlayerIndex playerIndices, MatchupCounts matchupCounts) {
+        int playerIndex = playerIndices.getIndex(player);
         int count = 0;
         for (TPlayer opponent : match) {
-            count += matchupCounts.count(ImmutableSet.of(opponent, player));
+            count += matchupCounts.get(playerIndices.getIndex(opponent), playerIndex);
         }
         return count;
     }
 
     private TPlayer getLastWithLowestByeCount(List<TPlayer> playersForRole,
-            Multiset<TPlayer> byeCounts) {
+            PlayerIndex playerIndices, int[] byeCounts) {
         int lowestByeCount = Integer.MAX_VALUE;
         for (TPlayer player : playersForRole) {
-            int byeCount = byeCounts.count(player);
+            int byeCount = byeCounts[playerIndices.getIndex(player)];
             if (byeCount < lowestByeCount) {
                 lowestByeCount = byeCount;
             }
         }
         TPlayer chosenPlayer = null;
         for (TPlayer player : playersForRole) {
-            if (byeCounts.count(player) == lowestByeCount) {
+            if (byeCounts[playerIndices.getIndex(player)] == lowestByeCount) {
                 chosenPlayer = player;
             }
         }
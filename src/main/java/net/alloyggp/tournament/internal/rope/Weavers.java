@@ -1,9 +1,16 @@
 package net.alloyggp.tournament.internal.rope;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multiset;
 
 import net.alloyggp.escaperope.rope.Rope;
 import net.alloyggp.escaperope.rope.StringRope;
@@ -20,10 +27,14 @@ import net.alloyggp.tournament.api.TPlayer;
 import net.alloyggp.tournament.api.TPlayerScore;
 import net.alloyggp.tournament.api.TRanking;
 import net.alloyggp.tournament.api.TScore;
+import net.alloyggp.tournament.internal.CompactRanking;
 import net.alloyggp.tournament.internal.Game;
+import net.alloyggp.tournament.internal.MatchupCounts;
+import net.alloyggp.tournament.internal.PlayerIndex;
 import net.alloyggp.tournament.internal.SimpleScore;
 import net.alloyggp.tournament.internal.StandardRanking;
 import net.alloyggp.tournament.internal.StandardRanking.EmptyScore;
+import net.alloyggp.tournament.internal.runner.EndOfRoundState;
 import net.alloyggp.tournament.internal.runner.SingleEliminationFormat1Runner;
 import net.alloyggp.tournament.internal.runner.SwissFormat1Runner;
 import net.alloyggp.tournament.internal.runner.SwissFormat2Runner;
@@ -130,6 +141,13 @@ public class Weavers {
         }
     };
 
+    private static final ImmutableMap<String, Weaver<CompactRanking.PackedScores>> PACKED_SCORES_SUBCLASS_WEAVERS =
+            ImmutableMap.<String, Weaver<CompactRanking.PackedScores>>builder()
+            .put("EliminationPackedScores", SingleEliminationFormat1Runner.PACKED_SCORES_WEAVER)
+            .put("SwissPackedScores", SwissFormat1Runner.PACKED_SCORES_WEAVER)
+            .put("Swiss2PackedScores", SwissFormat2Runner.PACKED_SCORES_WEAVER)
+            .build();
+
     public static final Weaver<TRanking> RANKING = new ListWeaver<TRanking>() {
         @Override
         protected void addToList(TRanking object, RopeBuilder list) {
@@ -143,6 +161,39 @@ public class Weavers {
         }
     };
 
+    /**
+     * Used for the standings in cached end-of-round states. Unlike {@link #RANKING},
+     * this restores compact rankings as compact rankings; any other ranking is
+     * restored as a {@link StandardRanking}.
+     */
+    public static final Weaver<TRanking> CACHED_RANKING = new ListWeaver<TRanking>() {
+        @Override
+        protected void addToList(TRanking object, RopeBuilder list) {
+            if (object instanceof CompactRanking) {
+                CompactRanking ranking = (CompactRanking) object;
+                CompactRanking.PackedScores scores = ranking.getPackedScores();
+                String className = scores.getClass().getSimpleName();
+                list.add(className);
+                list.add(ranking.getPlayerIndex().getPlayers(), CoreWeavers.listOf(PLAYER));
+                list.add(PACKED_SCORES_SUBCLASS_WEAVERS.get(className).toRope(scores));
+            } else {
+                list.add("StandardRanking");
+                list.add(object, RANKING);
+            }
+        }
+
+        @Override
+        protected TRanking fromRope(RopeList list) {
+            String className = list.getString(0);
+            if (className.equals("StandardRanking")) {
+                return list.get(1, RANKING);
+            }
+            List<TPlayer> players = list.get(1, CoreWeavers.listOf(PLAYER));
+            CompactRanking.PackedScores scores = list.get(2, PACKED_SCORES_SUBCLASS_WEAVERS.get(className));
+            return CompactRanking.create(PlayerIndex.create(players), scores);
+        }
+    };
+
     public static final Weaver<TMatchResult> MATCH_RESULT = new ListWeaver<TMatchResult>() {
         @Override
         protected void addToList(TMatchResult object, RopeBuilder list) {
@@ -166,4 +217,243 @@ public class Weavers {
         }
     };
 
+    public static final Weaver<Integer> INTEGER = new Weaver<Integer>() {
+        @Override
+        public Rope toRope(Integer object) {
+            return StringRope.create(object.toString());
+        }
+
+        @Override
+        public Integer fromRope(Rope rope) {
+            return Integer.valueOf(rope.asString());
+        }
+    };
+
+    /**
+     * Stores doubles by their raw bits, so they are restored exactly.
+     */
+    public static final Weaver<Double> DOUBLE = new Weaver<Double>() {
+        @Override
+        public Rope toRope(Double object) {
+            return StringRope.create(Long.toString(Double.doubleToRawLongBits(object)));
+        }
+
+        @Override
+        public Double fromRope(Rope rope) {
+            return Double.longBitsToDouble(Long.parseLong(rope.asString()));
+        }
+    };
+
+    /**
+     * Stores each element by its raw bits, like {@link #DOUBLE}.
+     */
+    public static final Weaver<double[]> DOUBLE_ARRAY = new ListWeaver<double[]>() {
+        @Override
+        protected void addToList(double[] object, RopeBuilder list) {
+            list.add(object.length);
+            for (double value : object) {
+                list.add(Double.doubleToRawLongBits(value));
+            }
+        }
+
+        @Override
+        protected double[] fromRope(RopeList list) {
+            double[] array = new double[list.getInt(0)];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = Double.longBitsToDouble(list.getLong(1 + i));
+            }
+            return array;
+        }
+    };
+
+    public static final Weaver<int[]> INT_ARRAY = new ListWeaver<int[]>() {
+        @Override
+        protected void addToList(int[] object, RopeBuilder list) {
+            list.add(object.length);
+            for (int value : object) {
+                list.add(value);
+            }
+        }
+
+        @Override
+        protected int[] fromRope(RopeList list) {
+            int[] array = new int[list.getInt(0)];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.getInt(1 + i);
+            }
+            return array;
+        }
+    };
+
+    public static final Weaver<long[]> LONG_ARRAY = new ListWeaver<long[]>() {
+        @Override
+        protected void addToList(long[] object, RopeBuilder list) {
+            list.add(object.length);
+            for (long value : object) {
+                list.add(value);
+            }
+        }
+
+        @Override
+        protected long[] fromRope(RopeList list) {
+            long[] array = new long[list.getInt(0)];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.getLong(1 + i);
+            }
+            return array;
+        }
+    };
+
+    /**
+     * Stores only the pairs that have been matched up at least once.
+     */
+    public static final Weaver<MatchupCounts> MATCHUP_COUNTS = new ListWeaver<MatchupCounts>() {
+        @Override
+        protected void addToList(MatchupCounts object, RopeBuilder list) {
+            list.add(object.getNumPlayers());
+            int[] pairs = object.getMatchedUpPairs();
+            list.add(pairs.length / 3);
+            for (int value : pairs) {
+                list.add(value);
+            }
+        }
+
+        @Override
+        protected MatchupCounts fromRope(RopeList list) {
+            MatchupCounts counts = MatchupCounts.create(list.getInt(0));
+            int numPairs = list.getInt(1);
+            for (int i = 0; i < numPairs; i++) {
+                counts.add(list.getInt(2 + 3 * i), list.getInt(3 + 3 * i), list.getInt(4 + 3 * i));
+            }
+            return counts;
+        }
+    };
+
+    public static final Weaver<DateTime> DATE_TIME = new ListWeaver<DateTime>() {
+        @Override
+        protected void addToList(DateTime object, RopeBuilder list) {
+            list.add(object.getMillis());
+            list.add(object.getZone().getID());
+        }
+
+        @Override
+        protected DateTime fromRope(RopeList list) {
+            long millis = list.getLong(0);
+            String zoneId = list.getString(1);
+            return new DateTime(millis, DateTimeZone.forID(zoneId));
+        }
+    };
+
+    public static <T> Weaver<T> nullable(final Weaver<T> weaver) {
+        return new ListWeaver<T>() {
+            @Override
+            protected void addToList(T object, RopeBuilder list) {
+                list.add(object != null);
+                if (object != null) {
+                    list.add(object, weaver);
+                }
+            }
+
+            @Override
+            protected T fromRope(RopeList list) {
+                if (list.getBoolean(0)) {
+                    return list.get(1, weaver);
+                }
+                return null;
+            }
+        };
+    }
+
+    public static <T> Weaver<ImmutableSet<T>> immutableSetOf(Weaver<T> elementWeaver) {
+        final Weaver<Set<T>> setWeaver = CoreWeavers.setOf(elementWeaver);
+        return new Weaver<ImmutableSet<T>>() {
+            @Override
+            public Rope toRope(ImmutableSet<T> object) {
+                return setWeaver.toRope(object);
+            }
+
+            @Override
+            public ImmutableSet<T> fromRope(Rope rope) {
+                return ImmutableSet.copyOf(setWeaver.fromRope(rope));
+            }
+        };
+    }
+
+    /**
+     * Stores the map's entries in iteration order, which is preserved
+     * when the map is restored.
+     */
+    public static <K, V> Weaver<ImmutableMap<K, V>> mapOf(final Weaver<K> keyWeaver,
+            final Weaver<V> valueWeaver) {
+        return new ListWeaver<ImmutableMap<K, V>>() {
+            @Override
+            protected void addToList(ImmutableMap<K, V> object, RopeBuilder list) {
+                list.add(object.size());
+                for (Map.Entry<K, V> entry : object.entrySet()) {
+                    list.add(entry.getKey(), keyWeaver);
+                    list.add(entry.getValue(), valueWeaver);
+                }
+            }
+
+            @Override
+            protected ImmutableMap<K, V> fromRope(RopeList list) {
+                int size = list.getInt(0);
+                ImmutableMap.Builder<K, V> builder = ImmutableMap.builder();
+                for (int i = 0; i < size; i++) {
+                    builder.put(list.get(1 + 2 * i, keyWeaver), list.get(2 + 2 * i, valueWeaver));
+                }
+                return builder.build();
+            }
+        };
+    }
+
+    /**
+     * Stores the multiset's entries in iteration order, which is preserved
+     * when the multiset is restored.
+     */
+    public static <T> Weaver<ImmutableMultiset<T>> multisetOf(final Weaver<T> elementWeaver) {
+        return new ListWeaver<ImmutableMultiset<T>>() {
+            @Override
+            protected void addToList(ImmutableMultiset<T> object, RopeBuilder list) {
+                list.add(object.entrySet().size());
+                for (Multiset.Entry<T> entry : object.entrySet()) {
+                    list.add(entry.getElement(), elementWeaver);
+                    list.add(entry.getCount());
+                }
+            }
+
+            @Override
+            protected ImmutableMultiset<T> fromRope(RopeList list) {
+                int size = list.getInt(0);
+                ImmutableMultiset.Builder<T> builder = ImmutableMultiset.builder();
+                for (int i = 0; i < size; i++) {
+                    builder.addCopies(list.get(1 + 2 * i, elementWeaver), list.getInt(2 + 2 * i));
+                }
+                return builder.build();
+            }
+        };
+    }
+
+    private static final ImmutableMap<String, Weaver<EndOfRoundState>> END_OF_ROUND_STATE_SUBCLASS_WEAVERS =
+            ImmutableMap.<String, Weaver<EndOfRoundState>>builder()
+            .put("SingleEliminationRoundStatus", SingleEliminationFormat1Runner.STATE_WEAVER)
+            .put("Swiss1EndOfRoundState", SwissFormat1Runner.STATE_WEAVER)
+            .put("Swiss2EndOfRoundState", SwissFormat2Runner.STATE_WEAVER)
+            .build();
+
+    public static final Weaver<EndOfRoundState> END_OF_ROUND_STATE = new ListWeaver<EndOfRoundState>() {
+        @Override
+        protected void addToList(EndOfRoundState state, RopeBuilder list) {
+            Weaver<EndOfRoundState> weaver = END_OF_ROUND_STATE_SUBCLASS_WEAVERS.get(state.getClass().getSimpleName());
+            list.add(state.getClass().getSimpleName());
+            list.add(weaver.toRope(state));
+        }
+
+        @Override
+        protected EndOfRoundState fromRope(RopeList list) {
+            String className = list.getString(0);
+            Weaver<EndOfRoundState> weaver = END_OF_ROUND_STATE_SUBCLASS_WEAVERS.get(className);
+            return list.get(1, weaver);
+        }
+    };
 }
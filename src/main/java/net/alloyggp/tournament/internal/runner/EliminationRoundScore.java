@@ -0,0 +1,20 @@
+package net.alloyggp.tournament.internal.runner;
+
+import javax.annotation.concurrent.Immutable;
+
+import net.alloyggp.tournament.api.TScore;
+
+/**
+ * A score that is the round in which a player was eliminated, as in the
+ * elimination formats. Rounds are numbered by how many rounds were left in
+ * the stage, so players eliminated in later rounds have lower numbers and
+ * rank higher; ties are broken by seed.
+ */
+@Immutable
+public interface EliminationRoundScore extends TScore {
+    /**
+     * Returns the number of the round in which the player was eliminated, 0 if
+     * the player is still in contention, or -1 if the player won the stage.
+     */
+    int getRoundEliminated();
+}
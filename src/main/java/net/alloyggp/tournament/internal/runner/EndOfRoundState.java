@@ -8,4 +8,9 @@ import javax.annotation.concurrent.Immutable;
  */
 @Immutable
 public interface EndOfRoundState {
+    /**
+     * Returns a rough estimate of the number of bytes of heap retained
+     * by this state, used to weigh it in the {@link TournamentStateCache}.
+     */
+    long estimateRetainedSize();
 }
@@ -1,5 +1,6 @@
 package net.alloyggp.tournament.internal.runner;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -22,6 +23,24 @@ public interface FormatRunner {
             List<InternalAdminAction> adminActions,
             int stageNum, List<RoundSpec> rounds, Set<InternalMatchResult> resultsSoFar);
 
+    /**
+     * Runs the format once, returning both the matches to run and the standings
+     * history. This is cheaper than calling {@link #getMatchesToRun} and
+     * {@link #getStandingsHistory} separately when both are needed.
+     */
+    StageEvaluation evaluate(String tournamentInternalName, TSeeding initialSeeding,
+            List<InternalAdminAction> adminActions,
+            int stageNum, List<RoundSpec> rounds, Set<InternalMatchResult> resultsSoFar);
+
+    /**
+     * Starts a run of the format with the results from the stage so far, which can
+     * then be given more results as they come in. Unlike the other methods, this
+     * takes only the results from this stage.
+     */
+    StageRun startRun(String tournamentInternalName, TSeeding initialSeeding,
+            List<InternalAdminAction> adminActions,
+            int stageNum, List<RoundSpec> rounds, Collection<InternalMatchResult> resultsInStage);
+
     void validateRounds(ImmutableList<RoundSpec> rounds);
 
 }
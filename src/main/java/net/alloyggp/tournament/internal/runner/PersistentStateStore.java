@@ -0,0 +1,261 @@
+package net.alloyggp.tournament.internal.runner;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+import net.alloyggp.escaperope.Delimiters;
+import net.alloyggp.escaperope.RopeDelimiter;
+import net.alloyggp.escaperope.rope.Rope;
+import net.alloyggp.tournament.internal.Fingerprint;
+import net.alloyggp.tournament.internal.rope.Weavers;
+
+/**
+ * An append-only file of end-of-round states, memory-mapped for reading
+ * and writing. This lets the {@link TournamentStateCache} keep its states
+ * across restarts of the process.
+ *
+ * <p>The file starts with a magic number and a format version. Each record
+ * after that holds a key, the length and CRC32 of its payload, and the
+ * payload: the state, woven into a rope and delimited as a UTF-8 string.
+ * The first record that is incomplete or fails its checksum (e.g. because
+ * the process died while writing it) marks the end of the file, and is
+ * overwritten by the next record added. Files with another version are
+ * cleared, since they only hold cached data.
+ *
+ * <p>The file is kept within a maximum size. When a new record doesn't fit,
+ * the store is compacted: the oldest records are dropped, and the most recent
+ * ones, up to half the maximum size, are moved to the start of the file.
+ */
+@ThreadSafe
+public class PersistentStateStore implements Closeable {
+    private static final int MAGIC = 0x47475453; //"GGTS"
+    private static final int VERSION = 6;
+    private static final int FILE_HEADER_BYTES = 8;
+    //Key (two longs), payload length (int), CRC32 (long)
+    private static final int RECORD_HEADER_BYTES = 28;
+    private static final int INITIAL_MAPPED_BYTES = 1 << 20;
+    public static final int MINIMUM_MAXIMUM_BYTES = 1 << 12;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int maximumBytes;
+    @GuardedBy("this")
+    private MappedByteBuffer buffer;
+    @GuardedBy("this")
+    private int end;
+    @GuardedBy("this")
+    private final Map<Fingerprint, Integer> recordPositions = Maps.newHashMap();
+
+    private PersistentStateStore(RandomAccessFile file, FileChannel channel, int maximumBytes,
+            MappedByteBuffer buffer) {
+        this.file = file;
+        this.channel = channel;
+        this.maximumBytes = maximumBytes;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Opens the store in the given file, creating the file if needed. The
+     * file is not grown past the given maximum size; a larger existing file
+     * is compacted when the next record is added.
+     */
+    public static PersistentStateStore open(File file, int maximumBytes) throws IOException {
+        Preconditions.checkArgument(maximumBytes >= MINIMUM_MAXIMUM_BYTES,
+                "The maximum size must be at least %s bytes", MINIMUM_MAXIMUM_BYTES);
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        FileChannel channel = randomAccessFile.getChannel();
+        long size = Math.max(channel.size(), Math.min(INITIAL_MAPPED_BYTES, maximumBytes));
+        MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, size);
+        PersistentStateStore store = new PersistentStateStore(randomAccessFile, channel, maximumBytes, buffer);
+        store.readIndex();
+        return store;
+    }
+
+    private synchronized void readIndex() {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            //Make sure old records aren't mistaken for new ones
+            buffer.putInt(FILE_HEADER_BYTES + 16, 0);
+            end = FILE_HEADER_BYTES;
+            return;
+        }
+        int position = FILE_HEADER_BYTES;
+        while (true) {
+            byte[] payload = readPayload(position);
+            if (payload == null) {
+                break;
+            }
+            Fingerprint key = Fingerprint.create(buffer.getLong(position), buffer.getLong(position + 8));
+            if (!recordPositions.containsKey(key)) {
+                recordPositions.put(key, position);
+            }
+            position += RECORD_HEADER_BYTES + payload.length;
+        }
+        end = position;
+    }
+
+    /**
+     * Returns the payload of the record at the given position, or null if
+     * there is no complete and intact record there.
+     */
+    @GuardedBy("this")
+    private @Nullable byte[] readPayload(int position) {
+        if (position + RECORD_HEADER_BYTES > buffer.capacity()) {
+            return null;
+        }
+        int length = buffer.getInt(position + 16);
+        if (length <= 0 || length > buffer.capacity() - position - RECORD_HEADER_BYTES) {
+            return null;
+        }
+        long checksum = buffer.getLong(position + 20);
+        byte[] payload = new byte[length];
+        for (int i = 0; i < length; i++) {
+            payload[i] = buffer.get(position + RECORD_HEADER_BYTES + i);
+        }
+        if (getChecksum(payload) != checksum) {
+            return null;
+        }
+        return payload;
+    }
+
+    public synchronized boolean contains(Fingerprint key) {
+        return recordPositions.containsKey(key);
+    }
+
+    /**
+     * Returns the state stored with the given key, or null if there is none.
+     *
+     * @throws IOException if the stored state can't be read back
+     */
+    public synchronized @Nullable EndOfRoundState get(Fingerprint key) throws IOException {
+        Integer position = recordPositions.get(key);
+        if (position == null) {
+            return null;
+        }
+        byte[] payload = readPayload(position);
+        if (payload == null) {
+            return null;
+        }
+        try {
+            Rope rope = getDelimiter().undelimit(new String(payload, Charsets.UTF_8));
+            return Weavers.END_OF_ROUND_STATE.fromRope(rope);
+        } catch (RuntimeException e) {
+            throw new IOException("Couldn't read the stored state with key " + key, e);
+        }
+    }
+
+    /**
+     * Appends the state to the file, unless a state with the same key
+     * is already stored. A state too large to fit in half the maximum size
+     * of the file is not stored.
+     */
+    public synchronized void put(Fingerprint key, EndOfRoundState state) throws IOException {
+        if (recordPositions.containsKey(key)) {
+            return;
+        }
+        Rope rope = Weavers.END_OF_ROUND_STATE.toRope(state);
+        byte[] payload = getDelimiter().delimit(rope).getBytes(Charsets.UTF_8);
+        int recordLength = RECORD_HEADER_BYTES + payload.length;
+        //Leave room for the cleared header after the record
+        long neededBytes = (long) recordLength + RECORD_HEADER_BYTES;
+        if (FILE_HEADER_BYTES + neededBytes > maximumBytes / 2) {
+            return;
+        }
+        if (end + neededBytes > maximumBytes) {
+            compact();
+        }
+        ensureCapacity(end + neededBytes);
+
+        int position = end;
+        //Write the payload before the header, and clear the next header, so
+        //a partially written record is never read back as complete
+        buffer.putInt(position + recordLength + 16, 0);
+        for (int i = 0; i < payload.length; i++) {
+            buffer.put(position + RECORD_HEADER_BYTES + i, payload[i]);
+        }
+        buffer.putLong(position, key.getHigh());
+        buffer.putLong(position + 8, key.getLow());
+        buffer.putLong(position + 20, getChecksum(payload));
+        buffer.putInt(position + 16, payload.length);
+
+        recordPositions.put(key, position);
+        end = position + recordLength;
+    }
+
+    @GuardedBy("this")
+    private void ensureCapacity(long neededBytes) throws IOException {
+        if (neededBytes <= buffer.capacity()) {
+            return;
+        }
+        long newSize = Math.min(maximumBytes, Math.max(neededBytes, 2L * buffer.capacity()));
+        buffer.force();
+        buffer = channel.map(MapMode.READ_WRITE, 0, newSize);
+    }
+
+    /*
+     * Keeps the most recently added records that fit in half the maximum size,
+     * moving them to the start of the file. The records are moved towards the
+     * start in order, so if the process dies partway through, the file still
+     * starts with intact records; any old record found after them is still a
+     * valid state for its key.
+     */
+    @GuardedBy("this")
+    private void compact() {
+        int position = FILE_HEADER_BYTES;
+        while (end - position > maximumBytes / 2 - FILE_HEADER_BYTES) {
+            position += RECORD_HEADER_BYTES + buffer.getInt(position + 16);
+        }
+        int numBytesKept = end - position;
+        for (int i = 0; i < numBytesKept; i++) {
+            buffer.put(FILE_HEADER_BYTES + i, buffer.get(position + i));
+        }
+        buffer.putInt(FILE_HEADER_BYTES + numBytesKept + 16, 0);
+        recordPositions.clear();
+        readIndex();
+    }
+
+    public synchronized int getNumStates() {
+        return recordPositions.size();
+    }
+
+    /**
+     * Returns the number of bytes of the file in use, which never exceeds the
+     * maximum size.
+     */
+    public synchronized int getUsedBytes() {
+        return end;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+        file.close();
+    }
+
+    private static long getChecksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return crc.getValue();
+    }
+
+    private static RopeDelimiter getDelimiter() {
+        return Delimiters.getJsonArrayRopeDelimiter();
+    }
+}
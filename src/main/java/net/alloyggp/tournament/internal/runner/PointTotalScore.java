@@ -0,0 +1,18 @@
+package net.alloyggp.tournament.internal.runner;
+
+import javax.annotation.concurrent.Immutable;
+
+import net.alloyggp.tournament.api.TScore;
+
+/**
+ * A score that is the total of the points a player has earned so far in the
+ * stage, as in the Swiss formats. Players with more points rank higher; ties
+ * are broken by seed.
+ */
+@Immutable
+public interface PointTotalScore extends TScore {
+    /**
+     * Returns the player's points in the stage, times 1000 and rounded.
+     */
+    long getPointsT1K();
+}
@@ -0,0 +1,90 @@
+package net.alloyggp.tournament.internal.runner;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.alloyggp.tournament.api.TRanking;
+import net.alloyggp.tournament.internal.CompactRanking;
+import net.alloyggp.tournament.internal.MatchupCounts;
+
+/**
+ * Rough estimates of the heap retained by the collections stored in
+ * {@link EndOfRoundState}s, used to weigh entries in the
+ * {@link TournamentStateCache}. These are meant to be within a small
+ * factor of the real sizes on a 64-bit JVM, not exact.
+ */
+/*package-private*/ class RetainedSizeEstimates {
+    private static final long OBJECT_BYTES = 16L;
+    private static final long REFERENCE_BYTES = 8L;
+    private static final long DOUBLE_BYTES = 8L;
+    private static final long INT_BYTES = 4L;
+    //Hash table slot, entry object, and a boxed value
+    private static final long MAP_ENTRY_BYTES = 56L;
+    private static final long PLAYER_SCORE_BYTES = 64L;
+
+    private RetainedSizeEstimates() {
+        //Not instantiable
+    }
+
+    public static long forList(List<?> list) {
+        return OBJECT_BYTES + list.size() * REFERENCE_BYTES;
+    }
+
+    public static long forSet(Set<?> set) {
+        return OBJECT_BYTES + set.size() * MAP_ENTRY_BYTES;
+    }
+
+    public static long forMap(Map<?, ?> map) {
+        return OBJECT_BYTES + map.size() * MAP_ENTRY_BYTES;
+    }
+
+    public static long forArray(double[] array) {
+        return OBJECT_BYTES + array.length * DOUBLE_BYTES;
+    }
+
+    public static long forArray(int[] array) {
+        return OBJECT_BYTES + array.length * INT_BYTES;
+    }
+
+    public static long forArrayValuedMap(Map<?, double[]> map) {
+        long size = forMap(map);
+        for (double[] array : map.values()) {
+            size += forArray(array);
+        }
+        return size;
+    }
+
+    public static long forMatchupCounts(MatchupCounts matchupCounts) {
+        return 2 * OBJECT_BYTES + matchupCounts.getPackedBytes();
+    }
+
+    public static long forMatchupCountsByGame(Map<?, MatchupCounts> matchupCountsByGame) {
+        long size = forMap(matchupCountsByGame);
+        for (MatchupCounts matchupCounts : matchupCountsByGame.values()) {
+            size += forMatchupCounts(matchupCounts);
+        }
+        return size;
+    }
+
+    /**
+     * Only the latest ranking is counted in full; the earlier ones are shared
+     * with the states cached for earlier rounds of the same stage, which are
+     * stored and evicted together with this one. The player index of a
+     * {@link CompactRanking} is shared by the whole stage, so it isn't counted.
+     * Other rankings are counted with their best-first list and position index.
+     */
+    public static long forStandingsHistory(List<TRanking> standingsHistory) {
+        long size = OBJECT_BYTES + standingsHistory.size() * REFERENCE_BYTES;
+        if (!standingsHistory.isEmpty()) {
+            TRanking latest = standingsHistory.get(standingsHistory.size() - 1);
+            if (latest instanceof CompactRanking) {
+                size += 4 * OBJECT_BYTES + ((CompactRanking) latest).getPackedBytes();
+            } else {
+                size += 3 * OBJECT_BYTES + latest.getScores().size()
+                        * (PLAYER_SCORE_BYTES + REFERENCE_BYTES + MAP_ENTRY_BYTES);
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,82 @@
+package net.alloyggp.tournament.internal.runner;
+
+import java.util.Collection;
+import java.util.Map;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Maps;
+
+import net.alloyggp.tournament.api.TMatchResult.Outcome;
+import net.alloyggp.tournament.internal.InternalMatchResult;
+import net.alloyggp.tournament.internal.MatchId;
+
+/**
+ * The results of a single round, indexed by player matching number and match
+ * number. This is built once per round, so the formats can look up each
+ * match's results without scanning all the results in the round.
+ */
+@Immutable
+public class RoundResultIndex {
+    //These are not modified after construction
+    private final Map<Long, InternalMatchResult> successfulAttempts;
+    private final Map<Long, Integer> abortedAttemptCounts;
+
+    private RoundResultIndex(Map<Long, InternalMatchResult> successfulAttempts,
+            Map<Long, Integer> abortedAttemptCounts) {
+        this.successfulAttempts = successfulAttempts;
+        this.abortedAttemptCounts = abortedAttemptCounts;
+    }
+
+    /**
+     * Indexes the given results, which should all be from the same round. If a match
+     * has more than one successful attempt, the first one in iteration order is used.
+     */
+    public static RoundResultIndex create(Collection<InternalMatchResult> roundResults) {
+        Map<Long, InternalMatchResult> successfulAttempts = Maps.newHashMap();
+        Map<Long, Integer> abortedAttemptCounts = Maps.newHashMap();
+        for (InternalMatchResult result : roundResults) {
+            MatchId matchId = result.getMatchId();
+            long key = getKey(matchId.getPlayerMatchingNumber(), matchId.getMatchNumber());
+            if (result.getOutcome() == Outcome.ABORTED) {
+                Integer countSoFar = abortedAttemptCounts.get(key);
+                abortedAttemptCounts.put(key, countSoFar == null ? 1 : countSoFar + 1);
+            } else if (!successfulAttempts.containsKey(key)) {
+                successfulAttempts.put(key, result);
+            }
+        }
+        return new RoundResultIndex(successfulAttempts, abortedAttemptCounts);
+    }
+
+    private static long getKey(int playerMatchingNum, int matchNum) {
+        return ((long) playerMatchingNum << 32) | (matchNum & 0xFFFFFFFFL);
+    }
+
+    /**
+     * If the match has not been completed, returns the number of attempts that have
+     * been aborted so far, which is also the attempt number of the next attempt.
+     * Otherwise, returns absent.
+     */
+    public Optional<Integer> getAttemptNumberIfUnfinished(int playerMatchingNum, int matchNum) {
+        long key = getKey(playerMatchingNum, matchNum);
+        if (successfulAttempts.containsKey(key)) {
+            return Optional.absent();
+        }
+        Integer abortedAttempts = abortedAttemptCounts.get(key);
+        return Optional.of(abortedAttempts == null ? 0 : abortedAttempts);
+    }
+
+    /**
+     * Returns the result of the successful attempt at the given match.
+     *
+     * @throws IllegalArgumentException if the match has not been completed
+     */
+    public InternalMatchResult getSuccessfulAttempt(int playerMatchingNum, int matchNum) {
+        InternalMatchResult result = successfulAttempts.get(getKey(playerMatchingNum, matchNum));
+        if (result == null) {
+            throw new IllegalArgumentException("No successful attempts found");
+        }
+        return result;
+    }
+}
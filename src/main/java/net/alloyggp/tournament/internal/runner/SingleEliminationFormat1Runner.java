@@ -1,12 +1,9 @@
 package net.alloyggp.tournament.internal.runner;
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
@@ -15,15 +12,16 @@ import javax.annotation.concurrent.NotThreadSafe;
 import org.joda.time.DateTime;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Ordering;
+import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 
+import net.alloyggp.escaperope.rope.ropify.CoreWeavers;
 import net.alloyggp.escaperope.rope.ropify.ListWeaver;
 import net.alloyggp.escaperope.rope.ropify.RopeBuilder;
 import net.alloyggp.escaperope.rope.ropify.RopeList;
@@ -33,17 +31,18 @@ import net.alloyggp.tournament.api.TMatchResult.Outcome;
 import net.alloyggp.tournament.api.TMatchSetup;
 import net.alloyggp.tournament.api.TNextMatchesResult;
 import net.alloyggp.tournament.api.TPlayer;
-import net.alloyggp.tournament.api.TPlayerScore;
 import net.alloyggp.tournament.api.TRanking;
 import net.alloyggp.tournament.api.TScore;
 import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.internal.CompactRanking;
 import net.alloyggp.tournament.internal.InternalMatchResult;
 import net.alloyggp.tournament.internal.MatchId;
 import net.alloyggp.tournament.internal.MatchIds;
 import net.alloyggp.tournament.internal.MatchResults;
+import net.alloyggp.tournament.internal.PlayerIndex;
 import net.alloyggp.tournament.internal.StandardNextMatchesResult;
-import net.alloyggp.tournament.internal.StandardRanking;
 import net.alloyggp.tournament.internal.admin.InternalAdminAction;
+import net.alloyggp.tournament.internal.rope.Weavers;
 import net.alloyggp.tournament.internal.spec.MatchSpec;
 import net.alloyggp.tournament.internal.spec.RoundSpec;
 import net.alloyggp.tournament.internal.spec.StageFormat;
@@ -76,17 +75,26 @@ public class SingleEliminationFormat1Runner implements FormatRunner {
     //Mutable class; goes through the actual motions of the format and
     //records the relevant information as it goes
     @NotThreadSafe
-    private static class SingleEliminationFormatSimulator {
+    private static class SingleEliminationFormatSimulator implements StageRun {
         private final String tournamentInternalName;
         private final int stageNum;
         private final TSeeding initialSeeding;
+        //Seed positions, used to order the players of each match
+        private final PlayerIndex playerIndex;
         private final ImmutableList<InternalAdminAction> adminActions;
         private final ImmutableList<RoundSpec> rounds;
         private final ImmutableSet<InternalMatchResult> resultsFromEarlierStages;
         private final ImmutableSet<InternalMatchResult> resultsSoFarInStage;
+        //Runs started with startRun don't use the cache, and get more results through addResults
+        private final boolean usesStateCache;
+        //The results in the stage, bucketed by round and pairing
+        private final Map<Long, PairingResults> resultsByPairing = Maps.newHashMap();
         private final Set<TMatchSetup> matchesToReturn = Sets.newHashSet();
         private final Map<TPlayer, Integer> playerEliminationRounds = Maps.newHashMap();
         private @Nullable DateTime latestStartTimeSeen = null;
+        //Rounds are numbered by the number of rounds left after them, counting the current one
+        private List<TPlayer> playersByPosition;
+        private int numRoundsLeft;
 
         private final List<TRanking> standingsHistory = Lists.newArrayList();
 
@@ -94,14 +102,42 @@ public class SingleEliminationFormat1Runner implements FormatRunner {
         private SingleEliminationFormatSimulator(String tournamentInternalName, int stageNum, TSeeding initialSeeding,
                 ImmutableList<InternalAdminAction> adminActions,
                 ImmutableList<RoundSpec> rounds, ImmutableSet<InternalMatchResult> resultsFromEarlierStages,
-                ImmutableSet<InternalMatchResult> resultsSoFarInStage) {
+                ImmutableSet<InternalMatchResult> resultsSoFarInStage, boolean usesStateCache) {
             this.tournamentInternalName = tournamentInternalName;
             this.stageNum = stageNum;
             this.initialSeeding = initialSeeding;
+            this.playerIndex = PlayerIndex.create(initialSeeding.getPlayersBestFirst());
             this.adminActions = adminActions;
             this.rounds = rounds;
             this.resultsFromEarlierStages = resultsFromEarlierStages;
             this.resultsSoFarInStage = resultsSoFarInStage;
+            this.usesStateCache = usesStateCache;
+            for (InternalMatchResult result : resultsSoFarInStage) {
+                addToPairingResults(result);
+            }
+        }
+
+        private void addToPairingResults(InternalMatchResult result) {
+            MatchId matchId = result.getMatchId();
+            long key = getPairingKey(matchId.getRoundNumber(), matchId.getPlayerMatchingNumber());
+            PairingResults pairingResults = resultsByPairing.get(key);
+            if (pairingResults == null) {
+                pairingResults = new PairingResults();
+                resultsByPairing.put(key, pairingResults);
+            }
+            pairingResults.add(result);
+        }
+
+        private static long getPairingKey(int numRoundsLeft, int pairingNum) {
+            return ((long) numRoundsLeft << 32) | (pairingNum & 0xFFFFFFFFL);
+        }
+
+        private PairingResults getPairingResults(int numRoundsLeft, int pairingNum) {
+            PairingResults pairingResults = resultsByPairing.get(getPairingKey(numRoundsLeft, pairingNum));
+            if (pairingResults == null) {
+                return new PairingResults();
+            }
+            return pairingResults;
         }
 
         public static SingleEliminationFormatSimulator createAndRun(String tournamentInternalName,
@@ -111,30 +147,63 @@ public class SingleEliminationFormat1Runner implements FormatRunner {
             Set<InternalMatchResult> resultsSoFarInStage = MatchResults.filterByStage(allResultsSoFar, stageNum);
             SingleEliminationFormatSimulator simulator = new SingleEliminationFormatSimulator(
                     tournamentInternalName, stageNum, initialSeeding, adminActions, rounds,
-                    ImmutableSet.copyOf(resultsFromEarlierStages), ImmutableSet.copyOf(resultsSoFarInStage));
+                    ImmutableSet.copyOf(resultsFromEarlierStages), ImmutableSet.copyOf(resultsSoFarInStage), true);
             simulator.run();
             return simulator;
         }
 
-        private void run() {
-            List<TPlayer> playersByPosition = Lists.newArrayList(initialSeeding.getPlayersBestFirst());
-            //If we're not a power of two, handle that
-            int numPlayers = playersByPosition.size();
-            int numRoundsLeft = getNumRounds(numPlayers);
+        public static SingleEliminationFormatSimulator startRun(String tournamentInternalName,
+                int stageNum, TSeeding initialSeeding, ImmutableList<InternalAdminAction> adminActions,
+                ImmutableList<RoundSpec> rounds, Collection<InternalMatchResult> resultsInStage) {
+            SingleEliminationFormatSimulator simulator = new SingleEliminationFormatSimulator(
+                    tournamentInternalName, stageNum, initialSeeding, adminActions, rounds,
+                    ImmutableSet.<InternalMatchResult>of(), ImmutableSet.copyOf(resultsInStage), false);
+            simulator.run();
+            return simulator;
+        }
 
-            EndOfRoundState state = TournamentStateCache.getLatestCachedEndOfRoundState(tournamentInternalName, initialSeeding,
-                    adminActions, resultsFromEarlierStages, stageNum, resultsSoFarInStage);
-            if (state != null) {
-                SingleEliminationRoundStatus status = (SingleEliminationRoundStatus) state;
-                playersByPosition = Lists.newArrayList(status.playersByPosition);
-                matchesToReturn.addAll(status.matchesToReturn);
-                playerEliminationRounds.putAll(status.playerEliminationRounds);
-                standingsHistory.addAll(status.standingsHistory);
-                latestStartTimeSeen = status.latestStartTimeSeen;
-                numRoundsLeft = status.numRoundsLeft - 1;
+        private void run() {
+            playersByPosition = Lists.newArrayList(initialSeeding.getPlayersBestFirst());
+            numRoundsLeft = getNumRounds(playersByPosition.size());
+
+            if (usesStateCache) {
+                EndOfRoundState state = TournamentStateCache.getLatestCachedEndOfRoundState(tournamentInternalName, initialSeeding,
+                        adminActions, resultsFromEarlierStages, stageNum, StageFormat.SINGLE_ELIMINATION1, rounds,
+                        resultsSoFarInStage);
+                if (state != null) {
+                    SingleEliminationRoundStatus status = (SingleEliminationRoundStatus) state;
+                    playersByPosition = Lists.newArrayList(status.playersByPosition);
+                    matchesToReturn.addAll(status.matchesToReturn);
+                    playerEliminationRounds.putAll(status.playerEliminationRounds);
+                    standingsHistory.addAll(status.standingsHistory);
+                    latestStartTimeSeen = status.latestStartTimeSeen;
+                    numRoundsLeft = status.numRoundsLeft - 1;
+                }
             }
 
             handleStartTimesForRoundsBefore(numRoundsLeft);
+            runRemainingRounds();
+        }
+
+        @Override
+        public boolean addResults(Collection<InternalMatchResult> newResultsInStage) {
+            for (InternalMatchResult result : newResultsInStage) {
+                //Rounds count down, so the completed rounds have higher numbers
+                if (result.getMatchId().getRoundNumber() > numRoundsLeft) {
+                    return false;
+                }
+            }
+            for (InternalMatchResult result : newResultsInStage) {
+                addToPairingResults(result);
+            }
+            runRemainingRounds();
+            return true;
+        }
+
+        private void runRemainingRounds() {
+            matchesToReturn.clear();
+            //If we're not a power of two, handle that
+            int numPlayers = playersByPosition.size();
             if (numPlayers < getPlayersForNFullRounds(numRoundsLeft)) {
                 runInitialPlayInRound(playersByPosition, numPlayers, numRoundsLeft);
                 if (!matchesToReturn.isEmpty()) {
@@ -161,18 +230,13 @@ public class SingleEliminationFormat1Runner implements FormatRunner {
         }
 
         private TRanking labelWinner(TRanking finalStandings) {
-            return StandardRanking.create(labelWinner(finalStandings.getScores()));
-        }
-
-        private Collection<TPlayerScore> labelWinner(SortedSet<TPlayerScore> originalScores) {
-            SortedSet<TPlayerScore> scores = new TreeSet<>(originalScores);
-            TPlayerScore firstPlace = scores.first();
-            EliminationScore originalScore = (EliminationScore) firstPlace.getScore();
-            EliminationScore replacementScore = new EliminationScore(-1, originalScore.totalNumRounds);
-            TPlayerScore newFirstPlace = TPlayerScore.create(firstPlace.getPlayer(), replacementScore, firstPlace.getSeedFromRoundStart());
-            scores.remove(firstPlace);
-            scores.add(newFirstPlace);
-            return scores;
+            CompactRanking ranking = (CompactRanking) finalStandings;
+            EliminationPackedScores scores = (EliminationPackedScores) ranking.getPackedScores();
+            PlayerIndex players = ranking.getPlayerIndex();
+            int[] roundsEliminated = scores.roundsEliminated.clone();
+            roundsEliminated[players.getIndex(ranking.getPlayersBestFirst().get(0))] = -1;
+            return CompactRanking.create(players,
+                    new EliminationPackedScores(roundsEliminated, scores.totalNumRounds));
         }
 
         public void runInitialPlayInRound(List<TPlayer> playersByPosition, int numPlayers, int numRoundsLeft) {
@@ -180,41 +244,64 @@ public class SingleEliminationFormat1Runner implements FormatRunner {
             handleStartTimeForRound(round);
             int numNormalRounds = numRoundsLeft - 1;
             int numPlayinMatches = numPlayers - getPlayersForNFullRounds(numNormalRounds);
+            int[] positions1 = new int[numPlayinMatches];
+            int[] positions2 = new int[numPlayinMatches];
             for (int i = 0; i < numPlayinMatches; i++) {
-                int position1 = getPlayersForNFullRounds(numNormalRounds) - i - 1;
-                int position2 = getPlayersForNFullRounds(numNormalRounds) + i;
-                runMatchesForPositions(playersByPosition, numRoundsLeft, round, i, position1, position2);
+                positions1[i] = getPlayersForNFullRounds(numNormalRounds) - i - 1;
+                positions2[i] = getPlayersForNFullRounds(numNormalRounds) + i;
             }
+            runMatchesForPositions(playersByPosition, numRoundsLeft, round, positions1, positions2);
         }
 
         public void runNormalRound(List<TPlayer> playersByPosition, int numRoundsLeft) {
             RoundSpec round = getRoundForNumRoundsLeft(numRoundsLeft);
             handleStartTimeForRound(round);
             int numPlayersLeft = getPlayersForNFullRounds(numRoundsLeft);
+            int[] positions1 = new int[numPlayersLeft / 2];
+            int[] positions2 = new int[numPlayersLeft / 2];
             for (int i = 0; i < (numPlayersLeft / 2); i++) {
-                int position1 = i;
-                int position2 = numPlayersLeft - i - 1;
-                runMatchesForPositions(playersByPosition, numRoundsLeft, round, i, position1, position2);
+                positions1[i] = i;
+                positions2[i] = numPlayersLeft - i - 1;
             }
+            runMatchesForPositions(playersByPosition, numRoundsLeft, round, positions1, positions2);
         }
 
+        /**
+         * Runs the pairings of a round, where pairing i is between the players at
+         * positions1[i] and positions2[i]. Winners and losers are only settled once
+         * every pairing in the round has been decided, so a round still in progress
+         * can be run again with more results.
+         */
         public void runMatchesForPositions(List<TPlayer> playersByPosition, int numRoundsLeft,
-                RoundSpec round, int pairingNum, int position1, int position2) {
-            Preconditions.checkArgument(position1 < position2);
-            TPlayer player1 = playersByPosition.get(position1);
-            TPlayer player2 = playersByPosition.get(position2);
-
-            List<TPlayer> playersBestFirst = Lists.newArrayList(player1, player2);
-            Collections.sort(playersBestFirst, Ordering.explicit(initialSeeding.getPlayersBestFirst()));
-
-            if (wonInRound(playersBestFirst.indexOf(player1), pairingNum, numRoundsLeft, round)) {
-                playerEliminationRounds.put(player2, numRoundsLeft);
-            } else if (wonInRound(playersBestFirst.indexOf(player2), pairingNum, numRoundsLeft, round)) {
-                playersByPosition.set(position1, player2);
-                playersByPosition.set(position2, player1);
-                playerEliminationRounds.put(player1, numRoundsLeft);
-            } else {
-                matchesToReturn.add(getNextMatchForPairing(player1, player2, pairingNum, numRoundsLeft, round));
+                RoundSpec round, int[] positions1, int[] positions2) {
+            for (int pairingNum = 0; pairingNum < positions1.length; pairingNum++) {
+                Preconditions.checkArgument(positions1[pairingNum] < positions2[pairingNum]);
+                TPlayer player1 = playersByPosition.get(positions1[pairingNum]);
+                TPlayer player2 = playersByPosition.get(positions2[pairingNum]);
+
+                boolean player1SeededHigher = playerIndex.getIndex(player1) < playerIndex.getIndex(player2);
+
+                if (!wonInRound(player1SeededHigher ? 0 : 1, pairingNum, numRoundsLeft, round)
+                        && !wonInRound(player1SeededHigher ? 1 : 0, pairingNum, numRoundsLeft, round)) {
+                    matchesToReturn.add(getNextMatchForPairing(player1, player2, pairingNum, numRoundsLeft, round));
+                }
+            }
+            if (!matchesToReturn.isEmpty()) {
+                return;
+            }
+            for (int pairingNum = 0; pairingNum < positions1.length; pairingNum++) {
+                TPlayer player1 = playersByPosition.get(positions1[pairingNum]);
+                TPlayer player2 = playersByPosition.get(positions2[pairingNum]);
+
+                boolean player1SeededHigher = playerIndex.getIndex(player1) < playerIndex.getIndex(player2);
+
+                if (wonInRound(player1SeededHigher ? 0 : 1, pairingNum, numRoundsLeft, round)) {
+                    playerEliminationRounds.put(player2, numRoundsLeft);
+                } else {
+                    playersByPosition.set(positions1[pairingNum], player2);
+                    playersByPosition.set(positions2[pairingNum], player1);
+                    playerEliminationRounds.put(player1, numRoundsLeft);
+                }
             }
         }
 
@@ -238,13 +325,19 @@ public class SingleEliminationFormat1Runner implements FormatRunner {
         }
 
         private void cacheEndOfRoundStatus(int roundNum, List<TPlayer> playersByPosition) {
+            if (!usesStateCache) {
+                return;
+            }
             TournamentStateCache.cacheEndOfRoundState(
                     tournamentInternalName,
                     initialSeeding,
                     adminActions,
                     resultsFromEarlierStages,
                     stageNum,
+                    StageFormat.SINGLE_ELIMINATION1,
+                    rounds,
                     resultsSoFarInStage,
+                    roundNum,
                     SingleEliminationRoundStatus.create(
                             playersByPosition,
                             matchesToReturn,
@@ -272,100 +365,43 @@ public class SingleEliminationFormat1Runner implements FormatRunner {
 
         private TMatchSetup getNextMatchForPairing(TPlayer player1, TPlayer player2,
                 int pairingNum, int numRoundsLeft, RoundSpec round) {
-            List<InternalMatchResult> completedSoFar = Lists.newArrayList();
-            List<InternalMatchResult> abortedSoFar = Lists.newArrayList();
-            //First, gather all the non-abandoned results so far
-            for (InternalMatchResult result : resultsSoFarInStage) {
-                MatchId matchId = result.getMatchId();
-                if (numRoundsLeft != matchId.getRoundNumber()) {
-                    continue;
-                }
-                if (pairingNum != matchId.getPlayerMatchingNumber()) {
-                    continue;
-                }
-                if (result.getOutcome() == Outcome.ABORTED) {
-                    abortedSoFar.add(result);
-                } else {
-                    completedSoFar.add(result);
-                }
-            }
+            PairingResults pairingResults = getPairingResults(numRoundsLeft, pairingNum);
 
             ImmutableList<MatchSpec> matches = round.getMatches();
             MatchSpec specToUse = null;
             for (int i = 0; i < matches.size(); i++) {
                 specToUse = matches.get(i);
-                if (haveCompleted(i, completedSoFar)) {
+                if (pairingResults.haveCompleted(i)) {
                     continue;
                 } else {
                     break;
                 }
             }
             int matchNum = 0;
-            while (haveCompleted(matchNum, completedSoFar)) {
+            while (pairingResults.haveCompleted(matchNum)) {
                 matchNum++;
             }
-            int priorMatchAttempts = 0;
-            for (InternalMatchResult result : abortedSoFar) {
-                if (result.getMatchId().getMatchNumber() == matchNum) {
-                    priorMatchAttempts++;
-                }
-            }
+            int priorMatchAttempts = pairingResults.getAbortedAttempts(matchNum);
 
             Preconditions.checkNotNull(specToUse);
             //If we make it here, repeat the last match type
-            String matchId = MatchIds.create(adminActions, StageFormat.SINGLE_ELIMINATION1, stageNum, numRoundsLeft, pairingNum, matchNum, priorMatchAttempts).toString();
+            String matchId = MatchIds.create(adminActions, StageFormat.SINGLE_ELIMINATION1, stageNum, numRoundsLeft, pairingNum, matchNum, priorMatchAttempts);
             //TODO: Alternate roles each time if we do have to repeat the last match type
             //(Also needs to be done in rolesSwapped)
-            List<TPlayer> playersBestFirst = Lists.newArrayList(player1, player2);
-            Collections.sort(playersBestFirst, Ordering.explicit(initialSeeding.getPlayersBestFirst()));
+            List<TPlayer> playersBestFirst = playerIndex.getIndex(player1) < playerIndex.getIndex(player2)
+                    ? ImmutableList.of(player1, player2)
+                    : ImmutableList.of(player2, player1);
             return specToUse.createMatchSetup(matchId, playersBestFirst);
         }
 
-        private boolean haveCompleted(int matchNumber, List<InternalMatchResult> completedSoFar) {
-            for (InternalMatchResult result : completedSoFar) {
-                Preconditions.checkArgument(result.getOutcome() == Outcome.COMPLETED);
-                int resultMatchNumber = result.getMatchId().getMatchNumber();
-                if (matchNumber == resultMatchNumber) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
         private boolean wonInRound(int pairingLevelPlayerIndex, int pairingNumber, int numRoundsLeft, RoundSpec round) {
-            int gamesPlayed = 0;
-            int pointsAboveOpponent = 0;
-            for (InternalMatchResult result : resultsSoFarInStage) {
-                MatchId matchId = result.getMatchId();
-                if (numRoundsLeft != matchId.getRoundNumber()) {
-                    continue;
-                }
-                if (pairingNumber != matchId.getPlayerMatchingNumber()) {
-                    continue;
-                }
-                if (result.getOutcome() == Outcome.ABORTED) {
-                    continue;
-                }
-                gamesPlayed++;
-                //This is the match-level player index, which may not be the
-                //pairing-level player index. i.e. if roles are swapped, these
-                //are opposites.
-                final int playerIndex;
-                if (rolesSwapped(matchId, round)) {
-                    playerIndex = 1 - pairingLevelPlayerIndex;
-                } else {
-                    playerIndex = pairingLevelPlayerIndex;
-                }
-                Preconditions.checkState(playerIndex == 0 || playerIndex == 1);
-                int playerPoints = result.getGoals().get(playerIndex);
-                int oppIndex = 1 - playerIndex;
-                int oppPoints = result.getGoals().get(oppIndex);
-                pointsAboveOpponent += (playerPoints - oppPoints);
-            }
+            PairingResults pairingResults = getPairingResults(numRoundsLeft, pairingNumber);
+            int gamesPlayed = pairingResults.getNumCompleted();
+            int pointsAboveOpponent = pairingResults.getPointsAboveOpponent(pairingLevelPlayerIndex, round);
             return wonInRound(round, gamesPlayed, pointsAboveOpponent);
         }
 
-        private boolean rolesSwapped(MatchId matchId, RoundSpec round) {
+        private static boolean rolesSwapped(MatchId matchId, RoundSpec round) {
             ImmutableList<MatchSpec> matches = round.getMatches();
 
             int matchNumber = matchId.getMatchNumber();
@@ -415,21 +451,24 @@ public class SingleEliminationFormat1Runner implements FormatRunner {
         }
 
         private TRanking getStandings() {
-            ImmutableSortedSet.Builder<TPlayerScore> playerScores = ImmutableSortedSet.naturalOrder();
-
             ImmutableList<TPlayer> playersBestFirst = initialSeeding.getPlayersBestFirst();
+            int[] roundsEliminated = new int[playersBestFirst.size()];
             for (int i = 0; i < playersBestFirst.size(); i++) {
-                TPlayer player = playersBestFirst.get(i);
-                Integer mapValue = playerEliminationRounds.get(player);
-                TScore score = new EliminationScore(mapValue != null ? mapValue : 0, getNumRounds(playersBestFirst.size()));
-                playerScores.add(TPlayerScore.create(player, score, i));
+                Integer mapValue = playerEliminationRounds.get(playersBestFirst.get(i));
+                roundsEliminated[i] = mapValue != null ? mapValue : 0;
             }
-            return StandardRanking.create(playerScores.build());
+            return CompactRanking.create(playerIndex,
+                    new EliminationPackedScores(roundsEliminated, getNumRounds(playersBestFirst.size())));
         }
 
         public List<TRanking> getStandingsHistory() {
             return ImmutableList.copyOf(standingsHistory);
         }
+
+        @Override
+        public StageEvaluation getEvaluation() {
+            return StageEvaluation.create(getMatchesToRun(), standingsHistory);
+        }
     }
 
     @Immutable
@@ -464,6 +503,14 @@ public class SingleEliminationFormat1Runner implements FormatRunner {
                     numRoundsLeft);
         }
 
+        @Override
+        public long estimateRetainedSize() {
+            return RetainedSizeEstimates.forList(playersByPosition)
+                    + RetainedSizeEstimates.forSet(matchesToReturn)
+                    + RetainedSizeEstimates.forMap(playerEliminationRounds)
+                    + RetainedSizeEstimates.forStandingsHistory(standingsHistory);
+        }
+
         @Override
         public int hashCode() {
             final int prime = 31;
@@ -557,7 +604,79 @@ public class SingleEliminationFormat1Runner implements FormatRunner {
                 .getStandingsHistory();
     }
 
-    private static class EliminationScore implements TScore {
+    @Override
+    public StageEvaluation evaluate(String tournamentInternalName,
+            TSeeding initialSeeding, List<InternalAdminAction> adminActions, int stageNum, List<RoundSpec> rounds,
+            Set<InternalMatchResult> allResultsSoFar) {
+        SingleEliminationFormatSimulator simulator = SingleEliminationFormatSimulator.createAndRun(
+                tournamentInternalName, stageNum, initialSeeding, ImmutableList.copyOf(adminActions),
+                ImmutableList.copyOf(rounds), allResultsSoFar);
+        return StageEvaluation.create(simulator.getMatchesToRun(), simulator.getStandingsHistory());
+    }
+
+    @Override
+    public StageRun startRun(String tournamentInternalName, TSeeding initialSeeding,
+            List<InternalAdminAction> adminActions, int stageNum, List<RoundSpec> rounds,
+            Collection<InternalMatchResult> resultsInStage) {
+        return SingleEliminationFormatSimulator.startRun(tournamentInternalName, stageNum, initialSeeding,
+                ImmutableList.copyOf(adminActions), ImmutableList.copyOf(rounds), resultsInStage);
+    }
+
+    /**
+     * The results of the matches played by one pairing of players in one round.
+     */
+    @NotThreadSafe
+    private static class PairingResults {
+        private final List<InternalMatchResult> completedResults = Lists.newArrayList();
+        private final Set<Integer> completedMatchNumbers = Sets.newHashSet();
+        private final Multiset<Integer> abortedAttemptsByMatchNumber = HashMultiset.create();
+        //Computed when first needed, since this depends on the round's spec
+        private @Nullable Integer pointsAboveSecondPlayer = null;
+
+        public void add(InternalMatchResult result) {
+            pointsAboveSecondPlayer = null;
+            if (result.getOutcome() == Outcome.ABORTED) {
+                abortedAttemptsByMatchNumber.add(result.getMatchId().getMatchNumber());
+            } else {
+                completedResults.add(result);
+                completedMatchNumbers.add(result.getMatchId().getMatchNumber());
+            }
+        }
+
+        public boolean haveCompleted(int matchNumber) {
+            return completedMatchNumbers.contains(matchNumber);
+        }
+
+        public int getNumCompleted() {
+            return completedResults.size();
+        }
+
+        public int getAbortedAttempts(int matchNumber) {
+            return abortedAttemptsByMatchNumber.count(matchNumber);
+        }
+
+        /**
+         * Returns the total points scored by the given player in the pairing's completed
+         * matches, minus the points scored by their opponent. Players are indexed by
+         * their order in the pairing, i.e. by seed.
+         */
+        public int getPointsAboveOpponent(int pairingLevelPlayerIndex, RoundSpec round) {
+            Preconditions.checkArgument(pairingLevelPlayerIndex == 0 || pairingLevelPlayerIndex == 1);
+            if (pointsAboveSecondPlayer == null) {
+                int sum = 0;
+                for (InternalMatchResult result : completedResults) {
+                    //The match-level player indices are the opposite of the
+                    //pairing-level indices if roles are swapped
+                    int firstPlayerIndex = SingleEliminationFormatSimulator.rolesSwapped(result.getMatchId(), round) ? 1 : 0;
+                    sum += result.getGoals().get(firstPlayerIndex) - result.getGoals().get(1 - firstPlayerIndex);
+                }
+                pointsAboveSecondPlayer = sum;
+            }
+            return pairingLevelPlayerIndex == 0 ? pointsAboveSecondPlayer : -pointsAboveSecondPlayer;
+        }
+    }
+
+    private static class EliminationScore implements EliminationRoundScore {
         private final int roundEliminated; //0 if not yet eliminated, -1 if winner
         private final int totalNumRounds; //just for human-friendly output
 
@@ -575,6 +694,11 @@ public class SingleEliminationFormat1Runner implements FormatRunner {
             return Integer.compare(((EliminationScore)other).roundEliminated, roundEliminated);
         }
 
+        @Override
+        public int getRoundEliminated() {
+            return roundEliminated;
+        }
+
         @Override
         public int hashCode() {
             final int prime = 31;
@@ -621,6 +745,74 @@ public class SingleEliminationFormat1Runner implements FormatRunner {
         }
     }
 
+    /**
+     * The scores of a ranking, stored as the rounds in which the players were
+     * eliminated, indexed by seed position.
+     */
+    @Immutable
+    private static class EliminationPackedScores implements CompactRanking.PackedScores {
+        private final int[] roundsEliminated;
+        private final int totalNumRounds;
+
+        private EliminationPackedScores(int[] roundsEliminated, int totalNumRounds) {
+            this.roundsEliminated = roundsEliminated;
+            this.totalNumRounds = totalNumRounds;
+        }
+
+        @Override
+        public int size() {
+            return roundsEliminated.length;
+        }
+
+        @Override
+        public long getSortKey(int seed) {
+            //Players eliminated in earlier rounds have more rounds left, so flip
+            return -roundsEliminated[seed];
+        }
+
+        @Override
+        public TScore getScore(int seed) {
+            return new EliminationScore(roundsEliminated[seed], totalNumRounds);
+        }
+
+        @Override
+        public int getScoreHashCode(int seed) {
+            //Matches EliminationScore.hashCode()
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + roundsEliminated[seed];
+            return result;
+        }
+
+        @Override
+        public long getPackedBytes() {
+            return 4L * roundsEliminated.length;
+        }
+    }
+
+    public static final Weaver<CompactRanking.PackedScores> PACKED_SCORES_WEAVER =
+            new ListWeaver<CompactRanking.PackedScores>() {
+        @Override
+        protected void addToList(CompactRanking.PackedScores object, RopeBuilder list) {
+            EliminationPackedScores scores = (EliminationPackedScores) object;
+            list.add(scores.roundsEliminated.length);
+            for (int roundEliminated : scores.roundsEliminated) {
+                list.add(roundEliminated);
+            }
+            list.add(scores.totalNumRounds);
+        }
+
+        @Override
+        protected CompactRanking.PackedScores fromRope(RopeList list) {
+            int[] roundsEliminated = new int[list.getInt(0)];
+            for (int i = 0; i < roundsEliminated.length; i++) {
+                roundsEliminated[i] = list.getInt(1 + i);
+            }
+            int totalNumRounds = list.getInt(1 + roundsEliminated.length);
+            return new EliminationPackedScores(roundsEliminated, totalNumRounds);
+        }
+    };
+
     public static final Weaver<TScore> SCORE_WEAVER = new ListWeaver<TScore>() {
         @Override
         protected void addToList(TScore object, RopeBuilder list) {
@@ -637,6 +829,31 @@ public class SingleEliminationFormat1Runner implements FormatRunner {
         }
     };
 
+    public static final Weaver<EndOfRoundState> STATE_WEAVER = new ListWeaver<EndOfRoundState>() {
+        @Override
+        protected void addToList(EndOfRoundState object, RopeBuilder list) {
+            SingleEliminationRoundStatus state = (SingleEliminationRoundStatus) object;
+            list.add(state.playersByPosition, CoreWeavers.listOf(Weavers.PLAYER));
+            list.add(state.matchesToReturn, CoreWeavers.setOf(Weavers.MATCH_SETUP));
+            list.add(state.playerEliminationRounds, Weavers.mapOf(Weavers.PLAYER, Weavers.INTEGER));
+            list.add(state.standingsHistory, CoreWeavers.listOf(Weavers.CACHED_RANKING));
+            list.add(state.latestStartTimeSeen, Weavers.nullable(Weavers.DATE_TIME));
+            list.add(state.numRoundsLeft);
+        }
+
+        @Override
+        protected EndOfRoundState fromRope(RopeList list) {
+            List<TPlayer> playersByPosition = list.get(0, CoreWeavers.listOf(Weavers.PLAYER));
+            Set<TMatchSetup> matchesToReturn = list.get(1, CoreWeavers.setOf(Weavers.MATCH_SETUP));
+            Map<TPlayer, Integer> playerEliminationRounds = list.get(2, Weavers.mapOf(Weavers.PLAYER, Weavers.INTEGER));
+            List<TRanking> standingsHistory = list.get(3, CoreWeavers.listOf(Weavers.CACHED_RANKING));
+            DateTime latestStartTimeSeen = list.get(4, Weavers.nullable(Weavers.DATE_TIME));
+            int numRoundsLeft = list.getInt(5);
+            return SingleEliminationRoundStatus.create(playersByPosition, matchesToReturn,
+                    playerEliminationRounds, standingsHistory, latestStartTimeSeen, numRoundsLeft);
+        }
+    };
+
     @Override
     public void validateRounds(ImmutableList<RoundSpec> rounds) {
         // Require that all games used be two-player and zero-sum
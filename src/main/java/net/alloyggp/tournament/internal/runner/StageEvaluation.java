@@ -0,0 +1,50 @@
+package net.alloyggp.tournament.internal.runner;
+
+import java.util.List;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.collect.ImmutableList;
+
+import net.alloyggp.tournament.api.TNextMatchesResult;
+import net.alloyggp.tournament.api.TRanking;
+import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.internal.StandardRanking;
+
+/**
+ * The results of running a stage's format once: the matches left to
+ * run in the stage, and the standings after each round played so far.
+ */
+@Immutable
+public class StageEvaluation {
+    private final TNextMatchesResult matchesToRun;
+    private final ImmutableList<TRanking> standingsHistory;
+
+    private StageEvaluation(TNextMatchesResult matchesToRun, ImmutableList<TRanking> standingsHistory) {
+        this.matchesToRun = matchesToRun;
+        this.standingsHistory = standingsHistory;
+    }
+
+    public static StageEvaluation create(TNextMatchesResult matchesToRun, List<TRanking> standingsHistory) {
+        return new StageEvaluation(matchesToRun, ImmutableList.copyOf(standingsHistory));
+    }
+
+    public TNextMatchesResult getMatchesToRun() {
+        return matchesToRun;
+    }
+
+    public ImmutableList<TRanking> getStandingsHistory() {
+        return standingsHistory;
+    }
+
+    /**
+     * Returns the standings after the latest round played, or the standings
+     * from the stage's seeding if no rounds have been played.
+     */
+    public TRanking getCurrentStandings(TSeeding initialSeeding) {
+        if (standingsHistory.isEmpty()) {
+            return StandardRanking.createForSeeding(initialSeeding);
+        }
+        return standingsHistory.get(standingsHistory.size() - 1);
+    }
+}
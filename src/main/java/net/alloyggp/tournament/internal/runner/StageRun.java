@@ -0,0 +1,28 @@
+package net.alloyggp.tournament.internal.runner;
+
+import java.util.Collection;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import net.alloyggp.tournament.internal.InternalMatchResult;
+
+/**
+ * A run of a stage's format that keeps its state (point totals, matchup counts,
+ * the current round) between batches of results, so each batch only costs as much
+ * as the rounds it completes. Runs don't read or write the {@link TournamentStateCache}.
+ *
+ * <p>Created by {@link FormatRunner#startRun}.
+ */
+@NotThreadSafe
+public interface StageRun {
+    /**
+     * Adds results from the stage and runs the format as far as they allow.
+     *
+     * <p>Rounds are only settled once, so if any of the results are from a round
+     * that has already been completed, none of them are added and this returns
+     * false. The stage then has to be started again with all of its results.
+     */
+    boolean addResults(Collection<InternalMatchResult> resultsInStage);
+
+    StageEvaluation getEvaluation();
+}
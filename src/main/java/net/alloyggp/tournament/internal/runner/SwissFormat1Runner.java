@@ -1,10 +1,8 @@
 package net.alloyggp.tournament.internal.runner;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -22,39 +20,38 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multiset;
-import com.google.common.collect.Multiset.Entry;
-import com.google.common.collect.Ordering;
 import com.google.common.collect.Queues;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 
+import net.alloyggp.escaperope.rope.ropify.CoreWeavers;
 import net.alloyggp.escaperope.rope.ropify.ListWeaver;
 import net.alloyggp.escaperope.rope.ropify.RopeBuilder;
 import net.alloyggp.escaperope.rope.ropify.RopeList;
 import net.alloyggp.escaperope.rope.ropify.Weaver;
 import net.alloyggp.tournament.api.TGame;
-import net.alloyggp.tournament.api.TMatchResult.Outcome;
 import net.alloyggp.tournament.api.TMatchSetup;
 import net.alloyggp.tournament.api.TNextMatchesResult;
 import net.alloyggp.tournament.api.TPlayer;
-import net.alloyggp.tournament.api.TPlayerScore;
 import net.alloyggp.tournament.api.TRanking;
 import net.alloyggp.tournament.api.TScore;
 import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.internal.CompactRanking;
 import net.alloyggp.tournament.internal.InternalMatchResult;
-import net.alloyggp.tournament.internal.MatchId;
 import net.alloyggp.tournament.internal.MatchIds;
 import net.alloyggp.tournament.internal.MatchResults;
+import net.alloyggp.tournament.internal.MatchupCounts;
+import net.alloyggp.tournament.internal.PlayerIndex;
 import net.alloyggp.tournament.internal.StandardNextMatchesResult;
-import net.alloyggp.tournament.internal.StandardRanking;
 import net.alloyggp.tournament.internal.admin.InternalAdminAction;
+import net.alloyggp.tournament.internal.quasirandom.CachingMatchGenerator;
 import net.alloyggp.tournament.internal.quasirandom.QuasiRandomMatchGenerator;
 import net.alloyggp.tournament.internal.quasirandom.RolesFirstImpl3p2;
+import net.alloyggp.tournament.internal.rope.Weavers;
 import net.alloyggp.tournament.internal.spec.MatchSpec;
 import net.alloyggp.tournament.internal.spec.RoundSpec;
 import net.alloyggp.tournament.internal.spec.StageFormat;
@@ -62,7 +59,8 @@ import net.alloyggp.tournament.internal.spec.StageFormat;
 public class SwissFormat1Runner implements FormatRunner {
     private static final SwissFormat1Runner INSTANCE = new SwissFormat1Runner();
 
-    private static final QuasiRandomMatchGenerator RANDOM_MATCH_GENERATOR = new RolesFirstImpl3p2();
+    private static final QuasiRandomMatchGenerator RANDOM_MATCH_GENERATOR =
+            CachingMatchGenerator.create(new RolesFirstImpl3p2());
 
     private SwissFormat1Runner() {
         //Not instantiable
@@ -74,7 +72,7 @@ public class SwissFormat1Runner implements FormatRunner {
 
     //TODO: Factor out the common elements between this and SingleEliminationFormatSimulator
     @NotThreadSafe
-    private static class SwissFormatSimulator {
+    private static class SwissFormatSimulator implements StageRun {
         private final String tournamentInternalName;
         private final int stageNum;
         private final TSeeding initialSeeding;
@@ -82,14 +80,23 @@ public class SwissFormat1Runner implements FormatRunner {
         private final ImmutableList<RoundSpec> rounds;
         private final ImmutableSet<InternalMatchResult> resultsFromEarlierStages;
         private final ImmutableSet<InternalMatchResult> resultsInStage;
+        //Runs started with startRun don't use the cache, and get more results through addResults
+        private final boolean usesStateCache;
+        private final SetMultimap<Integer, InternalMatchResult> resultsByRound;
         private final Set<TMatchSetup> matchesToRun = Sets.newHashSet();
 
+        //The first round that hasn't been completed, and its player groups once they've been chosen
+        private int roundNum = 0;
+        private @Nullable List<List<TPlayer>> roundPlayerGroups = null;
+
         private TGame mostRecentGame = null; //of a fully completed round
-        private final Map<TPlayer, Double> totalPointsScored = Maps.newHashMap();
-        private final Map<TGame, Map<TPlayer, Double>> pointsScoredByGame = Maps.newHashMap();
-        private final Map<TPlayer, Double> pointsFromByes = Maps.newHashMap();
-        private final Multiset<Set<TPlayer>> totalMatchupsSoFar = HashMultiset.create();
-        private final Map<TGame, Multiset<Set<TPlayer>>> matchupsSoFarByGame = Maps.newHashMap();
+        //Point totals are indexed by the players' positions in the initial seeding
+        private final PlayerIndex playerIndices;
+        private final double[] totalPointsScored;
+        private final Map<TGame, double[]> pointsScoredByGame = Maps.newHashMap();
+        private final double[] pointsFromByes;
+        private MatchupCounts totalMatchupsSoFar;
+        private final Map<TGame, MatchupCounts> matchupsSoFarByGame = Maps.newHashMap();
 
         private final ImmutableMap<Integer, List<List<TPlayer>>> randomMatchGroupsByRound;
         private final List<TRanking> standingsHistory = Lists.newArrayList();
@@ -103,7 +110,8 @@ public class SwissFormat1Runner implements FormatRunner {
                 ImmutableList<RoundSpec> rounds,
                 ImmutableSet<InternalMatchResult> resultsFromEarlierStages,
                 ImmutableSet<InternalMatchResult> resultsInStage,
-                ImmutableMap<Integer, List<List<TPlayer>>> randomMatchGroupsByRound) {
+                ImmutableMap<Integer, List<List<TPlayer>>> randomMatchGroupsByRound,
+                boolean usesStateCache) {
             this.tournamentInternalName = tournamentInternalName;
             this.stageNum = stageNum;
             this.initialSeeding = initialSeeding;
@@ -111,7 +119,14 @@ public class SwissFormat1Runner implements FormatRunner {
             this.rounds = rounds;
             this.resultsFromEarlierStages = resultsFromEarlierStages;
             this.resultsInStage = resultsInStage;
+            this.usesStateCache = usesStateCache;
+            this.resultsByRound = MatchResults.mapByRound(resultsInStage, stageNum);
             this.randomMatchGroupsByRound = randomMatchGroupsByRound;
+            this.playerIndices = PlayerIndex.create(initialSeeding.getPlayersBestFirst());
+            int numPlayers = initialSeeding.getPlayersBestFirst().size();
+            this.totalPointsScored = new double[numPlayers];
+            this.pointsFromByes = new double[numPlayers];
+            this.totalMatchupsSoFar = MatchupCounts.create(numPlayers);
         }
 
         public static SwissFormatSimulator createAndRun(String tournamentInternalName, int stageNum, TSeeding initialSeeding,
@@ -120,7 +135,17 @@ public class SwissFormat1Runner implements FormatRunner {
             Set<InternalMatchResult> resultsInStage = MatchResults.filterByStage(allResultsSoFar, stageNum);
             SwissFormatSimulator simulator = new SwissFormatSimulator(tournamentInternalName, stageNum, initialSeeding,
                     adminActions, rounds, ImmutableSet.copyOf(resultsFromEarlierStages), ImmutableSet.copyOf(resultsInStage),
-                    ImmutableMap.copyOf(getRandomMatchGroupsByRound(rounds, initialSeeding.getPlayersBestFirst())));
+                    ImmutableMap.copyOf(getRandomMatchGroupsByRound(rounds, initialSeeding.getPlayersBestFirst())), true);
+            simulator.run();
+            return simulator;
+        }
+
+        public static SwissFormatSimulator startRun(String tournamentInternalName, int stageNum, TSeeding initialSeeding,
+                ImmutableList<InternalAdminAction> adminActions, ImmutableList<RoundSpec> rounds,
+                Collection<InternalMatchResult> resultsInStage) {
+            SwissFormatSimulator simulator = new SwissFormatSimulator(tournamentInternalName, stageNum, initialSeeding,
+                    adminActions, rounds, ImmutableSet.<InternalMatchResult>of(), ImmutableSet.copyOf(resultsInStage),
+                    ImmutableMap.copyOf(getRandomMatchGroupsByRound(rounds, initialSeeding.getPlayersBestFirst())), false);
             simulator.run();
             return simulator;
         }
@@ -157,19 +182,38 @@ public class SwissFormat1Runner implements FormatRunner {
 
         private void run() {
             setInitialTotalsToZero();
-            int roundNum = 0;
-            SetMultimap<Integer, InternalMatchResult> matchesByRound = MatchResults.mapByRound(resultsInStage, stageNum);
 
-            @Nullable EndOfRoundState endOfRoundState = TournamentStateCache.getLatestCachedEndOfRoundState(tournamentInternalName, initialSeeding, adminActions, resultsFromEarlierStages, stageNum, resultsInStage);
-            if (endOfRoundState != null) {
-                Swiss1EndOfRoundState state = (Swiss1EndOfRoundState) endOfRoundState;
-                roundNum = state.roundNum + 1;
-                loadCachedState(state);
+            if (usesStateCache) {
+                @Nullable EndOfRoundState endOfRoundState = TournamentStateCache.getLatestCachedEndOfRoundState(tournamentInternalName, initialSeeding, adminActions, resultsFromEarlierStages, stageNum,
+                        StageFormat.SWISS1, rounds, resultsInStage);
+                if (endOfRoundState != null) {
+                    Swiss1EndOfRoundState state = (Swiss1EndOfRoundState) endOfRoundState;
+                    roundNum = state.roundNum + 1;
+                    loadCachedState(state);
+                }
             }
+            runRemainingRounds();
+        }
 
+        @Override
+        public boolean addResults(Collection<InternalMatchResult> newResultsInStage) {
+            for (InternalMatchResult result : newResultsInStage) {
+                if (result.getMatchId().getRoundNumber() < roundNum) {
+                    return false;
+                }
+            }
+            for (InternalMatchResult result : newResultsInStage) {
+                resultsByRound.put(result.getMatchId().getRoundNumber(), result);
+            }
+            runRemainingRounds();
+            return true;
+        }
+
+        private void runRemainingRounds() {
+            matchesToRun.clear();
             for (/* roundNum already set */; roundNum < rounds.size(); roundNum++) {
                 RoundSpec round = rounds.get(roundNum);
-                Set<InternalMatchResult> roundResults = matchesByRound.get(roundNum);
+                Set<InternalMatchResult> roundResults = resultsByRound.get(roundNum);
                 runRound(round, roundNum, roundResults);
                 if (!matchesToRun.isEmpty()) {
                     //We're still finishing up this round, not ready to assign matches in the next one
@@ -179,99 +223,115 @@ public class SwissFormat1Runner implements FormatRunner {
                 //skip the standings and caching
                 if (!roundResults.isEmpty()) {
                     standingsHistory.add(getStandings());
-                    Swiss1EndOfRoundState state = Swiss1EndOfRoundState.create(roundNum,
-                            mostRecentGame, totalPointsScored, pointsScoredByGame,
-                            pointsFromByes, totalMatchupsSoFar, matchupsSoFarByGame,
-                            standingsHistory,
-                            latestStartTimeSeen);
-
-                    TournamentStateCache.cacheEndOfRoundState(tournamentInternalName, initialSeeding, adminActions, resultsFromEarlierStages, stageNum, resultsInStage, state);
+                    if (usesStateCache) {
+                        Swiss1EndOfRoundState state = Swiss1EndOfRoundState.create(roundNum,
+                                mostRecentGame, totalPointsScored, pointsScoredByGame,
+                                pointsFromByes, totalMatchupsSoFar, matchupsSoFarByGame,
+                                standingsHistory,
+                                latestStartTimeSeen);
+
+                        TournamentStateCache.cacheEndOfRoundState(tournamentInternalName, initialSeeding, adminActions, resultsFromEarlierStages, stageNum,
+                                StageFormat.SWISS1, rounds, resultsInStage, roundNum, state);
+                    }
                 }
             }
         }
 
         private void loadCachedState(Swiss1EndOfRoundState state) {
-            totalPointsScored.putAll(state.totalPointsScored);
-            pointsFromByes.putAll(state.pointsFromByes);
+            System.arraycopy(state.totalPointsScored, 0, totalPointsScored, 0, totalPointsScored.length);
+            System.arraycopy(state.pointsFromByes, 0, pointsFromByes, 0, pointsFromByes.length);
 
             Set<Integer> possiblePlayerCounts = Sets.newHashSet();
             for (TGame game : RoundSpec.getAllGames(rounds)) {
-                Map<TPlayer, Double> pointsScoredForGame = pointsScoredByGame.get(game);
-                for (TPlayer player : initialSeeding.getPlayersBestFirst()) {
-                    pointsScoredForGame.put(player, state.pointsScoredByGame.get(game).get(player));
-                }
-                for (Entry<ImmutableSet<TPlayer>> entry : state.matchupsSoFarByGame.get(game).entrySet()) {
-                    matchupsSoFarByGame.get(game).add(Sets.newHashSet(entry.getElement()), entry.getCount());
-                }
+                double[] pointsScoredForGame = pointsScoredByGame.get(game);
+                System.arraycopy(state.pointsScoredByGame.get(game), 0,
+                        pointsScoredForGame, 0, pointsScoredForGame.length);
+                matchupsSoFarByGame.put(game, state.matchupsSoFarByGame.get(game).copy());
                 possiblePlayerCounts.add(game.getNumRoles());
             }
 
             mostRecentGame = state.mostRecentGame;
             standingsHistory.addAll(state.standingsHistory);
-
-            for (Entry<ImmutableSet<TPlayer>> entry : state.totalMatchupsSoFar.entrySet()) {
-                totalMatchupsSoFar.add(Sets.newHashSet(entry.getElement()), entry.getCount());
-            }
+            totalMatchupsSoFar = state.totalMatchupsSoFar.copy();
             latestStartTimeSeen = state.latestStartTimeSeen;
         }
 
+        /*
+         * Nothing is added to the point totals until every match in the round has
+         * been completed, so a round still in progress can be run again with more
+         * results.
+         */
         private void runRound(RoundSpec round, int roundNum, Set<InternalMatchResult> roundResults) {
             handleStartTimeForRound(round);
             //...there should be only one match per round, I think?
             //Or at least they must involve the same game?
             TGame game = getOnlyGame(round);
-            //Figure out how to assign players
-            List<List<TPlayer>> playerGroups = getPlayerGroups(game, roundNum);
-            double maxScoreAchieved = 0;
-            double scoreSum = 0;
-            int scoreCount = 0;
+            //Figure out how to assign players; this only depends on earlier rounds
+            if (roundPlayerGroups == null) {
+                roundPlayerGroups = getPlayerGroups(game, roundNum);
+            }
+            List<List<TPlayer>> playerGroups = roundPlayerGroups;
+            RoundResultIndex resultIndex = RoundResultIndex.create(roundResults);
             for (int groupNum = 0; groupNum < playerGroups.size(); groupNum++) {
                 List<TPlayer> players = playerGroups.get(groupNum);
                 for (int matchNum = 0; matchNum < round.getMatches().size(); matchNum++) {
                     MatchSpec match = round.getMatches().get(matchNum);
-                    Optional<Integer> attemptNum = getAttemptNumberIfUnfinished(groupNum, matchNum, roundResults);
+                    Optional<Integer> attemptNum = resultIndex.getAttemptNumberIfUnfinished(groupNum, matchNum);
                     if (attemptNum.isPresent()) {
                         String matchId = MatchIds.create(adminActions, StageFormat.SWISS1, stageNum,
                                 roundNum, groupNum, matchNum, attemptNum.get());
 
                         matchesToRun.add(match.createMatchSetup(matchId, players));
                         break;
-                    } else {
-                        InternalMatchResult result = getSuccessfulAttempt(groupNum, matchNum, roundResults);
-                        //Add the results of the match to our point totals
-                        List<TPlayer> playersInRoleOrder = match.putInOrder(players);
-                        for (int role = 0; role < players.size(); role++) {
-                            TPlayer player = playersInRoleOrder.get(role);
-                            double goalValue = result.getGoals().get(role) * match.getWeight();
-
-                            addToSumWithKey(player, goalValue, totalPointsScored);
-                            addToSumWithKey(player, goalValue, pointsScoredByGame.get(game));
-
-                            maxScoreAchieved = maxScoreAchieved > goalValue ? maxScoreAchieved : goalValue;
-                            scoreSum += goalValue;
-                            scoreCount++;
-                            this.mostRecentGame = game;
-                        }
                     }
                 }
             }
-            if (matchesToRun.isEmpty()) {
-                //If we're at the end of a round and all the groups have gone and
-                //we have a player left, manage the byes
-                Set<TPlayer> unassignedPlayers = getUnassignedPlayers(initialSeeding.getPlayersBestFirst(), playerGroups);
-                if (!unassignedPlayers.isEmpty()) {
-                    //Calculate bye score for the game
-                    double byeScore = getByeScoreForRound(game, maxScoreAchieved, scoreSum, scoreCount);
-                    Preconditions.checkState(byeScore >= 0 && byeScore <= 100);
-                    for (TPlayer player : unassignedPlayers) {
-                        addToSumWithKey(player, byeScore, totalPointsScored);
-                        addToSumWithKey(player, byeScore, pointsScoredByGame.get(game));
-                        addToSumWithKey(player, byeScore, pointsFromByes);
+            if (!matchesToRun.isEmpty()) {
+                return;
+            }
+
+            double maxScoreAchieved = 0;
+            double scoreSum = 0;
+            int scoreCount = 0;
+            for (int groupNum = 0; groupNum < playerGroups.size(); groupNum++) {
+                List<TPlayer> players = playerGroups.get(groupNum);
+                for (int matchNum = 0; matchNum < round.getMatches().size(); matchNum++) {
+                    MatchSpec match = round.getMatches().get(matchNum);
+                    InternalMatchResult result = resultIndex.getSuccessfulAttempt(groupNum, matchNum);
+                    //Add the results of the match to our point totals
+                    List<TPlayer> playersInRoleOrder = match.putInOrder(players);
+                    for (int role = 0; role < players.size(); role++) {
+                        TPlayer player = playersInRoleOrder.get(role);
+                        double goalValue = result.getGoals().get(role) * match.getWeight();
+
+                        int playerIndex = playerIndices.getIndex(player);
+                        totalPointsScored[playerIndex] += goalValue;
+                        pointsScoredByGame.get(game)[playerIndex] += goalValue;
+
+                        maxScoreAchieved = maxScoreAchieved > goalValue ? maxScoreAchieved : goalValue;
+                        scoreSum += goalValue;
+                        scoreCount++;
+                        this.mostRecentGame = game;
                     }
                 }
-                //Also...
-                updateMatchupStats(game, playerGroups);
             }
+            //If we're at the end of a round and all the groups have gone and
+            //we have a player left, manage the byes
+            Set<TPlayer> unassignedPlayers = getUnassignedPlayers(initialSeeding.getPlayersBestFirst(), playerGroups);
+            if (!unassignedPlayers.isEmpty()) {
+                //Calculate bye score for the game
+                double byeScore = getByeScoreForRound(game, maxScoreAchieved, scoreSum, scoreCount);
+                Preconditions.checkState(byeScore >= 0 && byeScore <= 100);
+                for (TPlayer player : unassignedPlayers) {
+                    int playerIndex = playerIndices.getIndex(player);
+                    totalPointsScored[playerIndex] += byeScore;
+                    pointsScoredByGame.get(game)[playerIndex] += byeScore;
+                    pointsFromByes[playerIndex] += byeScore;
+                }
+            }
+            //Also...
+            updateMatchupStats(game, playerGroups);
+            roundPlayerGroups = null;
         }
 
         private void handleStartTimeForRound(RoundSpec round) {
@@ -285,18 +345,15 @@ public class SwissFormat1Runner implements FormatRunner {
         }
 
         private void updateMatchupStats(TGame game, List<List<TPlayer>> playerGroups) {
+            MatchupCounts matchupsSoFarForGame = matchupsSoFarByGame.get(game);
             for (List<TPlayer> players : playerGroups) {
                 if (game.isFixedSum()) {
-                    if (game.getNumRoles() == 2) {
-                        matchupsSoFarByGame.get(game).add(ImmutableSet.of(players.get(0), players.get(1)));
-                        totalMatchupsSoFar.add(ImmutableSet.of(players.get(0), players.get(1)));
-                    } else {
-                        for (int p1 = 0; p1 < players.size(); p1++) {
-                            for (int p2 = p1 + 1; p2 < players.size(); p2++) {
-                                matchupsSoFarByGame.get(game)
-                                    .add(ImmutableSet.of(players.get(p1), players.get(p2)));
-                                totalMatchupsSoFar.add(ImmutableSet.of(players.get(p1), players.get(p2)));
-                            }
+                    for (int p1 = 0; p1 < players.size(); p1++) {
+                        int index1 = playerIndices.getIndex(players.get(p1));
+                        for (int p2 = p1 + 1; p2 < players.size(); p2++) {
+                            int index2 = playerIndices.getIndex(players.get(p2));
+                            matchupsSoFarForGame.increment(index1, index2);
+                            totalMatchupsSoFar.increment(index1, index2);
                         }
                     }
                 }
@@ -355,23 +412,30 @@ public class SwissFormat1Runner implements FormatRunner {
         private List<List<TPlayer>> getManyPlayerFixedSumPlayerGroups(TGame game) {
             List<List<TPlayer>> groups = Lists.newArrayList();
 
-            Set<TPlayer> assignedSoFar = Sets.newHashSet();
-            List<TPlayer> overallPlayerRankings = getPlayerRankingsForGame(game);
-            int numPlayers = initialSeeding.getPlayersBestFirst().size();
-            while (numPlayers - assignedSoFar.size() >= game.getNumRoles()) {
-                List<TPlayer> curGroup = Lists.newArrayList();
+            ImmutableList<TPlayer> playersBestFirst = initialSeeding.getPlayersBestFirst();
+            int numPlayers = playersBestFirst.size();
+            boolean[] assignedSoFar = new boolean[numPlayers];
+            int numAssigned = 0;
+            int[] overallPlayerRankings = getPlayerRankingsForGame(game);
+            while (numPlayers - numAssigned >= game.getNumRoles()) {
+                int[] curGroup = new int[game.getNumRoles()];
                 //First, get the best player left according to the rankings so far
-                TPlayer firstPlayer = getFirstUnassignedPlayer(overallPlayerRankings, assignedSoFar);
-                curGroup.add(firstPlayer);
-                assignedSoFar.add(firstPlayer);
-                while (curGroup.size() < game.getNumRoles()) {
+                curGroup[0] = getFirstUnassignedPlayer(overallPlayerRankings, assignedSoFar);
+                assignedSoFar[curGroup[0]] = true;
+                numAssigned++;
+                for (int groupSize = 1; groupSize < curGroup.length; groupSize++) {
                     //Now we look for the best opponent for those players
-                    List<TPlayer> opponentRankings = getOpponentRankingsForPlayers(curGroup, game);
-                    TPlayer opponent = getFirstUnassignedPlayer(opponentRankings, assignedSoFar);
-                    curGroup.add(opponent);
-                    assignedSoFar.add(opponent);
+                    int opponent = getBestUnassignedOpponent(curGroup, groupSize, game,
+                            overallPlayerRankings, assignedSoFar);
+                    curGroup[groupSize] = opponent;
+                    assignedSoFar[opponent] = true;
+                    numAssigned++;
+                }
+                ImmutableList.Builder<TPlayer> group = ImmutableList.builder();
+                for (int player : curGroup) {
+                    group.add(playersBestFirst.get(player));
                 }
-                groups.add(ImmutableList.copyOf(curGroup));
+                groups.add(group.build());
             }
 
             return groups;
@@ -383,173 +447,111 @@ public class SwissFormat1Runner implements FormatRunner {
         private List<List<TPlayer>> getTwoPlayerFixedSumPlayerGroups(TGame game) {
             List<List<TPlayer>> groups = Lists.newArrayList();
 
-            Set<TPlayer> assignedSoFar = Sets.newHashSet();
-            List<TPlayer> overallPlayerRankings = getPlayerRankingsForGame(game);
-            int numPlayers = initialSeeding.getPlayersBestFirst().size();
-            while (numPlayers - assignedSoFar.size() >= game.getNumRoles()) {
+            ImmutableList<TPlayer> playersBestFirst = initialSeeding.getPlayersBestFirst();
+            int numPlayers = playersBestFirst.size();
+            boolean[] assignedSoFar = new boolean[numPlayers];
+            int numAssigned = 0;
+            int[] overallPlayerRankings = getPlayerRankingsForGame(game);
+            int[] curGroup = new int[1];
+            while (numPlayers - numAssigned >= game.getNumRoles()) {
                 //First, get the best player left according to the rankings so far
-                TPlayer firstPlayer = getFirstUnassignedPlayer(overallPlayerRankings, assignedSoFar);
-                assignedSoFar.add(firstPlayer);
+                int firstPlayer = getFirstUnassignedPlayer(overallPlayerRankings, assignedSoFar);
+                assignedSoFar[firstPlayer] = true;
                 //Now we look for the best opponent for that player
-                List<TPlayer> opponentRankings = getOpponentRankingsForPlayer(firstPlayer, game);
-                TPlayer opponent = getFirstUnassignedPlayer(opponentRankings, assignedSoFar);
-                assignedSoFar.add(opponent);
+                curGroup[0] = firstPlayer;
+                int opponent = getBestUnassignedOpponent(curGroup, 1, game,
+                        overallPlayerRankings, assignedSoFar);
+                assignedSoFar[opponent] = true;
+                numAssigned += 2;
                 //Best seed goes first
-                groups.add(ImmutableList.of(firstPlayer, opponent));
+                groups.add(ImmutableList.of(playersBestFirst.get(firstPlayer), playersBestFirst.get(opponent)));
             }
 
             return groups;
         }
 
-        private List<TPlayer> getOpponentRankingsForPlayer(TPlayer firstPlayer, TGame game) {
-            return getOpponentRankingsForPlayers(ImmutableList.of(firstPlayer), game);
-        }
-
-        private List<TPlayer> getOpponentRankingsForPlayers(
-                final List<TPlayer> curGroup, final TGame game) {
-            List<TPlayer> allOpponents = Lists.newArrayList(initialSeeding.getPlayersBestFirst());
-            allOpponents.removeAll(curGroup);
-
-            Collections.sort(allOpponents, Ordering.from(
-            new Comparator<TPlayer>() {
-                @Override
-                public int compare(TPlayer o1, TPlayer o2) {
-                    double score1 = compute(o1);
-                    double score2 = compute(o2);
-                    return Double.compare(score1, score2);
-                }
-                //Higher points scored by game better
-                //but discount 100/n points per matchup already played in this game
-                private double compute(TPlayer opponent) {
-                    double pointsScored = pointsScoredByGame.get(game).get(opponent);
-                    for (TPlayer player : curGroup) {
-                        pointsScored -= (100.0 / curGroup.size())
-                                * matchupsSoFarByGame.get(game).count(ImmutableSet.of(player, opponent));
-                    }
-                    return pointsScored;
+        /**
+         * Returns the index of the unassigned player who is the best opponent
+         * for the first groupSize players in curGroup. Higher points scored in
+         * the game are better, with 100/n points discounted per matchup already
+         * played in this game; ties are broken by total points scored, with the
+         * same discount per matchup played in any Swiss rounds, and then by seed.
+         *
+         * <p>Candidates are visited in the order given by {@link #getPlayerRankingsForGame(TGame)},
+         * i.e. by their undiscounted scores. Discounts can only make a candidate worse,
+         * so the search can stop at the first candidate whose undiscounted scores are
+         * already worse than the best discounted scores found so far.
+         */
+        private int getBestUnassignedOpponent(int[] curGroup, int groupSize, TGame game,
+                int[] playerRankingsForGame, boolean[] assignedSoFar) {
+            double[] pointsScoredForGame = pointsScoredByGame.get(game);
+            MatchupCounts matchupsSoFarForGame = matchupsSoFarByGame.get(game);
+            double discountPerMatchup = 100.0 / groupSize;
+            int bestOpponent = -1;
+            double bestPointsInGame = 0.0;
+            double bestTotalPoints = 0.0;
+            for (int opponent : playerRankingsForGame) {
+                if (assignedSoFar[opponent]) {
+                    continue;
                 }
-            }
-            ).compound(
-                    new Comparator<TPlayer>() {
-                        @Override
-                        public int compare(TPlayer o1, TPlayer o2) {
-                            double score1 = compute(o1);
-                            double score2 = compute(o2);
-                            return Double.compare(score1, score2);
-                        }
-
-                        private double compute(TPlayer opponent) {
-                            //Higher total points scored better
-                            //but discount 100/n points per matchup already played in any Swiss rounds
-                            double pointsScored = totalPointsScored.get(opponent);
-                            for (TPlayer player : curGroup) {
-                                pointsScored -= (100.0 / curGroup.size())
-                                        * totalMatchupsSoFar.count(ImmutableSet.of(player, opponent));
-                            }
-                            return pointsScored;
-                        }
-                    }
-            ).reverse()
-                    .compound(new Comparator<TPlayer>() {
-                                @Override
-                                public int compare(TPlayer p1, TPlayer p2) {
-                                    int seed1 = initialSeeding.getPlayersBestFirst().indexOf(p1);
-                                    int seed2 = initialSeeding.getPlayersBestFirst().indexOf(p2);
-                                    return Integer.compare(seed1, seed2);
-                                }
-                    }));
-            return allOpponents;
-        }
-
-        private List<TPlayer> getPlayerRankingsForGame(final TGame game) {
-            List<TPlayer> players = Lists.newArrayList(initialSeeding.getPlayersBestFirst());
-            //Sort according to an appropriate comparator
-            //We do want the best players at the beginning of the list...
-            //We may accomplish that through an appropriate reversal
-            //First
-            Collections.sort(players,
-                    Ordering.from(new Comparator<TPlayer>() {
-                        @Override
-                        public int compare(TPlayer o1, TPlayer o2) {
-                            Double score1 = pointsScoredByGame.get(game).get(o1);
-                            Double score2 = pointsScoredByGame.get(game).get(o2);
-                            return Double.compare(score1, score2);
-                        }
-                    }).compound(new Comparator<TPlayer>() {
-                        @Override
-                        public int compare(TPlayer o1, TPlayer o2) {
-                            Double score1 = totalPointsScored.get(o1);
-                            Double score2 = totalPointsScored.get(o2);
-                            return Double.compare(score1, score2);
-                        }
-                    }).reverse()
-                    .compound(new Comparator<TPlayer>() {
-                        @Override
-                        public int compare(TPlayer o1, TPlayer o2) {
-                            int score1 = initialSeeding.getPlayersBestFirst().indexOf(o1);
-                            int score2 = initialSeeding.getPlayersBestFirst().indexOf(o2);
-                            return Integer.compare(score1, score2);
-                        }
-                    }));
-            return players;
-        }
-
-        private TPlayer getFirstUnassignedPlayer(List<TPlayer> players, Set<TPlayer> assignedSoFar) {
-            for (TPlayer player : players) {
-                if (!assignedSoFar.contains(player)) {
-                    return player;
+                double pointsInGame = pointsScoredForGame[opponent];
+                double totalPoints = totalPointsScored[opponent];
+                if (bestOpponent != -1 && !isBetter(pointsInGame, totalPoints, opponent,
+                        bestPointsInGame, bestTotalPoints, bestOpponent)) {
+                    break;
+                }
+                for (int i = 0; i < groupSize; i++) {
+                    pointsInGame -= discountPerMatchup * matchupsSoFarForGame.get(curGroup[i], opponent);
+                    totalPoints -= discountPerMatchup * totalMatchupsSoFar.get(curGroup[i], opponent);
+                }
+                if (bestOpponent == -1 || isBetter(pointsInGame, totalPoints, opponent,
+                        bestPointsInGame, bestTotalPoints, bestOpponent)) {
+                    bestOpponent = opponent;
+                    bestPointsInGame = pointsInGame;
+                    bestTotalPoints = totalPoints;
                 }
             }
-            throw new IllegalArgumentException("No unassigned players left");
+            if (bestOpponent == -1) {
+                throw new IllegalArgumentException("No unassigned players left");
+            }
+            return bestOpponent;
         }
 
-        private <K> void addToSumWithKey(K key, double addend, Map<K, Double> map) {
-            map.put(key, addend + map.get(key));
+        //Players are indexed in seed order, so lower indices are better seeds
+        private static boolean isBetter(double pointsInGame, double totalPoints, int player,
+                double otherPointsInGame, double otherTotalPoints, int otherPlayer) {
+            int comparison = Double.compare(pointsInGame, otherPointsInGame);
+            if (comparison == 0) {
+                comparison = Double.compare(totalPoints, otherTotalPoints);
+            }
+            if (comparison == 0) {
+                comparison = Integer.compare(otherPlayer, player);
+            }
+            return comparison > 0;
         }
 
-        private Optional<Integer> getAttemptNumberIfUnfinished(int groupNum, int matchNum,
-                Set<InternalMatchResult> roundResults) {
-            int attemptsSoFar = 0;
-            for (InternalMatchResult result : roundResults) {
-                MatchId matchId = result.getMatchId();
-                if (groupNum == matchId.getPlayerMatchingNumber()
-                        && matchNum == matchId.getMatchNumber()) {
-                    if (result.getOutcome() == Outcome.ABORTED) {
-                        attemptsSoFar++;
-                    } else {
-                        return Optional.absent();
-                    }
-                }
-            }
-            return Optional.of(attemptsSoFar);
+        /**
+         * Returns the indices of all the players, best first: by points scored in
+         * the given game, then by total points scored, then by seed.
+         */
+        private int[] getPlayerRankingsForGame(TGame game) {
+            return SwissRankings.rankBestFirst(pointsScoredByGame.get(game), totalPointsScored);
         }
 
-        private InternalMatchResult getSuccessfulAttempt(int groupNum, int matchNum, Set<InternalMatchResult> roundResults) {
-            for (InternalMatchResult result : roundResults) {
-                if (result.getOutcome() == Outcome.COMPLETED) {
-                    MatchId matchId = result.getMatchId();
-                    if (groupNum == matchId.getPlayerMatchingNumber()
-                            && matchNum == matchId.getMatchNumber()) {
-                        return result;
-                    }
+        private static int getFirstUnassignedPlayer(int[] players, boolean[] assignedSoFar) {
+            for (int player : players) {
+                if (!assignedSoFar[player]) {
+                    return player;
                 }
             }
-            throw new IllegalArgumentException("No successful attempts found");
+            throw new IllegalArgumentException("No unassigned players left");
         }
 
         private void setInitialTotalsToZero() {
-            for (TPlayer player : initialSeeding.getPlayersBestFirst()) {
-                totalPointsScored.put(player, 0.0);
-                pointsFromByes.put(player, 0.0);
-            }
             Set<Integer> possiblePlayerCounts = Sets.newHashSet();
             for (TGame game : RoundSpec.getAllGames(rounds)) {
-                HashMap<TPlayer, Double> pointsScoredForGame = Maps.newHashMap();
-                pointsScoredByGame.put(game, pointsScoredForGame);
-                for (TPlayer player : initialSeeding.getPlayersBestFirst()) {
-                    pointsScoredForGame.put(player, 0.0);
-                }
-                matchupsSoFarByGame.put(game, HashMultiset.<Set<TPlayer>>create());
+                pointsScoredByGame.put(game, new double[playerIndices.size()]);
+                matchupsSoFarByGame.put(game, MatchupCounts.create(playerIndices.size()));
                 possiblePlayerCounts.add(game.getNumRoles());
             }
 
@@ -561,31 +563,38 @@ public class SwissFormat1Runner implements FormatRunner {
         }
 
         private TRanking getStandings() {
-            Set<TPlayerScore> scores = Sets.newHashSet();
-            ImmutableList<TPlayer> playersBestFirst = initialSeeding.getPlayersBestFirst();
-            for (int i = 0; i < playersBestFirst.size(); i++) {
-                TPlayer player = playersBestFirst.get(i);
-                double mostRecentGamePoints = 0;
-                String mostRecentGameName = null;
+            int numPlayers = playerIndices.size();
+            long[] pointsSoFarT1K = new long[numPlayers];
+            long[] pointsInMostRecentGameT1K = new long[numPlayers];
+            long[] pointsFromByesT1K = new long[numPlayers];
+            String mostRecentGameName = null;
+            if (mostRecentGame != null) {
+                mostRecentGameName = mostRecentGame.getId();
+            }
+            for (int i = 0; i < numPlayers; i++) {
+                pointsSoFarT1K[i] = SwissScore.roundToThreePlacesT1K(totalPointsScored[i]);
                 if (mostRecentGame != null) {
-                    mostRecentGamePoints = pointsScoredByGame.get(mostRecentGame).get(player);
-                    mostRecentGameName = mostRecentGame.getId();
+                    pointsInMostRecentGameT1K[i] = SwissScore.roundToThreePlacesT1K(
+                            pointsScoredByGame.get(mostRecentGame)[i]);
                 }
-                TScore score = SwissScore.create(totalPointsScored.get(player),
-                        mostRecentGameName, mostRecentGamePoints,
-                        pointsFromByes.get(player));
-                scores.add(TPlayerScore.create(player, score, i));
+                pointsFromByesT1K[i] = SwissScore.roundToThreePlacesT1K(pointsFromByes[i]);
             }
-            return StandardRanking.create(scores);
+            return CompactRanking.create(playerIndices, new SwissPackedScores(pointsSoFarT1K,
+                    mostRecentGameName, pointsInMostRecentGameT1K, pointsFromByesT1K));
         }
 
         public List<TRanking> getStandingsHistory() {
             return ImmutableList.copyOf(standingsHistory);
         }
 
+        @Override
+        public StageEvaluation getEvaluation() {
+            return StageEvaluation.create(getMatchesToRun(), standingsHistory);
+        }
+
     }
 
-    private static class SwissScore implements TScore {
+    private static class SwissScore implements PointTotalScore {
         //T1K stands for "times 1000".
         private final long pointsSoFarT1K;
         //Just for display purposes; this makes it more obvious why matchups are selected
@@ -601,18 +610,15 @@ public class SwissFormat1Runner implements FormatRunner {
             this.pointsFromByesT1K = pointsFromByesT1K;
         }
 
-        public static SwissScore create(double pointsSoFar, @Nullable String mostRecentGameName,
-                double pointsInMostRecentGame, double pointsFromByes) {
-            long pointsSoFarT1K = roundToThreePlacesT1K(pointsSoFar);
-            long pointsInMostRecentGameT1K = roundToThreePlacesT1K(pointsInMostRecentGame);
-            long pointsFromByesT1K = roundToThreePlacesT1K(pointsFromByes);
-            return new SwissScore(pointsSoFarT1K, mostRecentGameName, pointsInMostRecentGameT1K, pointsFromByesT1K);
-        }
-
         private static long roundToThreePlacesT1K(double value) {
             return Math.round(value * 1000.0);
         }
 
+        @Override
+        public long getPointsT1K() {
+            return pointsSoFarT1K;
+        }
+
         @Override
         public int compareTo(TScore other) {
             if (!(other instanceof SwissScore)) {
@@ -671,6 +677,76 @@ public class SwissFormat1Runner implements FormatRunner {
         }
     }
 
+    /**
+     * The scores of a ranking, stored as the fields of SwissScore indexed by seed position.
+     */
+    @Immutable
+    private static class SwissPackedScores implements CompactRanking.PackedScores {
+        private final long[] pointsSoFarT1K;
+        private final @Nullable String mostRecentGameName;
+        private final long[] pointsInMostRecentGameT1K;
+        private final long[] pointsFromByesT1K;
+
+        private SwissPackedScores(long[] pointsSoFarT1K, @Nullable String mostRecentGameName,
+                long[] pointsInMostRecentGameT1K, long[] pointsFromByesT1K) {
+            this.pointsSoFarT1K = pointsSoFarT1K;
+            this.mostRecentGameName = mostRecentGameName;
+            this.pointsInMostRecentGameT1K = pointsInMostRecentGameT1K;
+            this.pointsFromByesT1K = pointsFromByesT1K;
+        }
+
+        @Override
+        public int size() {
+            return pointsSoFarT1K.length;
+        }
+
+        @Override
+        public long getSortKey(int seed) {
+            return pointsSoFarT1K[seed];
+        }
+
+        @Override
+        public TScore getScore(int seed) {
+            return new SwissScore(pointsSoFarT1K[seed], mostRecentGameName,
+                    pointsInMostRecentGameT1K[seed], pointsFromByesT1K[seed]);
+        }
+
+        @Override
+        public int getScoreHashCode(int seed) {
+            //Matches SwissScore.hashCode()
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + (int) (pointsSoFarT1K[seed] ^ (pointsSoFarT1K[seed] >>> 32));
+            return result;
+        }
+
+        @Override
+        public long getPackedBytes() {
+            return 3L * 8L * pointsSoFarT1K.length;
+        }
+    }
+
+    public static final Weaver<CompactRanking.PackedScores> PACKED_SCORES_WEAVER =
+            new ListWeaver<CompactRanking.PackedScores>() {
+        @Override
+        protected void addToList(CompactRanking.PackedScores object, RopeBuilder list) {
+            SwissPackedScores scores = (SwissPackedScores) object;
+            list.add(scores.pointsSoFarT1K, Weavers.LONG_ARRAY);
+            list.add(scores.mostRecentGameName);
+            list.add(scores.pointsInMostRecentGameT1K, Weavers.LONG_ARRAY);
+            list.add(scores.pointsFromByesT1K, Weavers.LONG_ARRAY);
+        }
+
+        @Override
+        protected CompactRanking.PackedScores fromRope(RopeList list) {
+            long[] pointsSoFarT1K = list.get(0, Weavers.LONG_ARRAY);
+            String mostRecentGameName = list.getString(1);
+            long[] pointsInMostRecentGameT1K = list.get(2, Weavers.LONG_ARRAY);
+            long[] pointsFromByesT1K = list.get(3, Weavers.LONG_ARRAY);
+            return new SwissPackedScores(pointsSoFarT1K, mostRecentGameName, pointsInMostRecentGameT1K, pointsFromByesT1K);
+        }
+    };
+
     public static final Weaver<TScore> SCORE_WEAVER = new ListWeaver<TScore>() {
         @Override
         protected void addToList(TScore object, RopeBuilder list) {
@@ -691,6 +767,40 @@ public class SwissFormat1Runner implements FormatRunner {
         }
     };
 
+    public static final Weaver<EndOfRoundState> STATE_WEAVER = new ListWeaver<EndOfRoundState>() {
+        @Override
+        protected void addToList(EndOfRoundState object, RopeBuilder list) {
+            Swiss1EndOfRoundState state = (Swiss1EndOfRoundState) object;
+            list.add(state.roundNum);
+            list.add(state.mostRecentGame, Weavers.GAME);
+            list.add(state.totalPointsScored, Weavers.DOUBLE_ARRAY);
+            list.add(state.pointsScoredByGame, Weavers.mapOf(Weavers.GAME, Weavers.DOUBLE_ARRAY));
+            list.add(state.pointsFromByes, Weavers.DOUBLE_ARRAY);
+            list.add(state.totalMatchupsSoFar, Weavers.MATCHUP_COUNTS);
+            list.add(state.matchupsSoFarByGame, Weavers.mapOf(Weavers.GAME, Weavers.MATCHUP_COUNTS));
+            list.add(state.standingsHistory, CoreWeavers.listOf(Weavers.CACHED_RANKING));
+            list.add(state.latestStartTimeSeen, Weavers.nullable(Weavers.DATE_TIME));
+        }
+
+        @Override
+        protected EndOfRoundState fromRope(RopeList list) {
+            int roundNum = list.getInt(0);
+            TGame mostRecentGame = list.get(1, Weavers.GAME);
+            double[] totalPointsScored = list.get(2, Weavers.DOUBLE_ARRAY);
+            ImmutableMap<TGame, double[]> pointsScoredByGame =
+                    list.get(3, Weavers.mapOf(Weavers.GAME, Weavers.DOUBLE_ARRAY));
+            double[] pointsFromByes = list.get(4, Weavers.DOUBLE_ARRAY);
+            MatchupCounts totalMatchupsSoFar = list.get(5, Weavers.MATCHUP_COUNTS);
+            ImmutableMap<TGame, MatchupCounts> matchupsSoFarByGame =
+                    list.get(6, Weavers.mapOf(Weavers.GAME, Weavers.MATCHUP_COUNTS));
+            List<TRanking> standingsHistory = list.get(7, CoreWeavers.listOf(Weavers.CACHED_RANKING));
+            DateTime latestStartTimeSeen = list.get(8, Weavers.nullable(Weavers.DATE_TIME));
+            return new Swiss1EndOfRoundState(roundNum, mostRecentGame, totalPointsScored, pointsScoredByGame,
+                    pointsFromByes, totalMatchupsSoFar, matchupsSoFarByGame,
+                    ImmutableList.copyOf(standingsHistory), latestStartTimeSeen);
+        }
+    };
+
     @Override
     public TNextMatchesResult getMatchesToRun(String tournamentInternalName, TSeeding initialSeeding,
             List<InternalAdminAction> adminActions, int stageNum,
@@ -717,6 +827,23 @@ public class SwissFormat1Runner implements FormatRunner {
                 ImmutableList.copyOf(adminActions), ImmutableList.copyOf(rounds), allResultsSoFar).getStandingsHistory();
     }
 
+    @Override
+    public StageEvaluation evaluate(String tournamentInternalName, TSeeding initialSeeding,
+            List<InternalAdminAction> adminActions, int stageNum,
+            List<RoundSpec> rounds, Set<InternalMatchResult> allResultsSoFar) {
+        SwissFormatSimulator simulator = SwissFormatSimulator.createAndRun(tournamentInternalName, stageNum,
+                initialSeeding, ImmutableList.copyOf(adminActions), ImmutableList.copyOf(rounds), allResultsSoFar);
+        return StageEvaluation.create(simulator.getMatchesToRun(), simulator.getStandingsHistory());
+    }
+
+    @Override
+    public StageRun startRun(String tournamentInternalName, TSeeding initialSeeding,
+            List<InternalAdminAction> adminActions, int stageNum,
+            List<RoundSpec> rounds, Collection<InternalMatchResult> resultsInStage) {
+        return SwissFormatSimulator.startRun(tournamentInternalName, stageNum, initialSeeding,
+                ImmutableList.copyOf(adminActions), ImmutableList.copyOf(rounds), resultsInStage);
+    }
+
     private static TGame getOnlyGame(RoundSpec round) {
         if (round.getMatches().isEmpty()) {
             throw new IllegalArgumentException("Swiss rounds must have at least one match");
@@ -743,18 +870,20 @@ public class SwissFormat1Runner implements FormatRunner {
     private static class Swiss1EndOfRoundState implements EndOfRoundState {
         private final int roundNum;
         private final TGame mostRecentGame;
-        private final ImmutableMap<TPlayer, Double> totalPointsScored;
-        private final ImmutableMap<TGame, ImmutableMap<TPlayer, Double>> pointsScoredByGame;
-        private final ImmutableMap<TPlayer, Double> pointsFromByes;
-        private final ImmutableMultiset<ImmutableSet<TPlayer>> totalMatchupsSoFar;
-        private final ImmutableMap<TGame, ImmutableMultiset<ImmutableSet<TPlayer>>> matchupsSoFarByGame;
+        //The arrays and matchup counts are snapshots, indexed like the simulator's,
+        //and are not modified after construction
+        private final double[] totalPointsScored;
+        private final ImmutableMap<TGame, double[]> pointsScoredByGame;
+        private final double[] pointsFromByes;
+        private final MatchupCounts totalMatchupsSoFar;
+        private final ImmutableMap<TGame, MatchupCounts> matchupsSoFarByGame;
         private final ImmutableList<TRanking> standingsHistory;
         private final @Nullable DateTime latestStartTimeSeen;
 
-        private Swiss1EndOfRoundState(int roundNum, TGame mostRecentGame, ImmutableMap<TPlayer, Double> totalPointsScored,
-                ImmutableMap<TGame, ImmutableMap<TPlayer, Double>> pointsScoredByGame,
-                ImmutableMap<TPlayer, Double> pointsFromByes, ImmutableMultiset<ImmutableSet<TPlayer>> totalMatchupsSoFar,
-                ImmutableMap<TGame, ImmutableMultiset<ImmutableSet<TPlayer>>> matchupsSoFarByGame,
+        private Swiss1EndOfRoundState(int roundNum, TGame mostRecentGame, double[] totalPointsScored,
+                ImmutableMap<TGame, double[]> pointsScoredByGame,
+                double[] pointsFromByes, MatchupCounts totalMatchupsSoFar,
+                ImmutableMap<TGame, MatchupCounts> matchupsSoFarByGame,
                 ImmutableList<TRanking> standingsHistory, @Nullable DateTime latestStartTimeSeen) {
             this.roundNum = roundNum;
             this.mostRecentGame = mostRecentGame;
@@ -769,51 +898,78 @@ public class SwissFormat1Runner implements FormatRunner {
 
         public static Swiss1EndOfRoundState create(int roundNum,
                 TGame mostRecentGame,
-                Map<TPlayer, Double> totalPointsScored,
-                Map<TGame, Map<TPlayer, Double>> pointsScoredByGame,
-                Map<TPlayer, Double> pointsFromByes,
-                Multiset<Set<TPlayer>> totalMatchupsSoFar,
-                Map<TGame, Multiset<Set<TPlayer>>> matchupsSoFarByGame,
+                double[] totalPointsScored,
+                Map<TGame, double[]> pointsScoredByGame,
+                double[] pointsFromByes,
+                MatchupCounts totalMatchupsSoFar,
+                Map<TGame, MatchupCounts> matchupsSoFarByGame,
                 List<TRanking> standingsHistory,
                 @Nullable DateTime latestStartTimeSeen) {
             return new Swiss1EndOfRoundState(roundNum,
                     mostRecentGame,
-                    ImmutableMap.copyOf(totalPointsScored),
-                    toImmutableMapValuedMap(pointsScoredByGame),
-                    ImmutableMap.copyOf(pointsFromByes),
-                    toImmutableSetEntriedMultiset(totalMatchupsSoFar),
-                    toImmutableMultisetOfSetsValuedMap(matchupsSoFarByGame),
+                    totalPointsScored.clone(),
+                    toArrayCopyValuedMap(pointsScoredByGame),
+                    pointsFromByes.clone(),
+                    totalMatchupsSoFar.copy(),
+                    toCopyValuedMap(matchupsSoFarByGame),
                     ImmutableList.copyOf(standingsHistory),
                     latestStartTimeSeen);
         }
 
-        private static <K,T> ImmutableMap<K, ImmutableMultiset<ImmutableSet<T>>> toImmutableMultisetOfSetsValuedMap(
-                Map<K, Multiset<Set<T>>> map) {
-            return ImmutableMap.copyOf(Maps.transformValues(map, new Function<Multiset<Set<T>>, ImmutableMultiset<ImmutableSet<T>>>() {
+        @Override
+        public long estimateRetainedSize() {
+            return RetainedSizeEstimates.forArray(totalPointsScored)
+                    + RetainedSizeEstimates.forArrayValuedMap(pointsScoredByGame)
+                    + RetainedSizeEstimates.forArray(pointsFromByes)
+                    + RetainedSizeEstimates.forMatchupCounts(totalMatchupsSoFar)
+                    + RetainedSizeEstimates.forMatchupCountsByGame(matchupsSoFarByGame)
+                    + RetainedSizeEstimates.forStandingsHistory(standingsHistory);
+        }
+
+        private static <K> ImmutableMap<K, MatchupCounts> toCopyValuedMap(Map<K, MatchupCounts> map) {
+            return ImmutableMap.copyOf(Maps.transformValues(map, new Function<MatchupCounts, MatchupCounts>() {
                 @Override
-                public ImmutableMultiset<ImmutableSet<T>> apply(@Nonnull Multiset<Set<T>> input) {
-                    return toImmutableSetEntriedMultiset(input);
+                public MatchupCounts apply(@Nonnull MatchupCounts input) {
+                    return input.copy();
                 }
             }));
         }
 
-        private static <T> ImmutableMultiset<ImmutableSet<T>> toImmutableSetEntriedMultiset(
-                Multiset<Set<T>> multiset) {
-            ImmutableMultiset.Builder<ImmutableSet<T>> builder = ImmutableMultiset.builder();
-            for (Entry<Set<T>> entry : multiset.entrySet()) {
-                builder.addCopies(ImmutableSet.copyOf(entry.getElement()), entry.getCount());
+        private static <K> ImmutableMap<K, double[]> toArrayCopyValuedMap(Map<K, double[]> map) {
+            return ImmutableMap.copyOf(Maps.transformValues(map, new Function<double[], double[]>() {
+                @Override
+                public double[] apply(@Nonnull double[] input) {
+                    return input.clone();
+                }
+            }));
+        }
+
+        private static <K> int arrayValuedMapHashCode(Map<K, double[]> map) {
+            int result = 0;
+            for (Map.Entry<K, double[]> entry : map.entrySet()) {
+                result += entry.getKey().hashCode() ^ Arrays.hashCode(entry.getValue());
             }
-            return builder.build();
+            return result;
         }
 
-        private static <K1,K2,V2> ImmutableMap<K1, ImmutableMap<K2, V2>> toImmutableMapValuedMap(
-                Map<K1, Map<K2, V2>> map) {
-            return ImmutableMap.copyOf(Maps.transformValues(map, new Function<Map<K2, V2>, ImmutableMap<K2, V2>>() {
-                @Override
-                public ImmutableMap<K2, V2> apply(@Nonnull Map<K2, V2> input) {
-                    return ImmutableMap.copyOf(input);
+        private static <K> boolean arrayValuedMapsEqual(Map<K, double[]> map1, Map<K, double[]> map2) {
+            if (!map1.keySet().equals(map2.keySet())) {
+                return false;
+            }
+            for (Map.Entry<K, double[]> entry : map1.entrySet()) {
+                if (!Arrays.equals(entry.getValue(), map2.get(entry.getKey()))) {
+                    return false;
                 }
-            }));
+            }
+            return true;
+        }
+
+        private static <K> String arrayValuedMapToString(Map<K, double[]> map) {
+            Map<K, String> strings = Maps.newLinkedHashMap();
+            for (Map.Entry<K, double[]> entry : map.entrySet()) {
+                strings.put(entry.getKey(), Arrays.toString(entry.getValue()));
+            }
+            return strings.toString();
         }
 
         @Override
@@ -823,12 +979,12 @@ public class SwissFormat1Runner implements FormatRunner {
             result = prime * result + ((latestStartTimeSeen == null) ? 0 : latestStartTimeSeen.hashCode());
             result = prime * result + ((matchupsSoFarByGame == null) ? 0 : matchupsSoFarByGame.hashCode());
             result = prime * result + ((mostRecentGame == null) ? 0 : mostRecentGame.hashCode());
-            result = prime * result + ((pointsFromByes == null) ? 0 : pointsFromByes.hashCode());
-            result = prime * result + ((pointsScoredByGame == null) ? 0 : pointsScoredByGame.hashCode());
+            result = prime * result + Arrays.hashCode(pointsFromByes);
+            result = prime * result + ((pointsScoredByGame == null) ? 0 : arrayValuedMapHashCode(pointsScoredByGame));
             result = prime * result + roundNum;
             result = prime * result + ((standingsHistory == null) ? 0 : standingsHistory.hashCode());
             result = prime * result + ((totalMatchupsSoFar == null) ? 0 : totalMatchupsSoFar.hashCode());
-            result = prime * result + ((totalPointsScored == null) ? 0 : totalPointsScored.hashCode());
+            result = prime * result + Arrays.hashCode(totalPointsScored);
             return result;
         }
 
@@ -865,18 +1021,15 @@ public class SwissFormat1Runner implements FormatRunner {
             } else if (!mostRecentGame.equals(other.mostRecentGame)) {
                 return false;
             }
-            if (pointsFromByes == null) {
-                if (other.pointsFromByes != null) {
-                    return false;
-                }
-            } else if (!pointsFromByes.equals(other.pointsFromByes)) {
+            if (!Arrays.equals(pointsFromByes, other.pointsFromByes)) {
                 return false;
             }
             if (pointsScoredByGame == null) {
                 if (other.pointsScoredByGame != null) {
                     return false;
                 }
-            } else if (!pointsScoredByGame.equals(other.pointsScoredByGame)) {
+            } else if (other.pointsScoredByGame == null
+                    || !arrayValuedMapsEqual(pointsScoredByGame, other.pointsScoredByGame)) {
                 return false;
             }
             if (roundNum != other.roundNum) {
@@ -896,11 +1049,7 @@ public class SwissFormat1Runner implements FormatRunner {
             } else if (!totalMatchupsSoFar.equals(other.totalMatchupsSoFar)) {
                 return false;
             }
-            if (totalPointsScored == null) {
-                if (other.totalPointsScored != null) {
-                    return false;
-                }
-            } else if (!totalPointsScored.equals(other.totalPointsScored)) {
+            if (!Arrays.equals(totalPointsScored, other.totalPointsScored)) {
                 return false;
             }
             return true;
@@ -909,8 +1058,9 @@ public class SwissFormat1Runner implements FormatRunner {
         @Override
         public String toString() {
             return "Swiss1EndOfRoundState [roundNum=" + roundNum + ", mostRecentGame=" + mostRecentGame
-                    + ", totalPointsScored=" + totalPointsScored + ", pointsScoredByGame=" + pointsScoredByGame
-                    + ", pointsFromByes=" + pointsFromByes + ", totalMatchupsSoFar=" + totalMatchupsSoFar
+                    + ", totalPointsScored=" + Arrays.toString(totalPointsScored)
+                    + ", pointsScoredByGame=" + arrayValuedMapToString(pointsScoredByGame)
+                    + ", pointsFromByes=" + Arrays.toString(pointsFromByes) + ", totalMatchupsSoFar=" + totalMatchupsSoFar
                     + ", matchupsSoFarByGame=" + matchupsSoFarByGame + ", standingsHistory=" + standingsHistory
                     + ", latestStartTimeSeen=" + latestStartTimeSeen + "]";
         }
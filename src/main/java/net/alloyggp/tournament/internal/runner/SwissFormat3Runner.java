@@ -0,0 +1,144 @@
+package net.alloyggp.tournament.internal.runner;
+
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+import net.alloyggp.tournament.api.TGame;
+import net.alloyggp.tournament.api.TPlayer;
+import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.internal.InternalMatchResult;
+import net.alloyggp.tournament.internal.admin.InternalAdminAction;
+import net.alloyggp.tournament.internal.matching.MaxWeightMatching;
+import net.alloyggp.tournament.internal.spec.RoundSpec;
+import net.alloyggp.tournament.internal.spec.StageFormat;
+
+/**
+ * A variant of the swiss2 format that pairs two-player fixed-sum rounds as a
+ * minimum-cost perfect matching instead of greedily, best player first. Other
+ * kinds of rounds are run the same way as in swiss2.
+ */
+public class SwissFormat3Runner extends SwissFormat2Runner {
+    private static final SwissFormat3Runner INSTANCE = new SwissFormat3Runner();
+
+    private static final double REMATCH_PENALTY = 100.0;
+
+    private SwissFormat3Runner() {
+        super(StageFormat.SWISS3);
+    }
+
+    public static SwissFormat3Runner create() {
+        return INSTANCE;
+    }
+
+    @Override
+    /*package-private*/ SwissFormatSimulator createSimulator(String tournamentInternalName, int stageNum,
+            TSeeding initialSeeding, ImmutableList<InternalAdminAction> adminActions, ImmutableList<RoundSpec> rounds,
+            ImmutableSet<InternalMatchResult> resultsFromEarlierStages, ImmutableSet<InternalMatchResult> resultsInStage,
+            ImmutableMap<Integer, List<List<TPlayer>>> randomMatchGroupsByRound, boolean usesStateCache) {
+        return new Swiss3Simulator(tournamentInternalName, stageNum, initialSeeding, adminActions,
+                rounds, resultsFromEarlierStages, resultsInStage, randomMatchGroupsByRound, usesStateCache);
+    }
+
+    private static class Swiss3Simulator extends SwissFormatSimulator {
+        private Swiss3Simulator(String tournamentInternalName, int stageNum, TSeeding initialSeeding,
+                ImmutableList<InternalAdminAction> adminActions, ImmutableList<RoundSpec> rounds,
+                ImmutableSet<InternalMatchResult> resultsFromEarlierStages,
+                ImmutableSet<InternalMatchResult> resultsInStage,
+                ImmutableMap<Integer, List<List<TPlayer>>> randomMatchGroupsByRound, boolean usesStateCache) {
+            super(StageFormat.SWISS3, tournamentInternalName, stageNum, initialSeeding, adminActions, rounds,
+                    resultsFromEarlierStages, resultsInStage, randomMatchGroupsByRound, usesStateCache);
+        }
+
+        /**
+         * Pairs the players as a minimum-cost perfect matching, found with the
+         * blossom algorithm. This avoids rematches across the whole field rather
+         * than just for the players that happen to be paired first.
+         *
+         * <p>With an odd number of players, the bye goes to the lowest-ranked
+         * player among those who have had the fewest byes so far.
+         */
+        @Override
+        protected List<List<TPlayer>> getTwoPlayerFixedSumPlayerGroups(TGame game) {
+            ImmutableList<TPlayer> playersBestFirst = initialSeeding.getPlayersBestFirst();
+            int[] rankings = getPlayerRankingsForGame(game);
+            if (rankings.length % 2 == 1) {
+                rankings = withoutPosition(rankings, getByePosition(rankings));
+            }
+            int numToPair = rankings.length;
+            if (numToPair == 0) {
+                return ImmutableList.of();
+            }
+
+            //Every pair of players is connected, so the matching is the global optimum
+            int numEdges = numToPair * (numToPair - 1) / 2;
+            int[] higherPositions = new int[numEdges];
+            int[] lowerPositions = new int[numEdges];
+            long[] costs = new long[numEdges];
+            long maxCost = 0;
+            int edge = 0;
+            for (int higher = 0; higher < numToPair; higher++) {
+                for (int lower = higher + 1; lower < numToPair; lower++) {
+                    higherPositions[edge] = higher;
+                    lowerPositions[edge] = lower;
+                    costs[edge] = getPairingCost(game, rankings[higher], rankings[lower]);
+                    maxCost = Math.max(maxCost, costs[edge]);
+                    edge++;
+                }
+            }
+            //Among perfect matchings, the heaviest one has the lowest total cost
+            long[] weights = new long[numEdges];
+            for (int i = 0; i < numEdges; i++) {
+                weights[i] = maxCost + 1 - costs[i];
+            }
+            int[] mates = MaxWeightMatching.computeMates(numToPair, higherPositions, lowerPositions, weights, true);
+
+            List<List<TPlayer>> groups = Lists.newArrayList();
+            for (int position = 0; position < numToPair; position++) {
+                Preconditions.checkState(mates[position] != -1, "Player left unpaired by matching");
+                if (position < mates[position]) {
+                    //The higher-ranked player goes first
+                    groups.add(ImmutableList.of(playersBestFirst.get(rankings[position]),
+                            playersBestFirst.get(rankings[mates[position]])));
+                }
+            }
+            return groups;
+        }
+
+        /**
+         * Returns the cost of pairing the two players: the squares of their
+         * differences in points scored in the game and in total points scored,
+         * with the same 100-point penalty per earlier matchup that swiss2 uses
+         * as a discount. Squaring the differences makes one large mismatch cost
+         * more than several small ones.
+         */
+        private long getPairingCost(TGame game, int player1, int player2) {
+            double gameDifference = Math.abs(pointsScoredByGame.get(game)[player1] - pointsScoredByGame.get(game)[player2])
+                    + REMATCH_PENALTY * matchupsSoFarByGame.get(game).get(player1, player2);
+            double totalDifference = Math.abs(totalPointsScored[player1] - totalPointsScored[player2])
+                    + REMATCH_PENALTY * totalMatchupsSoFar.get(player1, player2);
+            return Math.round(gameDifference * gameDifference + totalDifference * totalDifference);
+        }
+
+        private int getByePosition(int[] rankings) {
+            int byePosition = rankings.length - 1;
+            for (int position = rankings.length - 2; position >= 0; position--) {
+                if (byeCounts[rankings[position]] < byeCounts[rankings[byePosition]]) {
+                    byePosition = position;
+                }
+            }
+            return byePosition;
+        }
+
+        private static int[] withoutPosition(int[] array, int position) {
+            int[] result = new int[array.length - 1];
+            System.arraycopy(array, 0, result, 0, position);
+            System.arraycopy(array, position + 1, result, position, array.length - position - 1);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package net.alloyggp.tournament.internal.runner;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Ranks the players of the Swiss formats for pairing, using primitive sorts.
+ */
+/*package-private*/ class SwissRankings {
+    //Each part of a packed sort key gets this many bits, so three of them fit in a long
+    private static final int BITS_PER_PART = 21;
+
+    private SwissRankings() {
+        //Not instantiable
+    }
+
+    /**
+     * Returns the indices of all the players, best first: by primary points,
+     * then by secondary points, then by index. Points are compared as with
+     * {@link Double#compare(double, double)}.
+     *
+     * <p>Each player's points are replaced by their rank among the distinct
+     * values, so that both ranks and the index can be packed into a single
+     * long and the whole field sorted as a long[].
+     */
+    public static int[] rankBestFirst(double[] primaryPoints, double[] secondaryPoints) {
+        int numPlayers = primaryPoints.length;
+        Preconditions.checkArgument(secondaryPoints.length == numPlayers);
+        Preconditions.checkArgument(numPlayers < (1 << BITS_PER_PART), "Too many players to rank");
+        double[] sortedPrimary = primaryPoints.clone();
+        Arrays.sort(sortedPrimary);
+        double[] sortedSecondary = secondaryPoints.clone();
+        Arrays.sort(sortedSecondary);
+
+        long[] keys = new long[numPlayers];
+        for (int player = 0; player < numPlayers; player++) {
+            //Equal values always find the same index, and more points should sort first
+            long primaryRank = numPlayers - 1 - Arrays.binarySearch(sortedPrimary, primaryPoints[player]);
+            long secondaryRank = numPlayers - 1 - Arrays.binarySearch(sortedSecondary, secondaryPoints[player]);
+            keys[player] = (primaryRank << (2 * BITS_PER_PART)) | (secondaryRank << BITS_PER_PART) | player;
+        }
+        Arrays.sort(keys);
+
+        int[] rankings = new int[numPlayers];
+        long playerMask = (1L << BITS_PER_PART) - 1;
+        for (int i = 0; i < numPlayers; i++) {
+            rankings[i] = (int) (keys[i] & playerMask);
+        }
+        return rankings;
+    }
+}
@@ -1,53 +1,278 @@
 package net.alloyggp.tournament.internal.runner;
 
-import java.util.Collections;
+import java.io.File;
+import java.io.IOException;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Ordering;
+import com.google.common.hash.Hasher;
 
 import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.internal.Fingerprint;
 import net.alloyggp.tournament.internal.InternalMatchResult;
 import net.alloyggp.tournament.internal.admin.InternalAdminAction;
+import net.alloyggp.tournament.internal.spec.RoundSpec;
+import net.alloyggp.tournament.internal.spec.StageFormat;
 
 /**
  * This is a process-wide cache meant to short-circuit some of
  * the computation involved in computing match setups and
  * rankings. Stage runners may use it to store the state at the
  * end of each round and reuse this state in later computations.
+ *
+ * <p>The cache is bounded by the estimated retained size of the
+ * stored states; see {@link TournamentStateCacheConfig} for the
+ * available settings.
+ *
+ * <p>Errors reading or writing the persistent file are logged and
+ * otherwise ignored, so a failing disk only costs cache hits.
  */
 public class TournamentStateCache {
+    private static final Logger LOGGER = Logger.getLogger(TournamentStateCache.class.getName());
     private static final AtomicBoolean CACHE_ENABLED = new AtomicBoolean(true);
-    private static final LoadingCache<CacheKey, SortedMap<Integer, List<CacheEntry>>> STAGE_CACHES =
-            CacheBuilder.newBuilder()
-            .expireAfterAccess(5L, TimeUnit.MINUTES)
-            .maximumSize(100L)
-            .build(new CacheLoader<CacheKey, SortedMap<Integer, List<CacheEntry>>>() {
-                @Override
-                public SortedMap<Integer, List<CacheEntry>> load(CacheKey key) throws Exception {
-                    return Collections.synchronizedSortedMap(Maps.<Integer, Integer, List<CacheEntry>>newTreeMap(
-                            Ordering.<Integer>natural().reverse()));
+    //Rough per-state overhead of the trie node and map entry holding it
+    private static final long TRIE_NODE_BYTES = 96L;
+    //Marks a per-tournament weight counter that is being removed
+    private static final long REMOVED_WEIGHT = Long.MIN_VALUE;
+    private static volatile Caches CACHES = new Caches(TournamentStateCacheConfig.getDefault());
+
+    /**
+     * The caches built from one configuration. Reconfiguring replaces all of
+     * these at once, so the tiers and per-tournament accounting stay consistent.
+     */
+    private static class Caches {
+        private final TournamentStateCacheConfig config;
+        private final Cache<CacheKey, StageCache> stageCaches;
+        private final @Nullable Cache<CacheKey, StageCache> softTier;
+        private final ConcurrentMap<String, AtomicLong> weightByTournament = Maps.newConcurrentMap();
+        private final @Nullable PersistentStateStore persistentStore;
+
+        public Caches(TournamentStateCacheConfig config) {
+            this.config = config;
+            File persistentFile = config.getPersistentFile();
+            if (persistentFile != null) {
+                try {
+                    this.persistentStore = PersistentStateStore.open(persistentFile,
+                            (int) config.getMaximumPersistentFileSize());
+                } catch (IOException e) {
+                    throw Throwables.propagate(e);
                 }
-            });
+            } else {
+                this.persistentStore = null;
+            }
+            if (config.hasSoftReferenceTier()) {
+                this.softTier = CacheBuilder.newBuilder()
+                        .softValues()
+                        .expireAfterAccess(config.getExpireAfterAccessMillis(), TimeUnit.MILLISECONDS)
+                        .build();
+            } else {
+                this.softTier = null;
+            }
+            this.stageCaches = CacheBuilder.newBuilder()
+                    .expireAfterAccess(config.getExpireAfterAccessMillis(), TimeUnit.MILLISECONDS)
+                    .maximumWeight(config.getMaximumWeight())
+                    .weigher(new Weigher<CacheKey, StageCache>() {
+                        @Override
+                        public int weigh(CacheKey key, StageCache value) {
+                            return (int) Math.min(Integer.MAX_VALUE, value.getEstimatedSize());
+                        }
+                    })
+                    .removalListener(new RemovalListener<CacheKey, StageCache>() {
+                        @Override
+                        public void onRemoval(RemovalNotification<CacheKey, StageCache> notification) {
+                            handleRemoval(notification);
+                        }
+                    })
+                    .recordStats()
+                    .build();
+        }
+
+        private void handleRemoval(RemovalNotification<CacheKey, StageCache> notification) {
+            //Entries are replaced with themselves to update their weights
+            if (notification.getCause() == RemovalCause.REPLACED) {
+                return;
+            }
+            CacheKey key = notification.getKey();
+            StageCache stageCache = notification.getValue();
+            if (key == null || stageCache == null) {
+                return;
+            }
+            stopCountingInTournamentWeight(key, stageCache);
+            if (softTier != null && notification.getCause() == RemovalCause.SIZE) {
+                softTier.put(key, stageCache);
+            }
+        }
+
+        public StageCache getStageCache(final CacheKey key) {
+            try {
+                return stageCaches.get(key, new Callable<StageCache>() {
+                    @Override
+                    public StageCache call() {
+                        if (softTier != null) {
+                            StageCache demoted = softTier.asMap().remove(key);
+                            if (demoted != null) {
+                                startCountingInTournamentWeight(key, demoted);
+                                return demoted;
+                            }
+                        }
+                        StageCache stageCache = new StageCache();
+                        startCountingInTournamentWeight(key, stageCache);
+                        return stageCache;
+                    }
+                });
+            } catch (ExecutionException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+
+        /**
+         * Returns the stage cache for the key if either tier holds one, without
+         * creating an empty one otherwise.
+         */
+        public @Nullable StageCache getStageCacheIfPresent(CacheKey key) {
+            StageCache stageCache = stageCaches.getIfPresent(key);
+            if (stageCache == null && softTier != null && softTier.getIfPresent(key) != null) {
+                //Move it back to the main tier
+                stageCache = getStageCache(key);
+            }
+            return stageCache;
+        }
+
+        /*
+         * The stage cache's size is added to or removed from the tournament's
+         * weight while holding its lock, so a state added to a stage cache just
+         * as it's evicted is never subtracted without having been added.
+         */
+        private void startCountingInTournamentWeight(CacheKey key, StageCache stageCache) {
+            synchronized (stageCache) {
+                if (!stageCache.countedInTournamentWeight) {
+                    stageCache.countedInTournamentWeight = true;
+                    addTournamentWeight(key.tournamentInternalName, stageCache.getEstimatedSize());
+                }
+            }
+        }
+
+        private void stopCountingInTournamentWeight(CacheKey key, StageCache stageCache) {
+            synchronized (stageCache) {
+                if (stageCache.countedInTournamentWeight) {
+                    stageCache.countedInTournamentWeight = false;
+                    addTournamentWeight(key.tournamentInternalName, -stageCache.getEstimatedSize());
+                }
+            }
+        }
+
+        /*
+         * A tournament's counter is removed when its weight drops to zero, so
+         * servers hosting many short tournaments don't accumulate counters. The
+         * counter is marked as removed first, so that no other thread can add to
+         * it after it leaves the map.
+         */
+        private void addTournamentWeight(String tournamentInternalName, long delta) {
+            while (true) {
+                AtomicLong weight = weightByTournament.get(tournamentInternalName);
+                if (weight == null) {
+                    if (delta == 0L || weightByTournament.putIfAbsent(tournamentInternalName,
+                            new AtomicLong(delta)) == null) {
+                        return;
+                    }
+                    continue;
+                }
+                long current = weight.get();
+                if (current == REMOVED_WEIGHT) {
+                    //Another thread is removing it; a new counter will take its place
+                    continue;
+                }
+                long updated = current + delta;
+                if (updated == 0L) {
+                    if (weight.compareAndSet(current, REMOVED_WEIGHT)) {
+                        weightByTournament.remove(tournamentInternalName, weight);
+                        return;
+                    }
+                } else if (weight.compareAndSet(current, updated)) {
+                    return;
+                }
+            }
+        }
+
+        private long getTournamentWeight(String tournamentInternalName) {
+            AtomicLong weight = weightByTournament.get(tournamentInternalName);
+            if (weight == null) {
+                return 0L;
+            }
+            long value = weight.get();
+            return value == REMOVED_WEIGHT ? 0L : value;
+        }
+
+        /**
+         * Returns true if a state of the given size fits within the tournament's
+         * quota, evicting the tournament's other stages if needed to make room.
+         */
+        public boolean makeRoomInQuota(CacheKey key, long size) {
+            long quota = config.getPerTournamentQuota();
+            String tournamentInternalName = key.tournamentInternalName;
+            if (getTournamentWeight(tournamentInternalName) + size <= quota) {
+                return true;
+            }
+            for (CacheKey otherKey : stageCaches.asMap().keySet()) {
+                if (otherKey.tournamentInternalName.equals(tournamentInternalName)
+                        && !otherKey.equals(key)) {
+                    stageCaches.invalidate(otherKey);
+                }
+            }
+            return getTournamentWeight(tournamentInternalName) + size <= quota;
+        }
+
+        public void recordAddedState(CacheKey key, StageCache stageCache, long size) {
+            synchronized (stageCache) {
+                stageCache.addEstimatedSize(size);
+                if (stageCache.countedInTournamentWeight) {
+                    addTournamentWeight(key.tournamentInternalName, size);
+                }
+            }
+            //Guava only computes weights on writes, so write the entry again
+            stageCaches.asMap().replace(key, stageCache, stageCache);
+        }
+    }
 
     /**
      * A key to find the appropriate sub-cache that stores entries
      * for a particular stage in a tournament. The seeding and results
      * before that stage are included, to prevent returning incorrect
      * results if "counterfactual" computations have been performed.
+     * The stage's spec is included as well, since specs with different
+     * rounds may share an internal name, e.g. after the YAML is edited.
+     * These are represented by their fingerprints, so keys are cheap to
+     * compare no matter how many results the tournament has.
      */
     //TODO: Should we be using the tournament initial seeding instead of
     //the stage initial seeding? This would matter if we allowed scores
@@ -56,120 +281,158 @@ public class TournamentStateCache {
     //much more accessible.
     private static class CacheKey {
         private final String tournamentInternalName;
-        private final ImmutableList<InternalAdminAction> adminActions;
-        private final TSeeding initialSeeding;
+        private final Fingerprint adminActions;
+        private final Fingerprint initialSeeding;
         private final int stageNum;
-        private final ImmutableSet<InternalMatchResult> resultsFromEarlierStages;
+        private final Fingerprint stageSpec;
+        private final Fingerprint resultsFromEarlierStages;
 
-        public CacheKey(String tournamentInternalName, ImmutableList<InternalAdminAction> adminActions,
-                TSeeding initialSeeding, int stageNum,
-                ImmutableSet<InternalMatchResult> resultsFromEarlierStages) {
+        public CacheKey(String tournamentInternalName, Fingerprint adminActions,
+                Fingerprint initialSeeding, int stageNum, Fingerprint stageSpec,
+                Fingerprint resultsFromEarlierStages) {
             this.tournamentInternalName = tournamentInternalName;
             this.adminActions = adminActions;
             this.initialSeeding = initialSeeding;
             this.stageNum = stageNum;
+            this.stageSpec = stageSpec;
             this.resultsFromEarlierStages = resultsFromEarlierStages;
         }
 
+        public static CacheKey create(String tournamentInternalName, ImmutableList<InternalAdminAction> adminActions,
+                TSeeding initialSeeding, int stageNum, StageFormat format, ImmutableList<RoundSpec> rounds,
+                ImmutableSet<InternalMatchResult> resultsFromEarlierStages) {
+            return new CacheKey(tournamentInternalName, Fingerprint.ofAdminActions(adminActions),
+                    initialSeeding.getFingerprint(), stageNum, Fingerprint.ofStage(format, rounds),
+                    Fingerprint.ofResults(resultsFromEarlierStages));
+        }
+
         @Override
         public int hashCode() {
             final int prime = 31;
             int result = 1;
-            result = prime * result + ((adminActions == null) ? 0 : adminActions.hashCode());
-            result = prime * result + ((initialSeeding == null) ? 0 : initialSeeding.hashCode());
-            result = prime * result + ((resultsFromEarlierStages == null) ? 0 : resultsFromEarlierStages.hashCode());
+            result = prime * result + adminActions.hashCode();
+            result = prime * result + initialSeeding.hashCode();
+            result = prime * result + resultsFromEarlierStages.hashCode();
             result = prime * result + stageNum;
-            result = prime * result + ((tournamentInternalName == null) ? 0 : tournamentInternalName.hashCode());
+            result = prime * result + stageSpec.hashCode();
+            result = prime * result + tournamentInternalName.hashCode();
             return result;
         }
 
         @Override
         public boolean equals(Object obj) {
-            if (this == obj)
+            if (this == obj) {
                 return true;
-            if (obj == null)
+            }
+            if (obj == null) {
                 return false;
-            if (getClass() != obj.getClass())
+            }
+            if (getClass() != obj.getClass()) {
                 return false;
+            }
             CacheKey other = (CacheKey) obj;
-            if (adminActions == null) {
-                if (other.adminActions != null)
-                    return false;
-            } else if (!adminActions.equals(other.adminActions))
-                return false;
-            if (initialSeeding == null) {
-                if (other.initialSeeding != null)
-                    return false;
-            } else if (!initialSeeding.equals(other.initialSeeding))
-                return false;
-            if (resultsFromEarlierStages == null) {
-                if (other.resultsFromEarlierStages != null)
-                    return false;
-            } else if (!resultsFromEarlierStages.equals(other.resultsFromEarlierStages))
-                return false;
-            if (stageNum != other.stageNum)
-                return false;
-            if (tournamentInternalName == null) {
-                if (other.tournamentInternalName != null)
-                    return false;
-            } else if (!tournamentInternalName.equals(other.tournamentInternalName))
-                return false;
-            return true;
+            return stageNum == other.stageNum
+                    && stageSpec.equals(other.stageSpec)
+                    && resultsFromEarlierStages.equals(other.resultsFromEarlierStages)
+                    && initialSeeding.equals(other.initialSeeding)
+                    && adminActions.equals(other.adminActions)
+                    && tournamentInternalName.equals(other.tournamentInternalName);
         }
 
         @Override
         public String toString() {
             return "CacheKey [tournamentInternalName=" + tournamentInternalName + ", adminActions=" + adminActions
-                    + ", initialSeeding=" + initialSeeding + ", stageNum=" + stageNum + ", resultsFromEarlierStages="
-                    + resultsFromEarlierStages + "]";
+                    + ", initialSeeding=" + initialSeeding + ", stageNum=" + stageNum + ", stageSpec=" + stageSpec
+                    + ", resultsFromEarlierStages=" + resultsFromEarlierStages + "]";
         }
     }
 
-    private static class CacheEntry {
-        public final ImmutableSet<InternalMatchResult> resultsSoFarInStage;
-        public final EndOfRoundState state;
+    /**
+     * Holds the end-of-round states for a single stage as a trie. Each level of
+     * the trie corresponds to one round with results, in the order the rounds are
+     * played, and each node's children are keyed by the set of results in that
+     * round. The state at the end of a round is stored in the node reached by the
+     * results of that round and all the earlier ones. Result sets are
+     * represented by their fingerprints. Finding the latest state
+     * consistent with a set of results therefore takes one lookup per round, no
+     * matter how many (possibly counterfactual) states have been cached.
+     */
+    private static class StageCache {
+        private final TrieNode root = new TrieNode();
+        private final AtomicLong estimatedSize = new AtomicLong(TRIE_NODE_BYTES);
+        //Whether the size is included in the tournament's weight, i.e. whether
+        //this is in the main tier
+        @GuardedBy("this")
+        private boolean countedInTournamentWeight = false;
 
-        private CacheEntry(ImmutableSet<InternalMatchResult> resultsSoFarInStage, EndOfRoundState state) {
-            this.resultsSoFarInStage = resultsSoFarInStage;
-            this.state = state;
+        public long getEstimatedSize() {
+            return estimatedSize.get();
         }
 
-        @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + ((resultsSoFarInStage == null) ? 0 : resultsSoFarInStage.hashCode());
-            result = prime * result + ((state == null) ? 0 : state.hashCode());
-            return result;
+        public void addEstimatedSize(long delta) {
+            estimatedSize.addAndGet(delta);
         }
+    }
 
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj) {
-                return true;
-            }
-            if (obj == null) {
-                return false;
-            }
-            if (getClass() != obj.getClass()) {
-                return false;
-            }
-            CacheEntry other = (CacheEntry) obj;
-            if (resultsSoFarInStage == null) {
-                if (other.resultsSoFarInStage != null) {
-                    return false;
+    /*
+     * Lookups never lock. Children start out in a small immutable map that is
+     * copied on each insertion and published by compare-and-set; nodes that
+     * gain many children, as with many counterfactual results for a round,
+     * move them to a concurrent map instead so that insertions stay cheap.
+     */
+    @ThreadSafe
+    private static class TrieNode {
+        private static final int MAX_COPIED_CHILDREN = 8;
+
+        //Either an ImmutableMap or, once it has grown, a ConcurrentMap
+        private final AtomicReference<Map<Fingerprint, TrieNode>> children =
+                new AtomicReference<Map<Fingerprint, TrieNode>>(ImmutableMap.<Fingerprint, TrieNode>of());
+        private final AtomicReference<EndOfRoundState> state = new AtomicReference<EndOfRoundState>();
+
+        public TrieNode getOrCreateChild(Fingerprint roundResults) {
+            while (true) {
+                Map<Fingerprint, TrieNode> currentChildren = children.get();
+                TrieNode child = currentChildren.get(roundResults);
+                if (child != null) {
+                    return child;
                 }
-            } else if (!resultsSoFarInStage.equals(other.resultsSoFarInStage)) {
-                return false;
-            }
-            if (state == null) {
-                if (other.state != null) {
-                    return false;
+                TrieNode newChild = new TrieNode();
+                if (currentChildren instanceof ConcurrentMap) {
+                    child = ((ConcurrentMap<Fingerprint, TrieNode>) currentChildren).putIfAbsent(roundResults, newChild);
+                    return (child != null) ? child : newChild;
                 }
-            } else if (!state.equals(other.state)) {
-                return false;
+                Map<Fingerprint, TrieNode> newChildren;
+                if (currentChildren.size() < MAX_COPIED_CHILDREN) {
+                    newChildren = ImmutableMap.<Fingerprint, TrieNode>builder()
+                            .putAll(currentChildren)
+                            .put(roundResults, newChild)
+                            .build();
+                } else {
+                    newChildren = Maps.newConcurrentMap();
+                    newChildren.putAll(currentChildren);
+                    newChildren.put(roundResults, newChild);
+                }
+                if (children.compareAndSet(currentChildren, newChildren)) {
+                    return newChild;
+                }
+                //Another thread changed the children first; try again
             }
-            return true;
+        }
+
+        public @Nullable TrieNode getChild(Fingerprint roundResults) {
+            return children.get().get(roundResults);
+        }
+
+        /**
+         * Sets the state if none was already present, returning true if it
+         * was set.
+         */
+        public boolean setStateIfAbsent(EndOfRoundState newState) {
+            return state.compareAndSet(null, newState);
+        }
+
+        public @Nullable EndOfRoundState getState() {
+            return state.get();
         }
     }
 
@@ -180,49 +443,180 @@ public class TournamentStateCache {
         CACHE_ENABLED.set(enabled);
     }
 
+    /**
+     * Replaces the cache with an empty one using the given settings. This also
+     * resets the statistics returned by {@link #getStats()}. If a persistent
+     * file is configured, the states it already holds are available to the new
+     * cache.
+     */
+    public static synchronized void configure(TournamentStateCacheConfig config) {
+        Caches oldCaches = CACHES;
+        if (oldCaches.persistentStore != null) {
+            try {
+                oldCaches.persistentStore.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Couldn't close the persistent state file", e);
+            }
+        }
+        CACHES = new Caches(config);
+    }
+
+    public static TournamentStateCacheConfig getConfig() {
+        return CACHES.config;
+    }
+
+    /**
+     * Returns the number of tournaments that have states in the shared cache's
+     * main tier, i.e. that count towards their per-tournament quotas.
+     */
+    public static int getNumTournamentsCached() {
+        return CACHES.weightByTournament.size();
+    }
+
+    /**
+     * Returns the hit and eviction statistics of the cache since it was last
+     * configured. Each lookup or store for a stage counts as one request.
+     */
+    public static CacheStats getStats() {
+        return CACHES.stageCaches.stats();
+    }
+
+    /**
+     * Stores the state at the end of the given round. The state must depend only on
+     * the stage's spec and the results of that round and of the rounds played before
+     * it, as ordered by the format's round comparator.
+     */
     public static void cacheEndOfRoundState(String tournamentInternalName, TSeeding initialSeeding,
             ImmutableList<InternalAdminAction> adminActions,
-            ImmutableSet<InternalMatchResult> resultsFromEarlierStages, int stageNum, Set<InternalMatchResult> resultsInStage, EndOfRoundState state) {
+            ImmutableSet<InternalMatchResult> resultsFromEarlierStages, int stageNum,
+            StageFormat format, ImmutableList<RoundSpec> rounds,
+            Set<InternalMatchResult> resultsInStage, int roundNum, EndOfRoundState state) {
         if (!CACHE_ENABLED.get()) {
             return;
         }
-        CacheKey key = new CacheKey(tournamentInternalName, adminActions, initialSeeding, stageNum, resultsFromEarlierStages);
+        CacheKey key = CacheKey.create(tournamentInternalName, adminActions, initialSeeding, stageNum,
+                format, rounds, resultsFromEarlierStages);
+        Comparator<Integer> roundComparator = format.getRoundComparator();
+        Caches caches = CACHES;
+        List<Fingerprint> roundPath = Lists.newArrayList();
+        for (Entry<Integer, Fingerprint> round : getFingerprintsByRound(resultsInStage, roundComparator).entrySet()) {
+            if (roundComparator.compare(round.getKey(), roundNum) > 0) {
+                break;
+            }
+            roundPath.add(round.getValue());
+        }
 
-        SortedMap<Integer, List<CacheEntry>> stageCache = STAGE_CACHES.getUnchecked(key);
-        int size = resultsInStage.size();
-        synchronized (stageCache) {
-            if (!stageCache.containsKey(size)) {
-                stageCache.put(size, Collections.synchronizedList(Lists.<CacheEntry>newArrayList()));
+        if (caches.persistentStore != null) {
+            try {
+                caches.persistentStore.put(getPersistentKey(key, roundPath), state);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Couldn't write a state to the persistent state file", e);
             }
-            stageCache.get(size).add(new CacheEntry(ImmutableSet.copyOf(resultsInStage), state));
+        }
+        cacheInMemory(caches, key, roundPath, state);
+    }
+
+    private static void cacheInMemory(Caches caches, CacheKey key, List<Fingerprint> roundPath,
+            EndOfRoundState state) {
+        long size = TRIE_NODE_BYTES + state.estimateRetainedSize();
+        if (!caches.makeRoomInQuota(key, size)) {
+            return;
+        }
+
+        StageCache stageCache = caches.getStageCache(key);
+        TrieNode node = stageCache.root;
+        for (Fingerprint roundResults : roundPath) {
+            node = node.getOrCreateChild(roundResults);
+        }
+        if (node.setStateIfAbsent(state)) {
+            caches.recordAddedState(key, stageCache, size);
         }
     }
 
     public static @Nullable EndOfRoundState getLatestCachedEndOfRoundState(String tournamentInternalName,
             TSeeding initialSeeding, ImmutableList<InternalAdminAction> adminActions,
-            ImmutableSet<InternalMatchResult> resultsFromEarlierStages,  int stageNum, ImmutableSet<InternalMatchResult> resultsInStage) {
+            ImmutableSet<InternalMatchResult> resultsFromEarlierStages, int stageNum,
+            StageFormat format, ImmutableList<RoundSpec> rounds,
+            ImmutableSet<InternalMatchResult> resultsInStage) {
         if (!CACHE_ENABLED.get()) {
             return null;
         }
-        CacheKey key = new CacheKey(tournamentInternalName, adminActions, initialSeeding, stageNum, resultsFromEarlierStages);
+        CacheKey key = CacheKey.create(tournamentInternalName, adminActions, initialSeeding, stageNum,
+                format, rounds, resultsFromEarlierStages);
+        Caches caches = CACHES;
+        List<Fingerprint> roundPath = Lists.newArrayList(
+                getFingerprintsByRound(resultsInStage, format.getRoundComparator()).values());
+
+        StageCache stageCache = caches.getStageCacheIfPresent(key);
+        TrieNode node = (stageCache == null) ? null : stageCache.root;
+        EndOfRoundState latestState = null;
+        int latestStateDepth = 0;
+        for (int depth = 1; node != null && depth <= roundPath.size(); depth++) {
+            node = node.getChild(roundPath.get(depth - 1));
+            if (node == null) {
+                break;
+            }
+            EndOfRoundState state = node.getState();
+            if (state != null) {
+                latestState = state;
+                latestStateDepth = depth;
+            }
+        }
 
-        SortedMap<Integer, List<CacheEntry>> results = STAGE_CACHES.getUnchecked(key);
-        synchronized (results) {
-            //Key is the size of the "resultsInStage" set
-            //This goes from highest to lowest, so we'll find the largest subset
-            for (Entry<Integer, List<CacheEntry>> entry : results.entrySet()) {
-                if (entry.getKey() > resultsInStage.size()) {
+        if (caches.persistentStore != null) {
+            //Look for a later state stored by an earlier process
+            for (int depth = roundPath.size(); depth > latestStateDepth; depth--) {
+                List<Fingerprint> storedPath = roundPath.subList(0, depth);
+                EndOfRoundState storedState;
+                try {
+                    storedState = caches.persistentStore.get(getPersistentKey(key, storedPath));
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Couldn't read a state from the persistent state file", e);
                     continue;
                 }
-                synchronized (entry.getValue()) {
-                    for (CacheEntry value : entry.getValue()) {
-                        if (resultsInStage.containsAll(value.resultsSoFarInStage)) {
-                            return value.state;
-                        }
-                    }
+                if (storedState != null) {
+                    cacheInMemory(caches, key, storedPath, storedState);
+                    return storedState;
                 }
             }
         }
-        return null;
+        return latestState;
+    }
+
+    /**
+     * Returns the key used in the persistent store for the state at the end
+     * of the given sequence of rounds in the stage.
+     */
+    private static Fingerprint getPersistentKey(CacheKey key, List<Fingerprint> roundPath) {
+        Hasher hasher = Fingerprint.newHasher();
+        Fingerprint.putString(hasher, key.tournamentInternalName);
+        key.adminActions.putInto(hasher);
+        key.initialSeeding.putInto(hasher);
+        hasher.putInt(key.stageNum);
+        key.stageSpec.putInto(hasher);
+        key.resultsFromEarlierStages.putInto(hasher);
+        hasher.putInt(roundPath.size());
+        for (Fingerprint roundResults : roundPath) {
+            roundResults.putInto(hasher);
+        }
+        return Fingerprint.of(hasher.hash());
+    }
+
+    /**
+     * Returns the fingerprints of the results in each round, ordering the
+     * rounds from the earliest played to the latest.
+     */
+    private static SortedMap<Integer, Fingerprint> getFingerprintsByRound(
+            Set<InternalMatchResult> resultsInStage, Comparator<Integer> roundComparator) {
+        SortedMap<Integer, Fingerprint> fingerprintsByRound = Maps.newTreeMap(roundComparator);
+        for (InternalMatchResult result : resultsInStage) {
+            int roundNum = result.getMatchId().getRoundNumber();
+            Fingerprint fingerprint = fingerprintsByRound.get(roundNum);
+            if (fingerprint == null) {
+                fingerprint = Fingerprint.EMPTY;
+            }
+            fingerprintsByRound.put(roundNum, fingerprint.plus(result.getFingerprint()));
+        }
+        return fingerprintsByRound;
     }
 }
@@ -0,0 +1,205 @@
+package net.alloyggp.tournament.internal.runner;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Settings for the {@link TournamentStateCache}. Instances are immutable;
+ * each "with" method returns a modified copy. Pass the result to
+ * {@link TournamentStateCache#configure(TournamentStateCacheConfig)}.
+ *
+ * <p>Sizes are measured in estimated bytes of retained heap, as reported
+ * by {@link EndOfRoundState#estimateRetainedSize()}.
+ */
+@Immutable
+public class TournamentStateCacheConfig {
+    private static final TournamentStateCacheConfig DEFAULT = new TournamentStateCacheConfig(
+            64L * 1024L * 1024L, TimeUnit.MINUTES.toMillis(5L), Long.MAX_VALUE, false, null,
+            256L * 1024L * 1024L);
+
+    private final long maximumWeight;
+    private final long expireAfterAccessMillis;
+    private final long perTournamentQuota;
+    private final boolean softReferenceTier;
+    private final @Nullable File persistentFile;
+    private final long maximumPersistentFileSize;
+
+    private TournamentStateCacheConfig(long maximumWeight, long expireAfterAccessMillis,
+            long perTournamentQuota, boolean softReferenceTier, @Nullable File persistentFile,
+            long maximumPersistentFileSize) {
+        this.maximumWeight = maximumWeight;
+        this.expireAfterAccessMillis = expireAfterAccessMillis;
+        this.perTournamentQuota = perTournamentQuota;
+        this.softReferenceTier = softReferenceTier;
+        this.persistentFile = persistentFile;
+        this.maximumPersistentFileSize = maximumPersistentFileSize;
+    }
+
+    /**
+     * Returns the default settings: 64 MB in total, entries expiring five
+     * minutes after their last access, no per-tournament quota, no
+     * soft-reference tier, and no persistent file. A persistent file, if one
+     * is set, is limited to 256 MB.
+     */
+    public static TournamentStateCacheConfig getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Sets the maximum total estimated size of the cached states, across
+     * all tournaments. The stages that were used least recently are evicted
+     * first when this is exceeded.
+     */
+    public TournamentStateCacheConfig withMaximumWeight(long bytes) {
+        Preconditions.checkArgument(bytes >= 0, "The maximum weight must be non-negative");
+        return new TournamentStateCacheConfig(bytes, expireAfterAccessMillis,
+                perTournamentQuota, softReferenceTier, persistentFile, maximumPersistentFileSize);
+    }
+
+    /**
+     * Sets how long a stage's cached states are kept after they were last
+     * read or written.
+     */
+    public TournamentStateCacheConfig withExpireAfterAccess(long duration, TimeUnit unit) {
+        Preconditions.checkArgument(duration >= 0, "The expiration time must be non-negative");
+        return new TournamentStateCacheConfig(maximumWeight, unit.toMillis(duration),
+                perTournamentQuota, softReferenceTier, persistentFile, maximumPersistentFileSize);
+    }
+
+    /**
+     * Sets the maximum estimated size of the states cached for any one
+     * tournament. When caching a new state would exceed this, the tournament's
+     * other stages are evicted; if the state still doesn't fit, it is not cached.
+     * Use {@link Long#MAX_VALUE} for no quota.
+     */
+    public TournamentStateCacheConfig withPerTournamentQuota(long bytes) {
+        Preconditions.checkArgument(bytes >= 0, "The per-tournament quota must be non-negative");
+        return new TournamentStateCacheConfig(maximumWeight, expireAfterAccessMillis,
+                bytes, softReferenceTier, persistentFile, maximumPersistentFileSize);
+    }
+
+    /**
+     * If enabled, stages evicted because the maximum weight was exceeded are
+     * kept in a second tier, held by soft references, until the garbage collector
+     * needs the memory. They return to the main cache when they are next used.
+     */
+    public TournamentStateCacheConfig withSoftReferenceTier(boolean enabled) {
+        return new TournamentStateCacheConfig(maximumWeight, expireAfterAccessMillis,
+                perTournamentQuota, enabled, persistentFile, maximumPersistentFileSize);
+    }
+
+    /**
+     * If a file is given, every cached state is also appended to that file,
+     * and states are read back from it when they aren't found in memory. If the
+     * file already holds states from an earlier process, tournaments can resume
+     * from their latest cached rounds after a restart. Use null for no file.
+     *
+     * <p>The file is opened when the cache is configured, and should not be
+     * used by more than one process at a time. Errors reading or writing it
+     * after that are treated as cache misses.
+     */
+    public TournamentStateCacheConfig withPersistentFile(@Nullable File file) {
+        return new TournamentStateCacheConfig(maximumWeight, expireAfterAccessMillis,
+                perTournamentQuota, softReferenceTier, file, maximumPersistentFileSize);
+    }
+
+    /**
+     * Sets the maximum size of the persistent file. When it is reached, the
+     * oldest states in the file are dropped to make room for new ones.
+     */
+    public TournamentStateCacheConfig withMaximumPersistentFileSize(long bytes) {
+        Preconditions.checkArgument(bytes >= PersistentStateStore.MINIMUM_MAXIMUM_BYTES
+                && bytes <= Integer.MAX_VALUE,
+                "The maximum persistent file size must be between %s and %s bytes",
+                PersistentStateStore.MINIMUM_MAXIMUM_BYTES, Integer.MAX_VALUE);
+        return new TournamentStateCacheConfig(maximumWeight, expireAfterAccessMillis,
+                perTournamentQuota, softReferenceTier, persistentFile, bytes);
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public long getExpireAfterAccessMillis() {
+        return expireAfterAccessMillis;
+    }
+
+    public long getPerTournamentQuota() {
+        return perTournamentQuota;
+    }
+
+    public boolean hasSoftReferenceTier() {
+        return softReferenceTier;
+    }
+
+    public @Nullable File getPersistentFile() {
+        return persistentFile;
+    }
+
+    public long getMaximumPersistentFileSize() {
+        return maximumPersistentFileSize;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + (int) (expireAfterAccessMillis ^ (expireAfterAccessMillis >>> 32));
+        result = prime * result + (int) (maximumPersistentFileSize ^ (maximumPersistentFileSize >>> 32));
+        result = prime * result + (int) (maximumWeight ^ (maximumWeight >>> 32));
+        result = prime * result + (int) (perTournamentQuota ^ (perTournamentQuota >>> 32));
+        result = prime * result + ((persistentFile == null) ? 0 : persistentFile.hashCode());
+        result = prime * result + (softReferenceTier ? 1231 : 1237);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        TournamentStateCacheConfig other = (TournamentStateCacheConfig) obj;
+        if (expireAfterAccessMillis != other.expireAfterAccessMillis) {
+            return false;
+        }
+        if (maximumPersistentFileSize != other.maximumPersistentFileSize) {
+            return false;
+        }
+        if (maximumWeight != other.maximumWeight) {
+            return false;
+        }
+        if (perTournamentQuota != other.perTournamentQuota) {
+            return false;
+        }
+        if (persistentFile == null) {
+            if (other.persistentFile != null) {
+                return false;
+            }
+        } else if (!persistentFile.equals(other.persistentFile)) {
+            return false;
+        }
+        if (softReferenceTier != other.softReferenceTier) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "TournamentStateCacheConfig [maximumWeight=" + maximumWeight + ", expireAfterAccessMillis="
+                + expireAfterAccessMillis + ", perTournamentQuota=" + perTournamentQuota + ", softReferenceTier="
+                + softReferenceTier + ", persistentFile=" + persistentFile + ", maximumPersistentFileSize="
+                + maximumPersistentFileSize + "]";
+    }
+}
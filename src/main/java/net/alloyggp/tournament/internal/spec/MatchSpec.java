@@ -115,6 +115,10 @@ public class MatchSpec {
         return weight;
     }
 
+    /**
+     * Returns the match with the action applied, or this same object if the
+     * action doesn't change it.
+     */
     public MatchSpec apply(InternalAdminAction action, int stageNum,
             int roundNum) {
         TGame newGame = action.editMatchGame(game, stageNum, roundNum, matchNum);
@@ -124,6 +128,13 @@ public class MatchSpec {
                 playerSeedOrder, stageNum, roundNum, matchNum);
         double newWeight = action.editMatchWeight(weight, stageNum, roundNum, matchNum);
 
+        if (newGame.equals(game)
+                && newStartClock == startClock
+                && newPlayClock == playClock
+                && newPlayerSeedOrder.equals(playerSeedOrder)
+                && newWeight == weight) {
+            return this;
+        }
         return new MatchSpec(newGame, newStartClock, newPlayClock, newPlayerSeedOrder, newWeight, matchNum);
     }
 }
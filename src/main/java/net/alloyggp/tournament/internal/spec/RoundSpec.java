@@ -82,13 +82,23 @@ public class RoundSpec {
         return results;
     }
 
+    /**
+     * Returns the round with the action applied, or this same object if the
+     * action doesn't change it. Unchanged matches are shared with this round.
+     */
     public RoundSpec apply(InternalAdminAction action, int stageNum) {
         Optional<DateTime> newStartTime = action.editRoundStartTime(startTime, stageNum, roundNum);
+        boolean changed = !newStartTime.equals(startTime);
         List<MatchSpec> newMatches = Lists.newArrayList();
         for (MatchSpec match : matches) {
-            newMatches.add(match.apply(action, stageNum, roundNum));
+            MatchSpec newMatch = match.apply(action, stageNum, roundNum);
+            changed |= (newMatch != match);
+            newMatches.add(newMatch);
         }
 
+        if (!changed) {
+            return this;
+        }
         return new RoundSpec(newStartTime, ImmutableList.copyOf(newMatches), roundNum);
     }
 }
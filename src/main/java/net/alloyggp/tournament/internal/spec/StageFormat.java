@@ -13,6 +13,7 @@ import net.alloyggp.tournament.internal.runner.FormatRunner;
 import net.alloyggp.tournament.internal.runner.SingleEliminationFormat1Runner;
 import net.alloyggp.tournament.internal.runner.SwissFormat1Runner;
 import net.alloyggp.tournament.internal.runner.SwissFormat2Runner;
+import net.alloyggp.tournament.internal.runner.SwissFormat3Runner;
 
 public enum StageFormat {
     SINGLE_ELIMINATION1("singleElimination1", true, new Supplier<FormatRunner>() {
@@ -33,6 +34,12 @@ public enum StageFormat {
             return SwissFormat2Runner.create();
         }
     }, Ordering.<Integer>natural()),
+    SWISS3("swiss3", false, new Supplier<FormatRunner>() {
+        @Override
+        public FormatRunner get() {
+            return SwissFormat3Runner.create();
+        }
+    }, Ordering.<Integer>natural()),
     ;
     private final String yamlName;
     private final boolean stable;
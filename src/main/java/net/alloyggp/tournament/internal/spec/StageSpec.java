@@ -1,5 +1,6 @@
 package net.alloyggp.tournament.internal.spec;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -24,6 +25,8 @@ import net.alloyggp.tournament.internal.StandardRanking;
 import net.alloyggp.tournament.internal.YamlUtils;
 import net.alloyggp.tournament.internal.admin.InternalAdminAction;
 import net.alloyggp.tournament.internal.runner.FormatRunner;
+import net.alloyggp.tournament.internal.runner.StageEvaluation;
+import net.alloyggp.tournament.internal.runner.StageRun;
 
 @Immutable
 public class StageSpec {
@@ -137,15 +140,47 @@ public class StageSpec {
                 adminActions, stageNum, rounds, resultsSoFar);
     }
 
+    /**
+     * Returns the matches to run and the standings history for this stage,
+     * running its format only once.
+     */
+    public StageEvaluation evaluate(String tournamentInternalName,
+            TSeeding initialSeeding, List<InternalAdminAction> adminActions, Set<InternalMatchResult> resultsSoFar) {
+        return format.getRunner().evaluate(tournamentInternalName, initialSeeding,
+                adminActions, stageNum, rounds, resultsSoFar);
+    }
+
+    /**
+     * Starts a run of this stage's format that can be given more results as they
+     * come in. The results given must all be from this stage.
+     */
+    public StageRun startRun(String tournamentInternalName, TSeeding initialSeeding,
+            List<InternalAdminAction> adminActions, Collection<InternalMatchResult> resultsInStage) {
+        return format.getRunner().startRun(tournamentInternalName, initialSeeding,
+                adminActions, stageNum, rounds, resultsInStage);
+    }
+
+    /**
+     * Returns the stage with the action applied, or this same object if the
+     * action doesn't change it. Unchanged rounds are shared with this stage.
+     */
     public StageSpec apply(InternalAdminAction action) {
         StageFormat newFormat = action.editStageFormat(stageNum, format);
         int newPlayerLimit = action.editStagePlayerLimit(stageNum, playerLimit);
         Set<TPlayer> newExcludedPlayers = action.editStageExcludedPlayers(stageNum, excludedPlayers);
+        boolean changed = newFormat != format
+                || newPlayerLimit != playerLimit
+                || !newExcludedPlayers.equals(excludedPlayers);
         List<RoundSpec> newRounds = Lists.newArrayList();
         for (RoundSpec round : rounds) {
-            newRounds.add(round.apply(action, stageNum));
+            RoundSpec newRound = round.apply(action, stageNum);
+            changed |= (newRound != round);
+            newRounds.add(newRound);
         }
 
+        if (!changed) {
+            return this;
+        }
         return new StageSpec(stageNum, newFormat, ImmutableList.copyOf(newRounds),
                 newPlayerLimit, ImmutableSet.copyOf(newExcludedPlayers));
     }
@@ -0,0 +1,249 @@
+package net.alloyggp.tournament.internal.spec;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import net.alloyggp.tournament.api.TNextMatchesResult;
+import net.alloyggp.tournament.api.TRanking;
+import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.internal.InternalMatchResult;
+import net.alloyggp.tournament.internal.StandardNextMatchesResult;
+import net.alloyggp.tournament.internal.StandardRanking;
+import net.alloyggp.tournament.internal.StandardTournamentSnapshot;
+import net.alloyggp.tournament.internal.StandingsHistory;
+import net.alloyggp.tournament.internal.admin.InternalAdminAction;
+import net.alloyggp.tournament.internal.runner.StageEvaluation;
+import net.alloyggp.tournament.internal.runner.StageRun;
+
+/**
+ * A run of a tournament that keeps a {@link StageRun} for each stage started so
+ * far and gives each batch of results to the stages they're from, so the cost of
+ * a batch depends on the rounds it completes rather than on all the results so far.
+ * This gives the same snapshots as {@link TournamentSpec#evaluateForInternalResults},
+ * but doesn't use the {@link net.alloyggp.tournament.internal.runner.TournamentStateCache}.
+ *
+ * <p>A stage is only started once every earlier stage has no matches left to run.
+ * If results arrive for a round that a stage has already completed, that stage and
+ * every later one are started again from their results.
+ *
+ * <p>Created by {@link TournamentSpec#startRun(TSeeding, Collection)}. A run is for
+ * one version of the spec; after an admin action, use
+ * {@link TournamentSpec#continueRun} to get a run for the new spec that keeps the
+ * stages the action doesn't affect.
+ */
+@NotThreadSafe
+public class TournamentRun {
+    private final String tournamentInternalName;
+    private final ImmutableList<StageSpec> stages;
+    private final ImmutableList<InternalAdminAction> adminActions;
+    private final TSeeding initialSeeding;
+    //If true, stages are seeded from the previous stage's standings alone, as in
+    //TournamentSpec.getMatchesToRunSeededFromStageStandings; only the matches are used
+    private final boolean seedsFromStageStandings;
+
+    //All the results added, by stage, so stages can be started again
+    private final List<List<InternalMatchResult>> resultsByStage = Lists.newArrayList();
+    //These are indexed by stage, for the stages started so far
+    private final List<StageRun> stageRuns = Lists.newArrayList();
+    private final List<StageEvaluation> stageEvaluations = Lists.newArrayList();
+    private final List<TSeeding> stageSeedings = Lists.newArrayList();
+    //The combined standings of all earlier stages; null for the first stage
+    private final List<TRanking> standingsBeforeStages = Lists.newArrayList();
+    private final List<Boolean> stageSeedingsDiffer = Lists.newArrayList();
+
+    //Created once the two ways of seeding a stage first differ
+    private @Nullable TournamentRun runSeededFromStageStandings = null;
+    //Cleared whenever results are added
+    private @Nullable StandardTournamentSnapshot snapshot = null;
+
+    /*package-private*/ TournamentRun(String tournamentInternalName, ImmutableList<StageSpec> stages,
+            ImmutableList<InternalAdminAction> adminActions, TSeeding initialSeeding,
+            boolean seedsFromStageStandings) {
+        this.tournamentInternalName = tournamentInternalName;
+        this.stages = stages;
+        this.adminActions = adminActions;
+        this.initialSeeding = initialSeeding;
+        this.seedsFromStageStandings = seedsFromStageStandings;
+        for (int stageNum = 0; stageNum < stages.size(); stageNum++) {
+            resultsByStage.add(Lists.<InternalMatchResult>newArrayList());
+        }
+    }
+
+    /**
+     * Adds results, which must already have been filtered with
+     * {@link TournamentSpec#filterInputResult}, and runs the stages as far as they allow.
+     * Results already added should not be added again.
+     */
+    public void addResults(Collection<InternalMatchResult> results) {
+        List<List<InternalMatchResult>> newResultsByStage = Lists.newArrayList();
+        for (int stageNum = 0; stageNum < stages.size(); stageNum++) {
+            newResultsByStage.add(Lists.<InternalMatchResult>newArrayList());
+        }
+        for (InternalMatchResult result : results) {
+            newResultsByStage.get(result.getMatchId().getStageNumber()).add(result);
+        }
+        for (int stageNum = 0; stageNum < stages.size(); stageNum++) {
+            resultsByStage.get(stageNum).addAll(newResultsByStage.get(stageNum));
+        }
+
+        for (int stageNum = 0; stageNum < stageRuns.size(); stageNum++) {
+            List<InternalMatchResult> newResults = newResultsByStage.get(stageNum);
+            if (newResults.isEmpty()) {
+                continue;
+            }
+            if (stageRuns.get(stageNum).addResults(newResults)) {
+                stageEvaluations.set(stageNum, stageRuns.get(stageNum).getEvaluation());
+            } else {
+                //Later stages were seeded from this one, so they have to be started again too
+                removeStagesFrom(stageNum);
+                break;
+            }
+        }
+        startStagesThatCanStart();
+
+        if (runSeededFromStageStandings != null) {
+            runSeededFromStageStandings.addResults(results);
+        }
+        snapshot = null;
+    }
+
+    /*
+     * Takes over the runs of the previous run's first stages, which must be the same
+     * in this run's spec and have the same results, and then adds the results and
+     * starts the later stages. The previous run shares its stage runs with this one,
+     * so it can't be used afterwards.
+     */
+    /*package-private*/ void continueFrom(TournamentRun previousRun, int numStagesToKeep,
+            Collection<InternalMatchResult> results) {
+        Preconditions.checkState(stageRuns.isEmpty());
+        Preconditions.checkArgument(previousRun.initialSeeding.equals(initialSeeding));
+        for (InternalMatchResult result : results) {
+            resultsByStage.get(result.getMatchId().getStageNumber()).add(result);
+        }
+        int numStagesKept = Math.min(numStagesToKeep, previousRun.stageRuns.size());
+        for (int stageNum = 0; stageNum < numStagesKept; stageNum++) {
+            Preconditions.checkArgument(resultsByStage.get(stageNum).size()
+                    == previousRun.resultsByStage.get(stageNum).size());
+            stageRuns.add(previousRun.stageRuns.get(stageNum));
+            stageEvaluations.add(previousRun.stageEvaluations.get(stageNum));
+            stageSeedings.add(previousRun.stageSeedings.get(stageNum));
+            standingsBeforeStages.add(previousRun.standingsBeforeStages.get(stageNum));
+            stageSeedingsDiffer.add(previousRun.stageSeedingsDiffer.get(stageNum));
+        }
+        startStagesThatCanStart();
+        snapshot = null;
+    }
+
+    private void removeStagesFrom(int stageNum) {
+        while (stageRuns.size() > stageNum) {
+            int last = stageRuns.size() - 1;
+            stageRuns.remove(last);
+            stageEvaluations.remove(last);
+            stageSeedings.remove(last);
+            standingsBeforeStages.remove(last);
+            stageSeedingsDiffer.remove(last);
+        }
+    }
+
+    private void startStagesThatCanStart() {
+        while (stageRuns.size() < stages.size()
+                && (stageRuns.isEmpty() || getLastEvaluation().getMatchesToRun().getMatchesToRun().isEmpty())) {
+            startStage(stageRuns.size());
+        }
+    }
+
+    private void startStage(int stageNum) {
+        StageSpec stage = stages.get(stageNum);
+        TSeeding seeding;
+        TRanking standingsBefore = null;
+        boolean seedingsDiffer = false;
+        if (stageNum == 0) {
+            seeding = initialSeeding;
+        } else {
+            TRanking lastStageStandings = stageEvaluations.get(stageNum - 1)
+                    .getCurrentStandings(stageSeedings.get(stageNum - 1));
+            TSeeding seedingFromStageStandings = stage.getSeedingsFromPreviousStandings(lastStageStandings);
+            if (seedsFromStageStandings) {
+                seeding = seedingFromStageStandings;
+            } else {
+                standingsBefore = TournamentSpec.mixInStandings(standingsBeforeStages.get(stageNum - 1),
+                        lastStageStandings);
+                seeding = stage.getSeedingsFromPreviousStandings(standingsBefore);
+                seedingsDiffer = !seeding.equals(seedingFromStageStandings);
+            }
+        }
+        StageRun run = stage.startRun(tournamentInternalName, seeding, adminActions,
+                resultsByStage.get(stageNum));
+        stageRuns.add(run);
+        stageEvaluations.add(run.getEvaluation());
+        stageSeedings.add(seeding);
+        standingsBeforeStages.add(standingsBefore);
+        stageSeedingsDiffer.add(seedingsDiffer);
+    }
+
+    private StageEvaluation getLastEvaluation() {
+        return stageEvaluations.get(stageEvaluations.size() - 1);
+    }
+
+    /**
+     * Returns the next matches to run. This is cheaper than getting the whole
+     * snapshot when the standings aren't needed.
+     */
+    public TNextMatchesResult getNextMatchesToRun() {
+        if (stageSeedingsDiffer.contains(true)) {
+            if (runSeededFromStageStandings == null) {
+                runSeededFromStageStandings = new TournamentRun(tournamentInternalName, stages,
+                        adminActions, initialSeeding, true);
+                List<InternalMatchResult> allResults = Lists.newArrayList();
+                for (List<InternalMatchResult> stageResults : resultsByStage) {
+                    allResults.addAll(stageResults);
+                }
+                runSeededFromStageStandings.addResults(allResults);
+            }
+            return runSeededFromStageStandings.getNextMatchesToRun();
+        }
+        TNextMatchesResult nextMatches = getLastEvaluation().getMatchesToRun();
+        if (nextMatches.getMatchesToRun().isEmpty()) {
+            //No stages had matches left; the tournament is over
+            return StandardNextMatchesResult.createEmpty();
+        }
+        return nextMatches;
+    }
+
+    public StandardTournamentSnapshot getSnapshot() {
+        if (snapshot == null) {
+            snapshot = createSnapshot();
+        }
+        return snapshot;
+    }
+
+    private StandardTournamentSnapshot createSnapshot() {
+        //Rankings in the history are only built and mixed in when they're accessed
+        List<StandingsHistory.Page> standingsHistoryPages = Lists.newArrayList();
+        standingsHistoryPages.add(StandingsHistory.pageOf(ImmutableList.<TRanking>of(
+                StandardRanking.createForSeeding(initialSeeding))));
+        for (int stageNum = 0; stageNum < stageRuns.size(); stageNum++) {
+            List<TRanking> stageHistory = stageEvaluations.get(stageNum).getStandingsHistory();
+            if (stageNum == 0) {
+                standingsHistoryPages.add(StandingsHistory.pageOf(stageHistory));
+            } else {
+                standingsHistoryPages.add(new TournamentSpec.CutoffPage(standingsBeforeStages.get(stageNum),
+                        stageSeedings.get(stageNum), stageHistory));
+            }
+        }
+        int lastStageNum = stageRuns.size() - 1;
+        TRanking lastStageStandings = getLastEvaluation().getCurrentStandings(stageSeedings.get(lastStageNum));
+        TRanking standings = TournamentSpec.mixInStandings(standingsBeforeStages.get(lastStageNum),
+                lastStageStandings);
+
+        return StandardTournamentSnapshot.create(getNextMatchesToRun(), standings,
+                StandingsHistory.create(standingsHistoryPages), stageSeedings);
+    }
+}
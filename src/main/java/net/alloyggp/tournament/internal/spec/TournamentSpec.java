@@ -1,17 +1,24 @@
 package net.alloyggp.tournament.internal.spec;
 
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 
 import org.joda.time.DateTime;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
@@ -31,15 +38,24 @@ import net.alloyggp.tournament.api.TRanking;
 import net.alloyggp.tournament.api.TScore;
 import net.alloyggp.tournament.api.TSeeding;
 import net.alloyggp.tournament.api.TTournament;
+import net.alloyggp.tournament.api.TTournamentSnapshot;
 import net.alloyggp.tournament.api.TTournamentSpecParser;
+import net.alloyggp.tournament.internal.Fingerprint;
 import net.alloyggp.tournament.internal.Game;
 import net.alloyggp.tournament.internal.InternalMatchResult;
+import net.alloyggp.tournament.internal.Rankings;
+import net.alloyggp.tournament.internal.SingleFlight;
 import net.alloyggp.tournament.internal.StandardNextMatchesResult;
 import net.alloyggp.tournament.internal.StandardRanking;
+import net.alloyggp.tournament.internal.StandardTournamentSnapshot;
+import net.alloyggp.tournament.internal.StandingsHistory;
 import net.alloyggp.tournament.internal.TimeUtils;
 import net.alloyggp.tournament.internal.YamlUtils;
+import net.alloyggp.tournament.internal.admin.AdminActionIndex;
 import net.alloyggp.tournament.internal.admin.InternalAdminAction;
 import net.alloyggp.tournament.internal.rope.Weavers;
+import net.alloyggp.tournament.internal.runner.StageEvaluation;
+import net.alloyggp.tournament.internal.runner.StageRun;
 
 @Immutable
 public class TournamentSpec implements TTournament {
@@ -47,6 +63,16 @@ public class TournamentSpec implements TTournament {
     private final String tournamentDisplayName;
     private final ImmutableList<StageSpec> stages;
     private final ImmutableList<InternalAdminAction> revisionsApplied; //Tracks application of admin actions.
+    private final AdminActionIndex revisionsIndex;
+    //Memoizes the results of applying single admin actions to this spec. Clients pass
+    //the full list of actions with every call, so this lets each call reuse the specs
+    //built for the list's prefixes. This doesn't affect the spec's observable state.
+    private final Cache<InternalAdminAction, TournamentSpec> appliedSpecs =
+            CacheBuilder.newBuilder().softValues().build();
+    //Coalesces concurrent evaluations of the same state, such as the many requests
+    //for the next matches that arrive as a round ends. The spec's identity covers
+    //the tournament and its admin actions.
+    private final SingleFlight<EvaluationKey, StandardTournamentSnapshot> evaluations = SingleFlight.create();
 //    private final MatchFilter filter;
 
     private TournamentSpec(String tournamentInternalName, String tournamentDisplayName,
@@ -60,6 +86,7 @@ public class TournamentSpec implements TTournament {
         this.tournamentDisplayName = tournamentDisplayName;
         this.stages = stages;
         this.revisionsApplied = revisionsApplied;
+        this.revisionsIndex = AdminActionIndex.create(revisionsApplied);
     }
 
     private static final ImmutableSet<String> ALLOWED_KEYS = ImmutableSet.of(
@@ -135,8 +162,28 @@ public class TournamentSpec implements TTournament {
     }
 
     private TNextMatchesResult getMatchesToRun(TSeeding initialSeeding, Set<TMatchResult> clientResults) {
-        Set<InternalMatchResult> resultsSoFar = handleInputResults(clientResults);
+        return getMatchesToRunForInternalResults(initialSeeding, handleInputResults(clientResults));
+    }
+
+    /**
+     * Note: This is internal code not covered by the API guarantees. Clients should not be
+     * using this directly.
+     *
+     * <p>The results must already have been filtered with {@link #filterInputResult(TMatchResult)}.
+     */
+    public TNextMatchesResult getMatchesToRunForInternalResults(TSeeding initialSeeding,
+            Set<InternalMatchResult> resultsSoFar) {
+        return evaluateForInternalResults(initialSeeding, resultsSoFar).getNextMatchesToRun();
+    }
 
+    /**
+     * Computes the next matches to run, seeding each stage from the standings of the
+     * previous stage alone rather than the combined standings of all previous stages.
+     * This is how the next matches have always been computed, so this is used when the
+     * two seedings differ.
+     */
+    private TNextMatchesResult getMatchesToRunSeededFromStageStandings(TSeeding initialSeeding,
+            Set<InternalMatchResult> resultsSoFar) {
         TRanking standings = null;
         for (int stageNum = 0; stageNum < stages.size(); stageNum++) {
             StageSpec stage = stages.get(stageNum);
@@ -166,24 +213,31 @@ public class TournamentSpec implements TTournament {
     private Set<InternalMatchResult> handleInputResults(Set<TMatchResult> clientResults) {
         Set<InternalMatchResult> filteredResults = Sets.newHashSet();
         for (TMatchResult unformattedResult : clientResults) {
-            InternalMatchResult result = InternalMatchResult.create(unformattedResult);
-            int stageNumber = result.getMatchId().getStageNumber();
-            Comparator<Integer> roundComparator = stages.get(stageNumber).getFormat().getRoundComparator();
-            boolean invalidated = false;
-            for (int i = result.getMatchId().getNumActionsApplied(); i < revisionsApplied.size(); i++) {
-                InternalAdminAction adminAction = revisionsApplied.get(i);
-                if (adminAction.invalidates(result.getMatchId(), roundComparator)) {
-                    invalidated = true;
-                    break;
-                }
-            }
-            if (!invalidated) {
+            InternalMatchResult result = filterInputResult(unformattedResult);
+            if (result != null) {
                 filteredResults.add(result);
             }
         }
         return filteredResults;
     }
 
+    /**
+     * Note: This is internal code not covered by the API guarantees. Clients should not be
+     * using this directly.
+     *
+     * <p>Converts a single client result to its internal form, returning null if one of
+     * the admin actions applied to this tournament invalidates it.
+     */
+    public @Nullable InternalMatchResult filterInputResult(TMatchResult unformattedResult) {
+        InternalMatchResult result = InternalMatchResult.create(unformattedResult);
+        int stageNumber = result.getMatchId().getStageNumber();
+        Comparator<Integer> roundComparator = stages.get(stageNumber).getFormat().getRoundComparator();
+        if (revisionsIndex.isInvalidated(result.getMatchId(), roundComparator)) {
+            return null;
+        }
+        return result;
+    }
+
     @Override
     public TRanking getCurrentStandings(TSeeding initialSeeding,
             Set<TMatchResult> clientResults, List<TAdminAction> adminActions) {
@@ -192,31 +246,21 @@ public class TournamentSpec implements TTournament {
 
     private TRanking getCurrentStandings(TSeeding initialSeeding,
             Set<TMatchResult> clientResults) {
-        Set<InternalMatchResult> resultsSoFar = handleInputResults(clientResults);
+        return getCurrentStandingsForInternalResults(initialSeeding, handleInputResults(clientResults));
+    }
 
-        TRanking standings = null;
-        for (int stageNum = 0; stageNum < stages.size(); stageNum++) {
-            StageSpec stage = stages.get(stageNum);
-            TSeeding seeding;
-            if (stageNum == 0) {
-                seeding = initialSeeding;
-            } else {
-                seeding = stage.getSeedingsFromPreviousStandings(standings);
-            }
-            TNextMatchesResult matchesForStage = stage.getMatchesToRun(tournamentInternalName,
-                    seeding, revisionsApplied, resultsSoFar);
-            standings = mixInStandings(standings,
-                    stage.getCurrentStandings(tournamentInternalName, seeding, revisionsApplied, resultsSoFar));
-            if (!matchesForStage.getMatchesToRun().isEmpty()) {
-                return standings;
-            }
-        }
-        //No stages had matches left; the tournament is over; use the last set of standings
-        Preconditions.checkNotNull(standings);
-        return standings;
+    /**
+     * Note: This is internal code not covered by the API guarantees. Clients should not be
+     * using this directly.
+     *
+     * <p>The results must already have been filtered with {@link #filterInputResult(TMatchResult)}.
+     */
+    public TRanking getCurrentStandingsForInternalResults(TSeeding initialSeeding,
+            Set<InternalMatchResult> resultsSoFar) {
+        return evaluateForInternalResults(initialSeeding, resultsSoFar).getCurrentStandings();
     }
 
-    private TRanking mixInStandings(TRanking oldStandings,
+    /*package-private*/ static TRanking mixInStandings(@Nullable TRanking oldStandings,
             TRanking newStandings) {
         if (oldStandings == null) {
             return newStandings;
@@ -241,6 +285,42 @@ public class TournamentSpec implements TTournament {
         return StandardRanking.create(allPlayerScores);
     }
 
+    /**
+     * The rankings of a stage after the first, with the standings of players
+     * eliminated in earlier stages mixed in.
+     */
+    @Immutable
+    /*package-private*/ static class CutoffPage implements StandingsHistory.Page {
+        private final TRanking oldStandings;
+        private final ImmutableSet<TPlayer> playersInStage;
+        private final ImmutableList<TRanking> stageRankings;
+
+        public CutoffPage(TRanking oldStandings, TSeeding stageSeeding, List<TRanking> stageRankings) {
+            this.oldStandings = oldStandings;
+            this.playersInStage = ImmutableSet.copyOf(stageSeeding.getPlayersBestFirst());
+            this.stageRankings = ImmutableList.copyOf(stageRankings);
+        }
+
+        @Override
+        public int size() {
+            return stageRankings.size();
+        }
+
+        @Override
+        public TRanking getRanking(int index) {
+            return mixInStandings(oldStandings, stageRankings.get(index));
+        }
+
+        @Override
+        public TScore getScore(int index, TPlayer player) {
+            if (playersInStage.contains(player)) {
+                return new CutoffScore(true, Rankings.getScore(stageRankings.get(index), player));
+            } else {
+                return new CutoffScore(false, Rankings.getScore(oldStandings, player));
+            }
+        }
+    }
+
     private static class CutoffScore implements TScore {
         private final boolean madeCutoff;
         private final TScore score;
@@ -345,11 +425,68 @@ public class TournamentSpec implements TTournament {
     }
 
     private List<TRanking> getStandingsHistory(TSeeding initialSeeding, Set<TMatchResult> clientResults) {
-        List<TRanking> result = Lists.newArrayList();
-        result.add(StandardRanking.createForSeeding(initialSeeding));
-        TRanking lastStageFinalRanking = null;
+        return getStandingsHistoryForInternalResults(initialSeeding, handleInputResults(clientResults));
+    }
+
+    /**
+     * Note: This is internal code not covered by the API guarantees. Clients should not be
+     * using this directly.
+     *
+     * <p>The results must already have been filtered with {@link #filterInputResult(TMatchResult)}.
+     */
+    public List<TRanking> getStandingsHistoryForInternalResults(TSeeding initialSeeding,
+            Set<InternalMatchResult> resultsSoFar) {
+        return evaluateForInternalResults(initialSeeding, resultsSoFar).getStandingsHistory();
+    }
+
+    /**
+     * Returns the next matches to run, the current standings, and the history of the
+     * standings in the given tournament state, all together. This is more efficient
+     * than calling {@link #getMatchesToRun(TSeeding, Set, List)},
+     * {@link #getCurrentStandings(TSeeding, Set, List)}, and
+     * {@link #getStandingsHistory(TSeeding, Set, List)} separately.
+     */
+    public TTournamentSnapshot evaluate(TSeeding initialSeeding, Set<TMatchResult> clientResults,
+            List<TAdminAction> adminActions) {
+        return applyInternal(adminActions).evaluate(initialSeeding, clientResults);
+    }
+
+    private TTournamentSnapshot evaluate(TSeeding initialSeeding, Set<TMatchResult> clientResults) {
+        return evaluateForInternalResults(initialSeeding, handleInputResults(clientResults));
+    }
+
+    /**
+     * Note: This is internal code not covered by the API guarantees. Clients should not be
+     * using this directly.
+     *
+     * <p>The results must already have been filtered with {@link #filterInputResult(TMatchResult)}.
+     *
+     * <p>Each stage's format is run once, up to and including the first stage with
+     * matches left to run. Concurrent calls with the same seeding and results share
+     * a single evaluation.
+     */
+    public StandardTournamentSnapshot evaluateForInternalResults(final TSeeding initialSeeding,
+            final Set<InternalMatchResult> resultsSoFar) {
+        EvaluationKey key = new EvaluationKey(initialSeeding.getFingerprint(), Fingerprint.ofResults(resultsSoFar));
+        return evaluations.get(key, new Callable<StandardTournamentSnapshot>() {
+            @Override
+            public StandardTournamentSnapshot call() {
+                return evaluateUncoalesced(initialSeeding, resultsSoFar);
+            }
+        });
+    }
 
-        Set<InternalMatchResult> resultsSoFar = handleInputResults(clientResults);
+    private StandardTournamentSnapshot evaluateUncoalesced(TSeeding initialSeeding,
+            Set<InternalMatchResult> resultsSoFar) {
+        //Rankings in the history are only built and mixed in when they're accessed
+        List<StandingsHistory.Page> standingsHistoryPages = Lists.newArrayList();
+        standingsHistoryPages.add(StandingsHistory.pageOf(ImmutableList.<TRanking>of(
+                StandardRanking.createForSeeding(initialSeeding))));
+        TRanking standings = null;
+        TRanking lastStageStandings = null;
+        boolean seedingsDiffer = false;
+        TNextMatchesResult nextMatches = StandardNextMatchesResult.createEmpty();
+        List<TSeeding> stageSeedings = Lists.newArrayList();
 
         for (int stageNum = 0; stageNum < stages.size(); stageNum++) {
             StageSpec stage = stages.get(stageNum);
@@ -357,21 +494,97 @@ public class TournamentSpec implements TTournament {
             if (stageNum == 0) {
                 seeding = initialSeeding;
             } else {
-                seeding = stage.getSeedingsFromPreviousStandings(lastStageFinalRanking);
+                seeding = stage.getSeedingsFromPreviousStandings(standings);
+                if (!seeding.equals(stage.getSeedingsFromPreviousStandings(lastStageStandings))) {
+                    seedingsDiffer = true;
+                }
             }
-            TNextMatchesResult matchesForStage = stage.getMatchesToRun(tournamentInternalName,
+            stageSeedings.add(seeding);
+            StageEvaluation evaluation = stage.evaluate(tournamentInternalName,
                     seeding, revisionsApplied, resultsSoFar);
-            for (TRanking ranking : stage.getStandingsHistory(tournamentInternalName, seeding, revisionsApplied, resultsSoFar)) {
-                result.add(mixInStandings(lastStageFinalRanking, ranking));
+            if (standings == null) {
+                standingsHistoryPages.add(StandingsHistory.pageOf(evaluation.getStandingsHistory()));
+            } else {
+                standingsHistoryPages.add(new CutoffPage(standings, seeding, evaluation.getStandingsHistory()));
             }
-            if (!matchesForStage.getMatchesToRun().isEmpty()) {
-                return result;
+            lastStageStandings = evaluation.getCurrentStandings(seeding);
+            standings = mixInStandings(standings, lastStageStandings);
+            if (!evaluation.getMatchesToRun().getMatchesToRun().isEmpty()) {
+                nextMatches = evaluation.getMatchesToRun();
+                break;
             }
-            lastStageFinalRanking = mixInStandings(lastStageFinalRanking,
-                    stage.getCurrentStandings(tournamentInternalName,
-                    seeding, revisionsApplied, resultsSoFar));
         }
-        return result;
+        if (seedingsDiffer) {
+            nextMatches = getMatchesToRunSeededFromStageStandings(initialSeeding, resultsSoFar);
+        }
+        Preconditions.checkNotNull(standings);
+        return StandardTournamentSnapshot.create(nextMatches, standings,
+                StandingsHistory.create(standingsHistoryPages), stageSeedings);
+    }
+
+    /**
+     * Note: This is internal code not covered by the API guarantees. Clients should not be
+     * using this directly.
+     *
+     * <p>Starts a {@link TournamentRun} with the given results, which must already have
+     * been filtered with {@link #filterInputResult(TMatchResult)}.
+     */
+    public TournamentRun startRun(TSeeding initialSeeding, Collection<InternalMatchResult> resultsSoFar) {
+        TournamentRun run = new TournamentRun(tournamentInternalName, stages, revisionsApplied,
+                initialSeeding, false);
+        run.addResults(resultsSoFar);
+        return run;
+    }
+
+    /**
+     * Note: This is internal code not covered by the API guarantees. Clients should not be
+     * using this directly.
+     *
+     * <p>Continues a {@link TournamentRun} of the spec that the given admin action was
+     * applied to in order to get this one. The runs of the stages before the first stage
+     * the action affects are kept; the later stages are started again from their results.
+     * The results must already have been filtered with this spec's
+     * {@link #filterInputResult(TMatchResult)}. The previous run should not be used afterwards.
+     */
+    public TournamentRun continueRun(TournamentRun previousRun, InternalAdminAction action,
+            TSeeding initialSeeding, Collection<InternalMatchResult> resultsSoFar) {
+        Preconditions.checkArgument(!revisionsApplied.isEmpty()
+                && revisionsApplied.get(revisionsApplied.size() - 1).equals(action),
+                "The action must be the last one applied to this spec");
+        int numStagesToKeep = 0;
+        while (numStagesToKeep < stages.size() && !action.affectsStage(numStagesToKeep)) {
+            numStagesToKeep++;
+        }
+        TournamentRun run = new TournamentRun(tournamentInternalName, stages, revisionsApplied,
+                initialSeeding, false);
+        run.continueFrom(previousRun, numStagesToKeep, resultsSoFar);
+        return run;
+    }
+
+    /**
+     * Note: This is internal code not covered by the API guarantees. Clients should not be
+     * using this directly.
+     *
+     * <p>Runs the format of a single stage, given the seeding of that stage as found
+     * by {@link #evaluateForInternalResults(TSeeding, Set)}.
+     */
+    public StageEvaluation evaluateStage(int stageNum, TSeeding stageSeeding,
+            Set<InternalMatchResult> resultsSoFar) {
+        return stages.get(stageNum).evaluate(tournamentInternalName, stageSeeding,
+                revisionsApplied, resultsSoFar);
+    }
+
+    /**
+     * Note: This is internal code not covered by the API guarantees. Clients should not be
+     * using this directly.
+     *
+     * <p>Starts a run of a single stage, given the seeding of that stage as found
+     * by {@link #evaluateForInternalResults(TSeeding, Set)} and the results from that stage.
+     */
+    public StageRun startStageRun(int stageNum, TSeeding stageSeeding,
+            Collection<InternalMatchResult> resultsInStage) {
+        return stages.get(stageNum).startRun(tournamentInternalName, stageSeeding,
+                revisionsApplied, resultsInStage);
     }
 
     @Override
@@ -400,15 +613,32 @@ public class TournamentSpec implements TTournament {
         return applyInternal((InternalAdminAction) action);
     }
 
-    private TournamentSpec applyInternal(InternalAdminAction action) {
+    private TournamentSpec applyInternal(final InternalAdminAction action) {
+        try {
+            return appliedSpecs.get(action, new Callable<TournamentSpec>() {
+                @Override
+                public TournamentSpec call() {
+                    return applyUncached(action);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private TournamentSpec applyUncached(InternalAdminAction action) {
+        //Share the stages that the action doesn't change
+        boolean changed = false;
         ImmutableList.Builder<StageSpec> newStages = ImmutableList.builder();
         for (StageSpec stage : stages) {
-            newStages.add(stage.apply(action));
+            StageSpec newStage = stage.apply(action);
+            changed |= (newStage != stage);
+            newStages.add(newStage);
         }
         List<InternalAdminAction> newRevisions = Lists.newArrayList(revisionsApplied);
         newRevisions.add(action);
         return new TournamentSpec(tournamentInternalName, tournamentDisplayName,
-                newStages.build(), ImmutableList.copyOf(newRevisions));
+                changed ? newStages.build() : stages, ImmutableList.copyOf(newRevisions));
     }
 
     /**
@@ -427,7 +657,6 @@ public class TournamentSpec implements TTournament {
             }
             internalActions.add((InternalAdminAction) action);
         }
-        //TODO: This may not be the most efficient way to apply this
         TournamentSpec spec = this;
         for (InternalAdminAction action : internalActions) {
             spec = spec.applyInternal(action);
@@ -435,4 +664,40 @@ public class TournamentSpec implements TTournament {
 
         return spec;
     }
+
+    @Immutable
+    private static class EvaluationKey {
+        private final Fingerprint initialSeeding;
+        private final Fingerprint resultsSoFar;
+
+        public EvaluationKey(Fingerprint initialSeeding, Fingerprint resultsSoFar) {
+            this.initialSeeding = initialSeeding;
+            this.resultsSoFar = resultsSoFar;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + initialSeeding.hashCode();
+            result = prime * result + resultsSoFar.hashCode();
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            EvaluationKey other = (EvaluationKey) obj;
+            return initialSeeding.equals(other.initialSeeding)
+                    && resultsSoFar.equals(other.resultsSoFar);
+        }
+    }
 }
@@ -0,0 +1,85 @@
+package net.alloyggp.tournament;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import net.alloyggp.tournament.api.TGame;
+import net.alloyggp.tournament.internal.Game;
+import net.alloyggp.tournament.internal.MatchId;
+import net.alloyggp.tournament.internal.admin.AdminActionIndex;
+import net.alloyggp.tournament.internal.admin.InternalAdminAction;
+import net.alloyggp.tournament.internal.admin.ReplaceGameAction;
+import net.alloyggp.tournament.internal.spec.StageFormat;
+
+public class AdminActionIndexTest {
+    private static final TGame CURVEBALL = Game.create("curveball",
+            "http://games.ggp.org/base/games/curveball/", 2, true);
+
+    @Test
+    public void testAgreesWithCheckingEachAction() {
+        Random random = new Random(0L);
+        for (int trial = 0; trial < 200; trial++) {
+            ImmutableList.Builder<InternalAdminAction> actionsBuilder = ImmutableList.builder();
+            int numActions = random.nextInt(8);
+            for (int i = 0; i < numActions; i++) {
+                actionsBuilder.add(ReplaceGameAction.create(random.nextInt(3), random.nextInt(4),
+                        random.nextInt(3), CURVEBALL));
+            }
+            ImmutableList<InternalAdminAction> actions = actionsBuilder.build();
+            AdminActionIndex index = AdminActionIndex.create(actions);
+            for (StageFormat format : StageFormat.values()) {
+                Comparator<Integer> roundComparator = format.getRoundComparator();
+                for (int stage = 0; stage < 4; stage++) {
+                    for (int round = 0; round < 5; round++) {
+                        for (int match = 0; match < 4; match++) {
+                            int expected = getNumActionsApplied(actions, stage, round, match, roundComparator);
+                            assertEquals(expected, index.getNumActionsApplied(stage, round, match, roundComparator));
+                            for (int numApplied = 0; numApplied <= numActions; numApplied++) {
+                                MatchId matchId = MatchId.create(numApplied, stage, round, 0, match, 0);
+                                assertEquals(isInvalidated(actions, matchId, roundComparator),
+                                        index.isInvalidated(matchId, roundComparator));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSameListSharesIndex() {
+        ImmutableList<InternalAdminAction> actions = ImmutableList.<InternalAdminAction>of(
+                ReplaceGameAction.create(1, 1, 4, CURVEBALL));
+        assertSame(AdminActionIndex.create(actions), AdminActionIndex.create(actions));
+    }
+
+    private static int getNumActionsApplied(List<InternalAdminAction> actions,
+            int stage, int round, int match, Comparator<Integer> roundComparator) {
+        MatchId matchId = MatchId.create(0, stage, round, 0, match, 0);
+        int numActionsApplied = 0;
+        for (int i = 0; i < actions.size(); i++) {
+            if (actions.get(i).invalidates(matchId, roundComparator)) {
+                numActionsApplied = i + 1;
+            }
+        }
+        return numActionsApplied;
+    }
+
+    private static boolean isInvalidated(List<InternalAdminAction> actions, MatchId matchId,
+            Comparator<Integer> roundComparator) {
+        for (int i = matchId.getNumActionsApplied(); i < actions.size(); i++) {
+            if (actions.get(i).invalidates(matchId, roundComparator)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
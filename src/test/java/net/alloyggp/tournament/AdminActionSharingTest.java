@@ -0,0 +1,55 @@
+package net.alloyggp.tournament;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import net.alloyggp.tournament.api.TAdminAction;
+import net.alloyggp.tournament.api.TGame;
+import net.alloyggp.tournament.internal.Game;
+import net.alloyggp.tournament.internal.admin.ReplaceGameAction;
+import net.alloyggp.tournament.internal.spec.StageSpec;
+import net.alloyggp.tournament.internal.spec.TournamentSpec;
+
+/**
+ * Tests that applying admin actions reuses the specs built for earlier
+ * calls, and shares the parts of the spec that the actions don't change.
+ */
+public class AdminActionSharingTest {
+    private static final TGame CURVEBALL = Game.create("curveball",
+            "http://games.ggp.org/base/games/curveball/", 2, true);
+
+    @Test
+    public void testSameActionsGiveSameSpec() {
+        TournamentSpec spec = TestSpecs.load("swiss2SingleElimTest1");
+        List<TAdminAction> actions = ImmutableList.<TAdminAction>of(
+                ReplaceGameAction.create(1, 1, 4, CURVEBALL),
+                ReplaceGameAction.create(1, 2, 0, CURVEBALL));
+        assertSame(spec.apply(actions), spec.apply(actions));
+        //Equal actions in a new list also reuse the spec
+        List<TAdminAction> equalActions = ImmutableList.<TAdminAction>of(
+                ReplaceGameAction.create(1, 1, 4, CURVEBALL),
+                ReplaceGameAction.create(1, 2, 0, CURVEBALL));
+        assertSame(spec.apply(actions), spec.apply(equalActions));
+    }
+
+    @Test
+    public void testUnchangedStagesAreShared() {
+        TournamentSpec spec = TestSpecs.load("swiss2SingleElimTest1");
+        TournamentSpec newSpec = (TournamentSpec) spec.apply(ReplaceGameAction.create(1, 1, 4, CURVEBALL));
+
+        assertSame(spec.getStages().get(0), newSpec.getStages().get(0));
+        StageSpec oldStage = spec.getStages().get(1);
+        StageSpec newStage = newSpec.getStages().get(1);
+        assertNotSame(oldStage, newStage);
+        assertSame(oldStage.getRounds().get(0), newStage.getRounds().get(0));
+        assertNotSame(oldStage.getRounds().get(1), newStage.getRounds().get(1));
+        assertSame(oldStage.getRounds().get(1).getMatches().get(0),
+                newStage.getRounds().get(1).getMatches().get(0));
+    }
+}
@@ -0,0 +1,124 @@
+package net.alloyggp.tournament;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import net.alloyggp.tournament.api.TMatchSetup;
+import net.alloyggp.tournament.api.TPlayer;
+import net.alloyggp.tournament.api.TPlayerScore;
+import net.alloyggp.tournament.api.TRanking;
+import net.alloyggp.tournament.api.TScore;
+import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.api.TTournamentStatus;
+import net.alloyggp.tournament.internal.CompactRanking;
+import net.alloyggp.tournament.internal.PlayerIndex;
+import net.alloyggp.tournament.internal.Rankings;
+import net.alloyggp.tournament.internal.SimpleScore;
+import net.alloyggp.tournament.internal.StandardRanking;
+import net.alloyggp.tournament.internal.rope.Weavers;
+
+public class CompactRankingTest {
+    @Test
+    public void testAgreesWithStandardRanking() {
+        Random random = new Random(0L);
+        for (int trial = 0; trial < 100; trial++) {
+            int numPlayers = 1 + random.nextInt(50);
+            TSeeding seeding = FuzzTests.createRandomSeeding(random, numPlayers);
+            //A narrow range of scores produces many ties, which are broken by seed
+            int[] scores = new int[numPlayers];
+            List<TPlayerScore> playerScores = Lists.newArrayList();
+            for (int seed = 0; seed < numPlayers; seed++) {
+                scores[seed] = random.nextInt(5) - 2;
+                playerScores.add(TPlayerScore.create(seeding.getPlayersBestFirst().get(seed),
+                        SimpleScore.create(scores[seed]), seed));
+            }
+            TRanking compact = CompactRanking.create(PlayerIndex.create(seeding.getPlayersBestFirst()),
+                    new SimplePackedScores(scores));
+            TRanking standard = StandardRanking.create(playerScores);
+
+            assertEquals(ImmutableList.copyOf(standard.getScores()), ImmutableList.copyOf(compact.getScores()));
+            assertEquals(standard.getPlayersBestFirst(), compact.getPlayersBestFirst());
+            assertEquals(standard, compact);
+            assertEquals(compact, standard);
+            assertEquals(standard.hashCode(), compact.hashCode());
+            for (TPlayer player : seeding.getPlayersBestFirst()) {
+                assertEquals(standard.getPosition(player), compact.getPosition(player));
+                assertEquals(Rankings.getScore(standard, player), Rankings.getScore(compact, player));
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTripsThroughWeavers() {
+        for (String testSpec : ImmutableList.of("swiss1test1", "swiss2test1", "swiss3test1", "singleElim")) {
+            Random random = new Random(testSpec.hashCode());
+            TSeeding seeding = FuzzTests.createRandomSeeding(random, 9);
+            TTournamentStatus status = TTournamentStatus.getInitialStatus(TestSpecs.load(testSpec), seeding);
+            while (!status.isComplete()) {
+                TMatchSetup matchToResolve = FuzzTests.pickMatchAtRandom(random,
+                        status.getNextMatchesToRun().getMatchesToRun());
+                status = status.withNewResult(FuzzTests.getResult(random, matchToResolve));
+                for (TRanking ranking : status.getStandingsHistory()) {
+                    if (ranking instanceof CompactRanking) {
+                        TRanking restored = Weavers.CACHED_RANKING.fromRope(Weavers.CACHED_RANKING.toRope(ranking));
+                        assertTrue(restored instanceof CompactRanking);
+                        assertEquals(ranking, restored);
+                        assertEquals(ranking.toString(), restored.toString());
+                    }
+                    TRanking standard = Weavers.RANKING.fromRope(Weavers.RANKING.toRope(ranking));
+                    assertEquals(ranking, standard);
+                    assertEquals(standard.hashCode(), ranking.hashCode());
+                }
+            }
+            assertTrue(status.getCurrentStandings() instanceof CompactRanking);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingPlayerRejected() {
+        TSeeding seeding = FuzzTests.createRandomSeeding(new Random(0L), 5);
+        CompactRanking.create(PlayerIndex.create(seeding.getPlayersBestFirst()),
+                new SimplePackedScores(new int[5])).getPosition(TPlayer.create("notInRanking"));
+    }
+
+    private static class SimplePackedScores implements CompactRanking.PackedScores {
+        private final int[] scores;
+
+        public SimplePackedScores(int[] scores) {
+            this.scores = scores;
+        }
+
+        @Override
+        public int size() {
+            return scores.length;
+        }
+
+        @Override
+        public long getSortKey(int seed) {
+            return scores[seed];
+        }
+
+        @Override
+        public TScore getScore(int seed) {
+            return SimpleScore.create(scores[seed]);
+        }
+
+        @Override
+        public int getScoreHashCode(int seed) {
+            return getScore(seed).hashCode();
+        }
+
+        @Override
+        public long getPackedBytes() {
+            return 4L * scores.length;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package net.alloyggp.tournament;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import net.alloyggp.tournament.api.TCutoffAnalysis;
+import net.alloyggp.tournament.api.TCutoffAnalysis.Status;
+import net.alloyggp.tournament.api.TMatchResult;
+import net.alloyggp.tournament.api.TMatchSetup;
+import net.alloyggp.tournament.api.TPlayer;
+import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.api.TTournament;
+import net.alloyggp.tournament.api.TTournamentStatus;
+import net.alloyggp.tournament.internal.InternalMatchResult;
+import net.alloyggp.tournament.internal.MatchId;
+import net.alloyggp.tournament.internal.spec.TournamentSpec;
+
+public class CutoffAnalysisTest {
+    private static final ImmutableList<String> TEST_SPECS = ImmutableList.of(
+            "swiss1SingleElimTest1", "swiss2SingleElimTest1", "excludedPlayersTest1", "swiss3test1",
+            "singleElimTwoStages");
+
+    /*
+     * Plays out random tournaments, analyzing them after every few results, and
+     * checks that every outcome reported as guaranteed or impossible came true
+     * or didn't.
+     */
+    @Test
+    public void testDecidedOutcomesHold() {
+        int numDecided = 0;
+        for (String testSpec : TEST_SPECS) {
+            for (long seed = 0L; seed < 3L; seed++) {
+                Random random = new Random(seed);
+                TTournament spec = TestSpecs.load(testSpec);
+                TTournamentStatus status = TTournamentStatus.getInitialStatus(spec,
+                        FuzzTests.createRandomSeeding(random, 7 + random.nextInt(6)));
+                List<TCutoffAnalysis> analyses = Lists.newArrayList();
+                while (!status.isComplete()) {
+                    if (random.nextInt(3) == 0) {
+                        analyses.add(TCutoffAnalysis.analyze(status));
+                    }
+                    TMatchSetup match = FuzzTests.pickMatchAtRandom(random,
+                            status.getNextMatchesToRun().getMatchesToRun());
+                    status = status.withNewResult(TMatchResult.getSuccessfulMatchResult(match.getMatchId(),
+                            FuzzTests.getGoals(random, match.getGame())));
+                }
+                for (TCutoffAnalysis analysis : analyses) {
+                    numDecided += checkAgainstOutcome(analysis, status);
+                }
+            }
+        }
+        assertTrue(numDecided > 0);
+    }
+
+    @Test
+    public void testCompletedStageIsExact() {
+        Random random = new Random(0L);
+        TTournamentStatus status = TTournamentStatus.getInitialStatus(TestSpecs.load("swiss2test1"),
+                FuzzTests.createRandomSeeding(random, 8));
+        while (!status.isComplete()) {
+            for (TMatchSetup match : status.getNextMatchesToRun().getMatchesToRun()) {
+                status = status.withNewResult(TMatchResult.getSuccessfulMatchResult(match.getMatchId(),
+                        FuzzTests.getGoals(random, match.getGame())));
+            }
+        }
+        TCutoffAnalysis analysis = TCutoffAnalysis.analyze(status);
+        TPlayer winner = status.getCurrentStandings().getPlayersBestFirst().get(0);
+        for (TPlayer player : status.getCurrentStandings().getPlayersBestFirst()) {
+            assertEquals(player.equals(winner) ? Status.GUARANTEED : Status.IMPOSSIBLE,
+                    analysis.getStageWinStatus(player));
+        }
+    }
+
+    @Test
+    public void testSingleEliminationInProgressIsUndecided() {
+        TTournamentStatus status = TTournamentStatus.getInitialStatus(TestSpecs.load("singleElim"),
+                FuzzTests.createRandomSeeding(new Random(0L), 8));
+        TCutoffAnalysis analysis = TCutoffAnalysis.analyze(status);
+        for (TPlayer player : status.getInitialSeeding().getPlayersBestFirst()) {
+            assertEquals(Status.POSSIBLE, analysis.getStageWinStatus(player));
+        }
+    }
+
+    @Test
+    public void testSingleEliminationLosersCannotWin() {
+        TTournamentStatus status = TTournamentStatus.getInitialStatus(TestSpecs.load("singleElim"),
+                FuzzTests.createRandomSeeding(new Random(0L), 8));
+        Random random = new Random(0L);
+        int firstRoundNumber = getRoundNumber(status);
+        while (getRoundNumber(status) == firstRoundNumber) {
+            for (TMatchSetup match : status.getNextMatchesToRun().getMatchesToRun()) {
+                status = status.withNewResult(TMatchResult.getSuccessfulMatchResult(match.getMatchId(),
+                        FuzzTests.getGoals(random, match.getGame())));
+            }
+        }
+        Set<TPlayer> playersLeft = Sets.newHashSet();
+        for (TMatchSetup match : status.getNextMatchesToRun().getMatchesToRun()) {
+            playersLeft.addAll(match.getPlayers());
+        }
+        assertEquals(4, playersLeft.size());
+        TCutoffAnalysis analysis = TCutoffAnalysis.analyze(status);
+        for (TPlayer player : status.getInitialSeeding().getPlayersBestFirst()) {
+            assertEquals(playersLeft.contains(player) ? Status.POSSIBLE : Status.IMPOSSIBLE,
+                    analysis.getStageWinStatus(player));
+        }
+    }
+
+    /*
+     * One player wins the first round outright and the other match is drawn, so
+     * the player who lost can at best tie the winner. That takes the winner losing
+     * the second round, and in a fixed-sum game their opponent then finishes ahead
+     * of both of them.
+     */
+    @Test
+    public void testFixedSumGoalsAreRespected() {
+        TTournamentStatus status = TTournamentStatus.getInitialStatus(TestSpecs.load("swiss2test8"),
+                FuzzTests.createRandomSeeding(new Random(0L), 4));
+        List<TMatchSetup> firstRound = Lists.newArrayList(status.getNextMatchesToRun().getMatchesToRun());
+        assertEquals(2, firstRound.size());
+        status = status.withNewResult(TMatchResult.getSuccessfulMatchResult(
+                firstRound.get(0).getMatchId(), ImmutableList.of(100, 0)));
+        status = status.withNewResult(TMatchResult.getSuccessfulMatchResult(
+                firstRound.get(1).getMatchId(), ImmutableList.of(50, 50)));
+        TPlayer loser = firstRound.get(0).getPlayers().get(1);
+
+        TCutoffAnalysis analysis = TCutoffAnalysis.analyze(status);
+        for (TPlayer player : status.getInitialSeeding().getPlayersBestFirst()) {
+            assertEquals(player.equals(loser) ? Status.IMPOSSIBLE : Status.POSSIBLE,
+                    analysis.getStageWinStatus(player));
+        }
+    }
+
+    private static int getRoundNumber(TTournamentStatus status) {
+        TMatchSetup match = status.getNextMatchesToRun().getMatchesToRun().iterator().next();
+        return MatchId.create(match.getMatchId()).getRoundNumber();
+    }
+
+    /*
+     * Returns the number of outcomes the analysis reported as guaranteed or impossible.
+     */
+    private static int checkAgainstOutcome(TCutoffAnalysis analysis, TTournamentStatus finalStatus) {
+        TournamentSpec spec = (TournamentSpec) finalStatus.getSpec();
+        Set<InternalMatchResult> results = InternalMatchResult.convertResults(finalStatus.getResultsSoFar());
+        List<TSeeding> stageSeedings = spec.evaluateForInternalResults(finalStatus.getInitialSeeding(), results)
+                .getStageSeedings();
+        int stageNum = analysis.getStageNum();
+        TSeeding stageSeeding = stageSeedings.get(stageNum);
+        TPlayer stageWinner = spec.evaluateStage(stageNum, stageSeeding, results)
+                .getCurrentStandings(stageSeeding).getPlayersBestFirst().get(0);
+        Set<TPlayer> advancingPlayers = Sets.newHashSet();
+        if (analysis.hasNextStage()) {
+            advancingPlayers.addAll(stageSeedings.get(stageNum + 1).getPlayersBestFirst());
+        }
+
+        int numDecided = 0;
+        for (TPlayer player : finalStatus.getInitialSeeding().getPlayersBestFirst()) {
+            numDecided += check(analysis.getStageWinStatus(player), player.equals(stageWinner));
+            if (analysis.hasNextStage()) {
+                numDecided += check(analysis.getAdvancementStatus(player), advancingPlayers.contains(player));
+            }
+        }
+        return numDecided;
+    }
+
+    private static int check(Status status, boolean happened) {
+        if (status == Status.GUARANTEED) {
+            assertTrue(happened);
+            return 1;
+        } else if (status == Status.IMPOSSIBLE) {
+            assertTrue(!happened);
+            return 1;
+        }
+        return 0;
+    }
+}
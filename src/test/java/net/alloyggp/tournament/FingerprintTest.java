@@ -0,0 +1,63 @@
+package net.alloyggp.tournament;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import net.alloyggp.tournament.api.TMatchResult;
+import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.internal.Fingerprint;
+import net.alloyggp.tournament.internal.InternalMatchResult;
+
+public class FingerprintTest {
+    private static final InternalMatchResult RESULT_1 = InternalMatchResult.create(
+            TMatchResult.getSuccessfulMatchResult("ggpt-0-0-0-0-0", ImmutableList.of(100, 0)));
+    private static final InternalMatchResult RESULT_2 = InternalMatchResult.create(
+            TMatchResult.getSuccessfulMatchResult("ggpt-0-0-0-1-0", ImmutableList.of(50, 50)));
+    private static final InternalMatchResult RESULT_2_ALTERNATE = InternalMatchResult.create(
+            TMatchResult.getSuccessfulMatchResult("ggpt-0-0-0-1-0", ImmutableList.of(0, 100)));
+    private static final InternalMatchResult RESULT_3 = InternalMatchResult.create(
+            TMatchResult.getAbortedMatchResult("ggpt-0-1-0-0-0"));
+
+    @Test
+    public void testResultSetFingerprintIsOrderIndependent() {
+        assertEquals(Fingerprint.ofResults(ImmutableList.of(RESULT_1, RESULT_2, RESULT_3)),
+                Fingerprint.ofResults(ImmutableList.of(RESULT_3, RESULT_1, RESULT_2)));
+    }
+
+    @Test
+    public void testResultSetFingerprintIsIncremental() {
+        Fingerprint fingerprint = Fingerprint.EMPTY;
+        List<InternalMatchResult> results = Lists.newArrayList();
+        for (InternalMatchResult result : ImmutableList.of(RESULT_1, RESULT_2, RESULT_3)) {
+            fingerprint = fingerprint.plus(result.getFingerprint());
+            results.add(result);
+            assertEquals(Fingerprint.ofResults(results), fingerprint);
+        }
+        assertEquals(Fingerprint.ofResults(ImmutableList.of(RESULT_1, RESULT_3)),
+                fingerprint.minus(RESULT_2.getFingerprint()));
+    }
+
+    @Test
+    public void testResultFingerprintDependsOnGoals() {
+        assertEquals(RESULT_2.getFingerprint(), InternalMatchResult.create(
+                TMatchResult.getSuccessfulMatchResult("ggpt-0-0-0-1-0", ImmutableList.of(50, 50))).getFingerprint());
+        assertNotEquals(RESULT_2.getFingerprint(), RESULT_2_ALTERNATE.getFingerprint());
+        assertNotEquals(Fingerprint.ofResults(ImmutableList.of(RESULT_1, RESULT_2)),
+                Fingerprint.ofResults(ImmutableList.of(RESULT_1, RESULT_2_ALTERNATE)));
+    }
+
+    @Test
+    public void testSeedingFingerprintDependsOnOrder() {
+        TSeeding seeding = TSeeding.create(FuzzTests.createPlayers(5));
+        assertEquals(seeding.getFingerprint(), TSeeding.create(FuzzTests.createPlayers(5)).getFingerprint());
+        assertNotEquals(seeding.getFingerprint(),
+                TSeeding.create(Lists.reverse(FuzzTests.createPlayers(5))).getFingerprint());
+    }
+}
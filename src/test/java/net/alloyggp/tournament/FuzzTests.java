@@ -74,6 +74,10 @@ public class FuzzTests {
                 new Object[] {7, "swiss2test6"},
                 new Object[] {7, "swiss2test7"},
                 new Object[] {8, "swiss2test7"},
+                new Object[] {10, "swiss3test1"},
+                new Object[] {9, "swiss3test1"},
+                new Object[] {6, "swiss3test6"},
+                new Object[] {7, "swiss3test6"},
                 new Object[] {5, "excludedPlayersTest1"},
                 new Object[] {6, "excludedPlayersTest1"},
                 new Object[] {7, "excludedPlayersTest1"},
@@ -96,7 +100,10 @@ public class FuzzTests {
         return TMatchResult.getSuccessfulMatchResult(match.getMatchId(), goals);
     }
 
-    private static List<Integer> getGoals(Random random, TGame game) {
+    /**
+     * Returns randomized goal values for a successful match of the given game.
+     */
+    public static List<Integer> getGoals(Random random, TGame game) {
         if (game.getNumRoles() == 1) {
             return ImmutableList.of(getOneGoalValue(random));
         } else if (game.getNumRoles() == 2) {
@@ -1,9 +1,15 @@
 package net.alloyggp.tournament;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableList;
+
+import net.alloyggp.tournament.api.TMatchResult;
+import net.alloyggp.tournament.internal.InternalMatchResult;
 import net.alloyggp.tournament.internal.MatchId;
 import net.alloyggp.tournament.internal.MatchIds;
 
@@ -33,6 +39,55 @@ public class MatchIdsTest {
         MatchId.create(1, 0, -1, 0, 1, 0);
     }
 
+    @Test
+    public void testEqualResultsShareParsedIds() {
+        InternalMatchResult result = InternalMatchResult.create(
+                TMatchResult.getSuccessfulMatchResult("ggpt-0-1-2-3-4", ImmutableList.of(100, 0)));
+        assertSame(result, InternalMatchResult.create(
+                TMatchResult.getSuccessfulMatchResult("ggpt-0-1-2-3-4", ImmutableList.of(100, 0))));
+        assertEquals(MatchId.create(0, 0, 1, 2, 3, 4), result.getMatchId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidResultIdRejected() {
+        InternalMatchResult.create(TMatchResult.getAbortedMatchResult("ggpt-0-1-2-3"));
+    }
+
+    @Test
+    public void testStringFormIsKept() {
+        MatchId matchId = MatchId.create("ggpta-6-5-4-3-2-1");
+        assertSame(matchId.toString(), matchId.toString());
+        assertEquals(MatchId.create(6, 5, 4, 3, 2, 1), matchId);
+        assertEquals("ggpt-0-1-2-3-4", MatchId.create(0, 0, 1, 2, 3, 4).toString());
+    }
+
+    @Test
+    public void testNonCanonicalFormsAreRewritten() {
+        assertEquals("ggpt-0-1-2-3-4", MatchId.create("ggpt-00-1-2-03-4").toString());
+        assertEquals("ggpt-0-1-2-3-4", MatchId.create("ggpta-0-0-1-2-3-4").toString());
+    }
+
+    @Test
+    public void testNumActionsAppliedParsedInBothStyles() {
+        assertEquals(0, MatchIds.parseNumActionsApplied("ggpt-0-1-2-3-4"));
+        assertEquals(6, MatchIds.parseNumActionsApplied("ggpta-6-5-4-3-2-1"));
+    }
+
+    @Test
+    public void testMalformedIdsRejected() {
+        for (String matchId : ImmutableList.of("", "ggpt-", "ggpt-0-1-2-3", "ggpt-0-1-2-3-4-5",
+                "ggpta-6-5-4-3-2", "ggpt-0-1-2-3-4-", "ggpt--0-1-2-3-4", "ggpt-0-1-2-3--4",
+                "ggpt-0-1-2-3-x", "ggpt-0-1-2-3-4 ", "ggpt-0-1-2-3-+4", "ggpt-0-1-2-3-99999999999",
+                "ggpt-0-1-2-3-\u0664", "xggpt-0-1-2-3-4", "GGPT-0-1-2-3-4")) {
+            try {
+                MatchId.create(matchId);
+                fail("Parsed invalid match ID " + matchId);
+            } catch (IllegalArgumentException e) {
+                //Expected
+            }
+        }
+    }
+
     private void testParsing(int numAdminActions, int stage,
             int round, int playerMatching, int match, int attempt) {
         String matchId = MatchId.create(numAdminActions, stage,
@@ -0,0 +1,105 @@
+package net.alloyggp.tournament;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import net.alloyggp.tournament.internal.MatchupCounts;
+import net.alloyggp.tournament.internal.rope.Weavers;
+
+public class MatchupCountsTest {
+    @Test
+    public void testCountsAreSymmetric() {
+        MatchupCounts counts = MatchupCounts.create(5);
+        counts.increment(1, 3);
+        counts.increment(3, 1);
+        counts.add(4, 0, 3);
+        assertEquals(2, counts.get(1, 3));
+        assertEquals(2, counts.get(3, 1));
+        assertEquals(3, counts.get(0, 4));
+        assertEquals(0, counts.get(0, 1));
+        assertEquals(0, counts.get(2, 2));
+    }
+
+    @Test
+    public void testEveryPairIsCountedSeparately() {
+        int numPlayers = 7;
+        MatchupCounts counts = MatchupCounts.create(numPlayers);
+        for (int i = 0; i < numPlayers; i++) {
+            for (int j = 0; j < i; j++) {
+                counts.add(i, j, 10 * i + j);
+            }
+        }
+        for (int i = 0; i < numPlayers; i++) {
+            for (int j = 0; j < i; j++) {
+                assertEquals(10 * i + j, counts.get(j, i));
+            }
+        }
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        MatchupCounts counts = MatchupCounts.create(4);
+        counts.increment(0, 2);
+        MatchupCounts copy = counts.copy();
+        assertEquals(counts, copy);
+        counts.increment(0, 2);
+        assertEquals(1, copy.get(0, 2));
+        assertNotEquals(counts, copy);
+    }
+
+    @Test
+    public void testCopiesAreIndependentInBothDirections() {
+        MatchupCounts counts = MatchupCounts.create(4);
+        counts.increment(1, 3);
+        MatchupCounts copy = counts.copy();
+        MatchupCounts copyOfCopy = copy.copy();
+        copy.increment(0, 1);
+        counts.increment(2, 3);
+        assertEquals(0, counts.get(0, 1));
+        assertEquals(0, copy.get(2, 3));
+        assertEquals(1, copy.get(0, 1));
+        assertEquals(1, copyOfCopy.get(1, 3));
+        assertEquals(1, copyOfCopy.getNumPairsMatchedUp());
+    }
+
+    @Test
+    public void testSizeDependsOnPairsMatchedUp() {
+        int numPlayers = 100000;
+        MatchupCounts counts = MatchupCounts.create(numPlayers);
+        for (int i = 0; i + 1 < numPlayers; i += 2) {
+            counts.increment(i, i + 1);
+        }
+        assertEquals(numPlayers / 2, counts.getNumPairsMatchedUp());
+        assertEquals(1, counts.get(numPlayers - 1, numPlayers - 2));
+        assertEquals(0, counts.get(0, numPlayers - 1));
+        assertTrue(counts.getPackedBytes() < 100L * numPlayers);
+    }
+
+    @Test
+    public void testMatchedUpPairsAreOrdered() {
+        MatchupCounts counts = MatchupCounts.create(6);
+        counts.add(5, 2, 2);
+        counts.increment(0, 1);
+        counts.increment(4, 3);
+        counts.add(3, 4, -1);
+        counts.increment(0, 5);
+        assertArrayEquals(new int[] {0, 1, 1, 0, 5, 1, 2, 5, 2}, counts.getMatchedUpPairs());
+    }
+
+    @Test
+    public void testWeaverRoundTrip() {
+        MatchupCounts counts = MatchupCounts.create(6);
+        counts.increment(0, 5);
+        counts.add(2, 3, 4);
+        assertEquals(counts, Weavers.MATCHUP_COUNTS.fromRope(Weavers.MATCHUP_COUNTS.toRope(counts)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSelfMatchupRejected() {
+        MatchupCounts.create(3).increment(1, 1);
+    }
+}
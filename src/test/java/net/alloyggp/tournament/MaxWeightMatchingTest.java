@@ -0,0 +1,150 @@
+package net.alloyggp.tournament;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.alloyggp.tournament.internal.matching.MaxWeightMatching;
+
+public class MaxWeightMatchingTest {
+    @Test
+    public void testPrefersHeavierEdge() {
+        int[] mates = MaxWeightMatching.computeMates(4,
+                new int[] {0, 1, 2}, new int[] {1, 2, 3}, new long[] {5, 11, 5}, false);
+        assertArrayEquals(new int[] {-1, 2, 1, -1}, mates);
+    }
+
+    @Test
+    public void testMaxCardinalityOverridesWeight() {
+        int[] mates = MaxWeightMatching.computeMates(4,
+                new int[] {0, 1, 2}, new int[] {1, 2, 3}, new long[] {5, 11, 5}, true);
+        assertArrayEquals(new int[] {1, 0, 3, 2}, mates);
+    }
+
+    @Test
+    public void testNestedBlossoms() {
+        //A blossom nested within another blossom; vertex 0 is isolated
+        int[] mates = MaxWeightMatching.computeMates(7,
+                new int[] {1, 1, 2, 2, 3, 4, 5}, new int[] {2, 3, 3, 4, 5, 5, 6},
+                new long[] {9, 9, 10, 8, 8, 10, 6}, false);
+        assertArrayEquals(new int[] {-1, 3, 4, 1, 2, 6, 5}, mates);
+    }
+
+    @Test
+    public void testMatchesBruteForceOnRandomGraphs() {
+        Random random = new Random(0L);
+        for (int trial = 0; trial < 2000; trial++) {
+            int numVertices = 1 + random.nextInt(10);
+            boolean[][] adjacent = new boolean[numVertices][numVertices];
+            long[][] weightMatrix = new long[numVertices][numVertices];
+            int maxEdges = numVertices * (numVertices - 1) / 2;
+            int numEdges = (maxEdges == 0) ? 0 : random.nextInt(maxEdges + 1);
+            int[] ends1 = new int[numEdges];
+            int[] ends2 = new int[numEdges];
+            long[] weights = new long[numEdges];
+            int k = 0;
+            while (k < numEdges) {
+                int i = random.nextInt(numVertices);
+                int j = random.nextInt(numVertices);
+                if (i == j || adjacent[i][j]) {
+                    continue;
+                }
+                adjacent[i][j] = adjacent[j][i] = true;
+                //A narrow range of weights produces many ties and blossoms
+                weightMatrix[i][j] = weightMatrix[j][i] = random.nextInt(8);
+                ends1[k] = i;
+                ends2[k] = j;
+                weights[k] = weightMatrix[i][j];
+                k++;
+            }
+            for (boolean maxCardinality : new boolean[] {false, true}) {
+                int[] mates = MaxWeightMatching.computeMates(numVertices, ends1, ends2, weights, maxCardinality);
+                long[] best = getBestCardinalityAndWeight(adjacent, weightMatrix, new boolean[numVertices], 0, maxCardinality);
+                assertEquals(best[0], getCardinalityAndWeight(mates, adjacent, weightMatrix, maxCardinality)[0]);
+                assertEquals(best[1], getCardinalityAndWeight(mates, adjacent, weightMatrix, maxCardinality)[1]);
+            }
+        }
+    }
+
+    @Test
+    public void testFindsMinimumCostPerfectMatching() {
+        Random random = new Random(1L);
+        for (int trial = 0; trial < 1000; trial++) {
+            //Complete graphs on an even number of vertices, as for Swiss pairings
+            int numVertices = 2 + 2 * random.nextInt(5);
+            int numEdges = numVertices * (numVertices - 1) / 2;
+            boolean[][] adjacent = new boolean[numVertices][numVertices];
+            long[][] weightMatrix = new long[numVertices][numVertices];
+            int[] ends1 = new int[numEdges];
+            int[] ends2 = new int[numEdges];
+            long[] weights = new long[numEdges];
+            int k = 0;
+            for (int i = 0; i < numVertices; i++) {
+                for (int j = i + 1; j < numVertices; j++) {
+                    adjacent[i][j] = adjacent[j][i] = true;
+                    long cost = random.nextInt(20) * random.nextInt(20);
+                    weightMatrix[i][j] = weightMatrix[j][i] = 400 - cost;
+                    ends1[k] = i;
+                    ends2[k] = j;
+                    weights[k] = 400 - cost;
+                    k++;
+                }
+            }
+            int[] mates = MaxWeightMatching.computeMates(numVertices, ends1, ends2, weights, true);
+            long[] best = getBestCardinalityAndWeight(adjacent, weightMatrix, new boolean[numVertices], 0, true);
+            assertEquals(numVertices / 2, best[0]);
+            assertArrayEquals(best, getCardinalityAndWeight(mates, adjacent, weightMatrix, true));
+        }
+    }
+
+    private static long[] getCardinalityAndWeight(int[] mates, boolean[][] adjacent, long[][] weightMatrix,
+            boolean maxCardinality) {
+        long cardinality = 0;
+        long weight = 0;
+        for (int v = 0; v < mates.length; v++) {
+            int mate = mates[v];
+            if (mate != -1) {
+                assertEquals(v, mates[mate]);
+                assertEquals(true, adjacent[v][mate]);
+                if (v < mate) {
+                    cardinality++;
+                    weight += weightMatrix[v][mate];
+                }
+            }
+        }
+        return new long[] {maxCardinality ? cardinality : 0, weight};
+    }
+
+    //Returns the best (cardinality, weight) over matchings of the vertices from
+    //first onwards that aren't already used, comparing cardinality first only
+    //if maxCardinality is set
+    private static long[] getBestCardinalityAndWeight(boolean[][] adjacent, long[][] weightMatrix,
+            boolean[] used, int first, boolean maxCardinality) {
+        int v = first;
+        while (v < used.length && used[v]) {
+            v++;
+        }
+        if (v == used.length) {
+            return new long[] {0, 0};
+        }
+        used[v] = true;
+        //Leave v unmatched
+        long[] best = getBestCardinalityAndWeight(adjacent, weightMatrix, used, v + 1, maxCardinality);
+        for (int w = v + 1; w < used.length; w++) {
+            if (!used[w] && adjacent[v][w]) {
+                used[w] = true;
+                long[] rest = getBestCardinalityAndWeight(adjacent, weightMatrix, used, v + 1, maxCardinality);
+                long[] candidate = new long[] {rest[0] + (maxCardinality ? 1 : 0), rest[1] + weightMatrix[v][w]};
+                if (candidate[0] > best[0] || (candidate[0] == best[0] && candidate[1] > best[1])) {
+                    best = candidate;
+                }
+                used[w] = false;
+            }
+        }
+        used[v] = false;
+        return best;
+    }
+}
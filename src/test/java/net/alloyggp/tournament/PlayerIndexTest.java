@@ -0,0 +1,50 @@
+package net.alloyggp.tournament;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import net.alloyggp.tournament.api.TPlayer;
+import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.internal.PlayerIndex;
+
+public class PlayerIndexTest {
+    @Test
+    public void testPlayersAreInterned() {
+        assertSame(TPlayer.create("player1"), TPlayer.create("player1"));
+        //Build the ID at runtime so it isn't the same string constant
+        assertSame(TPlayer.create("player1"), TPlayer.create(new StringBuilder("player").append(1).toString()));
+    }
+
+    @Test
+    public void testPersistedSeedingUsesInternedPlayers() {
+        TSeeding seeding = FuzzTests.createRandomSeeding(new Random(0L), 10);
+        TSeeding restored = TSeeding.fromPersistedString(seeding.toPersistedString());
+        for (int i = 0; i < 10; i++) {
+            assertSame(seeding.getPlayersBestFirst().get(i), restored.getPlayersBestFirst().get(i));
+        }
+    }
+
+    @Test
+    public void testIndicesFollowSeedOrder() {
+        TSeeding seeding = FuzzTests.createRandomSeeding(new Random(0L), 10);
+        PlayerIndex index = PlayerIndex.create(seeding.getPlayersBestFirst());
+        assertSame(index, PlayerIndex.create(ImmutableList.copyOf(seeding.getPlayersBestFirst())));
+        for (int i = 0; i < 10; i++) {
+            TPlayer player = seeding.getPlayersBestFirst().get(i);
+            assertEquals(i, index.getIndex(player));
+            assertSame(player, index.get(i));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingPlayerRejected() {
+        TSeeding seeding = FuzzTests.createRandomSeeding(new Random(0L), 5);
+        PlayerIndex.create(seeding.getPlayersBestFirst()).getIndex(TPlayer.create("notInIndex"));
+    }
+}
@@ -0,0 +1,86 @@
+package net.alloyggp.tournament;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import net.alloyggp.tournament.api.TMatchResult;
+import net.alloyggp.tournament.api.TMatchSetup;
+import net.alloyggp.tournament.api.TRanking;
+import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.api.TTournament;
+import net.alloyggp.tournament.api.TTournamentStatus;
+import net.alloyggp.tournament.internal.StandardRanking;
+import net.alloyggp.tournament.internal.rope.Weavers;
+import net.alloyggp.tournament.internal.runner.TournamentStateCache;
+import net.alloyggp.tournament.internal.runner.TournamentStateCacheConfig;
+
+/**
+ * Compares the heap used by the standings history of a large Swiss tournament,
+ * as held in its cached end-of-round states, against the same standings stored
+ * as {@link StandardRanking}s. Many copies of each are made, so that the
+ * difference in used heap is dominated by the rankings themselves.
+ */
+public class RankingHeapEval {
+    private static final int NUM_PLAYERS = 400;
+    private static final int NUM_COPIES = 50;
+
+    public static void main(String[] args) {
+        TournamentStateCache.configure(TournamentStateCacheConfig.getDefault()
+                .withMaximumWeight(1024L * 1024L * 1024L));
+        TTournament spec = TestSpecs.load("swiss2test1");
+        Random random = new Random(0L);
+        TSeeding initialSeeding = FuzzTests.createRandomSeeding(random, NUM_PLAYERS);
+        TTournamentStatus status = TTournamentStatus.getInitialStatus(spec, initialSeeding);
+        while (!status.isComplete()) {
+            Set<TMatchResult> results = Sets.newHashSet();
+            for (TMatchSetup match : status.getNextMatchesToRun().getMatchesToRun()) {
+                results.add(FuzzTests.getResult(random, match));
+            }
+            status = status.withNewResults(results);
+        }
+        //Skip the initial seeding, which isn't held by the format
+        List<TRanking> history = status.getStandingsHistory();
+        history = history.subList(1, history.size());
+        System.out.println(NUM_PLAYERS + " players, " + history.size() + " rankings");
+
+        long before = getUsedHeap();
+        List<List<TRanking>> compactCopies = Lists.newArrayList();
+        for (int i = 0; i < NUM_COPIES; i++) {
+            List<TRanking> copy = Lists.newArrayList();
+            for (TRanking ranking : history) {
+                copy.add(Weavers.RANKING.fromRope(Weavers.RANKING.toRope(ranking)));
+            }
+            compactCopies.add(copy);
+        }
+        long compactBytes = getUsedHeap() - before;
+
+        before = getUsedHeap();
+        List<List<TRanking>> standardCopies = Lists.newArrayList();
+        for (int i = 0; i < NUM_COPIES; i++) {
+            List<TRanking> copy = Lists.newArrayList();
+            for (TRanking ranking : history) {
+                copy.add(StandardRanking.create(ranking.getScores()));
+            }
+            standardCopies.add(copy);
+        }
+        long standardBytes = getUsedHeap() - before;
+
+        long numPlayerRankings = (long) NUM_COPIES * history.size() * NUM_PLAYERS;
+        System.out.println("  Compact:  " + compactBytes / numPlayerRankings + " bytes per player per ranking");
+        System.out.println("  Standard: " + standardBytes / numPlayerRankings + " bytes per player per ranking");
+        //Keep the copies reachable until both have been measured
+        System.out.println("  (" + (compactCopies.size() + standardCopies.size()) + " copies)");
+    }
+
+    private static long getUsedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,140 @@
+package net.alloyggp.tournament;
+
+import java.util.Random;
+import java.util.Set;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+
+import net.alloyggp.tournament.api.TMatchResult;
+import net.alloyggp.tournament.api.TMatchResult.Outcome;
+import net.alloyggp.tournament.internal.InternalMatchResult;
+import net.alloyggp.tournament.internal.MatchId;
+import net.alloyggp.tournament.internal.runner.RoundResultIndex;
+
+/**
+ * Compares the time the Swiss formats take to look up the results of each
+ * match in a round using the {@link RoundResultIndex} against the linear scans
+ * over the round's results that they used to perform.
+ */
+public class RoundResultIndexEval {
+    private static final int NUM_WARMUP_ITERATIONS = 200;
+    private static final int NUM_ITERATIONS = 200;
+
+    public static void main(String[] args) {
+        for (int numPlayers : ImmutableList.of(256, 1024)) {
+            int numGroups = numPlayers / 2;
+            Set<InternalMatchResult> roundResults = createRoundResults(new Random(numPlayers), numGroups);
+            System.out.println(numPlayers + " players, " + roundResults.size() + " results in the round");
+
+            //Check that both give the same answers
+            RoundResultIndex checkIndex = RoundResultIndex.create(roundResults);
+            for (int groupNum = 0; groupNum < numGroups; groupNum++) {
+                if (!checkIndex.getAttemptNumberIfUnfinished(groupNum, 0).equals(
+                        getAttemptNumberIfUnfinished(groupNum, 0, roundResults))) {
+                    throw new IllegalStateException("Mismatch for group " + groupNum);
+                }
+            }
+
+            runIndexed(roundResults, numGroups, NUM_WARMUP_ITERATIONS);
+            runLinearScan(roundResults, numGroups, NUM_WARMUP_ITERATIONS);
+
+            long start = System.nanoTime();
+            int numUnfinished = runIndexed(roundResults, numGroups, NUM_ITERATIONS);
+            long indexedNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int linearUnfinished = runLinearScan(roundResults, numGroups, NUM_ITERATIONS);
+            long linearNanos = System.nanoTime() - start;
+
+            System.out.println("  Indexed:     " + (indexedNanos / NUM_ITERATIONS / 1000) + " us/round ("
+                    + numUnfinished / NUM_ITERATIONS + " unfinished)");
+            System.out.println("  Linear scan: " + (linearNanos / NUM_ITERATIONS / 1000) + " us/round ("
+                    + linearUnfinished / NUM_ITERATIONS + " unfinished)");
+        }
+    }
+
+    private static int runIndexed(Set<InternalMatchResult> roundResults, int numGroups, int numIterations) {
+        int numUnfinished = 0;
+        for (int i = 0; i < numIterations; i++) {
+            RoundResultIndex index = RoundResultIndex.create(roundResults);
+            for (int groupNum = 0; groupNum < numGroups; groupNum++) {
+                if (index.getAttemptNumberIfUnfinished(groupNum, 0).isPresent()) {
+                    numUnfinished++;
+                } else {
+                    index.getSuccessfulAttempt(groupNum, 0);
+                }
+            }
+        }
+        return numUnfinished;
+    }
+
+    private static int runLinearScan(Set<InternalMatchResult> roundResults, int numGroups, int numIterations) {
+        int numUnfinished = 0;
+        for (int i = 0; i < numIterations; i++) {
+            for (int groupNum = 0; groupNum < numGroups; groupNum++) {
+                if (getAttemptNumberIfUnfinished(groupNum, 0, roundResults).isPresent()) {
+                    numUnfinished++;
+                } else {
+                    getSuccessfulAttempt(groupNum, 0, roundResults);
+                }
+            }
+        }
+        return numUnfinished;
+    }
+
+    /**
+     * Creates a round in which each group has a few aborted attempts, and most
+     * groups have finished their match.
+     */
+    private static Set<InternalMatchResult> createRoundResults(Random random, int numGroups) {
+        Set<InternalMatchResult> results = Sets.newHashSet();
+        for (int groupNum = 0; groupNum < numGroups; groupNum++) {
+            int numAborted = random.nextInt(3);
+            for (int attempt = 0; attempt < numAborted; attempt++) {
+                String matchId = MatchId.create(0, 0, 0, groupNum, 0, attempt).toString();
+                results.add(InternalMatchResult.create(TMatchResult.getAbortedMatchResult(matchId)));
+            }
+            if (random.nextInt(10) > 0) {
+                String matchId = MatchId.create(0, 0, 0, groupNum, 0, numAborted).toString();
+                int goal = random.nextInt(101);
+                results.add(InternalMatchResult.create(
+                        TMatchResult.getSuccessfulMatchResult(matchId, ImmutableList.of(goal, 100 - goal))));
+            }
+        }
+        return results;
+    }
+
+    //The previous lookups, which scan all the results in the round
+    private static Optional<Integer> getAttemptNumberIfUnfinished(int groupNum, int matchNum,
+            Set<InternalMatchResult> roundResults) {
+        int attemptsSoFar = 0;
+        for (InternalMatchResult result : roundResults) {
+            MatchId matchId = result.getMatchId();
+            if (groupNum == matchId.getPlayerMatchingNumber()
+                    && matchNum == matchId.getMatchNumber()) {
+                if (result.getOutcome() == Outcome.ABORTED) {
+                    attemptsSoFar++;
+                } else {
+                    return Optional.absent();
+                }
+            }
+        }
+        return Optional.of(attemptsSoFar);
+    }
+
+    private static InternalMatchResult getSuccessfulAttempt(int groupNum, int matchNum,
+            Set<InternalMatchResult> roundResults) {
+        for (InternalMatchResult result : roundResults) {
+            if (result.getOutcome() == Outcome.COMPLETED) {
+                MatchId matchId = result.getMatchId();
+                if (groupNum == matchId.getPlayerMatchingNumber()
+                        && matchNum == matchId.getMatchNumber()) {
+                    return result;
+                }
+            }
+        }
+        throw new IllegalArgumentException("No successful attempts found");
+    }
+}
@@ -0,0 +1,122 @@
+package net.alloyggp.tournament;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.google.common.collect.Lists;
+
+import net.alloyggp.tournament.api.TMatchResult;
+import net.alloyggp.tournament.api.TMatchSetup;
+import net.alloyggp.tournament.api.TPlayer;
+import net.alloyggp.tournament.api.TRanking;
+import net.alloyggp.tournament.api.TScore;
+import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.api.TTournament;
+import net.alloyggp.tournament.api.TTournamentSession;
+import net.alloyggp.tournament.api.TTournamentSnapshot;
+import net.alloyggp.tournament.api.TTournamentStatus;
+import net.alloyggp.tournament.internal.MatchId;
+import net.alloyggp.tournament.internal.Rankings;
+import net.alloyggp.tournament.internal.spec.TournamentSpec;
+
+/**
+ * This is a fuzz test for the following invariant:
+ *
+ * <p>A {@link TTournamentSession} gives the same answers as the
+ * {@link TTournamentStatus} with the same results after every
+ * new result or admin action.
+ *
+ * <p>It also checks that a snapshot's score history for each player agrees
+ * with the snapshot's standings history.
+ */
+@RunWith(Parameterized.class)
+public class SessionConsistencyTest {
+    @Parameters(name = "{index}: {0} players, {1}")
+    public static Iterable<Object[]> data() {
+        return FuzzTests.getParameters();
+    }
+
+    private final int numPlayers;
+    private final String testSpec;
+
+    public SessionConsistencyTest(int numPlayers, String testSpec) {
+        this.numPlayers = numPlayers;
+        this.testSpec = testSpec;
+    }
+
+    @Test
+    public void testSessionMatchesStatus() {
+        TTournament spec = TestSpecs.load(testSpec);
+        for (long seed = 0L; seed < 20L; seed++) {
+            try {
+                Random random = new Random(seed);
+                TSeeding initialSeeding = FuzzTests.createRandomSeeding(random, numPlayers);
+                TTournamentStatus status = TTournamentStatus.getInitialStatus(spec, initialSeeding);
+                TTournamentSession session = status.createSession();
+                int numStages = ((TournamentSpec) spec).getStages().size();
+                int numAdminActions = 0;
+                while (true) {
+                    assertEquals(status.getNextMatchesToRun().getMatchesToRun(),
+                            session.getNextMatchesToRun().getMatchesToRun());
+                    assertEquals(status.getCurrentStandings(), session.getCurrentStandings());
+                    assertEquals(status.getStandingsHistory(), session.getStandingsHistory());
+                    assertEquals(status.getResultsSoFar(), session.getStatus().getResultsSoFar());
+
+                    TTournamentSnapshot snapshot = status.evaluate();
+                    //Look up the score histories before any standings are built
+                    List<List<TScore>> scoreHistories = Lists.newArrayList();
+                    for (TPlayer player : initialSeeding.getPlayersBestFirst()) {
+                        scoreHistories.add(snapshot.getScoreHistory(player));
+                    }
+                    assertEquals(status.getNextMatchesToRun().getMatchesToRun(),
+                            snapshot.getNextMatchesToRun().getMatchesToRun());
+                    assertEquals(status.getCurrentStandings(), snapshot.getCurrentStandings());
+                    assertEquals(status.getStandingsHistory(), snapshot.getStandingsHistory());
+                    for (int i = 0; i < numPlayers; i++) {
+                        TPlayer player = initialSeeding.getPlayersBestFirst().get(i);
+                        List<TScore> expected = Lists.newArrayList();
+                        for (TRanking ranking : snapshot.getStandingsHistory()) {
+                            expected.add(Rankings.getScore(ranking, player));
+                        }
+                        assertEquals(expected, scoreHistories.get(i));
+                        assertEquals(expected, snapshot.getScoreHistory(player));
+                    }
+                    assertEquals(status.isComplete(), session.evaluate().isComplete());
+
+                    Set<TMatchSetup> nextMatches = status.getNextMatchesToRun().getMatchesToRun();
+                    if (nextMatches.isEmpty()) {
+                        break;
+                    }
+                    TMatchSetup matchToResolve = FuzzTests.pickMatchAtRandom(random, nextMatches);
+                    if (numAdminActions < 3 && random.nextDouble() < 0.05) {
+                        //Invalidate either the current round or the start of the next stage
+                        MatchId matchId = MatchId.create(matchToResolve.getMatchId());
+                        TestAdminAction action;
+                        if (random.nextBoolean() && matchId.getStageNumber() + 1 < numStages) {
+                            action = TestAdminAction.create(matchId.getStageNumber() + 1, 0);
+                        } else {
+                            action = TestAdminAction.create(matchId.getStageNumber(), matchId.getRoundNumber());
+                        }
+                        status = status.apply(action);
+                        session.apply(action);
+                        numAdminActions++;
+                        continue;
+                    }
+                    TMatchResult result = FuzzTests.getResult(random, matchToResolve);
+                    status = status.withNewResult(result);
+                    session.addResult(result);
+                }
+            } catch (Exception | AssertionError e) {
+                throw new RuntimeException("Seed was " + seed, e);
+            }
+        }
+    }
+}
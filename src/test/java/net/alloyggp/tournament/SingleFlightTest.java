@@ -0,0 +1,113 @@
+package net.alloyggp.tournament;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import net.alloyggp.tournament.internal.SingleFlight;
+
+public class SingleFlightTest {
+    private static final int NUM_CALLERS = 16;
+
+    @Test
+    public void testConcurrentCallersShareOneComputation() throws Exception {
+        final SingleFlight<String, Object> singleFlight = SingleFlight.create();
+        final AtomicInteger numComputations = new AtomicInteger();
+        final CountDownLatch finishComputation = new CountDownLatch(1);
+        final Callable<Object> computation = new Callable<Object>() {
+            @Override
+            public Object call() {
+                numComputations.incrementAndGet();
+                Uninterruptibles.awaitUninterruptibly(finishComputation);
+                return new Object();
+            }
+        };
+        List<Future<Object>> futures = runCallers(singleFlight, computation, finishComputation);
+        Object result = futures.get(0).get();
+        for (Future<Object> future : futures) {
+            assertSame(result, future.get());
+        }
+        assertEquals(1, numComputations.get());
+        assertEquals(0, singleFlight.getNumInFlight());
+
+        //Finished computations aren't kept
+        assertTrue(result != singleFlight.get("key", computation));
+        assertEquals(2, numComputations.get());
+    }
+
+    @Test
+    public void testExceptionReachesEveryCaller() throws Exception {
+        final SingleFlight<String, Object> singleFlight = SingleFlight.create();
+        final CountDownLatch finishComputation = new CountDownLatch(1);
+        Callable<Object> computation = new Callable<Object>() {
+            @Override
+            public Object call() {
+                Uninterruptibles.awaitUninterruptibly(finishComputation);
+                throw new IllegalStateException("expected");
+            }
+        };
+        for (Future<Object> future : runCallers(singleFlight, computation, finishComputation)) {
+            try {
+                future.get();
+                fail("Expected an exception");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+        assertEquals(0, singleFlight.getNumInFlight());
+    }
+
+    /*
+     * Starts the callers, lets the computation finish once they are all waiting
+     * on it, and returns their futures.
+     */
+    private static List<Future<Object>> runCallers(final SingleFlight<String, Object> singleFlight,
+            final Callable<Object> computation, CountDownLatch finishComputation) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(NUM_CALLERS);
+        try {
+            final CountDownLatch callersStarted = new CountDownLatch(NUM_CALLERS);
+            List<Future<Object>> futures = Lists.newArrayList();
+            for (int i = 0; i < NUM_CALLERS; i++) {
+                futures.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        callersStarted.countDown();
+                        return singleFlight.get("key", computation);
+                    }
+                }));
+            }
+            callersStarted.await();
+            //Give the callers time to reach the shared computation
+            while (singleFlight.getNumInFlight() == 0) {
+                Thread.sleep(1);
+            }
+            Thread.sleep(100);
+            finishComputation.countDown();
+            for (Future<Object> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    //Checked by the caller
+                }
+            }
+            return futures;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
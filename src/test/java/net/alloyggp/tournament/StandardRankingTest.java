@@ -0,0 +1,67 @@
+package net.alloyggp.tournament;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import net.alloyggp.tournament.api.TPlayer;
+import net.alloyggp.tournament.api.TPlayerScore;
+import net.alloyggp.tournament.api.TRanking;
+import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.internal.Rankings;
+import net.alloyggp.tournament.internal.StandardRanking;
+
+public class StandardRankingTest {
+    @Test
+    public void testLookupsAgreeWithScores() {
+        TSeeding seeding = FuzzTests.createRandomSeeding(new Random(0L), 50);
+        StandardRanking ranking = StandardRanking.createForSeeding(seeding);
+        List<TPlayerScore> scores = ImmutableList.copyOf(ranking.getScores());
+        List<TPlayer> playersBestFirst = ranking.getPlayersBestFirst();
+        assertEquals(scores.size(), playersBestFirst.size());
+        for (int i = 0; i < scores.size(); i++) {
+            TPlayer player = scores.get(i).getPlayer();
+            assertEquals(player, playersBestFirst.get(i));
+            assertEquals(i + 1, ranking.getPosition(player));
+            assertEquals(scores.get(i).getScore(), ranking.getScore(player));
+        }
+    }
+
+    @Test
+    public void testScoreLookupWorksForOtherRankings() {
+        TSeeding seeding = FuzzTests.createRandomSeeding(new Random(0L), 10);
+        final StandardRanking standard = StandardRanking.createForSeeding(seeding);
+        //A ranking implemented outside the library
+        TRanking other = new TRanking() {
+            @Override
+            public SortedSet<TPlayerScore> getScores() {
+                return standard.getScores();
+            }
+
+            @Override
+            public List<TPlayer> getPlayersBestFirst() {
+                return standard.getPlayersBestFirst();
+            }
+
+            @Override
+            public int getPosition(TPlayer player) {
+                return standard.getPosition(player);
+            }
+        };
+        for (TPlayer player : seeding.getPlayersBestFirst()) {
+            assertEquals(standard.getScore(player), Rankings.getScore(other, player));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingPlayerRejected() {
+        TSeeding seeding = FuzzTests.createRandomSeeding(new Random(0L), 5);
+        StandardRanking.createForSeeding(seeding).getScore(TPlayer.create("notInRanking"));
+    }
+}
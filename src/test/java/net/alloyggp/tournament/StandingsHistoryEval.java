@@ -0,0 +1,78 @@
+package net.alloyggp.tournament;
+
+import java.util.Random;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+
+import net.alloyggp.tournament.api.TMatchSetup;
+import net.alloyggp.tournament.api.TPlayer;
+import net.alloyggp.tournament.api.TRanking;
+import net.alloyggp.tournament.api.TScore;
+import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.api.TTournament;
+import net.alloyggp.tournament.api.TTournamentSnapshot;
+import net.alloyggp.tournament.api.TTournamentStatus;
+import net.alloyggp.tournament.internal.runner.TournamentStateCache;
+import net.alloyggp.tournament.internal.runner.TournamentStateCacheConfig;
+
+/**
+ * Compares the cost of building every ranking in the standings history of a
+ * finished two-stage tournament with a large field, as every history request
+ * used to, against looking up a single player's score history. Each iteration
+ * starts from a fresh snapshot, and the evaluation itself isn't timed.
+ */
+public class StandingsHistoryEval {
+    private static final int NUM_PLAYERS = 400;
+    private static final int NUM_WARMUP_ITERATIONS = 50;
+    private static final int NUM_ITERATIONS = 50;
+
+    public static void main(String[] args) {
+        TournamentStateCache.configure(TournamentStateCacheConfig.getDefault()
+                .withMaximumWeight(1024L * 1024L * 1024L));
+        TTournament spec = TestSpecs.load("swiss2SingleElimTest1");
+        Random random = new Random(0L);
+        TSeeding initialSeeding = FuzzTests.createRandomSeeding(random, NUM_PLAYERS);
+        TTournamentStatus status = TTournamentStatus.getInitialStatus(spec, initialSeeding);
+        while (!status.isComplete()) {
+            Set<TMatchSetup> nextMatches = status.getNextMatchesToRun().getMatchesToRun();
+            TMatchSetup matchToResolve = FuzzTests.pickMatchAtRandom(random, nextMatches);
+            status = status.withNewResult(FuzzTests.getResult(random, matchToResolve));
+        }
+        TPlayer player = initialSeeding.getPlayersBestFirst().get(NUM_PLAYERS - 1);
+        System.out.println(NUM_PLAYERS + " players, "
+                + status.evaluate().getStandingsHistory().size() + " standings in the history");
+
+        for (boolean fullHistory : ImmutableList.of(true, false)) {
+            run(status, player, fullHistory, NUM_WARMUP_ITERATIONS);
+        }
+        for (boolean fullHistory : ImmutableList.of(true, false)) {
+            long nanos = run(status, player, fullHistory, NUM_ITERATIONS);
+            System.out.println((fullHistory ? "  Full history:      " : "  One score history: ")
+                    + (nanos / NUM_ITERATIONS / 1000) + " us");
+        }
+    }
+
+    private static long run(TTournamentStatus status, TPlayer player, boolean fullHistory, int numIterations) {
+        long totalNanos = 0;
+        int total = 0;
+        for (int i = 0; i < numIterations; i++) {
+            TTournamentSnapshot snapshot = status.evaluate();
+            long start = System.nanoTime();
+            if (fullHistory) {
+                for (TRanking ranking : snapshot.getStandingsHistory()) {
+                    total += ranking.getPosition(player);
+                }
+            } else {
+                for (TScore score : snapshot.getScoreHistory(player)) {
+                    total += score.hashCode() & 1;
+                }
+            }
+            totalNanos += System.nanoTime() - start;
+        }
+        if (total == 42) {
+            System.out.println("(Keeping the lookups live)");
+        }
+        return totalNanos;
+    }
+}
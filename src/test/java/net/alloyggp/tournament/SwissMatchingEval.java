@@ -0,0 +1,90 @@
+package net.alloyggp.tournament;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import net.alloyggp.tournament.api.TMatchResult;
+import net.alloyggp.tournament.api.TMatchSetup;
+import net.alloyggp.tournament.api.TPlayer;
+import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.api.TTournament;
+import net.alloyggp.tournament.api.TTournamentStatus;
+import net.alloyggp.tournament.internal.runner.TournamentStateCache;
+import net.alloyggp.tournament.internal.runner.TournamentStateCacheConfig;
+
+/**
+ * Compares the greedy pairings of the swiss2 format with the matching-based
+ * pairings of the swiss3 format: the time taken to pair each round of a large
+ * two-player tournament, and the number of rematches in many small ones, where
+ * rematches are hard to avoid. The two specs are otherwise identical, and both
+ * are given the same match results.
+ */
+public class SwissMatchingEval {
+    private static final int NUM_PLAYERS = 2000;
+    private static final int NUM_SMALL_PLAYERS = 10;
+    private static final int NUM_SMALL_TOURNAMENTS = 200;
+
+    public static void main(String[] args) {
+        TournamentStateCache.configure(TournamentStateCacheConfig.getDefault()
+                .withMaximumWeight(1024L * 1024L * 1024L));
+        for (String specName : ImmutableList.of("swiss2test1", "swiss3test1")) {
+            //Warm up on a smaller field first
+            runTournament(TestSpecs.load(specName), 200, 200, false);
+        }
+        for (String specName : ImmutableList.of("swiss2test1", "swiss3test1")) {
+            System.out.println(specName + ", " + NUM_PLAYERS + " players:");
+            runTournament(TestSpecs.load(specName), NUM_PLAYERS, NUM_PLAYERS, true);
+        }
+        for (String specName : ImmutableList.of("swiss2test1", "swiss3test1")) {
+            int rematches = 0;
+            for (int seed = 0; seed < NUM_SMALL_TOURNAMENTS; seed++) {
+                rematches += runTournament(TestSpecs.load(specName), NUM_SMALL_PLAYERS, seed, false);
+            }
+            System.out.println(specName + ", " + NUM_SMALL_TOURNAMENTS + " tournaments of "
+                    + NUM_SMALL_PLAYERS + " players: " + rematches + " rematches");
+        }
+    }
+
+    /**
+     * Runs the tournament to completion with random results and returns the
+     * total number of rematches.
+     */
+    private static int runTournament(TTournament spec, int numPlayers, long seed, boolean print) {
+        Random random = new Random(seed);
+        TSeeding initialSeeding = FuzzTests.createRandomSeeding(random, numPlayers);
+        TTournamentStatus status = TTournamentStatus.getInitialStatus(spec, initialSeeding);
+        Set<Set<TPlayer>> pairsSoFar = Sets.newHashSet();
+        int totalRematches = 0;
+        int round = 0;
+        while (!status.isComplete()) {
+            long start = System.nanoTime();
+            Set<TMatchSetup> matchesToRun = status.getNextMatchesToRun().getMatchesToRun();
+            long nanos = System.nanoTime() - start;
+            int rematches = 0;
+            Set<TMatchResult> results = Sets.newHashSet();
+            for (TMatchSetup match : matchesToRun) {
+                List<TPlayer> players = match.getPlayers();
+                if (!pairsSoFar.add(ImmutableSet.copyOf(players))) {
+                    rematches++;
+                }
+                //No aborted matches, so each batch of results completes a round
+                int goal = random.nextInt(3) * 50;
+                results.add(TMatchResult.getSuccessfulMatchResult(match.getMatchId(),
+                        ImmutableList.of(goal, 100 - goal)));
+            }
+            if (print) {
+                System.out.println("  Round " + round + ": " + (nanos / 1000000) + " ms to pair "
+                        + matchesToRun.size() + " matches, " + rematches + " rematches");
+            }
+            status = status.withNewResults(results);
+            totalRematches += rematches;
+            round++;
+        }
+        return totalRematches;
+    }
+}
@@ -0,0 +1,61 @@
+package net.alloyggp.tournament;
+
+import java.util.Random;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+
+import net.alloyggp.tournament.api.TMatchResult;
+import net.alloyggp.tournament.api.TMatchSetup;
+import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.api.TTournament;
+import net.alloyggp.tournament.api.TTournamentStatus;
+import net.alloyggp.tournament.internal.runner.TournamentStateCache;
+import net.alloyggp.tournament.internal.runner.TournamentStateCacheConfig;
+
+/**
+ * Measures how long the Swiss format takes to pair each round of a
+ * two-player tournament with a large field. Each round's results are added
+ * all at once, so each measurement covers the scoring of one round and the
+ * pairing of the next; the earlier rounds come from the state cache.
+ */
+public class SwissPairingEval {
+    private static final int NUM_ROUNDS = 5;
+
+    public static void main(String[] args) {
+        //Leave room for the end-of-round states of the largest field
+        TournamentStateCache.configure(TournamentStateCacheConfig.getDefault()
+                .withMaximumWeight(1024L * 1024L * 1024L));
+        TTournament spec = TestSpecs.load("swiss1test1");
+        //Warm up on a smaller field first
+        runTournament(spec, 200, false);
+        for (int numPlayers : ImmutableList.of(500, 2000, 5000)) {
+            System.out.println(numPlayers + " players:");
+            runTournament(spec, numPlayers, true);
+        }
+    }
+
+    private static void runTournament(TTournament spec, int numPlayers, boolean print) {
+        Random random = new Random(numPlayers);
+        TSeeding initialSeeding = FuzzTests.createRandomSeeding(random, numPlayers);
+        TTournamentStatus status = TTournamentStatus.getInitialStatus(spec, initialSeeding);
+        for (int round = 0; round < NUM_ROUNDS; round++) {
+            long start = System.nanoTime();
+            Set<TMatchSetup> matchesToRun = status.getNextMatchesToRun().getMatchesToRun();
+            long nanos = System.nanoTime() - start;
+            if (print) {
+                System.out.println("  Round " + round + ": " + (nanos / 1000000) + " ms to pair "
+                        + matchesToRun.size() + " matches");
+            }
+            Set<TMatchResult> results = Sets.newHashSet();
+            for (TMatchSetup match : matchesToRun) {
+                //No aborted matches, so each batch of results completes a round
+                int goal = random.nextInt(3) * 50;
+                results.add(TMatchResult.getSuccessfulMatchResult(match.getMatchId(),
+                        ImmutableList.of(goal, 100 - goal)));
+            }
+            status = status.withNewResults(results);
+        }
+    }
+}
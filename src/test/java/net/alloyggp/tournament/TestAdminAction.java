@@ -1,8 +1,5 @@
 package net.alloyggp.tournament;
 
-import java.util.Comparator;
-
-import net.alloyggp.tournament.internal.MatchId;
 import net.alloyggp.tournament.internal.admin.InternalAdminAction;
 
 public class TestAdminAction extends InternalAdminAction {
@@ -43,16 +40,20 @@ public class TestAdminAction extends InternalAdminAction {
         return true;
     }
 
-    //TODO: Put this in some superclass.
     @Override
-    public boolean invalidates(MatchId matchId, Comparator<Integer> roundComparator) {
-        if (matchId.getStageNumber() < stageNum) {
-            return false;
-        }
-        if (matchId.getStageNumber() > stageNum) {
-            return true;
-        }
-        return roundComparator.compare(matchId.getRoundNumber(), roundNum) >= 0;
+    protected int getFirstInvalidatedStage() {
+        return stageNum;
+    }
+
+    @Override
+    protected int getFirstInvalidatedRound() {
+        return roundNum;
+    }
+
+    //Invalidates the whole round
+    @Override
+    protected int getFirstInvalidatedMatch() {
+        return 0;
     }
 
     @Override
@@ -0,0 +1,43 @@
+package net.alloyggp.tournament;
+
+import java.util.List;
+import java.util.Random;
+
+import net.alloyggp.tournament.api.TGoalModel;
+import net.alloyggp.tournament.api.TMatchSetup;
+import net.alloyggp.tournament.api.TPlayer;
+import net.alloyggp.tournament.api.TTournamentForecast;
+import net.alloyggp.tournament.api.TTournamentStatus;
+
+/**
+ * Measures how long {@link TTournamentForecast} takes to simulate a 64-player
+ * tournament with a Swiss stage followed by a single-elimination stage.
+ */
+public class TournamentForecastEval {
+    private static final String TEST_SPEC = "swiss2SingleElimTest1";
+    private static final int NUM_PLAYERS = 64;
+    private static final int NUM_SIMULATIONS = 10000;
+
+    public static void main(String[] args) {
+        TTournamentStatus status = TTournamentStatus.getInitialStatus(TestSpecs.load(TEST_SPEC),
+                FuzzTests.createRandomSeeding(new Random(0L), NUM_PLAYERS));
+        TGoalModel model = new TGoalModel() {
+            @Override
+            public List<Integer> sampleGoals(TMatchSetup match, Random random) {
+                return FuzzTests.getGoals(random, match.getGame());
+            }
+        };
+        //Warm up
+        TTournamentForecast.simulate(status, model, NUM_SIMULATIONS / 10, 0L);
+
+        long start = System.nanoTime();
+        TTournamentForecast forecast = TTournamentForecast.simulate(status, model, NUM_SIMULATIONS, 1L);
+        long millis = (System.nanoTime() - start) / 1000000L;
+        System.out.println(NUM_SIMULATIONS + " simulations of " + NUM_PLAYERS + " players on "
+                + Runtime.getRuntime().availableProcessors() + " processors: " + millis + " ms");
+        for (TPlayer player : forecast.getPlayers().subList(0, 4)) {
+            System.out.println("  " + player + ": wins " + forecast.getProbabilityOfWinning(player)
+                    + ", makes the cut " + forecast.getProbabilityOfReachingStage(player, 1));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package net.alloyggp.tournament;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.cache.CacheStats;
+import com.google.common.io.Files;
+
+import net.alloyggp.tournament.api.TGoalModel;
+import net.alloyggp.tournament.api.TMatchResult;
+import net.alloyggp.tournament.api.TMatchSetup;
+import net.alloyggp.tournament.api.TPlayer;
+import net.alloyggp.tournament.api.TTournament;
+import net.alloyggp.tournament.api.TTournamentForecast;
+import net.alloyggp.tournament.api.TTournamentStatus;
+import net.alloyggp.tournament.internal.runner.TournamentStateCache;
+import net.alloyggp.tournament.internal.runner.TournamentStateCacheConfig;
+
+public class TournamentForecastTest {
+    private static final double EPSILON = 1e-9;
+    private static final TGoalModel RANDOM_GOALS = new TGoalModel() {
+        @Override
+        public List<Integer> sampleGoals(TMatchSetup match, Random random) {
+            return FuzzTests.getGoals(random, match.getGame());
+        }
+    };
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @After
+    public void resetCache() {
+        TournamentStateCache.configure(TournamentStateCacheConfig.getDefault());
+    }
+
+    @Test
+    public void testDistributionsSumToOne() {
+        TTournamentStatus status = getPartlyPlayedStatus("swiss2SingleElimTest1", 10);
+        TTournamentForecast forecast = TTournamentForecast.simulate(status, RANDOM_GOALS, 200, 0L);
+        int numPlayers = forecast.getPlayers().size();
+        for (TPlayer player : forecast.getPlayers()) {
+            double total = 0.0;
+            for (double probability : forecast.getPositionDistribution(player)) {
+                total += probability;
+            }
+            assertEquals(1.0, total, EPSILON);
+            assertEquals(1.0, forecast.getProbabilityOfReachingStage(player, 0), EPSILON);
+        }
+        for (int position = 1; position <= numPlayers; position++) {
+            double total = 0.0;
+            for (TPlayer player : forecast.getPlayers()) {
+                total += forecast.getProbabilityOfPosition(player, position);
+            }
+            assertEquals(1.0, total, EPSILON);
+        }
+        //Exactly four players make the cut into the second stage
+        double expectedInSecondStage = 0.0;
+        for (TPlayer player : forecast.getPlayers()) {
+            expectedInSecondStage += forecast.getProbabilityOfReachingStage(player, 1);
+        }
+        assertEquals(4.0, expectedInSecondStage, EPSILON);
+    }
+
+    @Test
+    public void testSameSeedGivesSameForecast() {
+        TTournamentStatus status = getPartlyPlayedStatus("swiss1SingleElimTest1", 8);
+        TTournamentForecast forecast1 = TTournamentForecast.simulate(status, RANDOM_GOALS, 100, 42L);
+        TTournamentForecast forecast2 = TTournamentForecast.simulate(status, RANDOM_GOALS, 100, 42L);
+        for (TPlayer player : forecast1.getPlayers()) {
+            assertEquals(forecast1.getPositionDistribution(player), forecast2.getPositionDistribution(player));
+        }
+    }
+
+    @Test
+    public void testCompletedTournamentIsCertain() {
+        TTournamentStatus status = getPartlyPlayedStatus("singleElim", 1000);
+        TTournamentForecast forecast = TTournamentForecast.simulate(status, RANDOM_GOALS, 10, 0L);
+        List<TPlayer> finalStandings = status.getCurrentStandings().getPlayersBestFirst();
+        for (int i = 0; i < finalStandings.size(); i++) {
+            assertEquals(1.0, forecast.getProbabilityOfPosition(finalStandings.get(i), i + 1), EPSILON);
+        }
+    }
+
+    @Test
+    public void testForecastDoesNotUseSharedCache() throws IOException {
+        File file = temporaryFolder.newFile();
+        TournamentStateCache.configure(TournamentStateCacheConfig.getDefault().withPersistentFile(file));
+        TTournamentStatus status = getPartlyPlayedStatus("swiss2SingleElimTest1", 6);
+        status.getCurrentStandings();
+        CacheStats statsBefore = TournamentStateCache.getStats();
+        byte[] fileBefore = Files.toByteArray(file);
+
+        TTournamentForecast.simulate(status, RANDOM_GOALS, 50, 0L);
+
+        assertEquals(statsBefore, TournamentStateCache.getStats());
+        assertArrayEquals(fileBefore, Files.toByteArray(file));
+    }
+
+    /*
+     * Plays up to the given number of rounds of the tournament with random
+     * results and returns the resulting status.
+     */
+    private static TTournamentStatus getPartlyPlayedStatus(String testSpec, int numRounds) {
+        Random random = new Random(0L);
+        TTournament spec = TestSpecs.load(testSpec);
+        TTournamentStatus status = TTournamentStatus.getInitialStatus(spec,
+                FuzzTests.createRandomSeeding(random, 9));
+        for (int round = 0; round < numRounds && !status.isComplete(); round++) {
+            for (TMatchSetup match : status.getNextMatchesToRun().getMatchesToRun()) {
+                status = status.withNewResult(TMatchResult.getSuccessfulMatchResult(match.getMatchId(),
+                        FuzzTests.getGoals(random, match.getGame())));
+            }
+        }
+        return status;
+    }
+}
@@ -0,0 +1,126 @@
+package net.alloyggp.tournament;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import net.alloyggp.tournament.api.TMatchResult;
+import net.alloyggp.tournament.api.TMatchSetup;
+import net.alloyggp.tournament.api.TTournament;
+import net.alloyggp.tournament.api.TTournamentHost;
+import net.alloyggp.tournament.api.TTournamentSnapshot;
+import net.alloyggp.tournament.api.TTournamentStatus;
+
+public class TournamentHostTest {
+    private static final ImmutableList<String> TEST_SPECS =
+            ImmutableList.of("singleElim", "swiss1test1", "swiss2test1", "swiss3test1");
+    private static final int NUM_WORKERS = 8;
+
+    /*
+     * Runs several tournaments at once, with every result of a round added by a
+     * different worker thread, and checks that the host agrees with the statuses
+     * built from the same results.
+     */
+    @Test
+    public void testConcurrentResultsMatchStatus() throws Exception {
+        Random random = new Random(0L);
+        final TTournamentHost host = TTournamentHost.create();
+        Map<String, TTournamentStatus> statuses = Maps.newHashMap();
+        for (String testSpec : TEST_SPECS) {
+            TTournament spec = TestSpecs.load(testSpec);
+            TTournamentStatus status = TTournamentStatus.getInitialStatus(spec,
+                    FuzzTests.createRandomSeeding(random, 9));
+            host.addTournament(status);
+            statuses.put(spec.getInternalName(), status);
+        }
+        assertEquals(statuses.keySet(), host.getTournamentNames());
+
+        ExecutorService executor = Executors.newFixedThreadPool(NUM_WORKERS);
+        try {
+            while (!allComplete(statuses)) {
+                final CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = Lists.newArrayList();
+                for (Map.Entry<String, TTournamentStatus> entry : statuses.entrySet()) {
+                    final String name = entry.getKey();
+                    TTournamentStatus status = entry.getValue();
+                    List<TMatchResult> results = Lists.newArrayList();
+                    for (TMatchSetup match : host.evaluate(name).getNextMatchesToRun().getMatchesToRun()) {
+                        results.add(FuzzTests.getResult(random, match));
+                    }
+                    for (final TMatchResult result : results) {
+                        futures.add(executor.submit(new Runnable() {
+                            @Override
+                            public void run() {
+                                Uninterruptibles.awaitUninterruptibly(start);
+                                host.addResult(name, result);
+                            }
+                        }));
+                    }
+                    statuses.put(name, status.withNewResults(results));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                for (Map.Entry<String, TTournamentStatus> entry : statuses.entrySet()) {
+                    TTournamentSnapshot snapshot = host.evaluate(entry.getKey());
+                    TTournamentStatus status = entry.getValue();
+                    assertEquals(status.getNextMatchesToRun().getMatchesToRun(),
+                            snapshot.getNextMatchesToRun().getMatchesToRun());
+                    assertEquals(status.getStandingsHistory(), snapshot.getStandingsHistory());
+                    assertEquals(status.getResultsSoFar(), host.getStatus(entry.getKey()).getResultsSoFar());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRemovedTournamentIsForgotten() {
+        TTournamentHost host = TTournamentHost.create();
+        TTournament spec = TestSpecs.load("singleElim");
+        host.addTournament(TTournamentStatus.getInitialStatus(spec,
+                FuzzTests.createRandomSeeding(new Random(0L), 4)));
+        host.removeTournament(spec.getInternalName());
+        assertTrue(host.getTournamentNames().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateNameRejected() {
+        TTournamentHost host = TTournamentHost.create();
+        TTournament spec = TestSpecs.load("singleElim");
+        host.addTournament(TTournamentStatus.getInitialStatus(spec,
+                FuzzTests.createRandomSeeding(new Random(0L), 4)));
+        host.addTournament(TTournamentStatus.getInitialStatus(spec,
+                FuzzTests.createRandomSeeding(new Random(1L), 4)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownNameRejected() {
+        TTournamentHost.create().evaluate("notHosted");
+    }
+
+    private static boolean allComplete(Map<String, TTournamentStatus> statuses) {
+        for (TTournamentStatus status : statuses.values()) {
+            if (!status.isComplete()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
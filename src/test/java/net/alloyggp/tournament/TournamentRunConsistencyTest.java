@@ -0,0 +1,99 @@
+package net.alloyggp.tournament;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import net.alloyggp.tournament.api.TMatchResult;
+import net.alloyggp.tournament.api.TMatchSetup;
+import net.alloyggp.tournament.api.TNextMatchesResult;
+import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.internal.InternalMatchResult;
+import net.alloyggp.tournament.internal.StandardTournamentSnapshot;
+import net.alloyggp.tournament.internal.spec.TournamentRun;
+import net.alloyggp.tournament.internal.spec.TournamentSpec;
+
+/**
+ * This is a fuzz test for the following invariant:
+ *
+ * <p>A {@link TournamentRun} given results one at a time gives the same snapshot
+ * as evaluating all the results so far at once, including when results arrive
+ * for rounds that have already been completed.
+ */
+@RunWith(Parameterized.class)
+public class TournamentRunConsistencyTest {
+    @Parameters(name = "{index}: {0} players, {1}")
+    public static Iterable<Object[]> data() {
+        return FuzzTests.getParameters();
+    }
+
+    private final int numPlayers;
+    private final String testSpec;
+
+    public TournamentRunConsistencyTest(int numPlayers, String testSpec) {
+        this.numPlayers = numPlayers;
+        this.testSpec = testSpec;
+    }
+
+    @Test
+    public void testRunMatchesEvaluation() {
+        TournamentSpec spec = (TournamentSpec) TestSpecs.load(testSpec);
+        for (long seed = 0L; seed < 10L; seed++) {
+            try {
+                Random random = new Random(seed);
+                TSeeding initialSeeding = FuzzTests.createRandomSeeding(random, numPlayers);
+                Set<InternalMatchResult> resultsSoFar = Sets.newHashSet();
+                List<InternalMatchResult> resultsInOrder = Lists.newArrayList();
+                TournamentRun run = spec.startRun(initialSeeding, ImmutableList.<InternalMatchResult>of());
+                while (true) {
+                    StandardTournamentSnapshot expected = spec.evaluateForInternalResults(initialSeeding,
+                            ImmutableSet.copyOf(resultsSoFar));
+                    StandardTournamentSnapshot actual = run.getSnapshot();
+                    assertSameMatches(expected.getNextMatchesToRun(), actual.getNextMatchesToRun());
+                    assertSameMatches(expected.getNextMatchesToRun(), run.getNextMatchesToRun());
+                    assertEquals(expected.getCurrentStandings(), actual.getCurrentStandings());
+                    assertEquals(expected.getStandingsHistory(), actual.getStandingsHistory());
+                    assertEquals(expected.getStageSeedings(), actual.getStageSeedings());
+
+                    Set<TMatchSetup> nextMatches = expected.getNextMatchesToRun().getMatchesToRun();
+                    if (nextMatches.isEmpty()) {
+                        break;
+                    }
+                    InternalMatchResult result;
+                    if (!resultsInOrder.isEmpty() && random.nextDouble() < 0.1) {
+                        //An aborted attempt reported late, possibly for a round that is over
+                        InternalMatchResult earlierResult = FuzzTests.pickAtRandom(random, resultsInOrder);
+                        result = InternalMatchResult.create(TMatchResult.getAbortedMatchResult(
+                                earlierResult.getMatchId().toString()));
+                    } else {
+                        TMatchSetup matchToResolve = FuzzTests.pickMatchAtRandom(random, nextMatches);
+                        result = InternalMatchResult.create(FuzzTests.getResult(random, matchToResolve));
+                    }
+                    if (resultsSoFar.add(result)) {
+                        resultsInOrder.add(result);
+                        run.addResults(ImmutableList.of(result));
+                    }
+                }
+            } catch (Exception | AssertionError e) {
+                throw new RuntimeException("Seed was " + seed, e);
+            }
+        }
+    }
+
+    private static void assertSameMatches(TNextMatchesResult expected, TNextMatchesResult actual) {
+        assertEquals(expected.getMatchesToRun(), actual.getMatchesToRun());
+        assertEquals(expected.getEarliestAllowedStartTime(), actual.getEarliestAllowedStartTime());
+    }
+}
@@ -0,0 +1,141 @@
+package net.alloyggp.tournament;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import net.alloyggp.tournament.api.TMatchResult;
+import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.internal.InternalMatchResult;
+import net.alloyggp.tournament.internal.admin.InternalAdminAction;
+import net.alloyggp.tournament.internal.runner.EndOfRoundState;
+import net.alloyggp.tournament.internal.runner.TournamentStateCache;
+import net.alloyggp.tournament.internal.spec.RoundSpec;
+import net.alloyggp.tournament.internal.spec.StageFormat;
+
+/**
+ * Measures the throughput of the {@link TournamentStateCache} when many threads
+ * look up and store states for the same stage of the same tournament, as the
+ * request threads of a busy server do. One operation in every
+ * {@link #LOOKUPS_PER_STORE} + 1 is a store of a new state.
+ */
+public class TournamentStateCacheContentionEval {
+    private static final int NUM_ROUNDS = 10;
+    private static final int MATCHES_PER_ROUND = 4;
+    private static final int VARIANTS_PER_ROUND = 4;
+    private static final int NUM_PATHS = 1000;
+    private static final int NUM_QUERIES = 1000;
+    private static final int LOOKUPS_PER_STORE = 15;
+    private static final long WARMUP_MILLIS = 2000L;
+    private static final long MEASURE_MILLIS = 3000L;
+    private static final String TOURNAMENT_NAME = "contentionEval";
+    private static final TSeeding SEEDING = TSeeding.create(FuzzTests.createPlayers(MATCHES_PER_ROUND * 2));
+    private static final ImmutableList<InternalAdminAction> NO_ACTIONS = ImmutableList.of();
+    private static final ImmutableSet<InternalMatchResult> NO_RESULTS = ImmutableSet.of();
+    private static final ImmutableList<RoundSpec> ROUNDS =
+            TestSpecs.load("swiss1test1").getStages().get(0).getRounds();
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(0L);
+        List<List<Set<InternalMatchResult>>> variants = Lists.newArrayList();
+        for (int round = 0; round < NUM_ROUNDS; round++) {
+            List<Set<InternalMatchResult>> roundVariants = Lists.newArrayList();
+            for (int variant = 0; variant < VARIANTS_PER_ROUND; variant++) {
+                roundVariants.add(createRoundResults(random, round));
+            }
+            variants.add(roundVariants);
+        }
+        for (int path = 0; path < NUM_PATHS; path++) {
+            Set<InternalMatchResult> resultsSoFar = Sets.newHashSet();
+            for (int round = 0; round < NUM_ROUNDS; round++) {
+                resultsSoFar.addAll(FuzzTests.pickAtRandom(random, variants.get(round)));
+                TournamentStateCache.cacheEndOfRoundState(TOURNAMENT_NAME, SEEDING, NO_ACTIONS, NO_RESULTS, 0,
+                        StageFormat.SWISS1, ROUNDS, resultsSoFar, round, new EvalState());
+            }
+        }
+        //Queries may continue past the stored paths by a round, so stores keep adding nodes
+        final List<ImmutableSet<InternalMatchResult>> queries = Lists.newArrayList();
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            Set<InternalMatchResult> resultsSoFar = Sets.newHashSet();
+            for (int round = 0; round < NUM_ROUNDS; round++) {
+                resultsSoFar.addAll(FuzzTests.pickAtRandom(random, variants.get(round)));
+            }
+            resultsSoFar.addAll(createRoundResults(random, NUM_ROUNDS));
+            queries.add(ImmutableSet.copyOf(resultsSoFar));
+        }
+
+        System.out.println(NUM_PATHS + " result histories of " + NUM_ROUNDS + " rounds cached");
+        for (int numThreads : ImmutableList.of(1, 8, 32)) {
+            run(queries, numThreads, WARMUP_MILLIS);
+            long numOps = run(queries, numThreads, MEASURE_MILLIS);
+            System.out.println("  " + numThreads + " threads: "
+                    + (numOps * 1000L / MEASURE_MILLIS) + " ops/s");
+        }
+    }
+
+    private static long run(final List<ImmutableSet<InternalMatchResult>> queries, int numThreads,
+            long millis) throws InterruptedException {
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        final AtomicLong numOps = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = Lists.newArrayList();
+        for (int t = 0; t < numThreads; t++) {
+            final Random random = new Random(t);
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Uninterruptibles.awaitUninterruptibly(start);
+                    long ops = 0;
+                    while (!stop.get()) {
+                        ImmutableSet<InternalMatchResult> query = queries.get(random.nextInt(queries.size()));
+                        if (ops % (LOOKUPS_PER_STORE + 1) == LOOKUPS_PER_STORE) {
+                            TournamentStateCache.cacheEndOfRoundState(TOURNAMENT_NAME, SEEDING, NO_ACTIONS,
+                                    NO_RESULTS, 0, StageFormat.SWISS1, ROUNDS, query, NUM_ROUNDS, new EvalState());
+                        } else {
+                            TournamentStateCache.getLatestCachedEndOfRoundState(TOURNAMENT_NAME, SEEDING,
+                                    NO_ACTIONS, NO_RESULTS, 0, StageFormat.SWISS1, ROUNDS, query);
+                        }
+                        ops++;
+                    }
+                    numOps.addAndGet(ops);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        Thread.sleep(millis);
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return numOps.get();
+    }
+
+    private static Set<InternalMatchResult> createRoundResults(Random random, int round) {
+        Set<InternalMatchResult> results = Sets.newHashSet();
+        for (int match = 0; match < MATCHES_PER_ROUND; match++) {
+            int goal = random.nextInt(101);
+            String matchId = "ggpt-0-" + round + "-" + match + "-0-0";
+            results.add(InternalMatchResult.create(
+                    TMatchResult.getSuccessfulMatchResult(matchId, ImmutableList.of(goal, 100 - goal))));
+        }
+        return results;
+    }
+
+    private static class EvalState implements EndOfRoundState {
+        @Override
+        public long estimateRetainedSize() {
+            return 0L;
+        }
+    }
+}
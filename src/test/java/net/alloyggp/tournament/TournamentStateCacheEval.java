@@ -0,0 +1,164 @@
+package net.alloyggp.tournament;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
+
+import net.alloyggp.tournament.api.TMatchResult;
+import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.internal.InternalMatchResult;
+import net.alloyggp.tournament.internal.admin.InternalAdminAction;
+import net.alloyggp.tournament.internal.runner.EndOfRoundState;
+import net.alloyggp.tournament.internal.runner.TournamentStateCache;
+import net.alloyggp.tournament.internal.spec.RoundSpec;
+import net.alloyggp.tournament.internal.spec.StageFormat;
+
+/**
+ * Compares the lookup time of the {@link TournamentStateCache} against the linear
+ * scan over cache entries that it used to perform, with thousands of counterfactual
+ * end-of-round states cached for a single stage.
+ */
+public class TournamentStateCacheEval {
+    private static final int NUM_ROUNDS = 10;
+    private static final int MATCHES_PER_ROUND = 32;
+    private static final int VARIANTS_PER_ROUND = 4;
+    private static final int NUM_LOOKUPS = 2000;
+    private static final String TOURNAMENT_NAME = "cacheEval";
+    private static final TSeeding SEEDING = TSeeding.create(FuzzTests.createPlayers(MATCHES_PER_ROUND * 2));
+    private static final ImmutableList<InternalAdminAction> NO_ACTIONS = ImmutableList.of();
+    private static final ImmutableSet<InternalMatchResult> NO_RESULTS = ImmutableSet.of();
+    private static final ImmutableList<RoundSpec> ROUNDS =
+            TestSpecs.load("swiss1test1").getStages().get(0).getRounds();
+
+    public static void main(String[] args) {
+        for (int numPaths : ImmutableList.of(100, 1000, 5000)) {
+            System.out.println("Caching " + numPaths + " result histories of " + NUM_ROUNDS + " rounds each");
+            Random random = new Random(numPaths);
+            //Each round has a few possible sets of results
+            List<List<Set<InternalMatchResult>>> variants = Lists.newArrayList();
+            for (int round = 0; round < NUM_ROUNDS; round++) {
+                List<Set<InternalMatchResult>> roundVariants = Lists.newArrayList();
+                for (int variant = 0; variant < VARIANTS_PER_ROUND; variant++) {
+                    roundVariants.add(createRoundResults(random, round));
+                }
+                variants.add(roundVariants);
+            }
+
+            LinearScanIndex linearScan = new LinearScanIndex();
+            String tournamentName = TOURNAMENT_NAME + numPaths;
+            int numEntries = 0;
+            for (int path = 0; path < numPaths; path++) {
+                Set<InternalMatchResult> resultsSoFar = Sets.newHashSet();
+                for (int round = 0; round < NUM_ROUNDS; round++) {
+                    resultsSoFar.addAll(FuzzTests.pickAtRandom(random, variants.get(round)));
+                    EndOfRoundState state = new EvalState(path, round);
+                    TournamentStateCache.cacheEndOfRoundState(tournamentName, SEEDING, NO_ACTIONS, NO_RESULTS, 0,
+                            StageFormat.SWISS1, ROUNDS, resultsSoFar, round, state);
+                    linearScan.store(ImmutableSet.copyOf(resultsSoFar), state);
+                    numEntries++;
+                }
+            }
+            System.out.println("  " + numEntries + " entries stored");
+
+            List<ImmutableSet<InternalMatchResult>> queries = Lists.newArrayList();
+            for (int i = 0; i < NUM_LOOKUPS; i++) {
+                Set<InternalMatchResult> resultsSoFar = Sets.newHashSet();
+                for (int round = 0; round < NUM_ROUNDS; round++) {
+                    resultsSoFar.addAll(FuzzTests.pickAtRandom(random, variants.get(round)));
+                }
+                queries.add(ImmutableSet.copyOf(resultsSoFar));
+            }
+
+            long start = System.nanoTime();
+            int hits = 0;
+            for (ImmutableSet<InternalMatchResult> query : queries) {
+                if (TournamentStateCache.getLatestCachedEndOfRoundState(tournamentName, SEEDING, NO_ACTIONS,
+                        NO_RESULTS, 0, StageFormat.SWISS1, ROUNDS, query) != null) {
+                    hits++;
+                }
+            }
+            long indexedNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int linearHits = 0;
+            for (ImmutableSet<InternalMatchResult> query : queries) {
+                if (linearScan.getLatest(query) != null) {
+                    linearHits++;
+                }
+            }
+            long linearNanos = System.nanoTime() - start;
+
+            System.out.println("  Indexed lookup: " + (indexedNanos / NUM_LOOKUPS / 1000) + " us/lookup (" + hits + " hits)");
+            System.out.println("  Linear scan:    " + (linearNanos / NUM_LOOKUPS / 1000) + " us/lookup (" + linearHits + " hits)");
+        }
+    }
+
+    private static Set<InternalMatchResult> createRoundResults(Random random, int round) {
+        Set<InternalMatchResult> results = Sets.newHashSet();
+        for (int match = 0; match < MATCHES_PER_ROUND; match++) {
+            int goal = random.nextInt(101);
+            String matchId = "ggpt-0-" + round + "-" + match + "-0-0";
+            results.add(InternalMatchResult.create(
+                    TMatchResult.getSuccessfulMatchResult(matchId, ImmutableList.of(goal, 100 - goal))));
+        }
+        return results;
+    }
+
+    private static class EvalState implements EndOfRoundState {
+        @SuppressWarnings("unused")
+        private final int path;
+        @SuppressWarnings("unused")
+        private final int round;
+
+        public EvalState(int path, int round) {
+            this.path = path;
+            this.round = round;
+        }
+
+        @Override
+        public long estimateRetainedSize() {
+            return 0L;
+        }
+    }
+
+    /**
+     * The previous lookup strategy: entries grouped by result count, scanned from
+     * the largest down, checking each with containsAll.
+     */
+    private static class LinearScanIndex {
+        private final SortedMap<Integer, List<Map.Entry<ImmutableSet<InternalMatchResult>, EndOfRoundState>>> entries =
+                Maps.newTreeMap(Ordering.<Integer>natural().reverse());
+
+        public void store(ImmutableSet<InternalMatchResult> results, EndOfRoundState state) {
+            int size = results.size();
+            if (!entries.containsKey(size)) {
+                entries.put(size, Lists.<Map.Entry<ImmutableSet<InternalMatchResult>, EndOfRoundState>>newArrayList());
+            }
+            entries.get(size).add(Maps.immutableEntry(results, state));
+        }
+
+        public EndOfRoundState getLatest(ImmutableSet<InternalMatchResult> results) {
+            for (Map.Entry<Integer, List<Map.Entry<ImmutableSet<InternalMatchResult>, EndOfRoundState>>> sizeEntry
+                    : entries.entrySet()) {
+                if (sizeEntry.getKey() > results.size()) {
+                    continue;
+                }
+                for (Map.Entry<ImmutableSet<InternalMatchResult>, EndOfRoundState> entry : sizeEntry.getValue()) {
+                    if (results.containsAll(entry.getKey())) {
+                        return entry.getValue();
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
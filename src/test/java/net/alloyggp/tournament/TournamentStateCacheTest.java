@@ -0,0 +1,315 @@
+package net.alloyggp.tournament;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import net.alloyggp.tournament.api.TMatchResult;
+import net.alloyggp.tournament.api.TMatchSetup;
+import net.alloyggp.tournament.api.TRanking;
+import net.alloyggp.tournament.api.TSeeding;
+import net.alloyggp.tournament.api.TTournament;
+import net.alloyggp.tournament.api.TTournamentStatus;
+import net.alloyggp.tournament.internal.InternalMatchResult;
+import net.alloyggp.tournament.internal.admin.InternalAdminAction;
+import net.alloyggp.tournament.internal.runner.EndOfRoundState;
+import net.alloyggp.tournament.internal.runner.PersistentStateStore;
+import net.alloyggp.tournament.internal.runner.TournamentStateCache;
+import net.alloyggp.tournament.internal.runner.TournamentStateCacheConfig;
+import net.alloyggp.tournament.internal.spec.RoundSpec;
+import net.alloyggp.tournament.internal.spec.StageFormat;
+
+public class TournamentStateCacheTest {
+    private static final int NUM_THREADS = 8;
+    private static final int STATES_PER_THREAD = 20;
+    //After the magic number and version
+    private static final int FIRST_RECORD_POSITION = 8;
+    private static final ImmutableList<RoundSpec> ROUNDS =
+            TestSpecs.load("swiss1test1").getStages().get(0).getRounds();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @After
+    public void restoreDefaultConfig() {
+        TournamentStateCache.configure(TournamentStateCacheConfig.getDefault());
+    }
+
+    @Test
+    public void testStatsRecordHits() {
+        TournamentStateCache.configure(TournamentStateCacheConfig.getDefault());
+        runTournament("swiss1test1", 0L);
+        CacheStats stats = TournamentStateCache.getStats();
+        assertTrue(stats.requestCount() > 0);
+        assertTrue(stats.hitCount() > 0);
+    }
+
+    @Test
+    public void testLookupMissDoesNotCreateEntry() {
+        TournamentStateCache.configure(TournamentStateCacheConfig.getDefault());
+        TSeeding seeding = FuzzTests.createRandomSeeding(new Random(5L), 4);
+        ImmutableSet<InternalMatchResult> results = ImmutableSet.of(InternalMatchResult.create(
+                TMatchResult.getSuccessfulMatchResult("ggpt-0-0-0-0-0", ImmutableList.of(100, 0))));
+        assertNull(TournamentStateCache.getLatestCachedEndOfRoundState("lookupMiss", seeding,
+                ImmutableList.<InternalAdminAction>of(), ImmutableSet.<InternalMatchResult>of(),
+                0, StageFormat.SWISS1, ROUNDS, results));
+        CacheStats stats = TournamentStateCache.getStats();
+        assertEquals(1L, stats.missCount());
+        assertEquals(0L, stats.loadCount());
+    }
+
+    @Test
+    public void testTinyCacheDoesNotChangeResults() {
+        for (String specName : Lists.newArrayList("swiss1test3", "swiss2test3", "singleElimTwoStages")) {
+            TournamentStateCache.configure(TournamentStateCacheConfig.getDefault());
+            List<TRanking> expected = runTournament(specName, 1L);
+
+            TournamentStateCache.configure(TournamentStateCacheConfig.getDefault()
+                    .withMaximumWeight(2000L)
+                    .withSoftReferenceTier(true));
+            assertEquals(expected, runTournament(specName, 1L));
+            assertTrue(TournamentStateCache.getStats().evictionCount() > 0);
+
+            TournamentStateCache.configure(TournamentStateCacheConfig.getDefault()
+                    .withPerTournamentQuota(5000L));
+            assertEquals(expected, runTournament(specName, 1L));
+        }
+    }
+
+    @Test
+    public void testEvictedTournamentsAreNoLongerTracked() {
+        //Nothing fits, so every stage is evicted as soon as it's added
+        TournamentStateCache.configure(TournamentStateCacheConfig.getDefault()
+                .withMaximumWeight(0L)
+                .withPerTournamentQuota(1L << 20));
+        for (String specName : Lists.newArrayList("swiss1test3", "swiss2test3", "singleElimTwoStages")) {
+            runTournament(specName, 3L);
+        }
+        assertTrue(TournamentStateCache.getStats().evictionCount() > 0);
+        assertEquals(0, TournamentStateCache.getNumTournamentsCached());
+    }
+
+    @Test
+    public void testPersistentFileRestoresStates() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "states.bin");
+        for (String specName : Lists.newArrayList("swiss1test3", "swiss2test3", "singleElimTwoStages")) {
+            TournamentStateCache.configure(TournamentStateCacheConfig.getDefault().withPersistentFile(file));
+            List<TRanking> expected = runTournament(specName, 2L);
+
+            //Without room in memory, every state has to come from the file
+            TournamentStateCache.configure(TournamentStateCacheConfig.getDefault()
+                    .withPersistentFile(file)
+                    .withMaximumWeight(0L));
+            assertEquals(expected, runTournament(specName, 2L));
+        }
+        TournamentStateCache.configure(TournamentStateCacheConfig.getDefault());
+
+        PersistentStateStore store = PersistentStateStore.open(file, Integer.MAX_VALUE);
+        try {
+            assertTrue(store.getNumStates() > 0);
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testPersistentFileIgnoresTornRecord() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "states.bin");
+        TournamentStateCache.configure(TournamentStateCacheConfig.getDefault().withPersistentFile(file));
+        runTournament("swiss1test3", 3L);
+        TournamentStateCache.configure(TournamentStateCacheConfig.getDefault());
+
+        PersistentStateStore store = PersistentStateStore.open(file, Integer.MAX_VALUE);
+        int numStates = store.getNumStates();
+        store.close();
+        //Corrupt the end of the last record
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            long position = findLastNonZeroByte(randomAccessFile);
+            randomAccessFile.seek(position);
+            int lastByte = randomAccessFile.read();
+            randomAccessFile.seek(position);
+            randomAccessFile.write(lastByte ^ 0xFF);
+        } finally {
+            randomAccessFile.close();
+        }
+
+        store = PersistentStateStore.open(file, Integer.MAX_VALUE);
+        try {
+            assertEquals(numStates - 1, store.getNumStates());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testPersistentFileStaysWithinMaximumSize() throws IOException {
+        File unboundedFile = new File(temporaryFolder.getRoot(), "unbounded.bin");
+        File boundedFile = new File(temporaryFolder.getRoot(), "bounded.bin");
+        int maximumSize = 64 * 1024;
+        List<List<TRanking>> expected = Lists.newArrayList();
+        TournamentStateCache.configure(TournamentStateCacheConfig.getDefault().withPersistentFile(unboundedFile));
+        for (String specName : Lists.newArrayList("swiss1test3", "swiss2test3", "singleElimTwoStages")) {
+            for (long seed = 6L; seed < 10L; seed++) {
+                expected.add(runTournament(specName, seed));
+            }
+        }
+
+        //Without room in memory, states have to come from the file when they can
+        TournamentStateCache.configure(TournamentStateCacheConfig.getDefault()
+                .withPersistentFile(boundedFile)
+                .withMaximumPersistentFileSize(maximumSize)
+                .withMaximumWeight(0L));
+        List<List<TRanking>> actual = Lists.newArrayList();
+        for (String specName : Lists.newArrayList("swiss1test3", "swiss2test3", "singleElimTwoStages")) {
+            for (long seed = 6L; seed < 10L; seed++) {
+                actual.add(runTournament(specName, seed));
+            }
+        }
+        assertEquals(expected, actual);
+        TournamentStateCache.configure(TournamentStateCacheConfig.getDefault());
+
+        PersistentStateStore unboundedStore = PersistentStateStore.open(unboundedFile, Integer.MAX_VALUE);
+        PersistentStateStore boundedStore = PersistentStateStore.open(boundedFile, maximumSize);
+        try {
+            assertTrue(unboundedStore.getUsedBytes() > maximumSize);
+            assertTrue(boundedStore.getNumStates() > 0);
+            assertTrue(boundedStore.getUsedBytes() <= maximumSize);
+        } finally {
+            unboundedStore.close();
+            boundedStore.close();
+        }
+    }
+
+    @Test
+    public void testUnreadableStateIsTreatedAsMiss() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "states.bin");
+        TournamentStateCache.configure(TournamentStateCacheConfig.getDefault().withPersistentFile(file));
+        List<TRanking> expected = runTournament("swiss1test3", 7L);
+        TournamentStateCache.configure(TournamentStateCacheConfig.getDefault());
+
+        //Replace the first record's payload with garbage that still passes its checksum
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.seek(FIRST_RECORD_POSITION + 16);
+            byte[] payload = new byte[randomAccessFile.readInt()];
+            Arrays.fill(payload, (byte) 'x');
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            randomAccessFile.writeLong(crc.getValue());
+            randomAccessFile.write(payload);
+        } finally {
+            randomAccessFile.close();
+        }
+
+        TournamentStateCache.configure(TournamentStateCacheConfig.getDefault()
+                .withPersistentFile(file)
+                .withMaximumWeight(0L));
+        assertEquals(expected, runTournament("swiss1test3", 7L));
+    }
+
+    /*
+     * Many threads storing states for different results of the same round at
+     * once, enough to move the children of the stage's root to a concurrent map.
+     */
+    @Test
+    public void testConcurrentStoresAreAllKept() throws Exception {
+        final TSeeding seeding = FuzzTests.createRandomSeeding(new Random(4L), 4);
+        final List<ImmutableSet<InternalMatchResult>> resultSets = Lists.newArrayList();
+        final List<EndOfRoundState> states = Lists.newArrayList();
+        for (int i = 0; i < NUM_THREADS * STATES_PER_THREAD; i++) {
+            resultSets.add(ImmutableSet.of(InternalMatchResult.create(
+                    TMatchResult.getSuccessfulMatchResult("ggpt-0-0-0-0-" + i, ImmutableList.of(100, 0)))));
+            states.add(new TestState());
+        }
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int t = 0; t < NUM_THREADS; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        Uninterruptibles.awaitUninterruptibly(start);
+                        for (int i = thread; i < resultSets.size(); i += NUM_THREADS) {
+                            TournamentStateCache.cacheEndOfRoundState("concurrentStores", seeding,
+                                    ImmutableList.<InternalAdminAction>of(), ImmutableSet.<InternalMatchResult>of(),
+                                    0, StageFormat.SWISS1, ROUNDS, resultSets.get(i), 0, states.get(i));
+                        }
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (int i = 0; i < resultSets.size(); i++) {
+            assertSame(states.get(i), TournamentStateCache.getLatestCachedEndOfRoundState("concurrentStores",
+                    seeding, ImmutableList.<InternalAdminAction>of(), ImmutableSet.<InternalMatchResult>of(),
+                    0, StageFormat.SWISS1, ROUNDS, resultSets.get(i)));
+        }
+    }
+
+    private static class TestState implements EndOfRoundState {
+        @Override
+        public long estimateRetainedSize() {
+            return 0L;
+        }
+    }
+
+    private static long findLastNonZeroByte(RandomAccessFile file) throws IOException {
+        for (long position = file.length() - 1; position >= 0; position--) {
+            file.seek(position);
+            if (file.read() != 0) {
+                return position;
+            }
+        }
+        throw new IllegalStateException("The file is empty");
+    }
+
+    private static List<TRanking> runTournament(String specName, long seed) {
+        TTournament spec = TestSpecs.load(specName);
+        Random random = new Random(seed);
+        TSeeding initialSeeding = FuzzTests.createRandomSeeding(random, 10);
+        TTournamentStatus status = TTournamentStatus.getInitialStatus(spec, initialSeeding);
+        while (true) {
+            Set<TMatchSetup> nextMatches = status.getNextMatchesToRun().getMatchesToRun();
+            if (nextMatches.isEmpty()) {
+                break;
+            }
+            TMatchSetup matchToResolve = FuzzTests.pickMatchAtRandom(random, nextMatches);
+            TMatchResult result = FuzzTests.getResult(random, matchToResolve);
+            status = status.withNewResult(result);
+        }
+        return status.getStandingsHistory();
+    }
+}